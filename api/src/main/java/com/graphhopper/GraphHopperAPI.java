@@ -17,6 +17,9 @@
  */
 package com.graphhopper;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Wrapper of the graphhopper online or offline API. Provides read only access.
  * <p>
@@ -40,4 +43,19 @@ public interface GraphHopperAPI {
      * @return the response with the route and possible errors
      */
     GHResponse route(GHRequest request);
+
+    /**
+     * Calculates the paths of many requests. Implementations can do this more efficiently than calling route for
+     * every request.
+     * <p>
+     *
+     * @return the responses in the order of the requests
+     */
+    default List<GHResponse> routeBatch(List<GHRequest> requests) {
+        List<GHResponse> responses = new ArrayList<>(requests.size());
+        for (GHRequest request : requests) {
+            responses.add(route(request));
+        }
+        return responses;
+    }
 }
@@ -153,6 +153,11 @@ public class Parameters {
          * This property name configures at start if the DISABLE parameter can have an effect.
          */
         public static final String INIT_DISABLING_ALLOWED = ROUTING_INIT_PREFIX + "ch.disabling_allowed";
+        /**
+         * This property name in a CH profile string like "fastest|compact_shortcuts=true" specifies if the
+         * shortcuts should be stored in the compact layout after the preparation.
+         */
+        public static final String COMPACT_SHORTCUTS = "compact_shortcuts";
     }
 
     /**
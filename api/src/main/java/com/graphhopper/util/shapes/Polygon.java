@@ -225,6 +225,21 @@ public class Polygon implements Shape {
         return maxLon;
     }
 
+    /**
+     * @return the number of points, the last point is connected to the first one
+     */
+    public int size() {
+        return lat.length;
+    }
+
+    public double getLat(int index) {
+        return lat[index];
+    }
+
+    public double getLon(int index) {
+        return lon[index];
+    }
+
     @Override
     public String toString() {
         return "polygon (" + lat.length + " points)";
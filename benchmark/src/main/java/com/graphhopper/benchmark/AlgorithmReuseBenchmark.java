@@ -0,0 +1,96 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.routing.AbstractBidirAlgo;
+import com.graphhopper.routing.AlgorithmOptions;
+import com.graphhopper.routing.RoutingAlgorithm;
+import com.graphhopper.routing.RoutingAlgorithmFactory;
+import com.graphhopper.storage.Graph;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.graphhopper.util.Parameters.Algorithms.ASTAR_BI;
+import static com.graphhopper.util.Parameters.Algorithms.DIJKSTRA_BI;
+
+/**
+ * Compares bidirectional routing algorithms that are created for every query and thrown away, like it was done before
+ * algorithms could be released, with algorithms that are released after every query so that the next one reuses their
+ * collections and with a single algorithm that is reset after every query.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AlgorithmReuseBenchmark {
+    @Param({"ch", "astarbi"})
+    public String mode;
+
+    private RoutingAlgorithmFactory factory;
+    private Graph graph;
+    private AlgorithmOptions opts;
+    private AbstractBidirAlgo resetAlgo;
+    private int[] fromNodes;
+    private int[] toNodes;
+    private int query;
+
+    @Setup
+    public void setup(GraphHopperState state) {
+        boolean ch = mode.equals("ch");
+        factory = state.createFactory(ch, false);
+        graph = ch ? state.graph.getCHGraph() : state.graph;
+        opts = state.createOptions(ch ? DIJKSTRA_BI : ASTAR_BI);
+        // both modes create a bidirectional algorithm
+        resetAlgo = (AbstractBidirAlgo) factory.createAlgo(graph, opts);
+        Random rand = new Random(123);
+        fromNodes = state.createRandomNodes(1000, rand);
+        toNodes = state.createRandomNodes(1000, rand);
+    }
+
+    private int nextQuery() {
+        query = (query + 1) % fromNodes.length;
+        return query;
+    }
+
+    @Benchmark
+    public double newAlgorithmPerQuery() {
+        int q = nextQuery();
+        return factory.createAlgo(graph, opts).calcPath(fromNodes[q], toNodes[q]).getWeight();
+    }
+
+    @Benchmark
+    public double releasedAlgorithmPerQuery() {
+        int q = nextQuery();
+        RoutingAlgorithm algo = factory.createAlgo(graph, opts);
+        double weight = algo.calcPath(fromNodes[q], toNodes[q]).getWeight();
+        if (algo instanceof AbstractBidirAlgo)
+            ((AbstractBidirAlgo) algo).release();
+        return weight;
+    }
+
+    @Benchmark
+    public double resetAlgorithm() {
+        int q = nextQuery();
+        resetAlgo.reset();
+        return resetAlgo.calcPath(fromNodes[q], toNodes[q]).getWeight();
+    }
+}
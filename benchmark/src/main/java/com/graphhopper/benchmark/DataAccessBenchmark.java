@@ -0,0 +1,117 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.GHDirectory;
+import com.graphhopper.util.Helper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures random and sequential int reads of the DataAccess implementations. Every operation reads 1024 ints.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(DataAccessBenchmark.READS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DataAccessBenchmark {
+    static final int READS = 1024;
+    @Param({"RAM", "RAM_INT", "MMAP", "UNSAFE_STORE"})
+    public String type;
+    @Param("16")
+    public int megaBytes;
+
+    private String location;
+    private GHDirectory dir;
+    private DataAccess da;
+    private long[] randomPointers;
+    private int randomOffset;
+    private long sequentialPointer;
+    private long bytes;
+
+    @Setup
+    public void setup() {
+        location = "benchmark-da";
+        Helper.removeDir(new File(location));
+        new File(location).mkdirs();
+        DAType daType = toDAType(type);
+        dir = new GHDirectory(location, daType);
+        da = dir.find("ints", daType);
+        bytes = (long) megaBytes << 20;
+        da.create(bytes);
+        for (long pointer = 0; pointer < bytes; pointer += 4) {
+            da.setInt(pointer, (int) (pointer >> 2));
+        }
+
+        Random rand = new Random(123);
+        randomPointers = new long[1 << 16];
+        for (int i = 0; i < randomPointers.length; i++) {
+            randomPointers[i] = 4L * rand.nextInt((int) (bytes >> 2));
+        }
+    }
+
+    private static DAType toDAType(String type) {
+        switch (type) {
+            case "RAM":
+                return DAType.RAM;
+            case "RAM_INT":
+                return DAType.RAM_INT;
+            case "MMAP":
+                return DAType.MMAP;
+            case "UNSAFE_STORE":
+                return DAType.UNSAFE_STORE;
+            default:
+                throw new IllegalArgumentException("Unknown type " + type);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        dir.clear();
+        Helper.removeDir(new File(location));
+    }
+
+    @Benchmark
+    public long randomGetInt() {
+        long sum = 0;
+        for (int i = 0; i < READS; i++) {
+            sum += da.getInt(randomPointers[randomOffset + i]);
+        }
+        randomOffset = (randomOffset + READS) % randomPointers.length;
+        return sum;
+    }
+
+    @Benchmark
+    public long sequentialGetInt() {
+        long sum = 0;
+        for (int i = 0; i < READS; i++) {
+            sum += da.getInt(sequentialPointer);
+            sequentialPointer += 4;
+        }
+        sequentialPointer %= bytes;
+        return sum;
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.reader.osm.GraphHopperOSM;
+import com.graphhopper.routing.AlgorithmOptions;
+import com.graphhopper.routing.RoutingAlgorithmFactory;
+import com.graphhopper.routing.util.DefaultEdgeFilter;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.routing.util.HintsMap;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.index.QueryResult;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.Parameters;
+import com.graphhopper.util.shapes.BBox;
+import com.graphhopper.util.shapes.GHPoint;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Random;
+
+/**
+ * The graph shared by the benchmarks: the car network of the specified OSM file, andorra by default which is part of
+ * the repository so that the benchmarks run offline, prepared for CH and LM with the fastest weighting. The benchmarks
+ * are meant to be run from the root directory of the repository. Use e.g. -p compactShortcuts=false,true to compare the
+ * shortcut layouts of the CH preparation.
+ */
+@State(Scope.Benchmark)
+public class GraphHopperState {
+    @Param("core/files/andorra.osm.pbf")
+    public String osmFile;
+    @Param("false")
+    public boolean compactShortcuts;
+
+    GraphHopper hopper;
+    GraphHopperStorage graph;
+    FlagEncoder encoder;
+    EdgeFilter edgeFilter;
+    Weighting weighting;
+    private String location;
+
+    @Setup
+    public void setup() {
+        location = "benchmark-gh";
+        // always import as the storage format might have changed since the last run
+        Helper.removeDir(new File(location));
+        hopper = new GraphHopperOSM().forDesktop().
+                setDataReaderFile(osmFile).
+                setGraphHopperLocation(location).
+                setEncodingManager(EncodingManager.create("car"));
+        hopper.getCHFactoryDecorator().setDisablingAllowed(true).
+                setCHProfileStrings(compactShortcuts ? "fastest|" + Parameters.CH.COMPACT_SHORTCUTS + "=true" : "fastest");
+        hopper.getLMFactoryDecorator().setEnabled(true).setDisablingAllowed(true).
+                setWeightingsAsStrings(Collections.singletonList("fastest"));
+        hopper.importOrLoad();
+
+        graph = hopper.getGraphHopperStorage();
+        encoder = hopper.getEncodingManager().getEncoder("car");
+        edgeFilter = DefaultEdgeFilter.allEdges(encoder);
+        weighting = hopper.createWeighting(createHints(), encoder, graph);
+    }
+
+    @TearDown
+    public void tearDown() {
+        hopper.close();
+        Helper.removeDir(new File(location));
+    }
+
+    /**
+     * @return the hints to use the CH preparation, disable CH to use the LM preparation and disable CH and LM for the
+     * plain algorithms
+     */
+    HintsMap createHints() {
+        return new HintsMap().setVehicle("car").setWeighting("fastest");
+    }
+
+    RoutingAlgorithmFactory createFactory(boolean ch, boolean lm) {
+        return hopper.getAlgorithmFactory(createHints().put(Parameters.CH.DISABLE, !ch).put(Parameters.Landmark.DISABLE, !lm));
+    }
+
+    AlgorithmOptions createOptions(String algorithm) {
+        return AlgorithmOptions.start().algorithm(algorithm).weighting(weighting).traversalMode(TraversalMode.NODE_BASED).build();
+    }
+
+    GHPoint[] createRandomPoints(int count, Random rand) {
+        BBox bounds = graph.getBounds();
+        GHPoint[] points = new GHPoint[count];
+        for (int i = 0; i < count; i++) {
+            points[i] = new GHPoint(bounds.minLat + rand.nextDouble() * (bounds.maxLat - bounds.minLat),
+                    bounds.minLon + rand.nextDouble() * (bounds.maxLon - bounds.minLon));
+        }
+        return points;
+    }
+
+    /**
+     * @return valid query results of random points, every call of QueryGraph.lookup changes them so only copies of
+     * them should be used
+     */
+    QueryResult[] createRandomQueryResults(int count, Random rand) {
+        QueryResult[] queryResults = new QueryResult[count];
+        int i = 0;
+        while (i < count) {
+            GHPoint point = createRandomPoints(1, rand)[0];
+            QueryResult qr = hopper.getLocationIndex().findClosest(point.lat, point.lon, edgeFilter);
+            if (qr.isValid())
+                queryResults[i++] = qr;
+        }
+        return queryResults;
+    }
+
+    int[] createRandomNodes(int count, Random rand) {
+        int[] nodes = new int[count];
+        for (int i = 0; i < count; i++) {
+            nodes[i] = rand.nextInt(graph.getNodes());
+        }
+        return nodes;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.PathWrapper;
+import com.graphhopper.routing.InstructionsFromEdges;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.RoutingAlgorithmFactory;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.storage.index.QueryResult;
+import com.graphhopper.util.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.graphhopper.util.Parameters.Algorithms.ASTAR_BI;
+
+/**
+ * Measures the post processing of calculated paths: the instructions via InstructionsFromEdges and the simplification
+ * of the points and instructions via PathSimplification.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PathBenchmark {
+    private static final int PATHS = 100;
+    private final List<Path> paths = new ArrayList<>();
+    private final List<QueryGraph> queryGraphs = new ArrayList<>();
+    private final List<PointList> points = new ArrayList<>();
+    private final List<InstructionList> instructions = new ArrayList<>();
+    private final List<PointList[]> instructionPoints = new ArrayList<>();
+    private final DouglasPeucker douglasPeucker = new DouglasPeucker();
+    private Translation tr;
+    private int query;
+
+    @Setup
+    public void setup(GraphHopperState state) {
+        tr = state.hopper.getTranslationMap().getWithFallBack(Locale.US);
+        RoutingAlgorithmFactory factory = state.createFactory(false, true);
+        Random rand = new Random(123);
+        while (paths.size() < PATHS) {
+            QueryResult[] qrs = state.createRandomQueryResults(2, rand);
+            QueryGraph queryGraph = QueryGraph.lookup(state.graph, Arrays.asList(qrs));
+            Path path = factory.createAlgo(queryGraph, state.createOptions(ASTAR_BI)).
+                    calcPath(qrs[0].getClosestNode(), qrs[1].getClosestNode());
+            if (path.isFound() && path.getEdgeCount() > 1) {
+                paths.add(path);
+                queryGraphs.add(queryGraph);
+            }
+        }
+
+        // the response is not simplified for desktop usage
+        while (points.size() < PATHS) {
+            GHResponse rsp = state.hopper.route(new GHRequest(Arrays.asList(state.createRandomPoints(2, rand))).
+                    setVehicle("car").setWeighting("fastest"));
+            if (!rsp.hasErrors() && rsp.getBest().getPoints().size() > 2) {
+                points.add(rsp.getBest().getPoints());
+                InstructionList il = rsp.getBest().getInstructions();
+                PointList[] ilPoints = new PointList[il.size()];
+                for (int i = 0; i < il.size(); i++) {
+                    ilPoints[i] = il.get(i).getPoints();
+                }
+                instructions.add(il);
+                instructionPoints.add(ilPoints);
+            }
+        }
+    }
+
+    @Benchmark
+    public InstructionList calcInstructions(GraphHopperState state) {
+        query = (query + 1) % PATHS;
+        return InstructionsFromEdges.calcInstructions(paths.get(query), queryGraphs.get(query), state.weighting,
+                state.hopper.getEncodingManager(), tr);
+    }
+
+    @Benchmark
+    public PointList simplify() {
+        query = (query + 1) % PATHS;
+        // the simplification works in place and sets new points to the instructions, so restore the original ones
+        InstructionList il = instructions.get(query);
+        PointList[] ilPoints = instructionPoints.get(query);
+        for (int i = 0; i < il.size(); i++) {
+            il.get(i).setPoints(ilPoints[i]);
+        }
+        PathWrapper pathWrapper = new PathWrapper().setPoints(points.get(query).clone(false));
+        pathWrapper.setInstructions(il);
+        return PathSimplification.simplify(pathWrapper, douglasPeucker, true);
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.conveyal.gtfs.model.Stop;
+import com.graphhopper.GHResponse;
+import com.graphhopper.reader.gtfs.GraphHopperGtfs;
+import com.graphhopper.reader.gtfs.PtRouteResource;
+import com.graphhopper.reader.gtfs.Request;
+import com.graphhopper.util.CmdArgs;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.TranslationMap;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Compares the multi-criteria label setting with RAPTOR for public transit queries between random stops, for single
+ * departures and for profile queries. The default is the sample feed with the street network of Beatty, which is
+ * part of the repository. Use e.g. -p gtfsFile=... -p osmFile=... -p zone=... -p date=... for a real feed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PtRoutingBenchmark {
+    @Param("reader-gtfs/files/sample-feed.zip")
+    public String gtfsFile;
+    @Param("reader-gtfs/files/beatty.osm")
+    public String osmFile;
+    @Param("America/Los_Angeles")
+    public String zone;
+    @Param("2007-01-01")
+    public String date;
+    @Param({Request.LABEL_SETTING, Request.RAPTOR})
+    public String algorithm;
+    @Param({"false", "true"})
+    public boolean profileQuery;
+
+    private GraphHopperGtfs graphHopperGtfs;
+    private PtRouteResource ptRouteResource;
+    private String location;
+    private double[][] points;
+    private Instant[] departureTimes;
+    private int query;
+
+    @Setup
+    public void setup() {
+        location = "benchmark-pt-gh";
+        Helper.removeDir(new File(location));
+        CmdArgs cmdArgs = new CmdArgs();
+        cmdArgs.put("graph.flag_encoders", "car,foot");
+        cmdArgs.put("datareader.file", osmFile);
+        cmdArgs.put("gtfs.file", gtfsFile);
+        cmdArgs.put("graph.location", location);
+        graphHopperGtfs = new GraphHopperGtfs(cmdArgs);
+        graphHopperGtfs.init(cmdArgs);
+        graphHopperGtfs.importOrLoad();
+        ptRouteResource = PtRouteResource.createFactory(new TranslationMap().doImport(), graphHopperGtfs,
+                graphHopperGtfs.getLocationIndex(), graphHopperGtfs.getGtfsStorage()).createWithoutRealtimeFeed();
+
+        List<Stop> stops = graphHopperGtfs.getGtfsStorage().getGtfsFeeds().values().stream()
+                .flatMap(feed -> feed.stops.values().stream())
+                .sorted(Comparator.comparing(stop -> stop.stop_id))
+                .collect(Collectors.toList());
+        Random rand = new Random(123);
+        points = new double[1000][];
+        departureTimes = new Instant[points.length];
+        LocalDateTime midnight = LocalDateTime.parse(date + "T00:00");
+        for (int i = 0; i < points.length; i++) {
+            // the label setting fails for identical points
+            int from = rand.nextInt(stops.size()), to = (from + 1 + rand.nextInt(stops.size() - 1)) % stops.size();
+            points[i] = new double[]{stops.get(from).stop_lat, stops.get(from).stop_lon, stops.get(to).stop_lat, stops.get(to).stop_lon};
+            departureTimes[i] = midnight.plusMinutes(rand.nextInt(24 * 60)).atZone(ZoneId.of(zone)).toInstant();
+        }
+        // create the timetable of RAPTOR before the measurement
+        route();
+    }
+
+    @TearDown
+    public void tearDown() {
+        graphHopperGtfs.close();
+        Helper.removeDir(new File(location));
+    }
+
+    @Benchmark
+    public int route() {
+        query = (query + 1) % points.length;
+        double[] p = points[query];
+        Request request = new Request(p[0], p[1], p[2], p[3]);
+        request.setEarliestDepartureTime(departureTimes[query]);
+        request.setProfileQuery(profileQuery);
+        request.setAlgorithm(algorithm);
+        GHResponse response = ptRouteResource.route(request);
+        return response.getAll().size();
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.storage.index.QueryResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the creation of a QueryGraph for two snapped points like for a request. The query results are copied for
+ * every query graph, which is cheap compared to the creation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryGraphBenchmark {
+    private QueryResult[] queryResults;
+    private int query;
+
+    @Setup
+    public void setup(GraphHopperState state) {
+        queryResults = state.createRandomQueryResults(1000, new Random(123));
+    }
+
+    @Benchmark
+    public QueryGraph lookup(GraphHopperState state) {
+        query = (query + 2) % queryResults.length;
+        return QueryGraph.lookup(state.graph, Arrays.asList(queryResults[query].copy(), queryResults[query + 1].copy()));
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.http.WebHelper;
+import com.graphhopper.jackson.Jackson;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the JSON serialization of long routes with many via points via the intermediate tree of
+ * WebHelper.jsonObject and via the streaming WebHelper.writeJson. Use e.g. -prof gc to compare the allocation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseSerializationBenchmark {
+    private static final int RESPONSES = 20;
+    @Param("20")
+    public int viaPoints;
+    @Param("true")
+    public boolean pointsEncoded;
+    private final List<GHResponse> responses = new ArrayList<>();
+    private final ObjectMapper objectMapper = Jackson.newObjectMapper();
+    private final CountingOutputStream out = new CountingOutputStream();
+    private int query;
+
+    @Setup
+    public void setup(GraphHopperState state) {
+        Random rand = new Random(123);
+        while (responses.size() < RESPONSES) {
+            GHResponse rsp = state.hopper.route(new GHRequest(Arrays.asList(state.createRandomPoints(viaPoints, rand))).
+                    setVehicle("car").setWeighting("fastest"));
+            if (!rsp.hasErrors())
+                responses.add(rsp);
+        }
+    }
+
+    @Benchmark
+    public long jsonTree() throws IOException {
+        query = (query + 1) % RESPONSES;
+        objectMapper.writeValue(out, WebHelper.jsonObject(responses.get(query), true, true, false, pointsEncoded, 0));
+        return out.count;
+    }
+
+    @Benchmark
+    public long jsonStreaming() throws IOException {
+        query = (query + 1) % RESPONSES;
+        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            WebHelper.writeJson(gen, responses.get(query), true, true, false, pointsEncoded, 0);
+        }
+        return out.count;
+    }
+
+    // discards the output like a fast client would
+    private static class CountingOutputStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.routing.AbstractBidirAlgo;
+import com.graphhopper.routing.AlgorithmOptions;
+import com.graphhopper.routing.RoutingAlgorithm;
+import com.graphhopper.routing.RoutingAlgorithmFactory;
+import com.graphhopper.storage.Graph;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.graphhopper.util.Parameters.Algorithms.ASTAR_BI;
+import static com.graphhopper.util.Parameters.Algorithms.DIJKSTRA_BI;
+
+/**
+ * Measures node to node queries of DijkstraBidirectionCH on the CH graph and of AStarBidirection with the
+ * LMApproximator on the base graph, including the creation of the algorithm like for a request.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoutingBenchmark {
+    private RoutingAlgorithmFactory chFactory;
+    private Graph chGraph;
+    private AlgorithmOptions chOpts;
+    private RoutingAlgorithmFactory lmFactory;
+    private AlgorithmOptions lmOpts;
+    private int[] fromNodes;
+    private int[] toNodes;
+    private int query;
+
+    @Setup
+    public void setup(GraphHopperState state) {
+        chFactory = state.createFactory(true, false);
+        chGraph = state.graph.getCHGraph();
+        chOpts = state.createOptions(DIJKSTRA_BI);
+        lmFactory = state.createFactory(false, true);
+        lmOpts = state.createOptions(ASTAR_BI);
+        Random rand = new Random(123);
+        fromNodes = state.createRandomNodes(1000, rand);
+        toNodes = state.createRandomNodes(1000, rand);
+    }
+
+    private double route(RoutingAlgorithmFactory factory, Graph graph, AlgorithmOptions opts) {
+        query = (query + 1) % fromNodes.length;
+        RoutingAlgorithm algo = factory.createAlgo(graph, opts);
+        double weight = algo.calcPath(fromNodes[query], toNodes[query]).getWeight();
+        if (algo instanceof AbstractBidirAlgo)
+            ((AbstractBidirAlgo) algo).release();
+        return weight;
+    }
+
+    @Benchmark
+    public double dijkstraBidirectionCH() {
+        return route(chFactory, chGraph, chOpts);
+    }
+
+    @Benchmark
+    public double aStarBidirectionLM(GraphHopperState state) {
+        return route(lmFactory, state.graph, lmOpts);
+    }
+}
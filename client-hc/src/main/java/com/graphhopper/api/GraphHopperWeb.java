@@ -25,12 +25,14 @@ import com.graphhopper.GHRequest;
 import com.graphhopper.GHResponse;
 import com.graphhopper.GraphHopperAPI;
 import com.graphhopper.PathWrapper;
+import com.graphhopper.http.GHResponseProtobuf;
 import com.graphhopper.http.WebHelper;
 import com.graphhopper.jackson.Jackson;
 import com.graphhopper.jackson.PathWrapperDeserializer;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.Parameters;
 import com.graphhopper.util.shapes.GHPoint;
+import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
@@ -65,6 +67,7 @@ public class GraphHopperWeb implements GraphHopperAPI {
     private boolean elevation = false;
     private String optimize = "false";
     private boolean postRequest = true;
+    private boolean protobuf = false;
     int maxUnzippedLength = 1000;
     private final Set<String> ignoreSet;
     private final Set<String> ignoreSetForPost;
@@ -146,6 +149,15 @@ public class GraphHopperWeb implements GraphHopperAPI {
         return this;
     }
 
+    /**
+     * Request the compact binary representation of the route instead of JSON, which is faster to parse for routes
+     * with many points. Errors are still returned as JSON. The default is false.
+     */
+    public GraphHopperWeb setProtobuf(boolean protobuf) {
+        this.protobuf = protobuf;
+        return this;
+    }
+
     /**
      * Enable or disable calculating points for the way. The default is true.
      */
@@ -194,7 +206,13 @@ public class GraphHopperWeb implements GraphHopperAPI {
             ghRequest.getHints().remove("turn_description"); // do not include in request
 
             Request okRequest = postRequest ? createPostRequest(ghRequest) : createGetRequest(ghRequest);
+            // the errors have no binary representation and come as JSON
+            if (protobuf)
+                okRequest = okRequest.newBuilder().header("Accept", GHResponseProtobuf.MEDIA_TYPE + ", application/json;q=0.9").build();
             rspBody = getClientForRequest(ghRequest).newCall(okRequest).execute().body();
+            if (isProtobuf(rspBody.contentType()))
+                return GHResponseProtobuf.read(rspBody.byteStream(), tmpTurnDescription);
+
             JsonNode json = objectMapper.reader().readTree(rspBody.byteStream());
 
             GHResponse res = new GHResponse();
@@ -218,6 +236,10 @@ public class GraphHopperWeb implements GraphHopperAPI {
         }
     }
 
+    private static boolean isProtobuf(MediaType mediaType) {
+        return mediaType != null && GHResponseProtobuf.MEDIA_TYPE.equals(mediaType.type() + "/" + mediaType.subtype());
+    }
+
     private OkHttpClient getClientForRequest(GHRequest request) {
         OkHttpClient client = this.downloader;
         if (request.getHints().has(TIMEOUT)) {
@@ -23,7 +23,10 @@ import com.graphhopper.reader.dem.*;
 import com.graphhopper.reader.osm.conditional.DateRangeParser;
 import com.graphhopper.routing.*;
 import com.graphhopper.routing.ch.CHAlgoFactoryDecorator;
+import com.graphhopper.routing.ch.CHProfileSelectionException;
 import com.graphhopper.routing.ch.CHRoutingAlgorithmFactory;
+import com.graphhopper.routing.ch.PhastSweep;
+import com.graphhopper.routing.ch.PrepareContractionHierarchies;
 import com.graphhopper.routing.lm.LMAlgoFactoryDecorator;
 import com.graphhopper.routing.profiles.DefaultEncodedValueFactory;
 import com.graphhopper.routing.profiles.EncodedValueFactory;
@@ -51,6 +54,7 @@ import com.graphhopper.util.Parameters.Landmark;
 import com.graphhopper.util.Parameters.Routing;
 import com.graphhopper.util.details.PathDetailsBuilderFactory;
 import com.graphhopper.util.exceptions.PointDistanceExceededException;
+import com.graphhopper.util.exceptions.PointNotFoundException;
 import com.graphhopper.util.exceptions.PointOutOfBoundsException;
 import com.graphhopper.util.shapes.BBox;
 import com.graphhopper.util.shapes.GHPoint;
@@ -61,9 +65,9 @@ import java.io.File;
 import java.io.IOException;
 import java.text.DateFormat;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static com.graphhopper.routing.ch.CHAlgoFactoryDecorator.EdgeBasedCHMode.EDGE_OR_NODE;
 import static com.graphhopper.routing.ch.CHAlgoFactoryDecorator.EdgeBasedCHMode.OFF;
@@ -92,6 +96,7 @@ public class GraphHopper implements GraphHopperAPI {
     private String ghLocation = "";
     private DAType dataAccessType = DAType.RAM_STORE;
     private boolean sortGraph = false;
+    private String sortOrder = "dfs";
     private boolean elevation = false;
     private LockFactory lockFactory = new NativeFSLockFactory();
     private boolean allowWrites = true;
@@ -101,6 +106,21 @@ public class GraphHopper implements GraphHopperAPI {
     private int maxRoundTripRetries = 3;
     private boolean simplifyResponse = true;
     private int maxVisitedNodes = Integer.MAX_VALUE;
+    private int batchThreads = 1;
+    private int maxBatchSize = 100;
+    private int maxMatrixSize = 100 * 100;
+    private ExecutorService batchExecutor;
+    private int legThreads = 0;
+    private ExecutorService legExecutor;
+    private RouteCache routeCache;
+    // the named block areas are specified via routing.block_areas.<name>
+    private static final String BLOCK_AREAS_PREFIX = "routing.block_areas.";
+    private static final double BLOCK_AREA_EDGE_ID_MAX_AREA = 1000 * 1000;
+    private int blockAreaCacheSize = 100;
+    private final Map<String, String> blockAreaDefinitions = new LinkedHashMap<>();
+    private BlockAreaCache blockAreaCache;
+    // the PHAST sweeps per CH profile and flow direction, created on demand
+    private final Map<String, PhastSweep> phastSweeps = new HashMap<>();
 
     private int nonChMaxWaypointDistance = Integer.MAX_VALUE;
     // for index
@@ -126,7 +146,8 @@ public class GraphHopper implements GraphHopperAPI {
     private FlagEncoderFactory flagEncoderFactory = new DefaultFlagEncoderFactory();
     private EncodedValueFactory encodedValueFactory = new DefaultEncodedValueFactory();
     private TagParserFactory tagParserFactory = new DefaultTagParserFactory();
-    private final ReadWriteLock readWriteLock = new ReentrantReadWriteLock();
+    // serializes changeGraph calls, routing requests do not need to wait for them
+    private final Lock changeGraphLock = new ReentrantLock();
     private PathDetailsBuilderFactory pathBuilderFactory = new PathDetailsBuilderFactory();
 
     public GraphHopper() {
@@ -338,6 +359,122 @@ public class GraphHopper implements GraphHopperAPI {
         this.maxVisitedNodes = maxVisitedNodes;
     }
 
+    public int getBatchThreads() {
+        return batchThreads;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * Specifies the maximum number of requests of one call of routeBatch. Default is 100.
+     */
+    public GraphHopper setMaxBatchSize(int maxBatchSize) {
+        if (maxBatchSize < 1)
+            throw new IllegalArgumentException("max batch size must be at least 1 but was " + maxBatchSize);
+        this.maxBatchSize = maxBatchSize;
+        return this;
+    }
+
+    public int getMaxMatrixSize() {
+        return maxMatrixSize;
+    }
+
+    /**
+     * Specifies the maximum number of from and to point pairs, i.e. entries of the matrix, of one call of calcMatrix.
+     * Default is 10000.
+     */
+    public GraphHopper setMaxMatrixSize(int maxMatrixSize) {
+        if (maxMatrixSize < 1)
+            throw new IllegalArgumentException("max matrix size must be at least 1 but was " + maxMatrixSize);
+        this.maxMatrixSize = maxMatrixSize;
+        return this;
+    }
+
+    public RouteCache getRouteCache() {
+        return routeCache;
+    }
+
+    /**
+     * Specifies the cache of the calculated routes that use the default routing template, null disables it. Default
+     * is null.
+     */
+    public GraphHopper setRouteCache(RouteCache routeCache) {
+        this.routeCache = routeCache;
+        return this;
+    }
+
+    /**
+     * Specifies the number of the most recently used block areas of the block_area parameter whose edges are kept for
+     * the next requests, 0 disables it. Default is 100.
+     */
+    public GraphHopper setBlockAreaCacheSize(int blockAreaCacheSize) {
+        if (blockAreaCacheSize < 0)
+            throw new IllegalArgumentException("block area cache size cannot be negative but was " + blockAreaCacheSize);
+        if (blockAreaCache != null)
+            throw new IllegalStateException("Cannot change the block area cache size after the first block area was used");
+        this.blockAreaCacheSize = blockAreaCacheSize;
+        return this;
+    }
+
+    /**
+     * Registers a block area that can be used via its name in the block_area parameter. The edges of a named block
+     * area are searched only once after the graph is loaded.
+     *
+     * @param name            lower case letters, digits and underscores starting with a letter
+     * @param blockAreaString the shapes in the format of the block_area parameter
+     */
+    public GraphHopper putBlockArea(String name, String blockAreaString) {
+        if (blockAreaCache != null)
+            throw new IllegalStateException("Cannot add the block area " + name + " after the first block area was used");
+        blockAreaDefinitions.put(name, blockAreaString);
+        return this;
+    }
+
+    private synchronized BlockAreaCache getBlockAreaCache() {
+        if (blockAreaCache == null) {
+            BlockAreaCache cache = new BlockAreaCache(ghStorage, locationIndex, blockAreaCacheSize);
+            for (Map.Entry<String, String> definition : blockAreaDefinitions.entrySet()) {
+                cache.putNamed(definition.getKey(), definition.getValue());
+            }
+            blockAreaCache = cache;
+        }
+        return blockAreaCache;
+    }
+
+    /**
+     * Specifies the number of threads that calculate the routes of one call of routeBatch. Default is 1, i.e. the
+     * routes are calculated in the calling thread.
+     */
+    public GraphHopper setBatchThreads(int batchThreads) {
+        if (batchThreads < 1)
+            throw new IllegalArgumentException("batch threads must be at least 1 but was " + batchThreads);
+        if (batchExecutor != null)
+            throw new IllegalStateException("Cannot change the batch threads after the first call of routeBatch");
+        this.batchThreads = batchThreads;
+        return this;
+    }
+
+    public int getLegThreads() {
+        return legThreads;
+    }
+
+    /**
+     * Specifies the number of threads shared by all requests that calculate the legs between the via points of a
+     * request concurrently. The first leg of a request is calculated by the calling thread, the others by these
+     * threads. The legs of requests with headings or pass_through are always calculated by the calling thread.
+     * Default is 0, i.e. all legs are calculated by the calling thread.
+     */
+    public GraphHopper setLegThreads(int legThreads) {
+        if (legThreads < 0)
+            throw new IllegalArgumentException("leg threads cannot be negative but was " + legThreads);
+        if (legExecutor != null)
+            throw new IllegalStateException("Cannot change the leg threads after the first route with via points");
+        this.legThreads = legThreads;
+        return this;
+    }
+
     /**
      * @return true if storing and fetching elevation data is enabled. Default is false
      */
@@ -445,6 +582,18 @@ public class GraphHopper implements GraphHopperAPI {
         return this;
     }
 
+    /**
+     * Sets how the graph is sorted: 'dfs' numbers the nodes in depth-first order, 'hilbert' along a Hilbert curve
+     * through the bounds of the graph.
+     */
+    public GraphHopper setSortOrder(String sortOrder) {
+        ensureNotLoaded();
+        if (!"dfs".equals(sortOrder) && !"hilbert".equals(sortOrder))
+            throw new IllegalArgumentException("Unknown sort order " + sortOrder + ", use dfs or hilbert");
+        this.sortOrder = sortOrder;
+        return this;
+    }
+
     public boolean isAllowWrites() {
         return allowWrites;
     }
@@ -514,6 +663,7 @@ public class GraphHopper implements GraphHopperAPI {
         dataAccessType = DAType.fromString(graphDATypeStr);
 
         sortGraph = args.getBool("graph.do_sort", sortGraph);
+        setSortOrder(args.get("graph.sort_order", sortOrder));
         removeZipped = args.getBool("graph.remove_zipped", removeZipped);
         EncodingManager.Builder emBuilder = new EncodingManager.Builder();
         String flagEncodersStr = args.get("graph.flag_encoders", "");
@@ -570,6 +720,15 @@ public class GraphHopper implements GraphHopperAPI {
             tmpProvider = new MultiSourceElevationProvider(cacheDirStr);
         }
 
+        long eleCacheSizeMB = args.getLong("graph.elevation.cache_size_mb", -1);
+        if (eleCacheSizeMB >= 0) {
+            HeightTileCache tileCache = new HeightTileCache(eleCacheSizeMB * 1024 * 1024);
+            if (tmpProvider instanceof MultiSourceElevationProvider)
+                ((MultiSourceElevationProvider) tmpProvider).setTileCache(tileCache);
+            else if (tmpProvider instanceof AbstractElevationProvider)
+                ((AbstractElevationProvider) tmpProvider).setTileCache(tileCache);
+        }
+
         tmpProvider.setAutoRemoveTemporaryFiles(removeTempElevationFiles);
         tmpProvider.setCalcMean(eleCalcMean);
         if (!baseURL.isEmpty())
@@ -597,6 +756,18 @@ public class GraphHopper implements GraphHopperAPI {
 
         // routing
         maxVisitedNodes = args.getInt(Routing.INIT_MAX_VISITED_NODES, Integer.MAX_VALUE);
+        setBatchThreads(args.getInt("routing.batch_threads", batchThreads));
+        setMaxBatchSize(args.getInt("routing.max_batch_size", maxBatchSize));
+        setMaxMatrixSize(args.getInt("routing.max_matrix_size", maxMatrixSize));
+        setLegThreads(args.getInt("routing.leg_threads", legThreads));
+        setBlockAreaCacheSize(args.getInt("routing.block_area_cache_size", blockAreaCacheSize));
+        for (Map.Entry<String, String> entry : args.toMap().entrySet()) {
+            if (entry.getKey().startsWith(BLOCK_AREAS_PREFIX))
+                putBlockArea(entry.getKey().substring(BLOCK_AREAS_PREFIX.length()), entry.getValue());
+        }
+        long routeCacheBytes = args.getLong("routing.route_cache_size_mb", 0) * Helper.MB;
+        if (routeCacheBytes > 0)
+            setRouteCache(new RouteCache(routeCacheBytes));
         maxRoundTripRetries = args.getInt(RoundTrip.INIT_MAX_RETRIES, maxRoundTripRetries);
         nonChMaxWaypointDistance = args.getInt(Parameters.NON_CH.MAX_NON_CH_POINT_DISTANCE, Integer.MAX_VALUE);
 
@@ -824,13 +995,16 @@ public class GraphHopper implements GraphHopperAPI {
                     }
                     PMap config = new PMap(configStr);
                     int uTurnCosts = config.getInt(Routing.U_TURN_COSTS, INFINITE_U_TURN_COSTS);
+                    boolean compactShortcuts = config.getBool(CH.COMPACT_SHORTCUTS, false);
 
                     CHAlgoFactoryDecorator.EdgeBasedCHMode edgeBasedCHMode = chFactoryDecorator.getEdgeBasedCHMode();
                     if (!(edgeBasedCHMode == EDGE_OR_NODE && encoder.supportsTurnCosts())) {
-                        chFactoryDecorator.addCHProfile(CHProfile.nodeBased(createWeighting(new HintsMap(chWeightingStr), encoder, null)));
+                        chFactoryDecorator.addCHProfile(new CHProfile(createWeighting(new HintsMap(chWeightingStr), encoder, null),
+                                false, INFINITE_U_TURN_COSTS, compactShortcuts));
                     }
                     if (edgeBasedCHMode != OFF && encoder.supportsTurnCosts()) {
-                        chFactoryDecorator.addCHProfile(CHProfile.edgeBased(createWeighting(new HintsMap(chWeightingStr), encoder, null), uTurnCosts));
+                        chFactoryDecorator.addCHProfile(new CHProfile(createWeighting(new HintsMap(chWeightingStr), encoder, null),
+                                true, uTurnCosts, compactShortcuts));
                     }
                 }
             }
@@ -874,8 +1048,11 @@ public class GraphHopper implements GraphHopperAPI {
                 throw new IllegalArgumentException("Sorting a prepared CHGraph is not possible yet. See #12");
 
             GraphHopperStorage newGraph = GHUtility.newStorage(ghStorage);
-            GHUtility.sortDFS(ghStorage, newGraph);
-            logger.info("graph sorted (" + getMemInfo() + ")");
+            if ("hilbert".equals(sortOrder))
+                GHUtility.sortHilbert(ghStorage, newGraph);
+            else
+                GHUtility.sortDFS(ghStorage, newGraph);
+            logger.info("graph sorted with " + sortOrder + " (" + getMemInfo() + ")");
             ghStorage = newGraph;
         }
 
@@ -895,6 +1072,15 @@ public class GraphHopper implements GraphHopperAPI {
             chFactoryDecorator.createPreparations(ghStorage);
         if (!isCHPrepared())
             prepareCH(closeEarly);
+        else
+            checkCompactShortcuts();
+
+        // search the edges of the named block areas now instead of in the first request that uses them
+        for (String name : blockAreaDefinitions.keySet()) {
+            for (FlagEncoder encoder : encodingManager.fetchEdgeEncoders()) {
+                getBlockAreaCache().get(name, encoder, BLOCK_AREA_EDGE_ID_MAX_AREA);
+            }
+        }
     }
 
     protected void registerCustomEncodedValues(EncodingManager.Builder emBuilder) {
@@ -960,8 +1146,9 @@ public class GraphHopper implements GraphHopperAPI {
 
         if (hintsMap.has(Routing.BLOCK_AREA)) {
             String blockAreaStr = hintsMap.get(Parameters.Routing.BLOCK_AREA, "");
-            GraphEdgeIdFinder.BlockArea blockArea = new GraphEdgeIdFinder(graph, locationIndex).
-                    parseBlockArea(blockAreaStr, DefaultEdgeFilter.allEdges(encoder), hintsMap.getDouble("block_area.edge_id_max_area", 1000 * 1000));
+            // the cached block area is created for the base graph
+            GraphEdgeIdFinder.BlockArea blockArea = getBlockAreaCache().get(blockAreaStr, encoder,
+                    hintsMap.getDouble("block_area.edge_id_max_area", BLOCK_AREA_EDGE_ID_MAX_AREA)).forGraph(graph);
             return new BlockAreaWeighting(weighting, blockArea);
         }
 
@@ -985,10 +1172,145 @@ public class GraphHopper implements GraphHopperAPI {
         return response;
     }
 
+    /**
+     * Calculates the routes of many requests. Compared to calling route for every request the points of all requests
+     * are looked up in one pass, where points that are used by several requests are looked up only once, and the
+     * routes are calculated by the configured number of batch threads, see setBatchThreads.
+     *
+     * @throws IllegalArgumentException if there are more requests than the maximum batch size, see setMaxBatchSize
+     *
+     * @return the responses in the order of the requests
+     */
+    @Override
+    public List<GHResponse> routeBatch(final List<GHRequest> requests) {
+        if (ghStorage == null || !fullyLoaded)
+            throw new IllegalStateException("Do a successful call to load or importOrLoad before routing");
+        if (requests.size() > maxBatchSize)
+            throw new IllegalArgumentException("The number of requests of a batch has to be below or equal to:" + maxBatchSize
+                    + " but was " + requests.size());
+
+        StopWatch sw = new StopWatch().start();
+        final List<List<QueryResult>> batchResults = lookupBatch(requests);
+        final String lookupDebug = "batchLookup:" + sw.stop().getSeconds() + "s";
+
+        List<GHResponse> responses = new ArrayList<>(requests.size());
+        if (batchThreads == 1) {
+            for (int i = 0; i < requests.size(); i++) {
+                responses.add(routeWithBatchResults(requests.get(i), batchResults.get(i), lookupDebug));
+            }
+            return responses;
+        }
+
+        List<Callable<GHResponse>> tasks = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            final int index = i;
+            tasks.add(new Callable<GHResponse>() {
+                @Override
+                public GHResponse call() {
+                    return routeWithBatchResults(requests.get(index), batchResults.get(index), lookupDebug);
+                }
+            });
+        }
+        try {
+            for (Future<GHResponse> future : getBatchExecutor().invokeAll(tasks)) {
+                responses.add(future.get());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Thread was interrupted", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException)
+                throw (RuntimeException) ex.getCause();
+            throw new RuntimeException(ex.getCause());
+        }
+        return responses;
+    }
+
+    private GHResponse routeWithBatchResults(GHRequest request, List<QueryResult> qResults, String lookupDebug) {
+        GHResponse response = new GHResponse();
+        if (qResults != null)
+            response.addDebugInfo(lookupDebug);
+        calcPaths(request, response, qResults);
+        return response;
+    }
+
+    private synchronized ExecutorService getBatchExecutor() {
+        if (batchExecutor == null)
+            batchExecutor = Executors.newFixedThreadPool(batchThreads);
+        return batchExecutor;
+    }
+
+    private synchronized ExecutorService getLegExecutor() {
+        if (legExecutor == null)
+            legExecutor = Executors.newFixedThreadPool(legThreads);
+        return legExecutor;
+    }
+
+    /**
+     * Looks up the points of all requests that are routed via the ViaRoutingTemplate without point hints or snap
+     * preventions. Every request gets copies of the QueryResults as they are modified by QueryGraph.lookup.
+     *
+     * @return the QueryResults per request or null for a request that has to look up its points itself
+     */
+    private List<List<QueryResult>> lookupBatch(List<GHRequest> requests) {
+        BBox bounds = ghStorage.getBounds();
+        Map<String, EdgeFilter> edgeFilters = new HashMap<>();
+        Map<String, Map<GHPoint, QueryResult>> cachedResults = new HashMap<>();
+        List<List<QueryResult>> batchResults = new ArrayList<>(requests.size());
+        for (GHRequest request : requests) {
+            String vehicle = request.getVehicle().isEmpty() ? getDefaultVehicle().toString() : request.getVehicle();
+            if (!canLookupInBatch(request, vehicle, bounds)) {
+                batchResults.add(null);
+                continue;
+            }
+
+            EdgeFilter edgeFilter = edgeFilters.get(vehicle);
+            Map<GHPoint, QueryResult> vehicleResults = cachedResults.get(vehicle);
+            if (edgeFilter == null) {
+                edgeFilter = DefaultEdgeFilter.allEdges(encodingManager.getEncoder(vehicle));
+                edgeFilters.put(vehicle, edgeFilter);
+                vehicleResults = new HashMap<>();
+                cachedResults.put(vehicle, vehicleResults);
+            }
+
+            List<QueryResult> qResults = new ArrayList<>(request.getPoints().size());
+            for (GHPoint point : request.getPoints()) {
+                QueryResult qr = vehicleResults.get(point);
+                if (qr == null) {
+                    qr = locationIndex.findClosest(point.lat, point.lon, edgeFilter);
+                    vehicleResults.put(point, qr);
+                }
+                qResults.add(qr.copy());
+            }
+            batchResults.add(qResults);
+        }
+        return batchResults;
+    }
+
+    private boolean canLookupInBatch(GHRequest request, String vehicle, BBox bounds) {
+        String algoStr = request.getAlgorithm();
+        if (!encodingManager.hasEncoder(vehicle) || request.getPoints().size() < 2 || request.hasPointHints()
+                || request.hasSnapPreventions() || ROUND_TRIP.equalsIgnoreCase(algoStr) || ALT_ROUTE.equalsIgnoreCase(algoStr))
+            return false;
+
+        for (GHPoint point : request.getPoints()) {
+            if (!bounds.contains(point.getLat(), point.getLon()))
+                return false;
+        }
+        return true;
+    }
+
     /**
      * This method calculates the alternative path list using the low level Path objects.
      */
     public List<Path> calcPaths(GHRequest request, GHResponse ghRsp) {
+        return calcPaths(request, ghRsp, null);
+    }
+
+    /**
+     * @param batchResults the QueryResults of the request points if they were already looked up, see routeBatch
+     */
+    private List<Path> calcPaths(GHRequest request, GHResponse ghRsp, List<QueryResult> batchResults) {
         if (ghStorage == null || !fullyLoaded)
             throw new IllegalStateException("Do a successful call to load or importOrLoad before routing");
 
@@ -1002,8 +1324,8 @@ public class GraphHopper implements GraphHopperAPI {
             request.setVehicle(vehicle);
         }
 
-        Lock readLock = readWriteLock.readLock();
-        readLock.lock();
+        // all edges of a request are read from the same snapshot, even if the graph is changed in the meantime
+        GraphSnapshot snapshot = null;
         try {
             if (!encodingManager.hasEncoder(vehicle))
                 throw new IllegalArgumentException("Vehicle not supported: " + vehicle + ". Supported are: " + encodingManager.toString());
@@ -1047,17 +1369,29 @@ public class GraphHopper implements GraphHopperAPI {
                 routingTemplate = new RoundTripRoutingTemplate(request, ghRsp, locationIndex, encodingManager, maxRoundTripRetries);
             else if (ALT_ROUTE.equalsIgnoreCase(algoStr))
                 routingTemplate = new AlternativeRoutingTemplate(request, ghRsp, locationIndex, encodingManager);
-            else
-                routingTemplate = new ViaRoutingTemplate(request, ghRsp, locationIndex, encodingManager);
+            else {
+                ViaRoutingTemplate viaRoutingTemplate = new ViaRoutingTemplate(request, ghRsp, locationIndex, encodingManager);
+                if (routeCache != null)
+                    viaRoutingTemplate.setRouteCache(routeCache);
+                if (legThreads > 0 && points.size() > 2)
+                    viaRoutingTemplate.setLegExecutor(getLegExecutor());
+                routingTemplate = viaRoutingTemplate;
+            }
 
             List<Path> altPaths = null;
             int maxRetries = routingTemplate.getMaxRetries();
             Locale locale = request.getLocale();
             Translation tr = trMap.getWithFallBack(locale);
             for (int i = 0; i < maxRetries; i++) {
-                StopWatch sw = new StopWatch().start();
-                List<QueryResult> qResults = routingTemplate.lookup(points, encoder);
-                ghRsp.addDebugInfo("idLookup:" + sw.stop().getSeconds() + "s");
+                List<QueryResult> qResults;
+                if (batchResults != null) {
+                    // routeBatch only looks up the points of requests that use the ViaRoutingTemplate without retries
+                    qResults = ((ViaRoutingTemplate) routingTemplate).setQueryResults(batchResults);
+                } else {
+                    StopWatch sw = new StopWatch().start();
+                    qResults = routingTemplate.lookup(points, encoder);
+                    ghRsp.addDebugInfo("idLookup:" + sw.stop().getSeconds() + "s");
+                }
                 if (ghRsp.hasErrors())
                     return Collections.emptyList();
 
@@ -1086,7 +1420,9 @@ public class GraphHopper implements GraphHopperAPI {
                     }
                 } else {
                     checkNonChMaxWaypointDistance(points);
-                    queryGraph = QueryGraph.lookup(ghStorage, qResults);
+                    if (snapshot == null)
+                        snapshot = ghStorage.createSnapshot();
+                    queryGraph = QueryGraph.lookup(snapshot, qResults);
                     weighting = createWeighting(hints, encoder, queryGraph);
                 }
                 ghRsp.addDebugInfo("tmode:" + tMode.toString());
@@ -1136,28 +1472,160 @@ public class GraphHopper implements GraphHopperAPI {
             ghRsp.addError(ex);
             return Collections.emptyList();
         } finally {
-            readLock.unlock();
+            if (snapshot != null)
+                snapshot.release();
         }
     }
 
     /**
-     * This method applies the changes to the graph specified as feature collection. It does so by locking the routing
-     * to avoid concurrent changes which could result in incorrect routing (like when done while a Dijkstra search) or
-     * also while just reading one edge row (inconsistent edge properties).
+     * Calculates the weights and optionally times and distances from all fromPoints to all toPoints. This requires CH
+     * and uses one upward search per point instead of one route calculation per pair, see {@link DijkstraManyToManyCH}.
+     *
+     * @param hints the vehicle and weighting are used to select the CH profile
+     * @throws IllegalArgumentException if the matrix has more entries than {@link #getMaxMatrixSize()}
+     */
+    public MatrixResult calcMatrix(List<GHPoint> fromPoints, List<GHPoint> toPoints, HintsMap hints, boolean calcTimesAndDistances) {
+        if (ghStorage == null || !fullyLoaded)
+            throw new IllegalStateException("Do a successful call to load or importOrLoad before routing");
+
+        if (ghStorage.isClosed())
+            throw new IllegalStateException("You need to create a new GraphHopper instance as it is already closed");
+
+        if (fromPoints.isEmpty() || toPoints.isEmpty())
+            throw new IllegalArgumentException("At least one from_point and one to_point have to be specified");
+
+        // the result arrays have one entry per pair, so limit their size before anything is looked up
+        long matrixSize = (long) fromPoints.size() * toPoints.size();
+        if (matrixSize > maxMatrixSize)
+            throw new IllegalArgumentException("The number of from_points times to_points has to be below or equal to:"
+                    + maxMatrixSize + " but was " + fromPoints.size() + "x" + toPoints.size());
+
+        if (hints.getVehicle().isEmpty())
+            hints.setVehicle(getDefaultVehicle().toString());
+
+        if (!encodingManager.hasEncoder(hints.getVehicle()))
+            throw new IllegalArgumentException("Vehicle not supported: " + hints.getVehicle() + ". Supported are: " + encodingManager.toString());
+
+        if (!chFactoryDecorator.isEnabled() || hints.getBool(CH.DISABLE, false))
+            throw new IllegalArgumentException("The matrix calculation requires CH, it cannot be used with " + CH.DISABLE + "=true");
+
+        FlagEncoder encoder = encodingManager.getEncoder(hints.getVehicle());
+        checkIfPointsAreInBounds(fromPoints);
+        checkIfPointsAreInBounds(toPoints);
+
+        StopWatch sw = new StopWatch().start();
+        EdgeFilter edgeFilter = DefaultEdgeFilter.allEdges(encoder);
+        List<QueryResult> qResults = new ArrayList<>(fromPoints.size() + toPoints.size());
+        lookupMatrixPoints(fromPoints, edgeFilter, "from_point", qResults);
+        lookupMatrixPoints(toPoints, edgeFilter, "to_point", qResults);
+        String lookupDebug = "idLookup:" + sw.stop().getSeconds() + "s";
+
+        // only node-based CH is supported, so do not let the selection prefer an edge-based profile
+        HintsMap chHints = new HintsMap(hints);
+        if (!chHints.has(Routing.EDGE_BASED))
+            chHints.put(Routing.EDGE_BASED, false);
+        PrepareContractionHierarchies pch = chFactoryDecorator.getPreparation(chHints);
+        CHGraph chGraph = ghStorage.getCHGraph(pch.getCHProfile());
+        // snap all points at once, the closest nodes of the query results are virtual nodes afterwards if needed
+        QueryGraph queryGraph = QueryGraph.lookup(chGraph, qResults);
+        int[] fromNodes = new int[fromPoints.size()];
+        for (int i = 0; i < fromNodes.length; i++) {
+            fromNodes[i] = qResults.get(i).getClosestNode();
+        }
+        int[] toNodes = new int[toPoints.size()];
+        for (int i = 0; i < toNodes.length; i++) {
+            toNodes[i] = qResults.get(fromNodes.length + i).getClosestNode();
+        }
+
+        DijkstraManyToManyCH algo = ((CHRoutingAlgorithmFactory) pch.getRoutingAlgorithmFactory()).createManyToManyAlgo(queryGraph);
+        algo.setStallOnDemand(hints.getBool("stall_on_demand", true));
+        algo.setCalcTimesAndDistances(calcTimesAndDistances);
+        return algo.calcMatrix(fromNodes, toNodes).addDebugInfo(lookupDebug);
+    }
+
+    /**
+     * Returns the data of the node-based CH profile that matches the specified hints to calculate one-to-all
+     * shortest path trees with {@link com.graphhopper.routing.ch.PhastCH}, e.g. for isochrones. It is created on the
+     * first call for a profile and flow direction and kept afterwards.
+     *
+     * @return null if CH is disabled, no node-based CH profile matches the hints or the weighting created for the
+     * hints differs from the weighting of the CH profile, e.g. due to block_area, so that the shortest path trees have
+     * to be calculated without CH
+     */
+    public PhastSweep getPhastSweep(HintsMap hints, boolean reverseFlow) {
+        if (ghStorage == null || !fullyLoaded)
+            throw new IllegalStateException("Do a successful call to load or importOrLoad before routing");
+
+        if (!chFactoryDecorator.isEnabled() || hints.getBool(CH.DISABLE, false))
+            return null;
+
+        HintsMap chHints = new HintsMap(hints);
+        if (chHints.getVehicle().isEmpty())
+            chHints.setVehicle(getDefaultVehicle().toString());
+        if (!chHints.has(Routing.EDGE_BASED))
+            chHints.put(Routing.EDGE_BASED, false);
+        CHProfile chProfile;
+        try {
+            chProfile = chFactoryDecorator.getPreparation(chHints).getCHProfile();
+        } catch (CHProfileSelectionException ex) {
+            return null;
+        }
+        if (chProfile.isEdgeBased())
+            return null;
+        // the shortest path trees use the weighting of the CH profile, so it has to be the weighting of the request
+        Weighting weighting = createWeighting(chHints, chProfile.getWeighting().getFlagEncoder(), ghStorage);
+        if (!chProfile.getWeighting().equals(weighting))
+            return null;
+
+        String key = chProfile.toFileName() + (reverseFlow ? "_reverse" : "");
+        synchronized (phastSweeps) {
+            PhastSweep sweep = phastSweeps.get(key);
+            if (sweep == null) {
+                StopWatch sw = new StopWatch().start();
+                sweep = new PhastSweep(ghStorage.getCHGraph(chProfile), reverseFlow);
+                phastSweeps.put(key, sweep);
+                logger.info("created " + sweep + ", took: " + sw.stop().getSeconds() + "s, " + getMemInfo());
+            }
+            return sweep;
+        }
+    }
+
+    private void lookupMatrixPoints(List<GHPoint> points, EdgeFilter edgeFilter, String name, List<QueryResult> qResults) {
+        for (int i = 0; i < points.size(); i++) {
+            GHPoint point = points.get(i);
+            QueryResult qr = locationIndex.findClosest(point.lat, point.lon, edgeFilter);
+            if (!qr.isValid())
+                throw new PointNotFoundException("Cannot find " + name + " " + i + ": " + point, i);
+
+            qResults.add(qr);
+        }
+    }
+
+    /**
+     * This method applies the changes to the graph specified as feature collection. Routing requests are not blocked:
+     * the changed edge flags are published at once via {@link GraphHopperStorage#changeEdgeFlags} and a request only
+     * sees the changes if its {@link GraphSnapshot} was created afterwards, so it never sees a partially applied change
+     * or inconsistent edge properties. Concurrent calls of this method are executed one after the other. The routes of
+     * the route cache are removed if an edge changed.
      */
     public ChangeGraphResponse changeGraph(Collection<JsonFeature> collection) {
         // TODO allow calling this method if called before CH preparation
         if (getCHFactoryDecorator().isEnabled())
             throw new IllegalArgumentException("To use the changeGraph API you need to turn off CH");
 
-        Lock writeLock = readWriteLock.writeLock();
-        writeLock.lock();
+        changeGraphLock.lock();
         try {
             ChangeGraphHelper overlay = createChangeGraphHelper(ghStorage, locationIndex);
             long updateCount = overlay.applyChanges(encodingManager, collection);
-            return new ChangeGraphResponse(updateCount);
+            if (updateCount > 0) {
+                if (routeCache != null)
+                    routeCache.invalidate();
+                // the edges of the block areas depend on the accessible edges
+                getBlockAreaCache().invalidate();
+            }
+            return new ChangeGraphResponse(updateCount, overlay.getChangedBounds());
         } finally {
-            writeLock.unlock();
+            changeGraphLock.unlock();
         }
     }
 
@@ -1228,6 +1696,21 @@ public class GraphHopper implements GraphHopperAPI {
         return "true".equals(ghStorage.getProperties().get(Landmark.PREPARE + "done"));
     }
 
+    /**
+     * The layout of the shortcuts is not part of the CH profile, so a graph prepared with another compact_shortcuts
+     * setting would otherwise be loaded without any notice.
+     */
+    private void checkCompactShortcuts() {
+        for (CHProfile chProfile : ghStorage.getCHProfiles()) {
+            boolean compact = ((CHGraphImpl) ghStorage.getCHGraph(chProfile)).isCompact();
+            if (compact != chProfile.isCompactShortcuts())
+                throw new IllegalStateException("Configured compact_shortcuts=" + chProfile.isCompactShortcuts()
+                        + " of CH profile " + chProfile + " does not match the loaded shortcuts, which are "
+                        + (compact ? "" : "not ") + "compact. Change the configuration to match the graph or delete "
+                        + ghStorage.getDirectory().getLocation());
+        }
+    }
+
     protected void prepareCH(boolean closeEarly) {
         boolean tmpPrepare = chFactoryDecorator.isEnabled();
         if (tmpPrepare) {
@@ -1287,6 +1770,13 @@ public class GraphHopper implements GraphHopperAPI {
      * remove the files created in graphhopperLocation you have to call clean().
      */
     public void close() {
+        synchronized (this) {
+            if (batchExecutor != null)
+                batchExecutor.shutdownNow();
+            if (legExecutor != null)
+                legExecutor.shutdownNow();
+        }
+
         if (ghStorage != null)
             ghStorage.close();
 
@@ -0,0 +1,275 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.LongArrayList;
+import com.carrotsearch.hppc.LongIntHashMap;
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.util.Helper;
+
+/**
+ * A map from long to int for the OSM node ids that keeps its entries in a DataAccess (e.g. memory mapped or off-heap)
+ * instead of many small objects on the heap like GHLongIntBTree. Unlike OSMIDMap the keys can be inserted in any
+ * order.
+ * <p>
+ * The key space is split into pages of 2^pageBits consecutive keys. A page first stores its keys sorted, relative to
+ * the start of the page and together with the values. If more than half of the keys of a page are used the page is
+ * converted into a dense array which is indexed by the key, which is the common case for the mostly consecutive OSM
+ * ids of dense areas. Only the page table lives on the heap. Released pages are reused for pages of the same size.
+ */
+public class GHLongIntPagedMap implements LongIntMap {
+    private static final int DEFAULT_PAGE_BITS = 12;
+    private static final int MIN_CAPACITY = 8;
+    // the capacity of a dense page, its entries are accessed directly via the key
+    private static final int DENSE = -1;
+    private final Directory dir;
+    private final DataAccess da;
+    private final int noEntryValue;
+    private final int pageBits;
+    private final long keyMask;
+    private final int maxSparseCapacity;
+    private final LongIntHashMap pageIndices = new LongIntHashMap();
+    private final LongArrayList pagePointers = new LongArrayList();
+    private final IntArrayList pageCounts = new IntArrayList();
+    private final IntArrayList pageCapacities = new IntArrayList();
+    // free pages per size class, the size class of a dense page is the one of the biggest sparse page
+    private final LongArrayList[] freePointers;
+    private long nextPointer;
+    private long size;
+    // consecutive keys are often in the same page, e.g. the nodes of a way
+    private long lastPageKey = Long.MIN_VALUE;
+    private int lastPage = -1;
+
+    public GHLongIntPagedMap(Directory dir, DAType type, int noEntryValue) {
+        this(dir, type, DEFAULT_PAGE_BITS, noEntryValue);
+    }
+
+    public GHLongIntPagedMap(Directory dir, DAType type, int pageBits, int noEntryValue) {
+        if (pageBits < 4 || pageBits > 24)
+            throw new IllegalArgumentException("pageBits must be in [4, 24] but was " + pageBits);
+        this.dir = dir;
+        this.noEntryValue = noEntryValue;
+        this.pageBits = pageBits;
+        this.keyMask = (1L << pageBits) - 1;
+        // a sparse entry needs 8 bytes, a dense one 4 bytes
+        this.maxSparseCapacity = 1 << (pageBits - 1);
+        this.freePointers = new LongArrayList[sizeClass(maxSparseCapacity) + 1];
+        for (int i = 0; i < freePointers.length; i++) {
+            freePointers[i] = new LongArrayList();
+        }
+        this.da = dir.find("tmp_long_int_paged_map", type);
+        // bigger segments avoid frequent remapping for MMAP
+        this.da.setSegmentSize(1 << 24).create(1 << 24);
+    }
+
+    @Override
+    public int put(long key, int value) {
+        if (value == noEntryValue)
+            throw new IllegalArgumentException("Cannot store the value " + value + " as it marks missing entries");
+
+        long pageKey = key >> pageBits;
+        int keyInPage = (int) (key & keyMask);
+        int page = getPage(pageKey);
+        if (page < 0)
+            page = createPage(pageKey);
+
+        while (true) {
+            long pointer = pagePointers.get(page);
+            int capacity = pageCapacities.get(page);
+            if (capacity == DENSE) {
+                long valuePointer = pointer + 4L * keyInPage;
+                int oldValue = da.getInt(valuePointer);
+                da.setInt(valuePointer, value);
+                if (oldValue == noEntryValue)
+                    size++;
+                return oldValue;
+            }
+
+            int count = pageCounts.get(page);
+            int index = binarySearch(pointer, count, keyInPage);
+            if (index >= 0) {
+                long valuePointer = pointer + 4L * (capacity + index);
+                int oldValue = da.getInt(valuePointer);
+                da.setInt(valuePointer, value);
+                return oldValue;
+            }
+
+            if (count == capacity) {
+                if (capacity == maxSparseCapacity)
+                    convertToDense(page);
+                else
+                    resize(page, capacity * 2);
+                continue;
+            }
+
+            index = ~index;
+            long valuesPointer = pointer + 4L * capacity;
+            for (int i = count; i > index; i--) {
+                da.setInt(pointer + 4L * i, da.getInt(pointer + 4L * (i - 1)));
+                da.setInt(valuesPointer + 4L * i, da.getInt(valuesPointer + 4L * (i - 1)));
+            }
+            da.setInt(pointer + 4L * index, keyInPage);
+            da.setInt(valuesPointer + 4L * index, value);
+            pageCounts.set(page, count + 1);
+            size++;
+            return noEntryValue;
+        }
+    }
+
+    @Override
+    public int get(long key) {
+        int page = getPage(key >> pageBits);
+        if (page < 0)
+            return noEntryValue;
+
+        int keyInPage = (int) (key & keyMask);
+        long pointer = pagePointers.get(page);
+        int capacity = pageCapacities.get(page);
+        if (capacity == DENSE)
+            return da.getInt(pointer + 4L * keyInPage);
+
+        int index = binarySearch(pointer, pageCounts.get(page), keyInPage);
+        if (index < 0)
+            return noEntryValue;
+        return da.getInt(pointer + 4L * (capacity + index));
+    }
+
+    private int getPage(long pageKey) {
+        if (pageKey != lastPageKey) {
+            lastPage = pageIndices.getOrDefault(pageKey, -1);
+            lastPageKey = pageKey;
+        }
+        return lastPage;
+    }
+
+    private int binarySearch(long pointer, int count, int keyInPage) {
+        int low = 0, high = count - 1;
+        while (low <= high) {
+            // use >>> for average or we could get an integer overflow.
+            int mid = (low + high) >>> 1;
+            int midKey = da.getInt(pointer + 4L * mid);
+            if (midKey < keyInPage)
+                low = mid + 1;
+            else if (midKey > keyInPage)
+                high = mid - 1;
+            else
+                return mid;
+        }
+        return ~low;
+    }
+
+    private int createPage(long pageKey) {
+        int page = pagePointers.size();
+        pageIndices.put(pageKey, page);
+        lastPageKey = pageKey;
+        lastPage = page;
+        pagePointers.add(allocate(MIN_CAPACITY));
+        pageCounts.add(0);
+        pageCapacities.add(MIN_CAPACITY);
+        return page;
+    }
+
+    private void resize(int page, int newCapacity) {
+        long oldPointer = pagePointers.get(page);
+        int oldCapacity = pageCapacities.get(page);
+        int count = pageCounts.get(page);
+        long newPointer = allocate(newCapacity);
+        for (int i = 0; i < count; i++) {
+            da.setInt(newPointer + 4L * i, da.getInt(oldPointer + 4L * i));
+            da.setInt(newPointer + 4L * (newCapacity + i), da.getInt(oldPointer + 4L * (oldCapacity + i)));
+        }
+        release(oldPointer, oldCapacity);
+        pagePointers.set(page, newPointer);
+        pageCapacities.set(page, newCapacity);
+    }
+
+    private void convertToDense(int page) {
+        long oldPointer = pagePointers.get(page);
+        int oldCapacity = pageCapacities.get(page);
+        int count = pageCounts.get(page);
+        // same size as the biggest sparse page
+        long newPointer = allocate(maxSparseCapacity);
+        int keysPerPage = 1 << pageBits;
+        for (int i = 0; i < keysPerPage; i++) {
+            da.setInt(newPointer + 4L * i, noEntryValue);
+        }
+        for (int i = 0; i < count; i++) {
+            int keyInPage = da.getInt(oldPointer + 4L * i);
+            da.setInt(newPointer + 4L * keyInPage, da.getInt(oldPointer + 4L * (oldCapacity + i)));
+        }
+        release(oldPointer, oldCapacity);
+        pagePointers.set(page, newPointer);
+        pageCapacities.set(page, DENSE);
+    }
+
+    private long allocate(int capacity) {
+        LongArrayList free = freePointers[sizeClass(capacity)];
+        if (!free.isEmpty())
+            return free.remove(free.size() - 1);
+
+        long pointer = nextPointer;
+        nextPointer += 8L * capacity;
+        da.ensureCapacity(nextPointer);
+        return pointer;
+    }
+
+    private void release(long pointer, int capacity) {
+        freePointers[sizeClass(capacity)].add(pointer);
+    }
+
+    private static int sizeClass(int capacity) {
+        return Integer.numberOfTrailingZeros(capacity) - Integer.numberOfTrailingZeros(MIN_CAPACITY);
+    }
+
+    @Override
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return the bytes used in the DataAccess and the estimated bytes of the page table on the heap
+     */
+    public long getCapacity() {
+        // key and value of the page index map with a load factor of 0.75, plus pointer, count and capacity
+        return da.getCapacity() + pagePointers.size() * (12 * 4 / 3 + 16);
+    }
+
+    @Override
+    public int getMemoryUsage() {
+        return Math.round(getCapacity() / Helper.MB);
+    }
+
+    @Override
+    public void optimize() {
+    }
+
+    /**
+     * Removes the underlying DataAccess, afterwards this map cannot be used anymore.
+     */
+    public void clear() {
+        dir.remove(da);
+    }
+
+    @Override
+    public String toString() {
+        return "pages: " + pagePointers.size() + ", size: " + size + ", memory: " + getMemoryUsage() + "MB";
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.geohash;
+
+import com.graphhopper.util.shapes.BBox;
+import com.graphhopper.util.shapes.GHPoint;
+
+/**
+ * This class maps lat,lon to the position on a Hilbert curve through the cells of the SpatialKeyAlgo with the same
+ * number of bits. Unlike the z-curve of the spatial key two consecutive keys are always neighbouring cells, which makes
+ * it a good order for data that is accessed by location, e.g. the nodes of a graph.
+ * <p>
+ * A 2 bit precision key will look like
+ * <pre>
+ *     |----|----|----|----|
+ *     |   5|   6|   9|  10|
+ *     |----|----|----|----|
+ *     |   4|   7|   8|  11|
+ * lat |----|----|----|----|
+ *     |   3|   2|  13|  12|
+ *     |----|----|----|----|
+ *     |   0|   1|  14|  15|
+ *     |----|----|----|----|
+ *              lon
+ * </pre>
+ */
+public class HilbertKeyAlgo implements KeyAlgo {
+    private final SpatialKeyAlgo spatialKeyAlgo;
+    private final int bitsPerAxis;
+
+    /**
+     * @param allBits how many bits should be used for the key, half of them for latitude and longitude
+     */
+    public HilbertKeyAlgo(int allBits) {
+        if ((allBits & 1) == 1 || allBits > 62)
+            throw new IllegalArgumentException("allBits needs to be even and at most 62 but was " + allBits);
+        spatialKeyAlgo = new SpatialKeyAlgo(allBits);
+        bitsPerAxis = allBits / 2;
+    }
+
+    @Override
+    public HilbertKeyAlgo setBounds(double minLonInit, double maxLonInit, double minLatInit, double maxLatInit) {
+        spatialKeyAlgo.setBounds(minLonInit, maxLonInit, minLatInit, maxLatInit);
+        return this;
+    }
+
+    public HilbertKeyAlgo setBounds(BBox bounds) {
+        spatialKeyAlgo.bounds(bounds);
+        return this;
+    }
+
+    @Override
+    public long encode(GHPoint coord) {
+        return encode(coord.lat, coord.lon);
+    }
+
+    @Override
+    public long encode(double lat, double lon) {
+        long spatialKey = spatialKeyAlgo.encode(lat, lon);
+        // the latitude bits are at the odd positions of the spatial key
+        return toHilbertKey(deinterleave(spatialKey), deinterleave(spatialKey >>> 1));
+    }
+
+    @Override
+    public void decode(long hilbertKey, GHPoint latLon) {
+        long n = 1L << bitsPerAxis;
+        long x = 0, y = 0, t = hilbertKey;
+        for (long s = 1; s < n; s <<= 1) {
+            long rx = 1 & (t >>> 1);
+            long ry = 1 & (t ^ rx);
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = s - 1 - x;
+                    y = s - 1 - y;
+                }
+                long tmp = x;
+                x = y;
+                y = tmp;
+            }
+            x += s * rx;
+            y += s * ry;
+            t >>>= 2;
+        }
+        spatialKeyAlgo.decode(interleave(x) | interleave(y) << 1, latLon);
+    }
+
+    private long toHilbertKey(long x, long y) {
+        long n = 1L << bitsPerAxis;
+        long key = 0;
+        for (long s = n >>> 1; s > 0; s >>>= 1) {
+            long rx = (x & s) > 0 ? 1 : 0;
+            long ry = (y & s) > 0 ? 1 : 0;
+            key += s * s * ((3 * rx) ^ ry);
+            // rotate the quadrant so that the curve continues in the right direction
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = n - 1 - x;
+                    y = n - 1 - y;
+                }
+                long tmp = x;
+                x = y;
+                y = tmp;
+            }
+        }
+        return key;
+    }
+
+    /**
+     * @return the bits at the even positions of the specified value
+     */
+    private long deinterleave(long value) {
+        long result = 0;
+        for (int i = 0; i < bitsPerAxis; i++) {
+            result |= ((value >>> (2 * i)) & 1) << i;
+        }
+        return result;
+    }
+
+    private long interleave(long value) {
+        long result = 0;
+        for (int i = 0; i < bitsPerAxis; i++) {
+            result |= ((value >>> i) & 1) << (2 * i);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "hilbert " + spatialKeyAlgo;
+    }
+}
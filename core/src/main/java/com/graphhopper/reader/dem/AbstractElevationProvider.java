@@ -18,6 +18,7 @@
 package com.graphhopper.reader.dem;
 
 import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.DataAccess;
 import com.graphhopper.storage.Directory;
 import com.graphhopper.storage.GHDirectory;
 import com.graphhopper.util.Downloader;
@@ -26,6 +27,8 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Provides basic methods that are usually used in an ElevationProvider.
@@ -37,11 +40,14 @@ public abstract class AbstractElevationProvider implements ElevationProvider {
     Downloader downloader;
     final File cacheDir;
     String baseUrl;
-    Directory dir;
+    GHDirectory dir;
     DAType daType = DAType.MMAP;
     boolean calcMean = false;
     boolean autoRemoveTemporary = true;
     long sleep = 2000;
+    HeightTileCache tileCache = new HeightTileCache();
+    // every tile is loaded only once even if several threads need it at the same time
+    private final ConcurrentMap<String, Object> loadLocks = new ConcurrentHashMap<>();
 
     protected AbstractElevationProvider(String cacheDirString) {
         File cacheDir = new File(cacheDirString);
@@ -68,6 +74,16 @@ public abstract class AbstractElevationProvider implements ElevationProvider {
         this.autoRemoveTemporary = autoRemoveTemporary;
     }
 
+    /**
+     * Specifies the cache for the loaded tiles, e.g. to limit its size or to share it with other providers. Has only
+     * an effect if called before the first getEle call. By default every provider has its own unbounded cache.
+     */
+    public void setTileCache(HeightTileCache tileCache) {
+        if (tileCache == null)
+            throw new IllegalArgumentException("tile cache cannot be null");
+        this.tileCache = tileCache;
+    }
+
     public void setDownloader(Downloader downloader) {
         this.downloader = downloader;
     }
@@ -92,6 +108,56 @@ public abstract class AbstractElevationProvider implements ElevationProvider {
     }
 
 
+    /**
+     * Returns the tile with the specified name from the cache or loads it. The returned tile is in use until it is
+     * released via the tile cache.
+     */
+    HeightTile acquireTile(String name, double lat, double lon) {
+        HeightTile tile = tileCache.acquire(this, name);
+        if (tile != null)
+            return tile;
+
+        Object lock = new Object();
+        Object existingLock = loadLocks.putIfAbsent(name, lock);
+        if (existingLock != null)
+            lock = existingLock;
+        synchronized (lock) {
+            tile = tileCache.acquire(this, name);
+            if (tile == null) {
+                if (!cacheDir.exists())
+                    cacheDir.mkdirs();
+
+                tile = loadTile(name, lat, lon);
+                tileCache.put(this, name, tile);
+            }
+            return tile;
+        }
+    }
+
+    /**
+     * Creates the tile with the specified name for the coordinates, either from the DataAccess in the directory or
+     * from the downloaded file.
+     */
+    abstract HeightTile loadTile(String name, double lat, double lon);
+
+    DataAccess findHeights(String name) {
+        // the directory is not thread safe
+        synchronized (this) {
+            return getDirectory().find(name);
+        }
+    }
+
+    /**
+     * Removes the heights of the evicted tile from the directory to release their memory. The file of the heights is
+     * kept, so the tile can be loaded again from it.
+     */
+    void removeTile(HeightTile tile) {
+        // the directory is not thread safe
+        synchronized (this) {
+            dir.remove(tile.getHeights(), false);
+        }
+    }
+
     protected Directory getDirectory() {
         if (dir != null)
             return dir;
@@ -44,6 +44,8 @@ public class HeightTile {
     private final double latHigherBound;
     private DataAccess heights;
     private boolean calcMean;
+    // number of lookups currently using this tile, guarded by the HeightTileCache
+    int users;
 
     public HeightTile(int minLat, int minLon, int width, int height, double precision, int horizontalDegree, int verticalDegree) {
         this.minLat = minLat;
@@ -77,6 +79,14 @@ public class HeightTile {
         this.heights = da;
     }
 
+    long getCapacity() {
+        return heights.getCapacity();
+    }
+
+    DataAccess getHeights() {
+        return heights;
+    }
+
     public double getHeight(double lat, double lon) {
         double deltaLat = Math.abs(lat - minLat);
         double deltaLon = Math.abs(lon - minLon);
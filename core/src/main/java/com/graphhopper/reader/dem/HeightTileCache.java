@@ -0,0 +1,146 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.dem;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A least recently used cache of the loaded HeightTiles which is bounded by the bytes of their heights. It can be
+ * shared between elevation providers, e.g. in the MultiSourceElevationProvider, so that all tiles compete for the
+ * same budget. An evicted tile is removed from the directory of its provider and loaded again from its file when it
+ * is needed later.
+ * <p>
+ * A tile is only evicted if it is not in use, so a lookup has to acquire the tile and release it afterwards. The
+ * cache can therefore be used from several threads, e.g. for the ParallelElevationLookup.
+ */
+public class HeightTileCache {
+    private final long maxBytes;
+    // access order, the eldest entry is the least recently used tile
+    private final LinkedHashMap<Key, HeightTile> tiles = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytes;
+
+    /**
+     * Creates a cache without a size limit.
+     */
+    public HeightTileCache() {
+        this(Long.MAX_VALUE);
+    }
+
+    public HeightTileCache(long maxBytes) {
+        if (maxBytes < 0)
+            throw new IllegalArgumentException("max bytes must not be negative but was " + maxBytes);
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return the tile of the provider with the specified name or null if it is not in the cache. A tile which is
+     * returned is in use until it is released via {@link #release(HeightTile)}.
+     */
+    synchronized HeightTile acquire(AbstractElevationProvider provider, String name) {
+        HeightTile tile = tiles.get(new Key(provider, name));
+        if (tile != null)
+            tile.users++;
+        return tile;
+    }
+
+    /**
+     * Adds the loaded tile to the cache. The tile is in use until it is released via {@link #release(HeightTile)}.
+     */
+    synchronized void put(AbstractElevationProvider provider, String name, HeightTile tile) {
+        tile.users++;
+        HeightTile old = tiles.put(new Key(provider, name), tile);
+        if (old != null)
+            throw new IllegalStateException("Tile " + name + " of " + provider + " was already loaded");
+        bytes += tile.getCapacity();
+        evict();
+    }
+
+    synchronized void release(HeightTile tile) {
+        if (tile.users <= 0)
+            throw new IllegalStateException("Tile " + tile + " is not in use");
+        tile.users--;
+        if (bytes > maxBytes)
+            evict();
+    }
+
+    /**
+     * Removes all tiles of the provider, e.g. before its directory is closed.
+     */
+    synchronized void removeAll(AbstractElevationProvider provider) {
+        Iterator<Map.Entry<Key, HeightTile>> iter = tiles.entrySet().iterator();
+        while (iter.hasNext()) {
+            Map.Entry<Key, HeightTile> entry = iter.next();
+            if (entry.getKey().provider == provider) {
+                bytes -= entry.getValue().getCapacity();
+                iter.remove();
+            }
+        }
+    }
+
+    synchronized int size() {
+        return tiles.size();
+    }
+
+    synchronized long getBytes() {
+        return bytes;
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<Key, HeightTile>> iter = tiles.entrySet().iterator();
+        while (bytes > maxBytes && iter.hasNext()) {
+            Map.Entry<Key, HeightTile> entry = iter.next();
+            HeightTile tile = entry.getValue();
+            if (tile.users > 0)
+                continue;
+
+            bytes -= tile.getCapacity();
+            iter.remove();
+            entry.getKey().provider.removeTile(tile);
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return tiles.size() + " tiles, " + bytes / 1024 / 1024 + "MB";
+    }
+
+    private static final class Key {
+        final AbstractElevationProvider provider;
+        final String name;
+
+        Key(AbstractElevationProvider provider, String name) {
+            this.provider = provider;
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key))
+                return false;
+            Key other = (Key) obj;
+            return provider == other.provider && name.equals(other.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(provider) + name.hashCode();
+        }
+    }
+}
@@ -35,6 +35,7 @@ public class MultiSourceElevationProvider implements ElevationProvider {
     public MultiSourceElevationProvider(ElevationProvider srtmProvider, ElevationProvider globalProvider) {
         this.srtmProvider = srtmProvider;
         this.globalProvider = globalProvider;
+        setTileCache(new HeightTileCache());
     }
 
     public MultiSourceElevationProvider() {
@@ -76,6 +77,17 @@ public class MultiSourceElevationProvider implements ElevationProvider {
         return this;
     }
 
+    /**
+     * Specifies the cache for the loaded tiles which is shared by both providers, so e.g. a size limit applies to
+     * the tiles of both of them.
+     */
+    public void setTileCache(HeightTileCache tileCache) {
+        if (srtmProvider instanceof AbstractElevationProvider)
+            ((AbstractElevationProvider) srtmProvider).setTileCache(tileCache);
+        if (globalProvider instanceof AbstractElevationProvider)
+            ((AbstractElevationProvider) globalProvider).setTileCache(tileCache);
+    }
+
     @Override
     public void setCalcMean(boolean calcMean) {
         srtmProvider.setCalcMean(calcMean);
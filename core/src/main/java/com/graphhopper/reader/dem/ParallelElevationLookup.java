@@ -0,0 +1,126 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.dem;
+
+import com.graphhopper.util.PointAccess;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Sets the elevation of many points at once. The points are processed in chunks and the points of a chunk are
+ * sorted by the one degree cell they are in, so every elevation tile is needed only for a short time, which keeps a
+ * bounded HeightTileCache small, and the cells are looked up in parallel.
+ * <p>
+ * The elevation provider must be thread safe if more than one thread is used, like the providers based on
+ * AbstractElevationProvider are. The points are written from the calling thread only.
+ */
+public class ParallelElevationLookup {
+    private static final int CHUNK_SIZE = 1 << 22;
+    // the points of some cells are looked up in one task to avoid a task per point in sparse areas
+    private static final int MIN_POINTS_PER_TASK = 10_000;
+    private final ElevationProvider elevationProvider;
+    private final int threads;
+
+    public ParallelElevationLookup(ElevationProvider elevationProvider, int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be at least 1 but was " + threads);
+        this.elevationProvider = elevationProvider;
+        this.threads = threads;
+    }
+
+    /**
+     * Looks up the elevation of the points 0 (inclusive) to count (exclusive) and stores it via setNode.
+     */
+    public void setElevations(PointAccess points, int count) {
+        ExecutorService executorService = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+        try {
+            long[] cellAndIndex = new long[Math.min(CHUNK_SIZE, count)];
+            double[] elevations = new double[cellAndIndex.length];
+            for (int start = 0; start < count; start += CHUNK_SIZE) {
+                int end = Math.min(count, start + CHUNK_SIZE);
+                setElevations(points, start, end, cellAndIndex, elevations, executorService);
+            }
+        } finally {
+            if (executorService != null)
+                executorService.shutdownNow();
+        }
+    }
+
+    private void setElevations(final PointAccess points, final int start, int end, final long[] cellAndIndex,
+                               final double[] elevations, ExecutorService executorService) {
+        final int size = end - start;
+        for (int i = 0; i < size; i++) {
+            long cell = getCell(points.getLat(start + i), points.getLon(start + i));
+            cellAndIndex[i] = cell << 32 | i;
+        }
+        Arrays.sort(cellAndIndex, 0, size);
+
+        List<Future<?>> futures = new ArrayList<>();
+        int from = 0;
+        while (from < size) {
+            int to = from + 1;
+            while (to < size && (to - from < MIN_POINTS_PER_TASK || sameCell(cellAndIndex[to - 1], cellAndIndex[to])))
+                to++;
+
+            final int taskFrom = from, taskTo = to;
+            Runnable task = new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = taskFrom; i < taskTo; i++) {
+                        int index = (int) cellAndIndex[i];
+                        elevations[index] = elevationProvider.getEle(points.getLat(start + index), points.getLon(start + index));
+                    }
+                }
+            };
+            if (executorService == null)
+                task.run();
+            else
+                futures.add(executorService.submit(task));
+            from = to;
+        }
+
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Thread was interrupted", ex);
+            } catch (ExecutionException ex) {
+                throw new RuntimeException("Couldn't look up elevation", ex.getCause());
+            }
+        }
+
+        for (int i = 0; i < size; i++) {
+            points.setNode(start + i, points.getLat(start + i), points.getLon(start + i), elevations[i]);
+        }
+    }
+
+    private static long getCell(double lat, double lon) {
+        return (long) (Math.floor(lat) + 90) * 360 + (long) (Math.floor(lon) + 180);
+    }
+
+    private static boolean sameCell(long cellAndIndex1, long cellAndIndex2) {
+        return cellAndIndex1 >>> 32 == cellAndIndex2 >>> 32;
+    }
+}
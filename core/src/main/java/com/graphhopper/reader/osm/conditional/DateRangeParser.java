@@ -52,6 +52,8 @@ public class DateRangeParser implements ConditionalValueParser {
 
     public DateRangeParser(Calendar date) {
         this.date = date;
+        // Calendar.get computes missing fields lazily, do it now as the ways can be parsed by several threads
+        date.get(Calendar.DAY_OF_WEEK);
     }
 
     public static Calendar createCalendar() {
@@ -60,7 +62,8 @@ public class DateRangeParser implements ConditionalValueParser {
         return Calendar.getInstance(Helper.UTC, Locale.US);
     }
 
-    static ParsedCalendar parseDateString(String dateString) throws ParseException {
+    // the DateFormat instances are not thread safe
+    static synchronized ParsedCalendar parseDateString(String dateString) throws ParseException {
         // Replace occurences of public holidays
         dateString = dateString.replaceAll("(,( )*)?(PH|SH)", "");
         dateString = dateString.trim();
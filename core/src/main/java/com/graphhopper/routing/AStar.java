@@ -67,6 +67,19 @@ public class AStar extends AbstractRoutingAlgorithm {
         fromHeap = new PriorityQueue<>(size);
     }
 
+    /**
+     * Prepares this algorithm for the calculation of another path on the same graph. Unlike creating a new instance
+     * this reuses the internal collections.
+     */
+    public void reset() {
+        resetAlreadyRun();
+        fromHeap.clear();
+        fromMap.clear();
+        currEdge = null;
+        visitedNodes = 0;
+        to = -1;
+    }
+
     @Override
     public Path calcPath(int from, int to) {
         checkAlreadyRun();
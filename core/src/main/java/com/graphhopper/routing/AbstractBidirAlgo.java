@@ -18,7 +18,6 @@
 package com.graphhopper.routing;
 
 import com.carrotsearch.hppc.IntObjectMap;
-import com.graphhopper.coll.GHIntObjectHashMap;
 import com.graphhopper.routing.util.EdgeFilter;
 import com.graphhopper.routing.util.TraversalMode;
 import com.graphhopper.routing.weighting.Weighting;
@@ -60,6 +59,8 @@ public abstract class AbstractBidirAlgo extends AbstractRoutingAlgorithm impleme
     protected boolean finishedTo;
     int visitedCountFrom;
     int visitedCountTo;
+    private BidirSearchCollections collections;
+    private int collectionsSize;
 
     public AbstractBidirAlgo(Graph graph, Weighting weighting, TraversalMode tMode) {
         super(graph, weighting, tMode);
@@ -70,12 +71,56 @@ public abstract class AbstractBidirAlgo extends AbstractRoutingAlgorithm impleme
         initCollections(size);
     }
 
+    /**
+     * Takes the collections released last in this thread, see {@link #release()}, or creates new ones.
+     */
     protected void initCollections(int size) {
-        pqOpenSetFrom = new PriorityQueue<>(size);
-        bestWeightMapFrom = new GHIntObjectHashMap<>(size);
+        collectionsSize = size;
+        collections = BidirSearchCollections.acquire(size);
+        pqOpenSetFrom = collections.pqOpenSetFrom;
+        bestWeightMapFrom = collections.bestWeightMapFrom;
+
+        pqOpenSetTo = collections.pqOpenSetTo;
+        bestWeightMapTo = collections.bestWeightMapTo;
+    }
 
-        pqOpenSetTo = new PriorityQueue<>(size);
-        bestWeightMapTo = new GHIntObjectHashMap<>(size);
+    /**
+     * Prepares this algorithm for the calculation of another path on the same graph. Unlike creating a new instance
+     * this reuses the internal collections.
+     */
+    public void reset() {
+        resetAlreadyRun();
+        // releasing clears the collections, or drops them if they grew too big and clearing them would be expensive
+        release();
+        initCollections(collectionsSize);
+        fromOutEdge = ANY_EDGE;
+        toInEdge = ANY_EDGE;
+        currFrom = null;
+        currTo = null;
+        bestFwdEntry = null;
+        bestBwdEntry = null;
+        bestWeight = Double.MAX_VALUE;
+        finishedFrom = false;
+        finishedTo = false;
+        visitedCountFrom = 0;
+        visitedCountTo = 0;
+    }
+
+    /**
+     * Releases the internal collections of this algorithm, e.g. so that the next algorithm created in the same thread
+     * can reuse them instead of allocating new ones. Call this only after the paths are calculated, this algorithm
+     * must not be used afterwards.
+     */
+    public void release() {
+        // the collections must not be reused if they were shared with another algorithm, see setFromDataStructures
+        if (collections != null && pqOpenSetFrom == collections.pqOpenSetFrom && pqOpenSetTo == collections.pqOpenSetTo)
+            collections.release();
+        collections = null;
+        pqOpenSetFrom = null;
+        bestWeightMapFrom = null;
+        pqOpenSetTo = null;
+        bestWeightMapTo = null;
+        bestWeightMapOther = null;
     }
 
     /**
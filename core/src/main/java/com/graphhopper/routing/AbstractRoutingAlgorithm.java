@@ -81,11 +81,18 @@ public abstract class AbstractRoutingAlgorithm implements RoutingAlgorithm {
 
     protected void checkAlreadyRun() {
         if (alreadyRun)
-            throw new IllegalStateException("Create a new instance per call");
+            throw new IllegalStateException("Create a new instance per call or reset it");
 
         alreadyRun = true;
     }
 
+    /**
+     * Subclasses that can be reused offer a reset method, which clears their state and calls this method.
+     */
+    protected void resetAlreadyRun() {
+        alreadyRun = false;
+    }
+
     /**
      * To be overwritten from extending class. Should we make this available in RoutingAlgorithm
      * interface?
@@ -176,8 +176,10 @@ public class AlternativeRoute implements RoutingAlgorithm {
         Path bestPath = altBidirDijktra.searchBest(from, to);
         visitedNodes = altBidirDijktra.getVisitedNodes();
 
-        return altBidirDijktra.
+        List<AlternativeInfo> alternatives = altBidirDijktra.
                 calcAlternatives(bestPath, maxPaths, maxWeightFactor, 7, maxShareFactor, 0.8, minPlateauFactor, -0.2);
+        altBidirDijktra.release();
+        return alternatives;
     }
 
     @Override
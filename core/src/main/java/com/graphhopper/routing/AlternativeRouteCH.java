@@ -89,9 +89,11 @@ public class AlternativeRouteCH extends DijkstraBidirectionCHNoSOD {
                 DijkstraBidirectionCHNoSOD svRouter = new DijkstraBidirectionCHNoSOD(graph, weighting);
                 svRouter.setEdgeFilter(additionalEdgeFilter);
                 final Path svPath = svRouter.calcPath(s, v);
+                svRouter.release();
                 DijkstraBidirectionCHNoSOD vtRouter = new DijkstraBidirectionCHNoSOD(graph, weighting);
                 vtRouter.setEdgeFilter(additionalEdgeFilter);
                 final Path vtPath = vtRouter.calcPath(v, t);
+                vtRouter.release();
                 Path path = concat(graph.getBaseGraph(), svPath, vtPath);
 
                 // And calculate the share again, because this can be totally different.
@@ -140,6 +142,7 @@ public class AlternativeRouteCH extends DijkstraBidirectionCHNoSOD {
                 DijkstraBidirectionCHNoSOD tRouter = new DijkstraBidirectionCHNoSOD(graph, new CHWeighting(weighting));
                 tRouter.setEdgeFilter(additionalEdgeFilter);
                 Path tPath = tRouter.calcPath(fromNode, toNode);
+                tRouter.release();
                 IntIndexedContainer tNodes = tPath.calcNodes();
                 return tNodes.contains(path.calcNodes().get(vIndex));
             }
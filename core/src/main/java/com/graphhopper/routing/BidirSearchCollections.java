@@ -0,0 +1,76 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.coll.GHIntObjectHashMap;
+import com.graphhopper.storage.SPTEntry;
+
+import java.util.PriorityQueue;
+
+/**
+ * The shortest path tree maps and priority queues of the forward and backward search of a bidirectional algorithm.
+ * Released collections are kept per thread and taken by the next bidirectional algorithm created in the same thread,
+ * e.g. the one of the next request, so that they do not have to be allocated and grown for every query again. Maps
+ * that grew too big are not kept to limit the memory per thread.
+ */
+final class BidirSearchCollections {
+    // the number of hash map slots up to which released collections are kept, this is enough for typical CH queries
+    private static final int MAX_KEPT_CAPACITY = 1 << 16;
+    private static final ThreadLocal<BidirSearchCollections> RELEASED = new ThreadLocal<>();
+    final GHIntObjectHashMap<SPTEntry> bestWeightMapFrom;
+    final GHIntObjectHashMap<SPTEntry> bestWeightMapTo;
+    final PriorityQueue<SPTEntry> pqOpenSetFrom;
+    final PriorityQueue<SPTEntry> pqOpenSetTo;
+
+    private BidirSearchCollections(int size) {
+        pqOpenSetFrom = new PriorityQueue<>(size);
+        bestWeightMapFrom = new GHIntObjectHashMap<>(size);
+        pqOpenSetTo = new PriorityQueue<>(size);
+        bestWeightMapTo = new GHIntObjectHashMap<>(size);
+    }
+
+    /**
+     * @return the collections released last in the current thread or new ones with the specified initial size
+     */
+    static BidirSearchCollections acquire(int size) {
+        BidirSearchCollections collections = RELEASED.get();
+        if (collections == null)
+            return new BidirSearchCollections(size);
+
+        RELEASED.set(null);
+        return collections;
+    }
+
+    void clear() {
+        pqOpenSetFrom.clear();
+        bestWeightMapFrom.clear();
+        pqOpenSetTo.clear();
+        bestWeightMapTo.clear();
+    }
+
+    /**
+     * Makes these collections available for the next call of acquire in the current thread.
+     */
+    void release() {
+        if (bestWeightMapFrom.keys.length > MAX_KEPT_CAPACITY || bestWeightMapTo.keys.length > MAX_KEPT_CAPACITY)
+            return;
+
+        clear();
+        RELEASED.set(this);
+    }
+}
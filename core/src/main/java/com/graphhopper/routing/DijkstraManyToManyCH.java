@@ -0,0 +1,256 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntIntHashMap;
+import com.carrotsearch.hppc.IntObjectMap;
+import com.graphhopper.coll.GHIntObjectHashMap;
+import com.graphhopper.routing.ch.NodeBasedCHBidirPathExtractor;
+import com.graphhopper.routing.util.DefaultEdgeFilter;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.SPTEntry;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.NotThreadSafe;
+import com.graphhopper.util.StopWatch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Calculates the weights (and optionally times and distances) between all pairs of sources and targets on a node-based
+ * CH graph. Instead of one bidirectional search per pair we do one upward search per target and store the settled
+ * nodes in per-node buckets. Afterwards one upward search per source scans the buckets of every settled node, so a
+ * NxM matrix costs N+M searches instead of N*M, see 'Computing Many-to-Many Shortest Paths Using Highway Hierarchies'
+ * by Knopp et al.
+ * <p>
+ * The graph is usually a QueryGraph wrapping the CHGraph so that all points can be snapped at once.
+ *
+ * @see com.graphhopper.routing.ch.CHRoutingAlgorithmFactory#createManyToManyAlgo(Graph)
+ */
+@NotThreadSafe
+public class DijkstraManyToManyCH {
+    private static final int NO_BUCKET = -1;
+    private final Graph graph;
+    private final Weighting weighting;
+    private final EdgeExplorer inEdgeExplorer;
+    private final EdgeExplorer outEdgeExplorer;
+    private EdgeFilter levelEdgeFilter;
+    private boolean stallOnDemand = true;
+    private boolean calcTimesAndDistances = true;
+    private int visitedNodes;
+    // the buckets are single linked lists stored in arrays: bucketHeads points from a node to the last added entry,
+    // bucketNext to the previous entry of the same node
+    private final IntIntHashMap bucketHeads = new IntIntHashMap();
+    private final IntArrayList bucketNext = new IntArrayList();
+    private final IntArrayList bucketTargets = new IntArrayList();
+    private final List<SPTEntry> bucketEntries = new ArrayList<>();
+
+    /**
+     * @param graph     the CHGraph or a QueryGraph wrapping it
+     * @param weighting a CHWeighting that is able to calculate the weight of shortcuts
+     */
+    public DijkstraManyToManyCH(Graph graph, Weighting weighting) {
+        this.graph = graph;
+        this.weighting = weighting;
+        outEdgeExplorer = graph.createEdgeExplorer(DefaultEdgeFilter.outEdges(weighting.getFlagEncoder()));
+        inEdgeExplorer = graph.createEdgeExplorer(DefaultEdgeFilter.inEdges(weighting.getFlagEncoder()));
+    }
+
+    /**
+     * Restricts the searches to the upward graph, usually a LevelEdgeFilter.
+     */
+    public DijkstraManyToManyCH setEdgeFilter(EdgeFilter levelEdgeFilter) {
+        this.levelEdgeFilter = levelEdgeFilter;
+        return this;
+    }
+
+    public DijkstraManyToManyCH setStallOnDemand(boolean stallOnDemand) {
+        this.stallOnDemand = stallOnDemand;
+        return this;
+    }
+
+    /**
+     * Calculating times and distances requires to unpack the shortcuts of every found path, which is more expensive
+     * than calculating only the weights. Default is true.
+     */
+    public DijkstraManyToManyCH setCalcTimesAndDistances(boolean calcTimesAndDistances) {
+        this.calcTimesAndDistances = calcTimesAndDistances;
+        return this;
+    }
+
+    public MatrixResult calcMatrix(int[] fromNodes, int[] toNodes) {
+        if (levelEdgeFilter == null)
+            throw new IllegalStateException("A level edge filter is required for the upward searches");
+
+        MatrixResult result = new MatrixResult(fromNodes.length, toNodes.length, calcTimesAndDistances);
+        StopWatch sw = new StopWatch().start();
+        for (int toIndex = 0; toIndex < toNodes.length; toIndex++) {
+            search(toNodes[toIndex], toIndex, true, null, null, null);
+        }
+        result.addDebugInfo("backward searches:" + sw.stop().getSeconds() + "s, bucket entries:" + bucketEntries.size());
+
+        sw = new StopWatch().start();
+        double[] rowWeights = new double[toNodes.length];
+        SPTEntry[] bestFwdEntries = new SPTEntry[toNodes.length];
+        SPTEntry[] bestBwdEntries = new SPTEntry[toNodes.length];
+        for (int fromIndex = 0; fromIndex < fromNodes.length; fromIndex++) {
+            for (int toIndex = 0; toIndex < toNodes.length; toIndex++) {
+                rowWeights[toIndex] = Double.MAX_VALUE;
+                bestFwdEntries[toIndex] = null;
+                bestBwdEntries[toIndex] = null;
+            }
+            search(fromNodes[fromIndex], fromIndex, false, rowWeights, bestFwdEntries, bestBwdEntries);
+            for (int toIndex = 0; toIndex < toNodes.length; toIndex++) {
+                if (bestFwdEntries[toIndex] == null)
+                    continue;
+
+                result.setWeight(fromIndex, toIndex, rowWeights[toIndex]);
+                if (calcTimesAndDistances) {
+                    Path path = new NodeBasedCHBidirPathExtractor(graph, graph.getBaseGraph(), weighting).
+                            extract(bestFwdEntries[toIndex], bestBwdEntries[toIndex], rowWeights[toIndex]);
+                    result.setTimeAndDistance(fromIndex, toIndex, path.getTime(), path.getDistance());
+                }
+            }
+        }
+        result.addDebugInfo("forward searches:" + sw.stop().getSeconds() + "s");
+        result.setVisitedNodes(visitedNodes);
+        clearBuckets();
+        return result;
+    }
+
+    /**
+     * Runs one upward search. For the backward search (reverse is true) every settled node gets a bucket entry for the
+     * specified target index. For the forward search the buckets of all settled nodes are scanned to update the
+     * weights of the current row.
+     */
+    private void search(int startNode, int index, boolean reverse, double[] rowWeights,
+                        SPTEntry[] bestFwdEntries, SPTEntry[] bestBwdEntries) {
+        EdgeExplorer explorer = reverse ? inEdgeExplorer : outEdgeExplorer;
+        EdgeExplorer stallExplorer = reverse ? outEdgeExplorer : inEdgeExplorer;
+        IntObjectMap<SPTEntry> bestWeightMap = new GHIntObjectHashMap<>();
+        PriorityQueue<SPTEntry> queue = new PriorityQueue<>();
+        SPTEntry startEntry = new SPTEntry(startNode, 0);
+        bestWeightMap.put(startNode, startEntry);
+        queue.add(startEntry);
+        while (!queue.isEmpty()) {
+            SPTEntry currEntry = queue.poll();
+            visitedNodes++;
+            if (stallOnDemand && entryIsStallable(currEntry, bestWeightMap, stallExplorer, reverse))
+                continue;
+
+            if (reverse)
+                addToBucket(currEntry, index);
+            else
+                scanBucket(currEntry, rowWeights, bestFwdEntries, bestBwdEntries);
+
+            EdgeIterator iter = explorer.setBaseNode(currEntry.adjNode);
+            while (iter.next()) {
+                if (iter.getEdge() == currEntry.edge || !levelEdgeFilter.accept(iter))
+                    continue;
+
+                double weight = weighting.calcWeight(iter, reverse, currEntry.edge) + currEntry.weight;
+                if (Double.isInfinite(weight))
+                    continue;
+
+                SPTEntry entry = bestWeightMap.get(iter.getAdjNode());
+                if (entry == null) {
+                    entry = new SPTEntry(iter.getEdge(), iter.getAdjNode(), weight);
+                    entry.parent = currEntry;
+                    bestWeightMap.put(iter.getAdjNode(), entry);
+                    queue.add(entry);
+                } else if (entry.weight > weight) {
+                    queue.remove(entry);
+                    entry.edge = iter.getEdge();
+                    entry.weight = weight;
+                    entry.parent = currEntry;
+                    queue.add(entry);
+                }
+            }
+        }
+    }
+
+    private void addToBucket(SPTEntry bwdEntry, int toIndex) {
+        int newIndex = bucketEntries.size();
+        bucketEntries.add(bwdEntry);
+        bucketTargets.add(toIndex);
+        bucketNext.add(bucketHeads.getOrDefault(bwdEntry.adjNode, NO_BUCKET));
+        bucketHeads.put(bwdEntry.adjNode, newIndex);
+    }
+
+    private void scanBucket(SPTEntry fwdEntry, double[] rowWeights, SPTEntry[] bestFwdEntries, SPTEntry[] bestBwdEntries) {
+        int bucketIndex = bucketHeads.getOrDefault(fwdEntry.adjNode, NO_BUCKET);
+        while (bucketIndex != NO_BUCKET) {
+            SPTEntry bwdEntry = bucketEntries.get(bucketIndex);
+            int toIndex = bucketTargets.get(bucketIndex);
+            double weight = fwdEntry.weight + bwdEntry.weight;
+            if (weight < rowWeights[toIndex]) {
+                rowWeights[toIndex] = weight;
+                bestFwdEntries[toIndex] = fwdEntry;
+                bestBwdEntries[toIndex] = bwdEntry;
+            }
+            bucketIndex = bucketNext.get(bucketIndex);
+        }
+    }
+
+    private void clearBuckets() {
+        bucketHeads.clear();
+        bucketNext.clear();
+        bucketTargets.clear();
+        bucketEntries.clear();
+    }
+
+    /**
+     * Same as for {@link DijkstraBidirectionCH}: a node does not need to be settled if we can prove that it was reached
+     * via a suboptimal path. As such a node is not settled it also does not need a bucket entry.
+     */
+    private boolean entryIsStallable(SPTEntry entry, IntObjectMap<SPTEntry> bestWeightMap, EdgeExplorer edgeExplorer,
+                                     boolean reverse) {
+        EdgeIterator iter = edgeExplorer.setBaseNode(entry.adjNode);
+        while (iter.next()) {
+            if (iter.getEdge() == entry.edge)
+                continue;
+
+            SPTEntry adjEntry = bestWeightMap.get(iter.getAdjNode());
+            // we have to be careful because of rounded shortcut weights in combination with virtual via nodes,
+            // see #1574
+            final double precision = 0.001;
+            if (adjEntry != null &&
+                    adjEntry.weight + weighting.calcEdgeWeight(iter, !reverse) - entry.weight < -precision)
+                return true;
+        }
+        return false;
+    }
+
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    public String getName() {
+        return "dijkstra_many_to_many|ch";
+    }
+
+    @Override
+    public String toString() {
+        return getName() + "|" + weighting;
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import java.util.Arrays;
+
+/**
+ * Holds the weight, time and distance tables of a many-to-many calculation. Entries of disconnected pairs are
+ * {@link Double#MAX_VALUE} for weights and distances and {@link Long#MAX_VALUE} for times, like it is done in the
+ * matrix client.
+ *
+ * @see DijkstraManyToManyCH
+ */
+public class MatrixResult {
+    private final double[][] weights;
+    private final long[][] times;
+    private final double[][] distances;
+    private final boolean withTimesAndDistances;
+    private int visitedNodes;
+    private String debugInfo = "";
+
+    public MatrixResult(int fromCount, int toCount, boolean withTimesAndDistances) {
+        this.withTimesAndDistances = withTimesAndDistances;
+        weights = new double[fromCount][toCount];
+        for (double[] row : weights) {
+            Arrays.fill(row, Double.MAX_VALUE);
+        }
+
+        if (withTimesAndDistances) {
+            times = new long[fromCount][toCount];
+            distances = new double[fromCount][toCount];
+            for (int i = 0; i < fromCount; i++) {
+                Arrays.fill(times[i], Long.MAX_VALUE);
+                Arrays.fill(distances[i], Double.MAX_VALUE);
+            }
+        } else {
+            times = new long[0][];
+            distances = new double[0][];
+        }
+    }
+
+    public int getFromCount() {
+        return weights.length;
+    }
+
+    public int getToCount() {
+        return weights.length == 0 ? 0 : weights[0].length;
+    }
+
+    public boolean hasTimesAndDistances() {
+        return withTimesAndDistances;
+    }
+
+    public boolean isConnected(int from, int to) {
+        return weights[from][to] < Double.MAX_VALUE;
+    }
+
+    public double getWeight(int from, int to) {
+        return weights[from][to];
+    }
+
+    void setWeight(int from, int to, double weight) {
+        weights[from][to] = weight;
+    }
+
+    /**
+     * @return the time in milliseconds
+     */
+    public long getTime(int from, int to) {
+        checkTimesAndDistances();
+        return times[from][to];
+    }
+
+    /**
+     * @return the distance in meter
+     */
+    public double getDistance(int from, int to) {
+        checkTimesAndDistances();
+        return distances[from][to];
+    }
+
+    void setTimeAndDistance(int from, int to, long time, double distance) {
+        times[from][to] = time;
+        distances[from][to] = distance;
+    }
+
+    private void checkTimesAndDistances() {
+        if (!hasTimesAndDistances())
+            throw new IllegalStateException("Times and distances were not calculated for this matrix");
+    }
+
+    public double[][] getWeights() {
+        return weights;
+    }
+
+    public long[][] getTimes() {
+        return times;
+    }
+
+    public double[][] getDistances() {
+        return distances;
+    }
+
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    void setVisitedNodes(int visitedNodes) {
+        this.visitedNodes = visitedNodes;
+    }
+
+    public String getDebugInfo() {
+        return debugInfo;
+    }
+
+    public MatrixResult addDebugInfo(String debugInfo) {
+        if (!this.debugInfo.isEmpty())
+            this.debugInfo += ", ";
+        this.debugInfo += debugInfo;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return getFromCount() + "x" + getToCount() + ", visited nodes: " + visitedNodes + ", " + debugInfo;
+    }
+}
@@ -91,7 +91,7 @@ public class Path {
     /**
      * @return the first node of this Path.
      */
-    private int getFromNode() {
+    int getFromNode() {
         if (fromNode < 0)
             throw new IllegalStateException("fromNode < 0 should not happen");
 
@@ -106,6 +106,13 @@ public class Path {
         return this;
     }
 
+    /**
+     * @return a copy of the edge ids in the order of this path
+     */
+    int[] copyEdgeIds() {
+        return edgeIds.toArray();
+    }
+
     public int getEdgeCount() {
         return edgeIds.size();
     }
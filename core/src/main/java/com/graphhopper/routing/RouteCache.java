@@ -0,0 +1,278 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.GHRequest;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.GraphSnapshot;
+import com.graphhopper.storage.index.QueryResult;
+import com.graphhopper.util.Parameters;
+import com.graphhopper.util.Parameters.Routing;
+import com.graphhopper.util.shapes.GHPoint3D;
+
+import java.util.*;
+
+/**
+ * Keeps the paths of the most recently calculated routes up to the specified number of bytes, so that a repeated
+ * request, e.g. from a depot to the same customer, skips the route calculation. A route is identified by the snapped
+ * points of the request and the parameters that change the calculated paths, see {@link #createKey}. Only the edge
+ * ids of the paths are stored: a QueryGraph created from equal QueryResults has the same virtual nodes and edges, so
+ * the paths can be restored for the QueryGraph of every such request.
+ * <p>
+ * If the edge flags are changed the key contains the version of the edge flags seen by the request, so a request
+ * never gets a route calculated on edge flags it does not see, see {@link GraphSnapshot#getFlagsVersion()}. Other
+ * changes of the graph require to remove all routes via {@link #invalidate()}. This class is thread-safe, the routes
+ * are calculated outside of the lock.
+ */
+public class RouteCache {
+    // the estimated bytes of a cache entry and of a path without the arrays
+    private static final int ENTRY_OVERHEAD = 150;
+    private static final int PATH_OVERHEAD = 50;
+    // the hints that change the response but not the calculated paths
+    private static final Set<String> IGNORED_HINTS = new HashSet<>(Arrays.asList(Routing.INSTRUCTIONS,
+            Routing.CALC_POINTS, Routing.WAY_POINT_MAX_DISTANCE, Parameters.Details.PATH_DETAILS, "elevation",
+            "points_encoded", "locale", "type", "debug"));
+    private final long maxBytes;
+    private final LinkedHashMap<Key, CachedPath[]> routes = new LinkedHashMap<>(16, 0.75f, true);
+    private long usedBytes;
+    private long hits;
+    private long misses;
+    // the latest version of the edge flags, paths calculated on older ones are not added
+    private int flagsVersion;
+
+    /**
+     * @param maxBytes the maximum bytes of the cached routes including their keys
+     */
+    public RouteCache(long maxBytes) {
+        if (maxBytes <= 0)
+            throw new IllegalArgumentException("maxBytes has to be positive but was " + maxBytes);
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @param queryResults the snapped points of the request in the order of the request
+     * @param algoOpts     the options of the route calculation including the final weighting
+     * @param graph        the graph the paths are calculated on, i.e. the base graph of the QueryGraph of the request
+     */
+    public static Key createKey(List<QueryResult> queryResults, GHRequest request, AlgorithmOptions algoOpts, Graph graph) {
+        double[] coordinates = new double[queryResults.size() * 2];
+        int[] snaps = new int[queryResults.size() * 5];
+        for (int i = 0; i < queryResults.size(); i++) {
+            QueryResult qr = queryResults.get(i);
+            GHPoint3D snappedPoint = qr.getSnappedPoint();
+            coordinates[2 * i] = snappedPoint.lat;
+            coordinates[2 * i + 1] = snappedPoint.lon;
+            snaps[5 * i] = qr.getClosestEdge().getEdge();
+            snaps[5 * i + 1] = qr.getClosestEdge().getBaseNode();
+            snaps[5 * i + 2] = qr.getWayIndex();
+            snaps[5 * i + 3] = qr.getSnappedPosition().ordinal();
+            snaps[5 * i + 4] = qr.getClosestNode();
+        }
+
+        StringBuilder params = new StringBuilder();
+        params.append(algoOpts.getAlgorithm()).append('|').append(algoOpts.getWeighting()).
+                append('|').append(algoOpts.getTraversalMode()).append('|').append(algoOpts.getMaxVisitedNodes());
+        for (int i = 0; i < queryResults.size(); i++) {
+            if (request.hasFavoredHeading(i))
+                params.append("|heading").append(i).append('=').append(request.getFavoredHeading(i));
+        }
+        params.append("|curbsides=").append(request.getCurbsides());
+        // sorted to get the same key for the same hints
+        for (Map.Entry<String, String> hint : new TreeMap<>(request.getHints().toMap()).entrySet()) {
+            if (!IGNORED_HINTS.contains(hint.getKey()))
+                params.append('|').append(hint.getKey()).append('=').append(hint.getValue());
+        }
+        // a graph without snapshot is not changed while routing requests are running
+        int flagsVersion = graph instanceof GraphSnapshot ? ((GraphSnapshot) graph).getFlagsVersion() : 0;
+        return new Key(coordinates, snaps, params.toString(), flagsVersion);
+    }
+
+    /**
+     * @param graph the graph of the restored paths, i.e. the base graph of the QueryGraph of the request
+     * @return the cached paths of the specified route or null if the route is not cached
+     */
+    public List<Path> get(Key key, Graph graph) {
+        CachedPath[] cachedPaths;
+        synchronized (this) {
+            cachedPaths = routes.get(key);
+            if (cachedPaths == null) {
+                misses++;
+                return null;
+            }
+            hits++;
+        }
+
+        List<Path> paths = new ArrayList<>(cachedPaths.length);
+        for (CachedPath cachedPath : cachedPaths) {
+            paths.add(cachedPath.toPath(graph));
+        }
+        return paths;
+    }
+
+    /**
+     * Adds the paths of the specified route unless a path was not found or the paths were calculated on edge flags
+     * older than the ones of the cached routes. Adding the paths of newer edge flags removes all other routes.
+     */
+    public synchronized void put(Key key, List<Path> paths) {
+        if (key.flagsVersion < flagsVersion)
+            return;
+        if (key.flagsVersion > flagsVersion) {
+            flagsVersion = key.flagsVersion;
+            routes.clear();
+            usedBytes = 0;
+        }
+
+        CachedPath[] cachedPaths = new CachedPath[paths.size()];
+        long entryBytes = ENTRY_OVERHEAD + key.getBytes();
+        for (int i = 0; i < cachedPaths.length; i++) {
+            Path path = paths.get(i);
+            if (!path.isFound())
+                return;
+            cachedPaths[i] = new CachedPath(path);
+            entryBytes += cachedPaths[i].getBytes();
+        }
+        if (entryBytes > maxBytes)
+            return;
+
+        CachedPath[] old = routes.put(key, cachedPaths);
+        if (old != null)
+            usedBytes -= getBytes(key, old);
+        usedBytes += entryBytes;
+        Iterator<Map.Entry<Key, CachedPath[]>> iter = routes.entrySet().iterator();
+        while (usedBytes > maxBytes) {
+            Map.Entry<Key, CachedPath[]> eldest = iter.next();
+            usedBytes -= getBytes(eldest.getKey(), eldest.getValue());
+            iter.remove();
+        }
+    }
+
+    private static long getBytes(Key key, CachedPath[] cachedPaths) {
+        long bytes = ENTRY_OVERHEAD + key.getBytes();
+        for (CachedPath cachedPath : cachedPaths) {
+            bytes += cachedPath.getBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Removes all routes, e.g. after the edges of the graph were changed.
+     */
+    public synchronized void invalidate() {
+        routes.clear();
+        usedBytes = 0;
+    }
+
+    public synchronized int getSize() {
+        return routes.size();
+    }
+
+    /**
+     * @return the estimated bytes of the cached routes
+     */
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the share of the requested routes that were cached or 0 if no route was requested yet
+     */
+    public synchronized double getHitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "routes: " + routes.size() + ", bytes: " + usedBytes + ", max bytes: " + maxBytes + ", hits: " + hits + ", misses: " + misses;
+    }
+
+    public static final class Key {
+        private final double[] coordinates;
+        private final int[] snaps;
+        private final String params;
+        private final int flagsVersion;
+        private final int hashCode;
+
+        Key(double[] coordinates, int[] snaps, String params, int flagsVersion) {
+            this.coordinates = coordinates;
+            this.snaps = snaps;
+            this.params = params;
+            this.flagsVersion = flagsVersion;
+            this.hashCode = 31 * (31 * (31 * Arrays.hashCode(coordinates) + Arrays.hashCode(snaps)) + params.hashCode())
+                    + flagsVersion;
+        }
+
+        long getBytes() {
+            return 8L * coordinates.length + 4L * snaps.length + 2L * params.length();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof Key))
+                return false;
+            Key other = (Key) obj;
+            return hashCode == other.hashCode && flagsVersion == other.flagsVersion && Arrays.equals(snaps, other.snaps)
+                    && Arrays.equals(coordinates, other.coordinates) && params.equals(other.params);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private static final class CachedPath {
+        final int fromNode;
+        final int endNode;
+        final int[] edgeIds;
+        final double weight;
+        final double distance;
+        final long time;
+
+        CachedPath(Path path) {
+            fromNode = path.getFromNode();
+            endNode = path.getEndNode();
+            edgeIds = path.copyEdgeIds();
+            weight = path.getWeight();
+            distance = path.getDistance();
+            time = path.getTime();
+        }
+
+        long getBytes() {
+            return PATH_OVERHEAD + 4L * edgeIds.length;
+        }
+
+        Path toPath(Graph graph) {
+            Path path = new Path(graph).setFromNode(fromNode).setEndNode(endNode);
+            for (int edgeId : edgeIds) {
+                path.addEdge(edgeId);
+            }
+            return path.setFound(true).setWeight(weight).setDistance(distance).addTime(time);
+        }
+    }
+}
@@ -27,6 +27,8 @@ abstract class AbstractNodeContractor implements NodeContractor {
     PrepareCHEdgeExplorer inEdgeExplorer;
     PrepareCHEdgeExplorer outEdgeExplorer;
     private final DataAccess originalEdges;
+    // false if the original edge counts are shared with another contractor
+    private final boolean ownsOriginalEdges;
     int maxLevel;
     private int maxEdgesCount;
 
@@ -34,6 +36,17 @@ abstract class AbstractNodeContractor implements NodeContractor {
         this.prepareGraph = prepareGraph;
         originalEdges = new GHDirectory("", DAType.RAM_INT).find("");
         originalEdges.create(1000);
+        ownsOriginalEdges = true;
+    }
+
+    /**
+     * Creates a contractor that uses the same graph and original edge counts as the given one. The original edge
+     * counts must only be changed via one of them.
+     */
+    AbstractNodeContractor(AbstractNodeContractor other) {
+        this.prepareGraph = other.prepareGraph;
+        this.originalEdges = other.originalEdges;
+        ownsOriginalEdges = false;
     }
 
     @Override
@@ -46,7 +59,8 @@ abstract class AbstractNodeContractor implements NodeContractor {
 
     @Override
     public void close() {
-        originalEdges.close();
+        if (ownsOriginalEdges)
+            originalEdges.close();
     }
 
     boolean isContracted(int node) {
@@ -75,7 +89,10 @@ abstract class AbstractNodeContractor implements NodeContractor {
             return 1;
 
         long tmp = (long) edgeId * 4;
-        originalEdges.ensureCapacity(tmp + 4);
+        // no ensureCapacity here as the parallel contraction reads the original edge counts from several threads
+        // and only the count of a shortcut that was not set yet can be beyond the capacity
+        if (tmp + 4 > originalEdges.getCapacity())
+            return 0;
         return originalEdges.getInt(tmp);
     }
 }
@@ -52,6 +52,19 @@ public class CHRoutingAlgorithmFactory implements RoutingAlgorithmFactory {
         return algo;
     }
 
+    /**
+     * Creates the algorithm to calculate many-to-many tables on this CH graph. Only node-based CH is supported.
+     *
+     * @param graph the CH graph or a QueryGraph wrapping it
+     */
+    public DijkstraManyToManyCH createManyToManyAlgo(Graph graph) {
+        if (chProfile.isEdgeBased())
+            throw new IllegalArgumentException("Many-to-many calculation is not supported for edge-based Contraction Hierarchies: " + chProfile);
+
+        return new DijkstraManyToManyCH(graph, new CHWeighting(chProfile.getWeighting())).
+                setEdgeFilter(new LevelEdgeFilter(chGraph));
+    }
+
     private AbstractBidirAlgo doCreateAlgo(Graph graph, AlgorithmOptions opts) {
         if (chProfile.isEdgeBased()) {
             return createAlgoEdgeBased(graph, opts);
@@ -21,10 +21,7 @@ import com.graphhopper.storage.NodeAccess;
 import com.graphhopper.util.PMap;
 import com.graphhopper.util.StopWatch;
 
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Locale;
-import java.util.Map;
+import java.util.*;
 
 import static com.graphhopper.routing.ch.CHParameters.*;
 import static com.graphhopper.util.Helper.nf;
@@ -48,6 +45,33 @@ class NodeBasedNodeContractor extends AbstractNodeContractor {
         extractParams(pMap);
     }
 
+    private NodeBasedNodeContractor(NodeBasedNodeContractor other) {
+        super(other);
+        params.edgeDifferenceWeight = other.params.edgeDifferenceWeight;
+        params.originalEdgesCountWeight = other.params.originalEdgesCountWeight;
+        params.contractedNeighborsWeight = other.params.contractedNeighborsWeight;
+    }
+
+    /**
+     * Creates a contractor that can be used in another thread to calculate priorities and to find the shortcuts of
+     * a node via {@link #findContraction(int)}, while the graph is not modified. The shortcuts then have to be added
+     * via {@link #applyContraction(Contraction)} of this contractor.
+     */
+    NodeBasedNodeContractor createWorker() {
+        NodeBasedNodeContractor worker = new NodeBasedNodeContractor(this);
+        worker.initFromGraph();
+        worker.meanDegree = meanDegree;
+        return worker;
+    }
+
+    double getMeanDegree() {
+        return meanDegree;
+    }
+
+    void setMeanDegree(double meanDegree) {
+        this.meanDegree = meanDegree;
+    }
+
     private void extractParams(PMap pMap) {
         params.edgeDifferenceWeight = pMap.getFloat(EDGE_DIFFERENCE_WEIGHT, params.edgeDifferenceWeight);
         params.originalEdgesCountWeight = pMap.getFloat(ORIGINAL_EDGE_COUNT_WEIGHT, params.originalEdgesCountWeight);
@@ -134,11 +158,24 @@ class NodeBasedNodeContractor extends AbstractNodeContractor {
 
     @Override
     public void contractNode(int node) {
-        shortcuts.clear();
+        applyContraction(findContraction(node));
+    }
+
+    /**
+     * Finds the shortcuts that are necessary to contract the given node, but does not change the graph.
+     */
+    Contraction findContraction(int node) {
         long degree = findShortcuts(addScHandler.setNode(node));
-        addedShortcutsCount += addShortcuts(shortcuts.keySet());
+        return new Contraction(degree, new ArrayList<>(shortcuts.keySet()));
+    }
+
+    /**
+     * Adds the shortcuts found via {@link #findContraction(int)} to the graph.
+     */
+    void applyContraction(Contraction contraction) {
+        addedShortcutsCount += addShortcuts(contraction.shortcuts);
         // put weight factor on meanDegree instead of taking the average => meanDegree is more stable
-        meanDegree = (meanDegree * 2 + degree) / 3;
+        meanDegree = (meanDegree * 2 + contraction.degree) / 3;
     }
 
     @Override
@@ -425,6 +462,16 @@ class NodeBasedNodeContractor extends AbstractNodeContractor {
         }
     }
 
+    static class Contraction {
+        private final long degree;
+        private final List<Shortcut> shortcuts;
+
+        private Contraction(long degree, List<Shortcut> shortcuts) {
+            this.degree = degree;
+            this.shortcuts = shortcuts;
+        }
+    }
+
     private static class CalcShortcutsResult {
         int originalEdgesCount;
         int shortcutsCount;
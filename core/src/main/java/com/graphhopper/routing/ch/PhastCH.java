@@ -0,0 +1,242 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.graphhopper.apache.commons.collections.IntDoubleBinaryHeap;
+import com.graphhopper.routing.util.DefaultEdgeFilter;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.LevelEdgeFilter;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.CHGraph;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.*;
+
+import java.util.Arrays;
+
+/**
+ * Calculates the weights, times and distances from one node to all nodes of the graph with PHAST: an upward search
+ * from the start node in the CH graph is followed by a single linear scan over all nodes in descending level, see
+ * {@link PhastSweep}. Unlike a Dijkstra the effort does not depend on the distance to the nodes, which makes it
+ * suitable for large isochrones, shortest path trees and bulk one-to-all calculations.
+ * <p>
+ * The arrays of this class have the size of the graph and are reused for the next call of {@link #calc(int)}, so
+ * create one instance for many calculations on the same graph.
+ */
+@NotThreadSafe
+public class PhastCH {
+    private final Graph graph;
+    private final PhastSweep sweep;
+    private final CHGraph chGraph;
+    private final Weighting userWeighting;
+    private final CHWeighting chWeighting;
+    private final boolean reverseFlow;
+    private final int chNodes;
+    private final int chEdges;
+    private final EdgeExplorer upwardExplorer;
+    private final EdgeFilter levelEdgeFilter;
+    private final IntDoubleBinaryHeap heap = new IntDoubleBinaryHeap(1000);
+    // the labels of the nodes of the CH graph are stored at their sweep position and those of virtual nodes at their id
+    private final double[] weights;
+    private final int[] millis;
+    private final double[] distances;
+    private final int[] parentEdges;
+    private int visitedNodes;
+
+    /**
+     * @param graph the CH graph of the sweep or a QueryGraph wrapping it
+     */
+    public PhastCH(Graph graph, PhastSweep sweep) {
+        this.graph = graph;
+        this.sweep = sweep;
+        chGraph = sweep.getCHGraph();
+        userWeighting = sweep.getWeighting();
+        chWeighting = new CHWeighting(userWeighting);
+        reverseFlow = sweep.isReverseFlow();
+        chNodes = chGraph.getNodes();
+        chEdges = chGraph.getEdges();
+        upwardExplorer = graph.createEdgeExplorer(reverseFlow
+                ? DefaultEdgeFilter.inEdges(userWeighting.getFlagEncoder())
+                : DefaultEdgeFilter.outEdges(userWeighting.getFlagEncoder()));
+        levelEdgeFilter = new LevelEdgeFilter(chGraph);
+        int nodes = graph.getNodes();
+        weights = new double[nodes];
+        millis = new int[nodes];
+        distances = new double[nodes];
+        parentEdges = new int[nodes];
+    }
+
+    /**
+     * Calculates the labels of all nodes for the specified start node, which can be a virtual node of the QueryGraph.
+     */
+    public PhastCH calc(int from) {
+        Arrays.fill(weights, Double.POSITIVE_INFINITY);
+        Arrays.fill(parentEdges, EdgeIterator.NO_EDGE);
+        visitedNodes = 0;
+        upwardSearch(from);
+        downwardSweep();
+        return this;
+    }
+
+    private void upwardSearch(int from) {
+        int fromIndex = toIndex(from);
+        weights[fromIndex] = 0;
+        millis[fromIndex] = 0;
+        distances[fromIndex] = 0;
+        heap.clear();
+        heap.insert_(0, from);
+        while (!heap.isEmpty()) {
+            int node = heap.poll_element();
+            visitedNodes++;
+            int index = toIndex(node);
+            EdgeIterator iter = upwardExplorer.setBaseNode(node);
+            while (iter.next()) {
+                if (iter.getEdge() == parentEdges[index] || !levelEdgeFilter.accept(iter))
+                    continue;
+
+                double weight = weights[index] + chWeighting.calcWeight(iter, reverseFlow, EdgeIterator.NO_EDGE);
+                int adjNode = iter.getAdjNode();
+                int adjIndex = toIndex(adjNode);
+                if (Double.isInfinite(weight) || weight >= weights[adjIndex])
+                    continue;
+
+                if (Double.isInfinite(weights[adjIndex]))
+                    heap.insert_(weight, adjNode);
+                else
+                    heap.update_(weight, adjNode);
+                weights[adjIndex] = weight;
+                millis[adjIndex] = millis[index] + getMillis(iter, node, adjNode);
+                distances[adjIndex] = distances[index] + getDistance(iter);
+                parentEdges[adjIndex] = iter.getEdge();
+            }
+        }
+    }
+
+    private void downwardSweep() {
+        int nodes = sweep.getNodes();
+        int entry = sweep.getFirstEntry(0);
+        for (int pos = 0; pos < nodes; pos++) {
+            int endEntry = sweep.getFirstEntry(pos + 1);
+            double bestWeight = weights[pos];
+            int bestEntry = -1;
+            for (; entry < endEntry; entry++) {
+                double weight = weights[sweep.getEntryFromPosition(entry)] + sweep.getEntryWeight(entry);
+                if (weight < bestWeight) {
+                    bestWeight = weight;
+                    bestEntry = entry;
+                }
+            }
+            if (bestEntry < 0)
+                continue;
+
+            visitedNodes++;
+            int fromPos = sweep.getEntryFromPosition(bestEntry);
+            int edge = sweep.getEntryEdge(bestEntry);
+            weights[pos] = bestWeight;
+            millis[pos] = millis[fromPos] + (reverseFlow ? sweep.getMillis(edge, pos, fromPos) : sweep.getMillis(edge, fromPos, pos));
+            distances[pos] = distances[fromPos] + sweep.getDistance(edge);
+            parentEdges[pos] = edge;
+        }
+    }
+
+    private int getMillis(EdgeIteratorState edge, int node, int adjNode) {
+        if (edge.getEdge() < chEdges) {
+            int nodePos = sweep.getPosition(node), adjPos = sweep.getPosition(adjNode);
+            return reverseFlow ? sweep.getMillis(edge.getEdge(), adjPos, nodePos) : sweep.getMillis(edge.getEdge(), nodePos, adjPos);
+        }
+        // a virtual edge, which is never a shortcut
+        return (int) userWeighting.calcMillis(edge, reverseFlow, EdgeIterator.NO_EDGE);
+    }
+
+    private double getDistance(EdgeIteratorState edge) {
+        return edge.getEdge() < chEdges ? sweep.getDistance(edge.getEdge()) : edge.getDistance();
+    }
+
+    private int toIndex(int node) {
+        return node < chNodes ? sweep.getPosition(node) : node;
+    }
+
+    public Graph getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return the weighting of the CH profile
+     */
+    public Weighting getWeighting() {
+        return userWeighting;
+    }
+
+    public boolean isReverseFlow() {
+        return reverseFlow;
+    }
+
+    public boolean isReached(int node) {
+        return !Double.isInfinite(weights[toIndex(node)]);
+    }
+
+    public double getWeight(int node) {
+        return weights[toIndex(node)];
+    }
+
+    /**
+     * @return the time in milliseconds
+     */
+    public long getTime(int node) {
+        return millis[toIndex(node)];
+    }
+
+    public double getDistance(int node) {
+        return distances[toIndex(node)];
+    }
+
+    /**
+     * @return the last edge of the path to the specified node, which can be a shortcut
+     */
+    public int getParentEdge(int node) {
+        return parentEdges[toIndex(node)];
+    }
+
+    /**
+     * @return the last original edge of the path to the specified node or NO_EDGE for the start node. The previous
+     * node of the path is the other node of this edge.
+     */
+    public int getOrigParentEdge(int node) {
+        int edge = getParentEdge(node);
+        while (EdgeIterator.Edge.isValid(edge) && edge < chEdges && chGraph.isShortcut(edge)) {
+            CHEdgeIteratorState shortcut = chGraph.getEdgeIteratorState(edge, node);
+            edge = chGraph.isAdjacentToNode(shortcut.getSkippedEdge1(), node) ? shortcut.getSkippedEdge1() : shortcut.getSkippedEdge2();
+        }
+        return edge;
+    }
+
+    /**
+     * @return the nodes of the upward search and the nodes that were improved by the downward sweep
+     */
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    public String getName() {
+        return "phast|ch";
+    }
+
+    @Override
+    public String toString() {
+        return getName() + "|" + userWeighting;
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.graphhopper.routing.util.AllCHEdgesIterator;
+import com.graphhopper.routing.util.DefaultEdgeFilter;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.CHGraph;
+import com.graphhopper.util.*;
+
+import java.util.Arrays;
+
+/**
+ * The downward graph of a node-based CH graph in the order in which PHAST (Delling et al., "PHAST: Hardware-Accelerated
+ * Shortest Path Trees") scans it: the nodes are sorted by descending level and for every node the edges coming from
+ * higher level nodes are stored consecutively. Additionally the time and distance of every edge and shortcut is
+ * calculated once, so that no shortcut has to be unpacked for a query.
+ * <p>
+ * This class is immutable after its creation and can be shared between threads, see {@link PhastCH}
+ * for the query.
+ */
+public class PhastSweep {
+    private static final int NO_TIME = -1;
+    private final CHGraph chGraph;
+    private final Weighting weighting;
+    private final boolean reverseFlow;
+    private final int nodes;
+    // the node at every position, i.e. the nodes sorted by descending level
+    private final int[] sweepNodes;
+    private final int[] positions;
+    // the downward edges into the node at position p are stored at the indices firstEntries[p] to firstEntries[p+1]-1
+    private final int[] firstEntries;
+    private final int[] entryFromPositions;
+    private final int[] entryEdges;
+    private final double[] entryWeights;
+    // the times of all edges when going from the lower to the higher level node and vice versa
+    private final int[] upMillis;
+    private final int[] downMillis;
+    private final double[] distances;
+
+    /**
+     * @param chGraph     a completely contracted node-based CH graph
+     * @param reverseFlow if true the weights, times and distances are calculated to instead of from the start node
+     */
+    public PhastSweep(CHGraph chGraph, boolean reverseFlow) {
+        if (chGraph.getCHProfile().isEdgeBased())
+            throw new IllegalArgumentException("PHAST is not supported for edge-based Contraction Hierarchies: " + chGraph.getCHProfile());
+
+        this.chGraph = chGraph;
+        this.weighting = chGraph.getCHProfile().getWeighting();
+        this.reverseFlow = reverseFlow;
+        nodes = chGraph.getNodes();
+
+        long[] levelAndNode = new long[nodes];
+        for (int node = 0; node < nodes; node++) {
+            levelAndNode[node] = (long) chGraph.getLevel(node) << 32 | node;
+        }
+        Arrays.sort(levelAndNode);
+        sweepNodes = new int[nodes];
+        positions = new int[nodes];
+        for (int i = 0; i < nodes; i++) {
+            int node = (int) levelAndNode[nodes - 1 - i];
+            sweepNodes[i] = node;
+            positions[node] = i;
+        }
+
+        int edges = chGraph.getEdges();
+        upMillis = new int[edges];
+        downMillis = new int[edges];
+        distances = new double[edges];
+        initTimesAndDistances();
+
+        // count the entries first to avoid resizing the arrays
+        CHWeighting chWeighting = new CHWeighting(weighting);
+        CHEdgeExplorer explorer = chGraph.createEdgeExplorer(reverseFlow
+                ? DefaultEdgeFilter.outEdges(weighting.getFlagEncoder())
+                : DefaultEdgeFilter.inEdges(weighting.getFlagEncoder()));
+        firstEntries = new int[nodes + 1];
+        for (int pos = 0; pos < nodes; pos++) {
+            CHEdgeIterator iter = explorer.setBaseNode(sweepNodes[pos]);
+            while (iter.next()) {
+                if (isDownwardEntry(iter, pos))
+                    firstEntries[pos + 1]++;
+            }
+        }
+        for (int pos = 0; pos < nodes; pos++) {
+            firstEntries[pos + 1] += firstEntries[pos];
+        }
+
+        int entries = firstEntries[nodes];
+        entryFromPositions = new int[entries];
+        entryEdges = new int[entries];
+        entryWeights = new double[entries];
+        int entry = 0;
+        for (int pos = 0; pos < nodes; pos++) {
+            CHEdgeIterator iter = explorer.setBaseNode(sweepNodes[pos]);
+            while (iter.next()) {
+                if (!isDownwardEntry(iter, pos))
+                    continue;
+
+                entryFromPositions[entry] = positions[iter.getAdjNode()];
+                entryEdges[entry] = iter.getEdge();
+                // the edge is traversed from the adjacent node to the current node, except for the reverse flow
+                entryWeights[entry] = chWeighting.calcWeight(iter, !reverseFlow, EdgeIterator.NO_EDGE);
+                entry++;
+            }
+        }
+    }
+
+    private boolean isDownwardEntry(CHEdgeIterator iter, int pos) {
+        int adjPos = positions[iter.getAdjNode()];
+        if (adjPos == pos)
+            return false;
+        if (chGraph.getLevel(iter.getAdjNode()) == chGraph.getLevel(iter.getBaseNode()))
+            throw new IllegalArgumentException("PHAST requires that all nodes are contracted, but nodes "
+                    + iter.getBaseNode() + " and " + iter.getAdjNode() + " have the same level");
+        return adjPos < pos;
+    }
+
+    /**
+     * The skipped edges of a shortcut were created before the shortcut, so iterating the edges in the order of their
+     * ids calculates the times and distances of the skipped edges before they are summed up for the shortcut.
+     */
+    private void initTimesAndDistances() {
+        AllCHEdgesIterator iter = chGraph.getAllEdges();
+        while (iter.next()) {
+            int edge = iter.getEdge();
+            int base = iter.getBaseNode(), adj = iter.getAdjNode();
+            boolean baseIsLower = positions[base] > positions[adj];
+            if (!iter.isShortcut()) {
+                distances[edge] = iter.getDistance();
+                int fwdMillis = iter.get(weighting.getFlagEncoder().getAccessEnc()) ? toInt(weighting.calcMillis(iter, false, EdgeIterator.NO_EDGE)) : NO_TIME;
+                int bwdMillis = iter.getReverse(weighting.getFlagEncoder().getAccessEnc()) ? toInt(weighting.calcMillis(iter, true, EdgeIterator.NO_EDGE)) : NO_TIME;
+                upMillis[edge] = baseIsLower ? fwdMillis : bwdMillis;
+                downMillis[edge] = baseIsLower ? bwdMillis : fwdMillis;
+                continue;
+            }
+
+            int skipped1 = iter.getSkippedEdge1(), skipped2 = iter.getSkippedEdge2();
+            if (skipped1 >= edge || skipped2 >= edge)
+                throw new IllegalStateException("The skipped edges " + skipped1 + " and " + skipped2 + " of shortcut " + edge + " have to be created before it");
+
+            // both skipped edges go down to the contracted node between base and adj
+            int baseSkipped = chGraph.isAdjacentToNode(skipped1, base) ? skipped1 : skipped2;
+            int adjSkipped = baseSkipped == skipped1 ? skipped2 : skipped1;
+            int lowerSkipped = baseIsLower ? baseSkipped : adjSkipped;
+            int higherSkipped = baseIsLower ? adjSkipped : baseSkipped;
+            distances[edge] = distances[skipped1] + distances[skipped2];
+            upMillis[edge] = sum(downMillis[lowerSkipped], upMillis[higherSkipped]);
+            downMillis[edge] = sum(downMillis[higherSkipped], upMillis[lowerSkipped]);
+        }
+    }
+
+    private static int sum(int millis1, int millis2) {
+        if (millis1 == NO_TIME || millis2 == NO_TIME)
+            return NO_TIME;
+        return toInt((long) millis1 + millis2);
+    }
+
+    private static int toInt(long millis) {
+        if (millis > Integer.MAX_VALUE)
+            throw new IllegalStateException("Time of edge too large: " + millis);
+        return (int) millis;
+    }
+
+    public CHGraph getCHGraph() {
+        return chGraph;
+    }
+
+    /**
+     * @return the weighting of the CH profile
+     */
+    public Weighting getWeighting() {
+        return weighting;
+    }
+
+    public boolean isReverseFlow() {
+        return reverseFlow;
+    }
+
+    int getNodes() {
+        return nodes;
+    }
+
+    int getSweepNode(int position) {
+        return sweepNodes[position];
+    }
+
+    int getPosition(int node) {
+        return positions[node];
+    }
+
+    int getFirstEntry(int position) {
+        return firstEntries[position];
+    }
+
+    int getEntryFromPosition(int entry) {
+        return entryFromPositions[entry];
+    }
+
+    int getEntryEdge(int entry) {
+        return entryEdges[entry];
+    }
+
+    double getEntryWeight(int entry) {
+        return entryWeights[entry];
+    }
+
+    /**
+     * @return the time in milliseconds to traverse the specified edge or shortcut from the node with the specified
+     * position to the other node of the edge
+     */
+    int getMillis(int edge, int fromPosition, int toPosition) {
+        return fromPosition > toPosition ? upMillis[edge] : downMillis[edge];
+    }
+
+    double getDistance(int edge) {
+        return distances[edge];
+    }
+
+    @Override
+    public String toString() {
+        return "phast|" + chGraph.getCHProfile() + (reverseFlow ? "|reverse" : "") + ", nodes: " + nodes + ", entries: " + firstEntries[nodes];
+    }
+}
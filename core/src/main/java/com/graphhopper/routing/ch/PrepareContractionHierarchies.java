@@ -17,8 +17,10 @@
  */
 package com.graphhopper.routing.ch;
 
+import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntHashSet;
 import com.carrotsearch.hppc.IntSet;
+import com.carrotsearch.hppc.cursors.IntCursor;
 import com.graphhopper.coll.GHTreeMapComposed;
 import com.graphhopper.routing.RoutingAlgorithmFactory;
 import com.graphhopper.routing.util.AbstractAlgoPreparation;
@@ -32,8 +34,11 @@ import com.graphhopper.util.StopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 import java.util.Random;
+import java.util.concurrent.*;
 
 import static com.graphhopper.routing.ch.CHParameters.*;
 import static com.graphhopper.util.Helper.nf;
@@ -74,6 +79,9 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
     private float[] oldPriorities;
     private PMap pMap = new PMap();
     private int checkCounter;
+    private int contractionThreads = 1;
+    // the dijkstra searches of the workers of the parallel contraction
+    private long workerDijkstraCount;
 
     public static PrepareContractionHierarchies fromGraphHopperStorage(GraphHopperStorage ghStorage, CHProfile chProfile) {
         return new PrepareContractionHierarchies(ghStorage, chProfile);
@@ -105,6 +113,9 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
         params.setNeighborUpdatePercentage(pMap.getInt(NEIGHBOR_UPDATES, params.getNeighborUpdatePercentage()));
         params.setNodesContractedPercentage(pMap.getInt(CONTRACTED_NODES, params.getNodesContractedPercentage()));
         params.setLogMessagesPercentage(pMap.getInt(LOG_MESSAGES, params.getLogMessagesPercentage()));
+        contractionThreads = pMap.getInt(CONTRACTION_THREADS, contractionThreads);
+        if (contractionThreads < 1)
+            throw new IllegalArgumentException(CONTRACTION_THREADS + " has to be at least 1 but was " + contractionThreads);
         return this;
     }
 
@@ -134,6 +145,8 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
         allSW.start();
         initFromGraph();
         runGraphContraction();
+        if (chProfile.isCompactShortcuts())
+            ((CHGraphImpl) chGraph).compactShortcuts();
         allSW.stop();
         logFinalGraphStats();
     }
@@ -150,7 +163,11 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
         setMaxLevelOnAllNodes();
         if (nodeOrderingProvider != null) {
             contractNodesUsingFixedNodeOrdering();
+        } else if (contractionThreads > 1 && !chProfile.isEdgeBased()) {
+            contractNodesInParallel();
         } else {
+            if (contractionThreads > 1)
+                logger.warn("Parallel contraction is not supported for edge-based CH, using a single thread for " + chProfile);
             contractNodesUsingHeuristicNodeOrdering();
         }
     }
@@ -306,6 +323,209 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
         _close();
     }
 
+    /**
+     * Contracts the nodes using multiple threads. In every round we select an independent set of the remaining nodes,
+     * i.e. nodes with a smaller priority than all their not yet contracted neighbors, so none of these nodes are
+     * adjacent. Their witness searches run concurrently, each thread with its own {@link NodeBasedWitnessPathSearcher},
+     * while the graph is not modified. Afterwards the shortcuts are added sequentially and the priorities of the
+     * neighbors are updated concurrently.
+     * <p>
+     * The nodes of the current round are marked as contracted before the witness searches start, so a witness path
+     * never uses a node that is contracted in the same round. Instead of the periodic and lazy updates of the
+     * sequential contraction the priorities of all neighbors of the contracted nodes are updated in every round.
+     */
+    private void contractNodesInParallel() {
+        final NodeBasedNodeContractor contractor = (NodeBasedNodeContractor) nodeContractor;
+        final List<NodeBasedNodeContractor> workers = new ArrayList<>(contractionThreads);
+        final List<PrepareCHEdgeExplorer> workerExplorers = new ArrayList<>(contractionThreads);
+        for (int i = 0; i < contractionThreads; i++) {
+            workers.add(contractor.createWorker());
+            workerExplorers.add(prepareGraph.createAllEdgeExplorer());
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(contractionThreads);
+        try {
+            final int nodes = prepareGraph.getNodes();
+            IntArrayList remainingNodes = new IntArrayList(nodes);
+            for (int node = 0; node < nodes; node++) {
+                remainingNodes.add(node);
+            }
+            // the same order as for the sequential contraction, see contractNodesUsingHeuristicNodeOrdering
+            periodicUpdateSW.start();
+            runInParallel(executor, workers, remainingNodes, new NodeTask() {
+                @Override
+                public void run(int worker, int node) {
+                    oldPriorities[node] = workers.get(worker).calculatePriority(node);
+                }
+            });
+            periodicUpdateSW.stop();
+            nodeContractor.prepareContraction();
+
+            final int initSize = remainingNodes.size();
+            final long logSize = params.getLogMessagesPercentage() == 0
+                    ? Long.MAX_VALUE
+                    : Math.round(Math.max(10, initSize * (params.getLogMessagesPercentage() / 100d)));
+            final long nodesToAvoidContract = Math.round(initSize * ((100 - params.getNodesContractedPercentage()) / 100d));
+            final boolean[] selected = new boolean[nodes];
+            final NodeBasedNodeContractor.Contraction[] contractions = new NodeBasedNodeContractor.Contraction[nodes];
+            int level = 0;
+            int rounds = 0;
+            long nextLog = 0;
+            while (!remainingNodes.isEmpty() && remainingNodes.size() > nodesToAvoidContract) {
+                stopIfInterrupted();
+                rounds++;
+                runInParallel(executor, workers, remainingNodes, new NodeTask() {
+                    @Override
+                    public void run(int worker, int node) {
+                        selected[node] = isLocalMinimum(workerExplorers.get(worker), node);
+                    }
+                });
+                IntArrayList independentSet = new IntArrayList();
+                for (IntCursor c : remainingNodes) {
+                    if (selected[c.value]) {
+                        selected[c.value] = false;
+                        independentSet.add(c.value);
+                        prepareGraph.setLevel(c.value, level);
+                        level++;
+                    }
+                }
+
+                for (NodeBasedNodeContractor worker : workers) {
+                    worker.setMeanDegree(contractor.getMeanDegree());
+                }
+                contractionSW.start();
+                runInParallel(executor, workers, independentSet, new NodeTask() {
+                    @Override
+                    public void run(int worker, int node) {
+                        contractions[node] = workers.get(worker).findContraction(node);
+                    }
+                });
+                IntArrayList neighbors = new IntArrayList();
+                for (IntCursor c : independentSet) {
+                    contractor.applyContraction(contractions[c.value]);
+                    contractions[c.value] = null;
+                    PrepareCHEdgeIterator iter = allEdgeExplorer.setBaseNode(c.value);
+                    while (iter.next()) {
+                        int nn = iter.getAdjNode();
+                        if (prepareGraph.getLevel(nn) != maxLevel)
+                            continue;
+                        if (!selected[nn]) {
+                            // we re-use the array to find the unique neighbors
+                            selected[nn] = true;
+                            neighbors.add(nn);
+                        }
+                        prepareGraph.disconnect(disconnectExplorer, iter);
+                    }
+                }
+                contractionSW.stop();
+
+                neighborUpdateSW.start();
+                runInParallel(executor, workers, neighbors, new NodeTask() {
+                    @Override
+                    public void run(int worker, int node) {
+                        selected[node] = false;
+                        oldPriorities[node] = workers.get(worker).calculatePriority(node);
+                    }
+                });
+                neighborUpdateSW.stop();
+
+                IntArrayList newRemainingNodes = new IntArrayList(remainingNodes.size() - independentSet.size());
+                for (IntCursor c : remainingNodes) {
+                    if (prepareGraph.getLevel(c.value) == maxLevel)
+                        newRemainingNodes.add(c.value);
+                }
+                remainingNodes = newRemainingNodes;
+                checkCounter = level;
+                if (checkCounter >= nextLog) {
+                    logParallelStats(remainingNodes.size(), rounds);
+                    nextLog = checkCounter + logSize;
+                }
+            }
+            logParallelStats(remainingNodes.size(), rounds);
+        } finally {
+            executor.shutdownNow();
+            for (NodeBasedNodeContractor worker : workers) {
+                workerDijkstraCount += worker.getDijkstraCount();
+                worker.close();
+            }
+        }
+
+        logger.info("new shortcuts: " + nf(nodeContractor.getAddedShortcutsCount())
+                + ", " + chProfile.getWeighting()
+                + ", threads:" + contractionThreads
+                + ", dijkstras: " + nf(getDijkstraCount())
+                + ", " + getTimesAsString()
+                + ", " + Helper.getMemInfo());
+        _close();
+    }
+
+    /**
+     * @return true if the given node has a smaller priority than all of its not yet contracted neighbors. For equal
+     * priorities the smaller node id wins, so two adjacent nodes are never both local minima.
+     */
+    private boolean isLocalMinimum(PrepareCHEdgeExplorer explorer, int node) {
+        float priority = oldPriorities[node];
+        PrepareCHEdgeIterator iter = explorer.setBaseNode(node);
+        while (iter.next()) {
+            int adjNode = iter.getAdjNode();
+            if (adjNode == node || prepareGraph.getLevel(adjNode) != maxLevel)
+                continue;
+            float adjPriority = oldPriorities[adjNode];
+            if (adjPriority < priority || (adjPriority == priority && adjNode < node))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Runs the given task for all nodes, the nodes are split evenly among the workers. Every worker is used by only
+     * one thread.
+     */
+    private void runInParallel(ExecutorService executor, List<NodeBasedNodeContractor> workers, final IntArrayList nodes,
+                               final NodeTask task) {
+        final int threads = workers.size();
+        List<Callable<Object>> callables = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            final int worker = t;
+            callables.add(new Callable<Object>() {
+                @Override
+                public Object call() {
+                    for (int i = worker; i < nodes.size(); i += threads) {
+                        task.run(worker, nodes.get(i));
+                    }
+                    return null;
+                }
+            });
+        }
+        try {
+            for (Future<Object> future : executor.invokeAll(callables)) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Thread was interrupted", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException)
+                throw (RuntimeException) ex.getCause();
+            throw new RuntimeException(ex.getCause());
+        }
+    }
+
+    private interface NodeTask {
+        void run(int worker, int node);
+    }
+
+    private void logParallelStats(int remainingNodes, int rounds) {
+        logger.info(String.format(Locale.ROOT,
+                "nodes: %10s, shortcuts: %10s, rounds: %6d, contracted-nodes: %10s, %s, %s, %s",
+                nf(remainingNodes),
+                nf(nodeContractor.getAddedShortcutsCount()),
+                rounds,
+                nf(checkCounter),
+                getTimesAsString(),
+                nodeContractor.getStatisticsString(),
+                Helper.getMemInfo()));
+    }
+
     private void contractNodesUsingFixedNodeOrdering() {
         nodeContractor.prepareContraction();
         final int nodesToContract = nodeOrderingProvider.getNumNodes();
@@ -371,7 +591,7 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
     }
 
     public long getDijkstraCount() {
-        return nodeContractor.getDijkstraCount();
+        return nodeContractor.getDijkstraCount() + workerDijkstraCount;
     }
 
     public long getShortcuts() {
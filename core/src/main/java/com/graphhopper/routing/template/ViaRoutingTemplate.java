@@ -35,6 +35,10 @@ import com.graphhopper.util.shapes.GHPoint;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import static com.graphhopper.util.EdgeIterator.ANY_EDGE;
 import static com.graphhopper.util.EdgeIterator.NO_EDGE;
@@ -53,6 +57,8 @@ public class ViaRoutingTemplate extends AbstractRoutingTemplate implements Routi
     protected final EncodingManager encodingManager;
     // result from route
     protected List<Path> pathList;
+    private RouteCache routeCache;
+    private ExecutorService legExecutor;
 
     public ViaRoutingTemplate(GHRequest ghRequest, GHResponse ghRsp, LocationIndex locationIndex, EncodingManager encodingManager) {
         this.locationIndex = locationIndex;
@@ -61,6 +67,24 @@ public class ViaRoutingTemplate extends AbstractRoutingTemplate implements Routi
         this.encodingManager = encodingManager;
     }
 
+    /**
+     * Takes the paths from the specified cache if the same route was calculated before and adds the calculated paths
+     * otherwise.
+     */
+    public ViaRoutingTemplate setRouteCache(RouteCache routeCache) {
+        this.routeCache = routeCache;
+        return this;
+    }
+
+    /**
+     * Calculates the legs between the points concurrently by the specified executor if they are independent of each
+     * other, i.e. if there are no headings and no pass_through as these change the QueryGraph from leg to leg.
+     */
+    public ViaRoutingTemplate setLegExecutor(ExecutorService legExecutor) {
+        this.legExecutor = legExecutor;
+        return this;
+    }
+
     @Override
     public List<QueryResult> lookup(List<GHPoint> points, FlagEncoder encoder) {
         if (points.size() < 2)
@@ -89,11 +113,39 @@ public class ViaRoutingTemplate extends AbstractRoutingTemplate implements Routi
         return queryResults;
     }
 
+    /**
+     * Uses the specified QueryResults instead of looking up the points, e.g. if the points of many requests were
+     * looked up at once. Not found points are reported like in lookup.
+     */
+    public List<QueryResult> setQueryResults(List<QueryResult> queryResults) {
+        if (queryResults.size() < 2)
+            throw new IllegalArgumentException("At least 2 points have to be specified, but was:" + queryResults.size());
+
+        for (int placeIndex = 0; placeIndex < queryResults.size(); placeIndex++) {
+            QueryResult qr = queryResults.get(placeIndex);
+            if (!qr.isValid())
+                ghResponse.addError(new PointNotFoundException("Cannot find point " + placeIndex + ": " + qr.getQueryPoint(), placeIndex));
+        }
+        this.queryResults = queryResults;
+        return queryResults;
+    }
+
     @Override
     public List<Path> calcPaths(QueryGraph queryGraph, RoutingAlgorithmFactory algoFactory, AlgorithmOptions algoOpts, FlagEncoder encoder) {
         long visitedNodesSum = 0L;
         final boolean viaTurnPenalty = ghRequest.getHints().getBool(Routing.PASS_THROUGH, false);
         final int pointsCount = ghRequest.getPoints().size();
+        RouteCache.Key cacheKey = null;
+        if (routeCache != null) {
+            cacheKey = RouteCache.createKey(queryResults, ghRequest, algoOpts, queryGraph.getBaseGraph());
+            pathList = routeCache.get(cacheKey, queryGraph.getBaseGraph());
+            if (pathList != null) {
+                altResponse.addDebugInfo("route cache hit");
+                ghResponse.getHints().put("visited_nodes.sum", 0);
+                ghResponse.getHints().put("visited_nodes.average", 0);
+                return pathList;
+            }
+        }
         pathList = new ArrayList<>(pointsCount - 1);
 
         List<DirectionResolverResult> directions = Collections.emptyList();
@@ -106,100 +158,184 @@ public class ViaRoutingTemplate extends AbstractRoutingTemplate implements Routi
         }
 
         final boolean forceCurbsides = ghRequest.getHints().getBool(Routing.FORCE_CURBSIDE, true);
-        QueryResult fromQResult = queryResults.get(0);
-        StopWatch sw;
-        for (int placeIndex = 1; placeIndex < pointsCount; placeIndex++) {
-            if (placeIndex == 1) {
-                // enforce start direction
-                queryGraph.enforceHeading(fromQResult.getClosestNode(), ghRequest.getFavoredHeading(0), false);
-            } else if (viaTurnPenalty) {
-                // enforce straight start after via stop
-                Path prevRoute = pathList.get(placeIndex - 2);
-                if (prevRoute.getEdgeCount() > 0) {
-                    EdgeIteratorState incomingVirtualEdge = prevRoute.getFinalEdge();
-                    queryGraph.unfavorVirtualEdgePair(fromQResult.getClosestNode(), incomingVirtualEdge.getEdge());
-                }
+        if (legExecutor != null && pointsCount > 2 && !viaTurnPenalty && !hasFavoredHeadings()) {
+            // the legs do not change the QueryGraph and do not depend on each other
+            for (Leg leg : calcLegsConcurrently(queryGraph, algoFactory, algoOpts, directions, forceCurbsides)) {
+                visitedNodesSum = addLeg(leg, visitedNodesSum, algoOpts);
             }
-
-            QueryResult toQResult = queryResults.get(placeIndex);
-
-            // enforce end direction
-            queryGraph.enforceHeading(toQResult.getClosestNode(), ghRequest.getFavoredHeading(placeIndex), true);
-
-            sw = new StopWatch().start();
-            RoutingAlgorithm algo = algoFactory.createAlgo(queryGraph, algoOpts);
-            String debug = ", algoInit:" + sw.stop().getSeconds() + "s";
-
-            sw = new StopWatch().start();
-
-            // calculate paths
-            List<Path> tmpPathList;
-            if (!directions.isEmpty()) {
-                assert ghRequest.getCurbsides().size() == directions.size();
-                if (!(algo instanceof AbstractBidirAlgo)) {
-                    throw new IllegalArgumentException("To make use of the " + Routing.CURBSIDE + " parameter you need a bidirectional algorithm, got: " + algo.getName());
-                } else {
-                    final String fromCurbside = ghRequest.getCurbsides().get(placeIndex - 1);
-                    final String toCurbside = ghRequest.getCurbsides().get(placeIndex);
-                    int sourceOutEdge = DirectionResolverResult.getOutEdge(directions.get(placeIndex - 1), fromCurbside);
-                    int targetInEdge = DirectionResolverResult.getInEdge(directions.get(placeIndex), toCurbside);
-                    sourceOutEdge = ignoreThrowOrAcceptImpossibleCurbsides(sourceOutEdge, placeIndex - 1, forceCurbsides);
-                    targetInEdge = ignoreThrowOrAcceptImpossibleCurbsides(targetInEdge, placeIndex, forceCurbsides);
-
-                    if (fromQResult.getClosestNode() == toQResult.getClosestNode()) {
-                        // special case where we go from one point back to itself. for example going from a point A
-                        // with curbside right to the same point with curbside right is interpreted as 'being there
-                        // already' -> empty path. Similarly if the curbside for the start/target is not even specified
-                        // there is no need to drive a loop. However, going from point A/right to point A/left (or the
-                        // other way around) means we need to drive some kind of loop to get back to the same location
-                        // (arriving on the other side of the road).
-                        if (Helper.isEmpty(fromCurbside) || Helper.isEmpty(toCurbside) || fromCurbside.equals(CURBSIDE_ANY) ||
-                                toCurbside.equals(CURBSIDE_ANY) || fromCurbside.equals(toCurbside)) {
-                            // we just disable start/target edge constraints to get an empty path
-                            sourceOutEdge = ANY_EDGE;
-                            targetInEdge = ANY_EDGE;
-                        }
+        } else {
+            QueryResult fromQResult = queryResults.get(0);
+            for (int placeIndex = 1; placeIndex < pointsCount; placeIndex++) {
+                if (placeIndex == 1) {
+                    // enforce start direction
+                    queryGraph.enforceHeading(fromQResult.getClosestNode(), ghRequest.getFavoredHeading(0), false);
+                } else if (viaTurnPenalty) {
+                    // enforce straight start after via stop
+                    Path prevRoute = pathList.get(placeIndex - 2);
+                    if (prevRoute.getEdgeCount() > 0) {
+                        EdgeIteratorState incomingVirtualEdge = prevRoute.getFinalEdge();
+                        queryGraph.unfavorVirtualEdgePair(fromQResult.getClosestNode(), incomingVirtualEdge.getEdge());
                     }
-                    // todo: enable curbside feature for alternative routes as well ?
-                    tmpPathList = Collections.singletonList(((AbstractBidirAlgo) algo)
-                            .calcPath(fromQResult.getClosestNode(), toQResult.getClosestNode(), sourceOutEdge, targetInEdge));
                 }
-            } else {
-                tmpPathList = algo.calcPaths(fromQResult.getClosestNode(), toQResult.getClosestNode());
-            }
-            debug += ", " + algo.getName() + "-routing:" + sw.stop().getSeconds() + "s";
-            if (tmpPathList.isEmpty())
-                throw new IllegalStateException("At least one path has to be returned for " + fromQResult + " -> " + toQResult);
-
-            int idx = 0;
-            for (Path path : tmpPathList) {
-                if (path.getTime() < 0)
-                    throw new RuntimeException("Time was negative " + path.getTime() + " for index " + idx + ". Please report as bug and include:" + ghRequest);
-
-                pathList.add(path);
-                debug += ", " + path.getDebugInfo();
-                idx++;
-            }
 
-            altResponse.addDebugInfo(debug);
+                QueryResult toQResult = queryResults.get(placeIndex);
 
-            // reset all direction enforcements in queryGraph to avoid influencing next path
-            queryGraph.clearUnfavoredStatus();
+                // enforce end direction
+                queryGraph.enforceHeading(toQResult.getClosestNode(), ghRequest.getFavoredHeading(placeIndex), true);
 
-            if (algo.getVisitedNodes() >= algoOpts.getMaxVisitedNodes())
-                throw new IllegalArgumentException("No path found due to maximum nodes exceeded " + algoOpts.getMaxVisitedNodes());
+                Leg leg = calcLeg(queryGraph, algoFactory, algoOpts, directions, forceCurbsides, placeIndex);
 
-            visitedNodesSum += algo.getVisitedNodes();
-            altResponse.addDebugInfo("visited nodes sum: " + visitedNodesSum);
-            fromQResult = toQResult;
+                // reset all direction enforcements in queryGraph to avoid influencing next path
+                queryGraph.clearUnfavoredStatus();
+
+                visitedNodesSum = addLeg(leg, visitedNodesSum, algoOpts);
+                fromQResult = toQResult;
+            }
         }
 
         ghResponse.getHints().put("visited_nodes.sum", visitedNodesSum);
         ghResponse.getHints().put("visited_nodes.average", (float) visitedNodesSum / (pointsCount - 1));
 
+        if (cacheKey != null)
+            routeCache.put(cacheKey, pathList);
         return pathList;
     }
 
+    private boolean hasFavoredHeadings() {
+        for (int i = 0; i < ghRequest.getPoints().size(); i++) {
+            if (ghRequest.hasFavoredHeading(i))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Calculates the path(s) from the point before the specified place index to the point of the place index.
+     */
+    private Leg calcLeg(QueryGraph queryGraph, RoutingAlgorithmFactory algoFactory, AlgorithmOptions algoOpts,
+                        List<DirectionResolverResult> directions, boolean forceCurbsides, int placeIndex) {
+        QueryResult fromQResult = queryResults.get(placeIndex - 1);
+        QueryResult toQResult = queryResults.get(placeIndex);
+        StopWatch sw = new StopWatch().start();
+        RoutingAlgorithm algo = algoFactory.createAlgo(queryGraph, algoOpts);
+        String debug = ", algoInit:" + sw.stop().getSeconds() + "s";
+
+        sw = new StopWatch().start();
+
+        // calculate paths
+        List<Path> tmpPathList;
+        if (!directions.isEmpty()) {
+            assert ghRequest.getCurbsides().size() == directions.size();
+            if (!(algo instanceof AbstractBidirAlgo)) {
+                throw new IllegalArgumentException("To make use of the " + Routing.CURBSIDE + " parameter you need a bidirectional algorithm, got: " + algo.getName());
+            } else {
+                final String fromCurbside = ghRequest.getCurbsides().get(placeIndex - 1);
+                final String toCurbside = ghRequest.getCurbsides().get(placeIndex);
+                int sourceOutEdge = DirectionResolverResult.getOutEdge(directions.get(placeIndex - 1), fromCurbside);
+                int targetInEdge = DirectionResolverResult.getInEdge(directions.get(placeIndex), toCurbside);
+                sourceOutEdge = ignoreThrowOrAcceptImpossibleCurbsides(sourceOutEdge, placeIndex - 1, forceCurbsides);
+                targetInEdge = ignoreThrowOrAcceptImpossibleCurbsides(targetInEdge, placeIndex, forceCurbsides);
+
+                if (fromQResult.getClosestNode() == toQResult.getClosestNode()) {
+                    // special case where we go from one point back to itself. for example going from a point A
+                    // with curbside right to the same point with curbside right is interpreted as 'being there
+                    // already' -> empty path. Similarly if the curbside for the start/target is not even specified
+                    // there is no need to drive a loop. However, going from point A/right to point A/left (or the
+                    // other way around) means we need to drive some kind of loop to get back to the same location
+                    // (arriving on the other side of the road).
+                    if (Helper.isEmpty(fromCurbside) || Helper.isEmpty(toCurbside) || fromCurbside.equals(CURBSIDE_ANY) ||
+                            toCurbside.equals(CURBSIDE_ANY) || fromCurbside.equals(toCurbside)) {
+                        // we just disable start/target edge constraints to get an empty path
+                        sourceOutEdge = ANY_EDGE;
+                        targetInEdge = ANY_EDGE;
+                    }
+                }
+                // todo: enable curbside feature for alternative routes as well ?
+                tmpPathList = Collections.singletonList(((AbstractBidirAlgo) algo)
+                        .calcPath(fromQResult.getClosestNode(), toQResult.getClosestNode(), sourceOutEdge, targetInEdge));
+            }
+        } else {
+            tmpPathList = algo.calcPaths(fromQResult.getClosestNode(), toQResult.getClosestNode());
+        }
+        debug += ", " + algo.getName() + "-routing:" + sw.stop().getSeconds() + "s";
+        if (tmpPathList.isEmpty())
+            throw new IllegalStateException("At least one path has to be returned for " + fromQResult + " -> " + toQResult);
+
+        int idx = 0;
+        for (Path path : tmpPathList) {
+            if (path.getTime() < 0)
+                throw new RuntimeException("Time was negative " + path.getTime() + " for index " + idx + ". Please report as bug and include:" + ghRequest);
+
+            debug += ", " + path.getDebugInfo();
+            idx++;
+        }
+
+        int visitedNodes = algo.getVisitedNodes();
+        // the paths are extracted already, so the next algorithm of this thread can reuse the collections
+        if (algo instanceof AbstractBidirAlgo)
+            ((AbstractBidirAlgo) algo).release();
+        return new Leg(tmpPathList, debug, visitedNodes);
+    }
+
+    /**
+     * Calculates the first leg in the calling thread and the other legs by the leg executor. Every leg uses its own
+     * algorithm on the shared QueryGraph, which must not be changed meanwhile.
+     *
+     * @return the legs in the order of the points
+     */
+    private List<Leg> calcLegsConcurrently(final QueryGraph queryGraph, final RoutingAlgorithmFactory algoFactory, final AlgorithmOptions algoOpts,
+                                           final List<DirectionResolverResult> directions, final boolean forceCurbsides) {
+        int legCount = queryResults.size() - 1;
+        List<Future<Leg>> futures = new ArrayList<>(legCount - 1);
+        try {
+            for (int placeIndex = 2; placeIndex <= legCount; placeIndex++) {
+                final int index = placeIndex;
+                futures.add(legExecutor.submit(new Callable<Leg>() {
+                    @Override
+                    public Leg call() {
+                        return calcLeg(queryGraph, algoFactory, algoOpts, directions, forceCurbsides, index);
+                    }
+                }));
+            }
+
+            List<Leg> legs = new ArrayList<>(legCount);
+            legs.add(calcLeg(queryGraph, algoFactory, algoOpts, directions, forceCurbsides, 1));
+            for (Future<Leg> future : futures) {
+                legs.add(future.get());
+            }
+            return legs;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Thread was interrupted", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException)
+                throw (RuntimeException) ex.getCause();
+            throw new RuntimeException(ex.getCause());
+        } finally {
+            // the legs that did not start yet are not needed if a leg failed
+            for (Future<Leg> future : futures) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Adds the paths of the specified leg to the path list.
+     *
+     * @return the visited nodes of all legs so far
+     */
+    private long addLeg(Leg leg, long visitedNodesSum, AlgorithmOptions algoOpts) {
+        pathList.addAll(leg.paths);
+        altResponse.addDebugInfo(leg.debug);
+
+        if (leg.visitedNodes >= algoOpts.getMaxVisitedNodes())
+            throw new IllegalArgumentException("No path found due to maximum nodes exceeded " + algoOpts.getMaxVisitedNodes());
+
+        visitedNodesSum += leg.visitedNodes;
+        altResponse.addDebugInfo("visited nodes sum: " + visitedNodesSum);
+        return visitedNodesSum;
+    }
+
     private int ignoreThrowOrAcceptImpossibleCurbsides(int edge, int placeIndex, boolean forceCurbsides) {
         if (edge != NO_EDGE) {
             return edge;
@@ -231,4 +367,15 @@ public class ViaRoutingTemplate extends AbstractRoutingTemplate implements Routi
         return 1;
     }
 
+    private static class Leg {
+        final List<Path> paths;
+        final String debug;
+        final int visitedNodes;
+
+        Leg(List<Path> paths, String debug, int visitedNodes) {
+            this.paths = paths;
+            this.debug = debug;
+            this.visitedNodes = visitedNodes;
+        }
+    }
 }
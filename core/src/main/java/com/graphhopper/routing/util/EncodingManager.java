@@ -598,6 +598,17 @@ public class EncodingManager implements EncodedValueLookup {
         }
     }
 
+    /**
+     * Prepares the handling of many ways at once, e.g. a block of ways from the OSM file, before handleWayTags is
+     * called for each of them. Currently this resolves the spatial rules of all ways together.
+     */
+    public void prepareWays(List<ReaderWay> ways) {
+        for (TagParser parser : edgeTagParsers) {
+            if (parser instanceof SpatialRuleParser)
+                ((SpatialRuleParser) parser).prepareWays(ways);
+        }
+    }
+
     /**
      * Processes way properties of different kind to determine speed and direction. Properties are
      * directly encoded in 8 bytes.
@@ -21,15 +21,19 @@ import com.graphhopper.reader.ReaderWay;
 import com.graphhopper.routing.profiles.*;
 import com.graphhopper.routing.util.spatialrules.SpatialRule;
 import com.graphhopper.routing.util.spatialrules.SpatialRuleLookup;
+import com.graphhopper.routing.util.spatialrules.SpatialRuleLookupArray;
 import com.graphhopper.storage.IntsRef;
 import com.graphhopper.util.shapes.GHPoint;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
  * This parser stores the spatialId in the edgeFlags based on previously defined areas.
  */
 public class SpatialRuleParser implements TagParser {
+    // the rule resolved by prepareWays, the 'spatial_rule' tag is only set when the way is handled
+    private static final String PREPARED_RULE_KEY = "prepared_spatial_rule";
 
     private final IntEncodedValue spatialRuleEnc;
     private SpatialRuleLookup spatialRuleLookup;
@@ -50,11 +54,39 @@ public class SpatialRuleParser implements TagParser {
         registerNewEncodedValue.add(spatialRuleEnc);
     }
 
+    /**
+     * Resolves the rules for the estimated centers of many ways at once, which is faster for the
+     * SpatialRuleLookupArray, see {@link SpatialRuleLookupArray#lookupRules(double[], double[])}.
+     */
+    public void prepareWays(List<ReaderWay> ways) {
+        if (!(spatialRuleLookup instanceof SpatialRuleLookupArray))
+            return;
+
+        List<ReaderWay> waysWithCenter = new ArrayList<>(ways.size());
+        for (ReaderWay way : ways) {
+            if (way.getTag("estimated_center", null) != null)
+                waysWithCenter.add(way);
+        }
+        double[] lats = new double[waysWithCenter.size()];
+        double[] lons = new double[waysWithCenter.size()];
+        for (int i = 0; i < lats.length; i++) {
+            GHPoint estimatedCenter = waysWithCenter.get(i).getTag("estimated_center", null);
+            lats[i] = estimatedCenter.lat;
+            lons[i] = estimatedCenter.lon;
+        }
+        SpatialRule[] rules = ((SpatialRuleLookupArray) spatialRuleLookup).lookupRules(lats, lons);
+        for (int i = 0; i < rules.length; i++) {
+            waysWithCenter.get(i).setTag(PREPARED_RULE_KEY, rules[i]);
+        }
+    }
+
     @Override
     public IntsRef handleWayTags(IntsRef edgeFlags, ReaderWay way, boolean ferry, IntsRef relationFlags) {
         GHPoint estimatedCenter = way.getTag("estimated_center", null);
         if (estimatedCenter != null) {
-            SpatialRule rule = spatialRuleLookup.lookupRule(estimatedCenter);
+            SpatialRule rule = way.getTag(PREPARED_RULE_KEY, null);
+            if (rule == null)
+                rule = spatialRuleLookup.lookupRule(estimatedCenter);
             way.setTag("spatial_rule", rule);
             spatialRuleEnc.setInt(false, edgeFlags, spatialRuleLookup.getSpatialId(rule));
         }
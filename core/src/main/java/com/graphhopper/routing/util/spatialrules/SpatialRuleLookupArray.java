@@ -17,6 +17,7 @@
  */
 package com.graphhopper.routing.util.spatialrules;
 
+import com.graphhopper.coll.GHIntObjectHashMap;
 import com.graphhopper.util.shapes.BBox;
 import com.graphhopper.util.shapes.GHPoint;
 import com.graphhopper.util.shapes.Polygon;
@@ -26,6 +27,9 @@ import java.util.*;
 /**
  * SpatialRuleLookup implementation using an array as data structure. Currently limited to 255 ruleContainers
  * The covered area is indexed as tiles, with every tile being "quadratic" having the same degree length on every side.
+ * <p>
+ * If exact, the tiles which are touched by a border are split again into sub cells, and only a lookup in a sub cell
+ * which is touched by a border needs a polygon check. All other lookups resolve the rule from the arrays.
  *
  * @author Robin Boldt
  */
@@ -38,11 +42,17 @@ public class SpatialRuleLookupArray implements SpatialRuleLookup {
     private final BBox bounds;
     private final boolean exact;
     private final int EMPTY_RULE_INDEX = 0;
+    // every border tile is split into SUB_CELLS x SUB_CELLS sub cells
+    private static final int SUB_CELLS = 8;
+    // a sub cell which is touched by a border, all other sub cells store the index of their single rule
+    private static final int BORDER_SUB_CELL = 0xFF;
 
     private final byte[][] lookupArray;
     private final List<SpatialRuleContainer> ruleContainers = new ArrayList<>();
     private final Map<SpatialRule, Integer> singleRulesIndices = new HashMap<>();
     private final List<SpatialRule> singleRules = new ArrayList<>();
+    // the sub cells of the tiles touched by a border, only if exact
+    private final GHIntObjectHashMap<byte[]> borderTiles = new GHIntObjectHashMap<>();
 
     /**
      * @param spatialRules the spatial rules
@@ -85,6 +95,8 @@ public class SpatialRuleLookupArray implements SpatialRuleLookup {
         for (SpatialRule spatialRule : spatialRules) {
             addRuleInternal(spatialRule);
         }
+        if (exact)
+            createBorderTiles(spatialRules);
     }
 
     private int getNumberOfYGrids() {
@@ -102,13 +114,27 @@ public class SpatialRuleLookupArray implements SpatialRuleLookup {
 
         int xIndex = getXIndexForLon(lon);
         int yIndex = getYIndexForLat(lat);
-        int ruleIndex = getRuleContainerIndex(xIndex, yIndex);
-        SpatialRuleContainer ruleContainer = ruleContainers.get(ruleIndex);
-        if (ruleContainer.size() == 1) {
-            if (!exact || !isBorderTile(xIndex, yIndex, ruleIndex))
+        return lookupRule(lat, lon, xIndex, yIndex, exact ? borderTiles.get(getTileKey(xIndex, yIndex)) : null);
+    }
+
+    private SpatialRule lookupRule(double lat, double lon, int xIndex, int yIndex, byte[] subCells) {
+        SpatialRuleContainer ruleContainer = getContainerFor2DIndex(xIndex, yIndex);
+        if (exact) {
+            // the rules of a tile which is not touched by a border cover either all or nothing of it
+            if (subCells == null)
                 return ruleContainer.first();
+
+            int subCell = subCells[getSubCellIndex(lat, lon, xIndex, yIndex)] & 0xFF;
+            if (subCell != BORDER_SUB_CELL)
+                return singleRules.get(subCell);
+        } else if (ruleContainer.size() == 1) {
+            return ruleContainer.first();
         }
 
+        return lookupRuleInPolygons(ruleContainer, lat, lon);
+    }
+
+    private SpatialRule lookupRuleInPolygons(SpatialRuleContainer ruleContainer, double lat, double lon) {
         for (SpatialRule rule : ruleContainer.getRules()) {
             if (rule.equals(SpatialRule.EMPTY))
                 continue;
@@ -123,6 +149,42 @@ public class SpatialRuleLookupArray implements SpatialRuleLookup {
         return SpatialRule.EMPTY;
     }
 
+    /**
+     * Looks up the rules for many points at once, e.g. for the centers of a block of ways. The points are processed
+     * tile by tile, which is faster than looking up every point on its own.
+     *
+     * @return the rules in the order of the points
+     */
+    public SpatialRule[] lookupRules(double[] lats, double[] lons) {
+        if (lats.length != lons.length)
+            throw new IllegalArgumentException("Coordinates must be of equal length but was " + lats.length + " vs. " + lons.length);
+
+        SpatialRule[] rules = new SpatialRule[lats.length];
+        long[] tileAndIndex = new long[lats.length];
+        int count = 0;
+        for (int i = 0; i < lats.length; i++) {
+            double lat = lats[i], lon = lons[i];
+            if (lon < bounds.minLon || lon > bounds.maxLon || lat < bounds.minLat || lat > bounds.maxLat)
+                rules[i] = SpatialRule.EMPTY;
+            else
+                tileAndIndex[count++] = (long) getTileKey(getXIndexForLon(lon), getYIndexForLat(lat)) << 32 | i;
+        }
+        Arrays.sort(tileAndIndex, 0, count);
+
+        int lastTileKey = -1;
+        byte[] subCells = null;
+        for (int i = 0; i < count; i++) {
+            int tileKey = (int) (tileAndIndex[i] >>> 32);
+            int index = (int) tileAndIndex[i];
+            if (tileKey != lastTileKey) {
+                subCells = exact ? borderTiles.get(tileKey) : null;
+                lastTileKey = tileKey;
+            }
+            rules[index] = lookupRule(lats[index], lons[index], getXIndexForLon(lons[index]), getYIndexForLat(lats[index]), subCells);
+        }
+        return rules;
+    }
+
     private int getRuleContainerIndex(int xIndex, int yIndex) {
         if (xIndex < 0 || xIndex >= lookupArray.length) {
             return EMPTY_RULE_INDEX;
@@ -133,18 +195,80 @@ public class SpatialRuleLookupArray implements SpatialRuleLookup {
         return castByteToInt(lookupArray[xIndex][yIndex]);
     }
 
+    private int getTileKey(int xIndex, int yIndex) {
+        return xIndex * lookupArray[0].length + yIndex;
+    }
+
+    private int getSubCellIndex(double lat, double lon, int xIndex, int yIndex) {
+        int subX = Math.min(SUB_CELLS - 1, Math.max(0, (int) Math.floor((lon - bounds.minLon) / resolution * SUB_CELLS) - xIndex * SUB_CELLS));
+        int subY = Math.min(SUB_CELLS - 1, Math.max(0, (int) Math.floor((lat - bounds.minLat) / resolution * SUB_CELLS) - yIndex * SUB_CELLS));
+        return subX * SUB_CELLS + subY;
+    }
+
     /**
-     * Might fail for small holes that do not occur in the array
+     * Marks every sub cell which is touched by the bounding box of a polygon segment as border, then resolves the
+     * rule of the remaining sub cells of these tiles via their center. The rule of the segment is added to the tile,
+     * e.g. for a small island which the 5 point check of the tile missed.
      */
-    private boolean isBorderTile(int xIndex, int yIndex, int ruleIndex) {
-        for (int i = -1; i < 2; i++) {
-            for (int j = -1; j < 2; j++) {
-                if (i != xIndex && j != yIndex)
-                    if (ruleIndex != getRuleContainerIndex(i, j))
-                        return true;
+    private void createBorderTiles(List<SpatialRule> spatialRules) {
+        for (SpatialRule rule : spatialRules) {
+            int ruleContainerIndex = addRuleContainer(new SpatialRuleContainer().addRule(rule));
+            for (Polygon polygon : rule.getBorders()) {
+                for (int i = 0; i < polygon.size(); i++) {
+                    int next = (i + 1) % polygon.size();
+                    markBorder(rule, ruleContainerIndex, Math.min(polygon.getLat(i), polygon.getLat(next)), Math.min(polygon.getLon(i), polygon.getLon(next)),
+                            Math.max(polygon.getLat(i), polygon.getLat(next)), Math.max(polygon.getLon(i), polygon.getLon(next)));
+                }
             }
         }
-        return false;
+
+        double subResolution = resolution / SUB_CELLS;
+        for (int xIdx = 0; xIdx < lookupArray.length; xIdx++) {
+            for (int yIdx = 0; yIdx < lookupArray[0].length; yIdx++) {
+                byte[] subCells = borderTiles.get(getTileKey(xIdx, yIdx));
+                if (subCells == null)
+                    continue;
+
+                SpatialRuleContainer ruleContainer = getContainerFor2DIndex(xIdx, yIdx);
+                for (int subX = 0; subX < SUB_CELLS; subX++) {
+                    for (int subY = 0; subY < SUB_CELLS; subY++) {
+                        int subCellIndex = subX * SUB_CELLS + subY;
+                        if ((subCells[subCellIndex] & 0xFF) == BORDER_SUB_CELL)
+                            continue;
+
+                        double lon = bounds.minLon + xIdx * resolution + (subX + 0.5) * subResolution;
+                        double lat = bounds.minLat + yIdx * resolution + (subY + 0.5) * subResolution;
+                        subCells[subCellIndex] = (byte) (int) singleRulesIndices.get(lookupRuleInPolygons(ruleContainer, lat, lon));
+                    }
+                }
+            }
+        }
+    }
+
+    private void markBorder(SpatialRule rule, int ruleContainerIndex, double minLat, double minLon, double maxLat, double maxLon) {
+        if (maxLon < bounds.minLon || minLon > bounds.maxLon || maxLat < bounds.minLat || minLat > bounds.maxLat)
+            return;
+
+        int subMinX = getSubIndex(minLon - bounds.minLon, lookupArray.length);
+        int subMaxX = getSubIndex(maxLon - bounds.minLon, lookupArray.length);
+        int subMinY = getSubIndex(minLat - bounds.minLat, lookupArray[0].length);
+        int subMaxY = getSubIndex(maxLat - bounds.minLat, lookupArray[0].length);
+        for (int subX = subMinX; subX <= subMaxX; subX++) {
+            for (int subY = subMinY; subY <= subMaxY; subY++) {
+                int tileKey = getTileKey(subX / SUB_CELLS, subY / SUB_CELLS);
+                addRuleToTile(subX / SUB_CELLS, subY / SUB_CELLS, rule, ruleContainerIndex);
+                byte[] subCells = borderTiles.get(tileKey);
+                if (subCells == null) {
+                    subCells = new byte[SUB_CELLS * SUB_CELLS];
+                    borderTiles.put(tileKey, subCells);
+                }
+                subCells[(subX % SUB_CELLS) * SUB_CELLS + subY % SUB_CELLS] = (byte) BORDER_SUB_CELL;
+            }
+        }
+    }
+
+    private int getSubIndex(double delta, int tiles) {
+        return Math.min(tiles * SUB_CELLS - 1, Math.max(0, (int) Math.floor(delta / resolution * SUB_CELLS)));
     }
 
     @Override
@@ -187,22 +311,27 @@ public class SpatialRuleLookupArray implements SpatialRuleLookup {
                             polygon.contains(center.getLat() - checkDiff, center.getLon() + checkDiff) ||
                             polygon.contains(center.getLat() + checkDiff, center.getLon() - checkDiff) ||
                             polygon.contains(center.getLat() + checkDiff, center.getLon() + checkDiff)) {
-
-                        if (lookupArray[xIdx][yIdx] == EMPTY_RULE_INDEX) {
-                            lookupArray[xIdx][yIdx] = (byte) ruleContainerIndex;
-                        } else {
-                            // Merge Rules
-                            SpatialRuleContainer curContainer = getContainerFor2DIndex(xIdx, yIdx);
-                            SpatialRuleContainer newContainer = curContainer.copy().addRule(rule);
-                            int newRuleContainerIndex = addRuleContainer(newContainer);
-                            lookupArray[xIdx][yIdx] = (byte) newRuleContainerIndex;
-                        }
+                        addRuleToTile(xIdx, yIdx, rule, ruleContainerIndex);
                     }
                 }
             }
         }
     }
 
+    private void addRuleToTile(int xIdx, int yIdx, SpatialRule rule, int ruleContainerIndex) {
+        if (lookupArray[xIdx][yIdx] == EMPTY_RULE_INDEX) {
+            lookupArray[xIdx][yIdx] = (byte) ruleContainerIndex;
+        } else {
+            // Merge Rules
+            SpatialRuleContainer curContainer = getContainerFor2DIndex(xIdx, yIdx);
+            if (curContainer.getRules().contains(rule))
+                return;
+            SpatialRuleContainer newContainer = curContainer.copy().addRule(rule);
+            int newRuleContainerIndex = addRuleContainer(newContainer);
+            lookupArray[xIdx][yIdx] = (byte) newRuleContainerIndex;
+        }
+    }
+
     private void addSingleRule(SpatialRule rule) {
         int index = singleRules.indexOf(rule);
         if (index >= 0)
@@ -100,6 +100,15 @@ public class FastestWeighting extends AbstractWeighting {
         return time + super.calcMillis(edgeState, reverse, prevOrNextEdgeId);
     }
 
+    @Override
+    public boolean equals(Object obj) {
+        // the parameters are not part of toString, which is used for the file names of the preparations
+        if (!super.equals(obj))
+            return false;
+        FastestWeighting other = (FastestWeighting) obj;
+        return headingPenalty == other.headingPenalty && roadAccessPenalty == other.roadAccessPenalty;
+    }
+
     static double checkBounds(String key, double val, double from, double to) {
         if (val < from || val > to)
             throw new IllegalArgumentException(key + " has invalid range should be within [" + from + ", " + to + "]");
@@ -63,6 +63,14 @@ public class ShortFastestWeighting extends FastestWeighting {
         return time * timeFactor + edgeState.getDistance() * distanceFactor;
     }
 
+    @Override
+    public boolean equals(Object obj) {
+        if (!super.equals(obj))
+            return false;
+        ShortFastestWeighting other = (ShortFastestWeighting) obj;
+        return distanceFactor == other.distanceFactor && timeFactor == other.timeFactor;
+    }
+
     @Override
     public String getName() {
         return NAME;
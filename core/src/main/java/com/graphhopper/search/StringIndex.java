@@ -17,9 +17,7 @@
  */
 package com.graphhopper.search;
 
-import com.graphhopper.storage.DataAccess;
-import com.graphhopper.storage.Directory;
-import com.graphhopper.storage.Storable;
+import com.graphhopper.storage.*;
 import com.graphhopper.util.BitUtil;
 import com.graphhopper.util.Helper;
 
@@ -34,6 +32,11 @@ public class StringIndex implements Storable<StringIndex> {
     static final int MAX_UNIQUE_KEYS = (1 << 15);
     // Store string value as byte array and store the length into 1 byte
     private static final int MAX_LENGTH = (1 << 8) - 1;
+    // the hash table for the entries lives off-heap and is not stored
+    private static final DAType HASH_TABLE_TYPE = new DAType(DAType.MemRef.UNSAFE, false, false, true);
+    // a slot stores the hash of the entry map and its entry pointer
+    private static final int SLOT_BYTES = 12;
+    private static final int INITIAL_SLOTS = 1 << 10;
     boolean throwExceptionIfTooLong = false;
     private final DataAccess keys;
     // storage layout per entry:
@@ -50,6 +53,13 @@ public class StringIndex implements Storable<StringIndex> {
     private long bytePointer = START_POINTER;
     private long lastEntryPointer = -1;
     private Map<String, String> lastEntryMap;
+    // Open addressing hash table from the entry maps added so far to their entry pointers, so an entry map which
+    // occurs many times, e.g. the name of a long street, is stored only once. It is only needed while adding and
+    // released on flush.
+    private final Directory hashTableDir = new GHDirectory("", HASH_TABLE_TYPE);
+    private DataAccess hashTable;
+    private int hashTableSlots;
+    private int hashTableEntries;
 
     public StringIndex(Directory dir) {
         this(dir, 1000);
@@ -126,6 +136,14 @@ public class StringIndex implements Storable<StringIndex> {
         if (entryMap.equals(lastEntryMap))
             return lastEntryPointer;
 
+        int hash = hash(entryMap);
+        long existingPointer = findEntry(entryMap, hash);
+        if (existingPointer != EMPTY_POINTER) {
+            lastEntryMap = entryMap;
+            lastEntryPointer = existingPointer;
+            return existingPointer;
+        }
+
         lastEntryMap = entryMap;
         lastEntryPointer = bytePointer;
         // while adding there could be exceptions and we need to avoid that the bytePointer is modified
@@ -185,9 +203,84 @@ public class StringIndex implements Storable<StringIndex> {
             }
         }
         bytePointer = currentPointer;
+        putEntry(hash, lastEntryPointer);
         return lastEntryPointer;
     }
 
+    private static int hash(Map<String, String> entryMap) {
+        // the hash code of a map only sums up the hash codes of its entries, so spread the bits
+        int hash = entryMap.hashCode() * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * @return the pointer of the entry which is equal to the specified entry map or EMPTY_POINTER
+     */
+    private long findEntry(Map<String, String> entryMap, int hash) {
+        if (hashTable == null)
+            return EMPTY_POINTER;
+
+        int mask = hashTableSlots - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            long slotPointer = (long) slot * SLOT_BYTES;
+            long entryPointer = BitUtil.LITTLE.combineIntsToLong(hashTable.getInt(slotPointer + 4), hashTable.getInt(slotPointer + 8));
+            if (entryPointer == EMPTY_POINTER)
+                return EMPTY_POINTER;
+            // a value which is too long is stored truncated and so the entry is not equal and stored again
+            if (hashTable.getInt(slotPointer) == hash && entryMap.equals(getAll(entryPointer)))
+                return entryPointer;
+        }
+    }
+
+    private void putEntry(int hash, long entryPointer) {
+        if (hashTable == null) {
+            hashTable = createHashTable(INITIAL_SLOTS);
+        } else if (2 * (hashTableEntries + 1) > hashTableSlots) {
+            DataAccess oldHashTable = hashTable;
+            int oldSlots = hashTableSlots;
+            hashTable = createHashTable(2 * oldSlots);
+            for (int slot = 0; slot < oldSlots; slot++) {
+                long slotPointer = (long) slot * SLOT_BYTES;
+                long oldEntryPointer = BitUtil.LITTLE.combineIntsToLong(oldHashTable.getInt(slotPointer + 4), oldHashTable.getInt(slotPointer + 8));
+                if (oldEntryPointer != EMPTY_POINTER)
+                    setSlot(oldHashTable.getInt(slotPointer), oldEntryPointer);
+            }
+            hashTableDir.remove(oldHashTable);
+        }
+        setSlot(hash, entryPointer);
+        hashTableEntries++;
+    }
+
+    private DataAccess createHashTable(int slots) {
+        hashTableSlots = slots;
+        // the memory is zeroed, so all slots are empty
+        DataAccess da = hashTableDir.find("string_index_hash_table_" + slots);
+        // the slots fill whole segments of this size
+        da.setSegmentSize(1 << 12);
+        return da.create((long) slots * SLOT_BYTES);
+    }
+
+    private void setSlot(int hash, long entryPointer) {
+        int mask = hashTableSlots - 1;
+        int slot = hash & mask;
+        while (hashTable.getInt((long) slot * SLOT_BYTES + 4) != 0 || hashTable.getInt((long) slot * SLOT_BYTES + 8) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        long slotPointer = (long) slot * SLOT_BYTES;
+        hashTable.setInt(slotPointer, hash);
+        hashTable.setInt(slotPointer + 4, BitUtil.LITTLE.getIntLow(entryPointer));
+        hashTable.setInt(slotPointer + 8, BitUtil.LITTLE.getIntHigh(entryPointer));
+    }
+
+    private void releaseHashTable() {
+        if (hashTable != null) {
+            hashTableDir.remove(hashTable);
+            hashTable = null;
+            hashTableSlots = 0;
+            hashTableEntries = 0;
+        }
+    }
+
     public Map<String, String> getAll(final long entryPointer) {
         if (entryPointer < 0)
             throw new IllegalStateException("Pointer to access StringIndex cannot be negative:" + entryPointer);
@@ -320,10 +413,13 @@ public class StringIndex implements Storable<StringIndex> {
         vals.setHeader(0, BitUtil.LITTLE.getIntLow(bytePointer));
         vals.setHeader(4, BitUtil.LITTLE.getIntHigh(bytePointer));
         vals.flush();
+        // usually all entries are added before flushing, a later entry is only deduplicated against later ones
+        releaseHashTable();
     }
 
     @Override
     public void close() {
+        releaseHashTable();
         keys.close();
         vals.close();
     }
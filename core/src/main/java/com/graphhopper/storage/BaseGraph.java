@@ -17,6 +17,8 @@
  */
 package com.graphhopper.storage;
 
+import com.carrotsearch.hppc.IntObjectMap;
+import com.carrotsearch.hppc.cursors.IntObjectCursor;
 import com.graphhopper.coll.GHBitSet;
 import com.graphhopper.coll.GHBitSetImpl;
 import com.graphhopper.coll.SparseIntIntArray;
@@ -97,6 +99,10 @@ class BaseGraph implements Graph {
     private int edgeEntryIndex, nodeEntryIndex;
     private long maxGeoRef;
     private boolean frozen = false;
+    // changes made while routing requests are running that are not yet written to the edges. See changeEdgeFlags
+    private volatile EdgeFlagsOverlay flagsOverlay = EdgeFlagsOverlay.empty(0);
+    // the number of snapshots of the current and of older overlay versions that are in use, guarded by this
+    private int currentSnapshots, olderSnapshots;
 
     public BaseGraph(Directory dir, final EncodingManager encodingManager, boolean withElevation,
                      InternalGraphEventListener listener, boolean withTurnCosts, int segmentSize) {
@@ -137,11 +143,6 @@ class BaseGraph implements Graph {
                 nodes.setInt((long) nodeId * nodeEntryBytes + N_EDGE_REF, edgeId);
             }
 
-            @Override
-            final int getEntryBytes() {
-                return edgeEntryBytes;
-            }
-
             @Override
             final long toPointer(int edgeId) {
                 assert isInBounds(edgeId) : "edgeId " + edgeId + " not in bounds [0," + edgeCount + ")";
@@ -459,6 +460,7 @@ class BaseGraph implements Graph {
     }
 
     public void flush() {
+        awaitFlagsOverlayWritten();
         if (!wayGeometry.isClosed()) {
             setWayGeometryHeader();
             wayGeometry.flush();
@@ -476,6 +478,92 @@ class BaseGraph implements Graph {
         }
     }
 
+    /**
+     * Publishes the specified edge flags without blocking concurrent readers: the changes are added to a copy of the
+     * overlay and the result replaces the previous overlay atomically. Snapshots acquired before keep seeing the old
+     * flags, snapshots acquired afterwards and iterators that are not bound to a snapshot see the new ones. The flags
+     * are written to the edges DataAccess as soon as no snapshot of an older version is in use.
+     */
+    synchronized void changeEdgeFlags(IntObjectMap<IntsRef> changes) {
+        for (IntObjectCursor<IntsRef> c : changes) {
+            if (c.key < 0 || c.key >= edgeCount)
+                throw new IllegalArgumentException("edge " + c.key + " does not exist, edges: " + edgeCount);
+            if (c.value.length != intsForFlags)
+                throw new IllegalArgumentException("edge flags of edge " + c.key + " must have length " + intsForFlags + " but was " + c.value.length);
+        }
+        olderSnapshots += currentSnapshots;
+        currentSnapshots = 0;
+        flagsOverlay = flagsOverlay.with(changes);
+        if (olderSnapshots == 0)
+            writeFlagsOverlay();
+    }
+
+    /**
+     * @return the current version of the changed edge flags. It has to be released via releaseFlagsOverlay, until then
+     * the edges DataAccess is not modified in a way that changes the flags this version sees.
+     */
+    synchronized EdgeFlagsOverlay acquireFlagsOverlay() {
+        currentSnapshots++;
+        return flagsOverlay;
+    }
+
+    synchronized void releaseFlagsOverlay(EdgeFlagsOverlay overlay) {
+        if (overlay.getVersion() == flagsOverlay.getVersion()) {
+            currentSnapshots--;
+        } else if (--olderSnapshots == 0) {
+            writeFlagsOverlay();
+            notifyAll();
+        }
+    }
+
+    /**
+     * @return the number of changed edges whose flags are not yet written to the edges DataAccess because older
+     * snapshots are still in use
+     */
+    int getChangedEdges() {
+        return flagsOverlay.size();
+    }
+
+    /**
+     * Reads the flags of the specified edge including the current changes. If the overlay was replaced in the meantime
+     * writeFlagsOverlay could have modified the edges DataAccess while reading, so the flags are read again.
+     */
+    final void readFlags(EdgeAccess edgeAccess, long edgePointer, int edgeId, IntsRef edgeFlags) {
+        EdgeFlagsOverlay overlay;
+        do {
+            overlay = flagsOverlay;
+            edgeAccess.readFlags(edgePointer, edgeFlags);
+            overlay.apply(edgeId, edgeFlags);
+        } while (overlay != flagsOverlay);
+    }
+
+    /**
+     * Writes the changed flags to the edges DataAccess and replaces the overlay with an empty one of the same version.
+     * This must only be called if no snapshot of an older version is in use: snapshots of the current version see the
+     * same flags before, while and after writing, and readers that are not bound to a snapshot read them again.
+     */
+    private void writeFlagsOverlay() {
+        EdgeFlagsOverlay overlay = flagsOverlay;
+        if (overlay.isEmpty() || edges.isClosed())
+            return;
+        for (IntObjectCursor<IntsRef> c : overlay.getFlags()) {
+            edgeAccess.writeFlags(edgeAccess.toPointer(c.key), c.value);
+        }
+        flagsOverlay = EdgeFlagsOverlay.empty(overlay.getVersion());
+    }
+
+    private synchronized void awaitFlagsOverlayWritten() {
+        while (olderSnapshots > 0) {
+            try {
+                wait();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Thread was interrupted", ex);
+            }
+        }
+        writeFlagsOverlay();
+    }
+
     public void close() {
         if (!wayGeometry.isClosed())
             wayGeometry.close();
@@ -609,6 +697,25 @@ class BaseGraph implements Graph {
         return new AllEdgeIterator(this, edgeAccess);
     }
 
+    EdgeExplorer createEdgeExplorer(EdgeFilter filter, EdgeFlagsOverlay overlay) {
+        EdgeIterable iter = new EdgeIterable(this, edgeAccess, filter);
+        iter.flagsOverlay = overlay;
+        return iter;
+    }
+
+    EdgeIteratorState getEdgeIteratorState(int edgeId, int adjNode, EdgeFlagsOverlay overlay) {
+        EdgeIterable edge = (EdgeIterable) getEdgeIteratorState(edgeId, adjNode);
+        if (edge != null)
+            edge.flagsOverlay = overlay;
+        return edge;
+    }
+
+    AllEdgesIterator getAllEdges(EdgeFlagsOverlay overlay) {
+        AllEdgeIterator iter = new AllEdgeIterator(this, edgeAccess);
+        iter.flagsOverlay = overlay;
+        return iter;
+    }
+
     @Override
     public Graph copyTo(Graph g) {
         initialized = true;
@@ -1110,6 +1217,8 @@ class BaseGraph implements Graph {
                 // for #162
                 ((EdgeIterable) iter).reverse = !reverse;
             }
+            if (flagsOverlay != null)
+                ((EdgeIterable) iter).flagsOverlay = flagsOverlay;
             return iter;
         }
     }
@@ -1135,9 +1244,9 @@ class BaseGraph implements Graph {
         public boolean next() {
             while (true) {
                 edgeId++;
-                edgePointer = (long) edgeId * edgeAccess.getEntryBytes();
                 if (edgeId >= baseGraph.edgeCount)
                     return false;
+                edgePointer = edgeAccess.toPointer(edgeId);
 
                 adjNode = edgeAccess.getNodeB(edgePointer);
                 // some edges are deleted and are marked via a negative node
@@ -1157,6 +1266,7 @@ class BaseGraph implements Graph {
                 throw new IllegalStateException("call next before detaching");
 
             AllEdgeIterator iter = new AllEdgeIterator(baseGraph, edgeAccess);
+            iter.flagsOverlay = flagsOverlay;
             iter.edgeId = edgeId;
             iter.edgePointer = edgePointer;
             if (reverseArg) {
@@ -1186,6 +1296,8 @@ class BaseGraph implements Graph {
         boolean freshFlags;
         int edgeId = -1;
         private final IntsRef edgeFlags;
+        // the snapshot of the changed edge flags this iterator is bound to, null to read the current flags
+        EdgeFlagsOverlay flagsOverlay;
         int chFlags;
 
         public CommonEdgeIterator(long edgePointer, EdgeAccess edgeAccess, BaseGraph baseGraph) {
@@ -1219,7 +1331,12 @@ class BaseGraph implements Graph {
         @Override
         public IntsRef getFlags() {
             if (!freshFlags) {
-                edgeAccess.readFlags(edgePointer, edgeFlags);
+                if (flagsOverlay == null) {
+                    baseGraph.readFlags(edgeAccess, edgePointer, edgeId, edgeFlags);
+                } else {
+                    edgeAccess.readFlags(edgePointer, edgeFlags);
+                    flagsOverlay.apply(edgeId, edgeFlags);
+                }
                 freshFlags = true;
             }
             return edgeFlags;
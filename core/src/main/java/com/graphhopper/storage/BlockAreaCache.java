@@ -0,0 +1,180 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.routing.util.DefaultEdgeFilter;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.storage.GraphEdgeIdFinder.BlockArea;
+import com.graphhopper.storage.index.LocationIndex;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the most recently used block areas of the block_area parameter, so that the edges inside of a shape are not
+ * searched again for every request with the same shapes. Additionally named block areas can be registered, which are
+ * never removed and can be used via their name in the block_area parameter, e.g. "bridge_closure;52.5,13.4,200".
+ * <p>
+ * The block areas are created for the base graph and have to be bound to the graph of a request via
+ * {@link BlockArea#forGraph}. All block areas have to be removed via {@link #invalidate()} if the accessibility of
+ * edges changes. This class is thread-safe, the block areas are created outside of the lock.
+ *
+ * @see GraphEdgeIdFinder#parseBlockArea
+ */
+public class BlockAreaCache {
+    private static final Pattern NAME_PATTERN = Pattern.compile("[a-z][a-z0-9_]*");
+    private final Graph graph;
+    private final LocationIndex locationIndex;
+    private final int maxSize;
+    // the definitions of the named block areas
+    private final Map<String, String> definitions = new HashMap<>();
+    private final Map<String, BlockArea> namedAreas = new HashMap<>();
+    private final LinkedHashMap<String, BlockArea> blockAreas;
+    // increased for every invalidation so that block areas of the unchanged graph are not added afterwards
+    private long generation;
+
+    /**
+     * @param maxSize the maximum number of cached block areas without the named ones, 0 disables the cache
+     */
+    public BlockAreaCache(Graph graph, LocationIndex locationIndex, final int maxSize) {
+        if (maxSize < 0)
+            throw new IllegalArgumentException("maxSize cannot be negative but was " + maxSize);
+        this.graph = graph;
+        this.locationIndex = locationIndex;
+        this.maxSize = maxSize;
+        this.blockAreas = new LinkedHashMap<String, BlockArea>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, BlockArea> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Registers a block area that can be used via its name.
+     *
+     * @param name            lower case letters, digits and underscores starting with a letter
+     * @param blockAreaString the shapes in the format of the block_area parameter, which must not contain names
+     */
+    public synchronized void putNamed(String name, String blockAreaString) {
+        if (!NAME_PATTERN.matcher(name).matches())
+            throw new IllegalArgumentException("Invalid name of a block area: " + name);
+        String definition = normalize(blockAreaString);
+        if (definition.isEmpty())
+            throw new IllegalArgumentException("The block area " + name + " cannot be empty");
+        for (String object : definition.split(";")) {
+            if (isName(object))
+                throw new IllegalArgumentException("The block area " + name + " cannot contain the name " + object);
+        }
+        definitions.put(name, definition);
+        namedAreas.clear();
+    }
+
+    /**
+     * @param blockAreaString         the value of the block_area parameter, which can contain names of block areas
+     * @param useEdgeIdsUntilAreaSize see {@link GraphEdgeIdFinder#parseBlockArea}
+     * @return the BlockArea for the base graph, which must not be changed
+     */
+    public BlockArea get(String blockAreaString, FlagEncoder encoder, double useEdgeIdsUntilAreaSize) {
+        String resolved;
+        boolean named;
+        String key;
+        long areaGeneration;
+        synchronized (this) {
+            String normalized = normalize(blockAreaString);
+            named = definitions.containsKey(normalized);
+            resolved = resolveNames(normalized);
+            // the edges depend on the accessible edges of the encoder
+            key = encoder.toString() + "|" + useEdgeIdsUntilAreaSize + "|" + resolved;
+            BlockArea blockArea = named ? namedAreas.get(key) : blockAreas.get(key);
+            if (blockArea != null)
+                return blockArea;
+            areaGeneration = generation;
+        }
+
+        BlockArea blockArea = new GraphEdgeIdFinder(graph, locationIndex).
+                parseBlockArea(resolved, DefaultEdgeFilter.allEdges(encoder), useEdgeIdsUntilAreaSize);
+        synchronized (this) {
+            if (areaGeneration == generation) {
+                if (named)
+                    namedAreas.put(key, blockArea);
+                else
+                    blockAreas.put(key, blockArea);
+            }
+        }
+        return blockArea;
+    }
+
+    /**
+     * Removes all block areas including the block areas created for the named ones, e.g. after the edges of the
+     * graph were changed.
+     */
+    public synchronized void invalidate() {
+        generation++;
+        blockAreas.clear();
+        namedAreas.clear();
+    }
+
+    /**
+     * @return the number of cached block areas including the ones created for the named block areas
+     */
+    public synchronized int getSize() {
+        return blockAreas.size() + namedAreas.size();
+    }
+
+    private String resolveNames(String normalized) {
+        if (normalized.isEmpty())
+            return normalized;
+
+        StringBuilder sb = new StringBuilder();
+        for (String object : normalized.split(";")) {
+            if (sb.length() > 0)
+                sb.append(';');
+            if (isName(object)) {
+                String definition = definitions.get(object);
+                if (definition == null)
+                    throw new IllegalArgumentException("Unknown block area " + object);
+                sb.append(definition);
+            } else {
+                sb.append(object);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static boolean isName(String object) {
+        return !object.isEmpty() && Character.isLetter(object.charAt(0));
+    }
+
+    /**
+     * Removes the white space and empty objects so that equal shapes get the same key.
+     */
+    static String normalize(String blockAreaString) {
+        StringBuilder sb = new StringBuilder();
+        for (String object : blockAreaString.replaceAll("\\s", "").split(";")) {
+            if (object.isEmpty())
+                continue;
+            if (sb.length() > 0)
+                sb.append(';');
+            sb.append(object);
+        }
+        return sb.toString();
+    }
+}
@@ -55,7 +55,8 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
     final int scDirMask = PrepareEncoder.getScDirMask();
     private final CHProfile chProfile;
     private final BaseGraph baseGraph;
-    private final CHEdgeAccess chEdgeAccess;
+    // replaced by a CompactCHEdgeAccess when the shortcuts are compacted
+    private CHEdgeAccess chEdgeAccess;
     int N_CH_REF;
     int shortcutEntryBytes;
     // the nodesCH storage is limited via baseGraph.nodeCount too
@@ -112,6 +113,7 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
     public int shortcut(int a, int b, int accessFlags, double weight, int skippedEdge1, int skippedEdge2) {
         if (!baseGraph.isFrozen())
             throw new IllegalStateException("Cannot create shortcut if graph is not yet frozen");
+        chEdgeAccess.checkChangeable();
 
         checkNodeId(a);
         checkNodeId(b);
@@ -262,6 +264,7 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
 
     @Override
     public void disconnectEdge(int edge, int adjNode, int prevEdge) {
+        chEdgeAccess.checkChangeable();
         // TODO this is ugly, move this somehow into the underlying iteration logic
         long edgePointer = !EdgeIterator.Edge.isValid(prevEdge) ? -1
                 : isShortcut(prevEdge) ? chEdgeAccess.toPointer(prevEdge) : baseGraph.edgeAccess.toPointer(prevEdge);
@@ -284,15 +287,102 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
     protected int loadEdgesHeader() {
         shortcutCount = shortcuts.getHeader(0 * 4);
         shortcutEntryBytes = shortcuts.getHeader(1 * 4);
+        int compactLayout = shortcuts.getHeader(2 * 4);
+        if (compactLayout != 0)
+            chEdgeAccess = new CompactCHEdgeAccess(chEdgeAccess.name, compactLayout);
         return 3;
     }
 
     int setEdgesHeader() {
         shortcuts.setHeader(0 * 4, shortcutCount);
         shortcuts.setHeader(1 * 4, shortcutEntryBytes);
+        shortcuts.setHeader(2 * 4, chEdgeAccess instanceof CompactCHEdgeAccess ? ((CompactCHEdgeAccess) chEdgeAccess).layout : 0);
         return 3;
     }
 
+    /**
+     * @return true if the shortcuts are stored in the compact layout, see {@link #compactShortcuts()}
+     */
+    public boolean isCompact() {
+        return chEdgeAccess instanceof CompactCHEdgeAccess;
+    }
+
+    /**
+     * Converts the shortcuts into a bit-packed layout after the preparation. Every field only takes the bits needed for
+     * the biggest value of all shortcuts, e.g. the node ids take as many bits as needed for the number of nodes, the
+     * second node is stored as difference to the first one and the weights keep their precision but are stored without
+     * the unused high bits. The conversion is done in place and afterwards the shortcuts cannot be changed anymore.
+     */
+    public void compactShortcuts() {
+        chEdgeAccess.checkChangeable();
+        long maxNode = 0, maxNodeDelta = 0, maxEdge = 0, maxFlags = 0, maxOrigEdge = 0;
+        for (int i = 0; i < shortcutCount; i++) {
+            long pointer = chEdgeAccess.toPointer(baseGraph.edgeCount + i);
+            int nodeA = chEdgeAccess.getNodeA(pointer);
+            maxNode = Math.max(maxNode, toUnsignedLong(nodeA));
+            maxNodeDelta = Math.max(maxNodeDelta, toUnsignedLong(zigZag(chEdgeAccess.getNodeB(pointer) - nodeA)));
+            maxEdge = Math.max(maxEdge, chEdgeAccess.getLinkA(pointer) + 1L);
+            maxEdge = Math.max(maxEdge, chEdgeAccess.getLinkB(pointer) + 1L);
+            maxEdge = Math.max(maxEdge, chEdgeAccess.getSkippedEdge1(pointer) + 1L);
+            maxEdge = Math.max(maxEdge, chEdgeAccess.getSkippedEdge2(pointer) + 1L);
+            maxFlags = Math.max(maxFlags, toUnsignedLong(chEdgeAccess.getShortcutFlags(pointer)));
+            if (chProfile.isEdgeBased()) {
+                maxOrigEdge = Math.max(maxOrigEdge, chEdgeAccess.getOrigEdgeFirst(pointer));
+                maxOrigEdge = Math.max(maxOrigEdge, chEdgeAccess.getOrigEdgeLast(pointer));
+            }
+        }
+
+        CHEdgeAccess oldAccess = chEdgeAccess;
+        CompactCHEdgeAccess newAccess = new CompactCHEdgeAccess(oldAccess.name, toCompactLayout(
+                bitsFor(maxNode), bitsFor(maxNodeDelta), bitsFor(maxEdge), bitsFor(maxFlags),
+                chProfile.isEdgeBased() ? bitsFor(maxOrigEdge) : 0));
+        long bytes = newAccess.getBytes(shortcutCount);
+        shortcuts.ensureCapacity(bytes);
+        // a compact entry is never bigger than a normal one, so the entries can be converted from the first to the last
+        // without overwriting an entry that was not yet read
+        for (int i = 0; i < shortcutCount; i++) {
+            int shortcutId = baseGraph.edgeCount + i;
+            long pointer = oldAccess.toPointer(shortcutId);
+            int nodeA = oldAccess.getNodeA(pointer), nodeB = oldAccess.getNodeB(pointer);
+            int linkA = oldAccess.getLinkA(pointer), linkB = oldAccess.getLinkB(pointer);
+            int flags = oldAccess.getShortcutFlags(pointer);
+            int skippedEdge1 = oldAccess.getSkippedEdge1(pointer), skippedEdge2 = oldAccess.getSkippedEdge2(pointer);
+            int origFirst = 0, origLast = 0;
+            if (chProfile.isEdgeBased()) {
+                origFirst = oldAccess.getOrigEdgeFirst(pointer);
+                origLast = oldAccess.getOrigEdgeLast(pointer);
+            }
+            newAccess.write(newAccess.toPointer(shortcutId), nodeA, nodeB, linkA, linkB, flags, skippedEdge1, skippedEdge2, origFirst, origLast);
+        }
+        shortcuts.trimTo(bytes);
+        chEdgeAccess = newAccess;
+        LOGGER.info("compacted shortcuts of " + chProfile + ", bits per shortcut: " + newAccess.entryBits + " instead of " + shortcutEntryBytes * 8
+                + ", " + newAccess);
+    }
+
+    /**
+     * @return the bits of the fields of the compact layout, 6 bits per field, as stored in the header
+     */
+    private static int toCompactLayout(int nodeBits, int nodeDeltaBits, int edgeBits, int flagBits, int origBits) {
+        return nodeBits | nodeDeltaBits << 6 | edgeBits << 12 | flagBits << 18 | origBits << 24;
+    }
+
+    private static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long toUnsignedLong(int value) {
+        return value & 0xFFFFFFFFL;
+    }
+
+    private static int bitsFor(long maxValue) {
+        return Math.max(1, 64 - Long.numberOfLeadingZeros(maxValue));
+    }
+
     @Override
     public TurnCostStorage getTurnCostStorage() {
         return baseGraph.getTurnCostStorage();
@@ -313,6 +403,8 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
         tmpG.N_LEVEL = N_LEVEL;
         tmpG.N_CH_REF = N_CH_REF;
         tmpG.nodeCHEntryBytes = nodeCHEntryBytes;
+        if (isCompact())
+            tmpG.chEdgeAccess = tmpG.new CompactCHEdgeAccess(tmpG.chEdgeAccess.name, ((CompactCHEdgeAccess) chEdgeAccess).layout);
         return g;
     }
 
@@ -410,12 +502,12 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
                     chEdgeAccess.getLinkA(edgePointer),
                     chEdgeAccess.getLinkB(edgePointer),
                     chEdgeAccess.getShortcutFlags(edgePointer),
-                    shortcuts.getInt(edgePointer + S_SKIP_EDGE1),
-                    shortcuts.getInt(edgePointer + S_SKIP_EDGE2));
+                    chEdgeAccess.getSkippedEdge1(edgePointer),
+                    chEdgeAccess.getSkippedEdge2(edgePointer));
             if (chProfile.isEdgeBased()) {
                 edgeString += String.format(Locale.ROOT, formatShortcutExt,
-                        shortcuts.getInt(edgePointer + S_ORIG_FIRST),
-                        shortcuts.getInt(edgePointer + S_ORIG_LAST));
+                        chEdgeAccess.getOrigEdgeFirst(edgePointer),
+                        chEdgeAccess.getOrigEdgeLast(edgePointer));
             }
             System.out.println(edgeString);
         }
@@ -510,9 +602,9 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
         public boolean next() {
             while (true) {
                 allEdgeIterator.edgeId++;
-                allEdgeIterator.edgePointer = (long) allEdgeIterator.edgeId * allEdgeIterator.edgeAccess.getEntryBytes();
                 if (!checkRange())
                     return false;
+                allEdgeIterator.edgePointer = allEdgeIterator.edgeAccess.toPointer(getEdge());
 
                 allEdgeIterator.adjNode = allEdgeIterator.edgeAccess.getNodeB(allEdgeIterator.edgePointer);
                 // some edges are deleted and are marked via a negative node
@@ -541,7 +633,6 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
             // iterate over shortcuts
             allEdgeIterator.edgeAccess = chEdgeAccess;
             allEdgeIterator.edgeId = 0;
-            allEdgeIterator.edgePointer = (long) allEdgeIterator.edgeId * shortcutEntryBytes;
             return allEdgeIterator.edgeId < shortcutCount;
         }
 
@@ -565,7 +656,7 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
     }
 
     private class CHEdgeAccess extends EdgeAccess {
-        private final String name;
+        final String name;
 
         public CHEdgeAccess(String name) {
             super(shortcuts);
@@ -599,11 +690,6 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
             nodesCH.setInt((long) nodeId * nodeCHEntryBytes + N_CH_REF, edgeId);
         }
 
-        @Override
-        final int getEntryBytes() {
-            return shortcutEntryBytes;
-        }
-
         void setShortcutFlags(long edgePointer, int flags) {
             edges.setInt(edgePointer + E_FLAGS, flags);
         }
@@ -664,6 +750,14 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
             shortcuts.setInt(edgePointer + S_SKIP_EDGE2, edge2);
         }
 
+        int getSkippedEdge1(long edgePointer) {
+            return shortcuts.getInt(edgePointer + S_SKIP_EDGE1);
+        }
+
+        int getSkippedEdge2(long edgePointer) {
+            return shortcuts.getInt(edgePointer + S_SKIP_EDGE2);
+        }
+
         public void setFirstAndLastOrigEdges(long edgePointer, int origFirst, int origLast) {
             if (!chProfile.isEdgeBased()) {
                 throw new IllegalStateException("Edge-based shortcuts should only be added when CHGraph is edge-based");
@@ -672,8 +766,19 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
             shortcuts.setInt(edgePointer + S_ORIG_LAST, origLast);
         }
 
+        int getOrigEdgeFirst(long edgePointer) {
+            return shortcuts.getInt(edgePointer + S_ORIG_FIRST);
+        }
+
+        int getOrigEdgeLast(long edgePointer) {
+            return shortcuts.getInt(edgePointer + S_ORIG_LAST);
+        }
+
+        void checkChangeable() {
+        }
+
         @Override
-        final long toPointer(int shortcutId) {
+        long toPointer(int shortcutId) {
             assert isInBounds(shortcutId) : "shortcutId " + shortcutId + " not in bounds [" + baseGraph.edgeCount + ", " + (baseGraph.edgeCount + shortcutCount) + ")";
             return (long) (shortcutId - baseGraph.edgeCount) * shortcutEntryBytes;
         }
@@ -690,6 +795,159 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
         }
     }
 
+    /**
+     * Reads the shortcuts in the bit-packed layout created by {@link #compactShortcuts()}. The pointer of a shortcut is
+     * the position of its first bit. The edge ids are stored incremented by one so that NO_EDGE becomes 0.
+     */
+    private class CompactCHEdgeAccess extends CHEdgeAccess {
+        final int layout;
+        final int entryBits;
+        private final int nodeBits, nodeDeltaBits, edgeBits, flagBits, origBits;
+        private final int offNodeB, offLinkA, offLinkB, offFlags, offSkip1, offSkip2, offOrigFirst, offOrigLast;
+
+        CompactCHEdgeAccess(String name, int layout) {
+            super(name);
+            this.layout = layout;
+            nodeBits = layout & 63;
+            nodeDeltaBits = (layout >>> 6) & 63;
+            edgeBits = (layout >>> 12) & 63;
+            flagBits = (layout >>> 18) & 63;
+            origBits = (layout >>> 24) & 63;
+            offNodeB = nodeBits;
+            offLinkA = offNodeB + nodeDeltaBits;
+            offLinkB = offLinkA + edgeBits;
+            offFlags = offLinkB + edgeBits;
+            offSkip1 = offFlags + flagBits;
+            offSkip2 = offSkip1 + edgeBits;
+            offOrigFirst = offSkip2 + edgeBits;
+            offOrigLast = offOrigFirst + origBits;
+            entryBits = offOrigLast + origBits;
+        }
+
+        long getBytes(int shortcutCount) {
+            return (((long) shortcutCount * entryBits + 31) >>> 5) << 2;
+        }
+
+        private int read(long bitPointer, int bits) {
+            long bytePointer = (bitPointer >>> 5) << 2;
+            int shift = (int) (bitPointer & 31);
+            long value = toUnsignedLong(shortcuts.getInt(bytePointer)) >>> shift;
+            if (shift + bits > 32)
+                value |= toUnsignedLong(shortcuts.getInt(bytePointer + 4)) << (32 - shift);
+            return (int) (value & ((1L << bits) - 1));
+        }
+
+        private void write(long bitPointer, int bits, int value) {
+            long bytePointer = (bitPointer >>> 5) << 2;
+            int shift = (int) (bitPointer & 31);
+            long mask = (1L << bits) - 1;
+            long bitsValue = toUnsignedLong(value) & mask;
+            if (bitsValue != toUnsignedLong(value))
+                throw new IllegalStateException("value " + value + " does not fit into " + bits + " bits");
+
+            long lower = toUnsignedLong(shortcuts.getInt(bytePointer));
+            lower = lower & ~(mask << shift) | bitsValue << shift;
+            shortcuts.setInt(bytePointer, (int) lower);
+            if (shift + bits > 32) {
+                long upper = toUnsignedLong(shortcuts.getInt(bytePointer + 4));
+                upper = upper & ~(mask >>> (32 - shift)) | bitsValue >>> (32 - shift);
+                shortcuts.setInt(bytePointer + 4, (int) upper);
+            }
+        }
+
+        void write(long pointer, int nodeA, int nodeB, int linkA, int linkB, int flags, int skippedEdge1, int skippedEdge2,
+                   int origFirst, int origLast) {
+            write(pointer, nodeBits, nodeA);
+            write(pointer + offNodeB, nodeDeltaBits, zigZag(nodeB - nodeA));
+            write(pointer + offLinkA, edgeBits, linkA + 1);
+            write(pointer + offLinkB, edgeBits, linkB + 1);
+            write(pointer + offFlags, flagBits, flags);
+            write(pointer + offSkip1, edgeBits, skippedEdge1 + 1);
+            write(pointer + offSkip2, edgeBits, skippedEdge2 + 1);
+            if (origBits > 0) {
+                write(pointer + offOrigFirst, origBits, origFirst);
+                write(pointer + offOrigLast, origBits, origLast);
+            }
+        }
+
+        @Override
+        int getNodeA(long edgePointer) {
+            return read(edgePointer, nodeBits);
+        }
+
+        @Override
+        int getNodeB(long edgePointer) {
+            return getNodeA(edgePointer) + unZigZag(read(edgePointer + offNodeB, nodeDeltaBits));
+        }
+
+        @Override
+        int getLinkA(long edgePointer) {
+            return read(edgePointer + offLinkA, edgeBits) - 1;
+        }
+
+        @Override
+        int getLinkB(long edgePointer) {
+            return read(edgePointer + offLinkB, edgeBits) - 1;
+        }
+
+        @Override
+        int getShortcutFlags(long edgePointer) {
+            return read(edgePointer + offFlags, flagBits);
+        }
+
+        @Override
+        int getSkippedEdge1(long edgePointer) {
+            return read(edgePointer + offSkip1, edgeBits) - 1;
+        }
+
+        @Override
+        int getSkippedEdge2(long edgePointer) {
+            return read(edgePointer + offSkip2, edgeBits) - 1;
+        }
+
+        @Override
+        int getOrigEdgeFirst(long edgePointer) {
+            return read(edgePointer + offOrigFirst, origBits);
+        }
+
+        @Override
+        int getOrigEdgeLast(long edgePointer) {
+            return read(edgePointer + offOrigLast, origBits);
+        }
+
+        @Override
+        long toPointer(int shortcutId) {
+            assert isInBounds(shortcutId) : "shortcutId " + shortcutId + " not in bounds [" + baseGraph.edgeCount + ", " + (baseGraph.edgeCount + shortcutCount) + ")";
+            return (long) (shortcutId - baseGraph.edgeCount) * entryBits;
+        }
+
+        @Override
+        void setShortcutFlags(long edgePointer, int flags) {
+            checkChangeable();
+        }
+
+        @Override
+        void setSkippedEdges(long edgePointer, int edge1, int edge2) {
+            checkChangeable();
+        }
+
+        @Override
+        public void setFirstAndLastOrigEdges(long edgePointer, int origFirst, int origLast) {
+            checkChangeable();
+        }
+
+        @Override
+        void checkChangeable() {
+            throw new IllegalStateException("The shortcuts of " + chProfile + " are compact and cannot be changed");
+        }
+
+        @Override
+        public String toString() {
+            return "compact ch edge access " + name + ", bits for node: " + nodeBits + ", node delta: " + nodeDeltaBits
+                    + ", edge: " + edgeBits + ", flags: " + flagBits + ", original edge: " + origBits;
+        }
+    }
+
     private abstract class CommonCHEdgeIteratorState implements CHEdgeIteratorState {
         final BaseGraph.CommonEdgeIterator edgeIterable;
 
@@ -750,13 +1008,13 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
         @Override
         public final int getSkippedEdge1() {
             checkShortcut(true, "getSkippedEdge1");
-            return shortcuts.getInt(edgeIterable.edgePointer + S_SKIP_EDGE1);
+            return chEdgeAccess.getSkippedEdge1(edgeIterable.edgePointer);
         }
 
         @Override
         public final int getSkippedEdge2() {
             checkShortcut(true, "getSkippedEdge2");
-            return shortcuts.getInt(edgeIterable.edgePointer + S_SKIP_EDGE2);
+            return chEdgeAccess.getSkippedEdge2(edgeIterable.edgePointer);
         }
 
         @Override
@@ -764,7 +1022,7 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
             if (!isShortcut() || !chProfile.isEdgeBased()) {
                 return getEdge();
             }
-            return shortcuts.getInt(edgeIterable.edgePointer + S_ORIG_FIRST);
+            return chEdgeAccess.getOrigEdgeFirst(edgeIterable.edgePointer);
         }
 
         @Override
@@ -772,7 +1030,7 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
             if (!isShortcut() || !chProfile.isEdgeBased()) {
                 return getEdge();
             }
-            return shortcuts.getInt(edgeIterable.edgePointer + S_ORIG_LAST);
+            return chEdgeAccess.getOrigEdgeLast(edgeIterable.edgePointer);
         }
 
         @Override
@@ -21,6 +21,7 @@ public class CHProfile {
     private final Weighting weighting;
     private final boolean edgeBased;
     private final int uTurnCosts;
+    private final boolean compactShortcuts;
 
     public static CHProfile nodeBased(Weighting weighting) {
         return new CHProfile(weighting, TraversalMode.NODE_BASED, INFINITE_U_TURN_COSTS);
@@ -47,6 +48,16 @@ public class CHProfile {
      *                   will be infinite
      */
     public CHProfile(Weighting weighting, boolean edgeBased, int uTurnCosts) {
+        this(weighting, edgeBased, uTurnCosts, false);
+    }
+
+    /**
+     * @param compactShortcuts true if the shortcuts should be bit-packed after the preparation, which needs less memory
+     *                         but makes queries a bit slower. This does not change the routing results and therefore
+     *                         it is not considered for the equality of profiles. A prepared graph is only loaded if
+     *                         its shortcuts have the configured layout.
+     */
+    public CHProfile(Weighting weighting, boolean edgeBased, int uTurnCosts, boolean compactShortcuts) {
         if (!edgeBased && uTurnCosts != INFINITE_U_TURN_COSTS) {
             throw new IllegalArgumentException("Finite u-turn costs are only allowed for edge-based CH");
         }
@@ -56,6 +67,7 @@ public class CHProfile {
             throw new IllegalArgumentException("u-turn costs must be positive, or equal to " + INFINITE_U_TURN_COSTS + " (=infinite costs)");
         }
         this.uTurnCosts = uTurnCosts < 0 ? INFINITE_U_TURN_COSTS : uTurnCosts;
+        this.compactShortcuts = compactShortcuts;
     }
 
     public Weighting getWeighting() {
@@ -66,6 +78,10 @@ public class CHProfile {
         return edgeBased;
     }
 
+    public boolean isCompactShortcuts() {
+        return compactShortcuts;
+    }
+
     public double getUTurnCosts() {
         return uTurnCosts < 0 ? Double.POSITIVE_INFINITY : uTurnCosts;
     }
@@ -49,8 +49,6 @@ abstract class EdgeAccess {
 
     abstract void setEdgeRef(int nodeId, int edgeId);
 
-    abstract int getEntryBytes();
-
     final void invalidateEdge(long edgePointer) {
         edges.setInt(edgePointer + E_NODEB, NO_NODE);
     }
@@ -94,19 +92,19 @@ abstract class EdgeAccess {
         return newEdgeId;
     }
 
-    final int getNodeA(long edgePointer) {
+    int getNodeA(long edgePointer) {
         return edges.getInt(edgePointer + E_NODEA);
     }
 
-    final int getNodeB(long edgePointer) {
+    int getNodeB(long edgePointer) {
         return edges.getInt(edgePointer + E_NODEB);
     }
 
-    final int getLinkA(long edgePointer) {
+    int getLinkA(long edgePointer) {
         return edges.getInt(edgePointer + E_LINKA);
     }
 
-    final int getLinkB(long edgePointer) {
+    int getLinkB(long edgePointer) {
         return edges.getInt(edgePointer + E_LINKB);
     }
 
@@ -0,0 +1,92 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.carrotsearch.hppc.IntObjectMap;
+import com.carrotsearch.hppc.cursors.IntObjectCursor;
+import com.graphhopper.coll.GHIntObjectHashMap;
+
+/**
+ * An immutable set of edge flags that replace the flags stored in the edges DataAccess. It is used to change edges
+ * (e.g. via GraphHopper.changeGraph) while routing requests are running: a new version is created from the previous
+ * one and the changes and published atomically, and a request keeps the version it acquired via
+ * {@link GraphHopperStorage#createSnapshot()}. So a search never sees a half-applied change and the writer never has
+ * to wait for running searches. Once no request uses an older version the flags are written to the edges DataAccess
+ * and the overlay is replaced by an empty one of the same version.
+ *
+ * @see GraphHopperStorage#changeEdgeFlags(IntObjectMap)
+ */
+final class EdgeFlagsOverlay {
+    private final GHIntObjectHashMap<IntsRef> flags;
+    private final int version;
+
+    private EdgeFlagsOverlay(GHIntObjectHashMap<IntsRef> flags, int version) {
+        this.flags = flags;
+        this.version = version;
+    }
+
+    static EdgeFlagsOverlay empty(int version) {
+        return new EdgeFlagsOverlay(new GHIntObjectHashMap<IntsRef>(0), version);
+    }
+
+    /**
+     * @return the next version containing the flags of this overlay and the specified changes. This overlay is not
+     * modified.
+     */
+    EdgeFlagsOverlay with(IntObjectMap<IntsRef> changes) {
+        GHIntObjectHashMap<IntsRef> newFlags = new GHIntObjectHashMap<>(flags.size() + changes.size());
+        newFlags.putAll(flags);
+        for (IntObjectCursor<IntsRef> c : changes) {
+            // the caller could modify the flags afterwards
+            newFlags.put(c.key, IntsRef.deepCopyOf(c.value));
+        }
+        return new EdgeFlagsOverlay(newFlags, version + 1);
+    }
+
+    /**
+     * Overwrites the specified edge flags if this overlay contains the specified edge.
+     */
+    void apply(int edgeId, IntsRef edgeFlags) {
+        if (flags.isEmpty())
+            return;
+        IntsRef changed = flags.get(edgeId);
+        if (changed != null)
+            System.arraycopy(changed.ints, changed.offset, edgeFlags.ints, edgeFlags.offset, changed.length);
+    }
+
+    IntObjectMap<IntsRef> getFlags() {
+        return flags;
+    }
+
+    boolean isEmpty() {
+        return flags.isEmpty();
+    }
+
+    int size() {
+        return flags.size();
+    }
+
+    int getVersion() {
+        return version;
+    }
+
+    @Override
+    public String toString() {
+        return "edge flags overlay, version:" + version + ", edges:" + flags.size();
+    }
+}
@@ -125,12 +125,21 @@ public class GHDirectory implements Directory {
 
     @Override
     public void remove(DataAccess da) {
+        remove(da, true);
+    }
+
+    /**
+     * Removes and closes the specified object. If the backing file is kept the object can be found and loaded
+     * again later.
+     */
+    public void remove(DataAccess da, boolean removeBackingFile) {
         DataAccess old = map.remove(da.getName());
         if (old == null)
             throw new IllegalStateException("Couldn't remove DataAccess: " + da.getName());
 
         da.close();
-        removeBackingFile(da, da.getName());
+        if (removeBackingFile)
+            removeBackingFile(da, da.getName());
     }
 
     private void removeBackingFile(DataAccess da, String name) {
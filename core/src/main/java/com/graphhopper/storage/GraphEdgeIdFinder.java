@@ -20,10 +20,13 @@ package com.graphhopper.storage;
 import com.graphhopper.coll.GHBitSet;
 import com.graphhopper.coll.GHIntHashSet;
 import com.graphhopper.coll.GHTBitSet;
+import com.graphhopper.routing.querygraph.QueryGraph;
 import com.graphhopper.routing.util.EdgeFilter;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.QueryResult;
 import com.graphhopper.util.BreadthFirstSearch;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
 import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.PointList;
 import com.graphhopper.util.shapes.Polygon;
@@ -191,12 +194,45 @@ public class GraphEdgeIdFinder {
      * This class handles edges and areas where access should be blocked.
      */
     public static class BlockArea {
-        final GHIntHashSet blockedEdges = new GHIntHashSet();
-        final List<Shape> blockedShapes = new ArrayList<>();
+        final GHIntHashSet blockedEdges;
+        final List<Shape> blockedShapes;
+        // the virtual edges of a QueryGraph that were split from a blocked edge
+        private final GHIntHashSet blockedVirtualEdges;
         private final NodeAccess na;
 
         public BlockArea(Graph g) {
-            na = g.getNodeAccess();
+            this(new GHIntHashSet(), new ArrayList<Shape>(), new GHIntHashSet(), g.getNodeAccess());
+        }
+
+        private BlockArea(GHIntHashSet blockedEdges, List<Shape> blockedShapes, GHIntHashSet blockedVirtualEdges, NodeAccess na) {
+            this.blockedEdges = blockedEdges;
+            this.blockedShapes = blockedShapes;
+            this.blockedVirtualEdges = blockedVirtualEdges;
+            this.na = na;
+        }
+
+        /**
+         * @return a BlockArea with the same blocked edges and shapes for the specified graph, e.g. for the QueryGraph
+         * of a request if this BlockArea was created for the base graph. Both share the edges and shapes, so this
+         * BlockArea must not be changed afterwards.
+         */
+        public BlockArea forGraph(Graph graph) {
+            GHIntHashSet virtualEdges = new GHIntHashSet();
+            if (graph instanceof QueryGraph && !blockedEdges.isEmpty()) {
+                QueryGraph queryGraph = (QueryGraph) graph;
+                EdgeExplorer explorer = queryGraph.createEdgeExplorer();
+                // the virtual nodes are the last nodes of a QueryGraph
+                for (int node = queryGraph.getNodes() - 1; queryGraph.isVirtualNode(node); node--) {
+                    if (!blockedEdges.contains(queryGraph.getOriginalEdgeFromVirtNode(node).getEdge()))
+                        continue;
+
+                    EdgeIterator iter = explorer.setBaseNode(node);
+                    while (iter.next()) {
+                        virtualEdges.add(iter.getEdge());
+                    }
+                }
+            }
+            return new BlockArea(blockedEdges, blockedShapes, virtualEdges, graph.getNodeAccess());
         }
 
         public void add(int edgeId) {
@@ -215,6 +251,10 @@ public class GraphEdgeIdFinder {
                 return true;
             }
 
+            if (!blockedVirtualEdges.isEmpty() && blockedVirtualEdges.contains(edgeState.getEdge())) {
+                return true;
+            }
+
             if (!blockedShapes.isEmpty() && na != null) {
                 for (Shape shape : blockedShapes) {
                     if (shape.contains(na.getLatitude(edgeState.getAdjNode()), na.getLongitude(edgeState.getAdjNode())))
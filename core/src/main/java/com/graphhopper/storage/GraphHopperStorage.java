@@ -17,6 +17,7 @@
  */
 package com.graphhopper.storage;
 
+import com.carrotsearch.hppc.IntObjectMap;
 import com.graphhopper.routing.util.AllEdgesIterator;
 import com.graphhopper.routing.util.EdgeFilter;
 import com.graphhopper.routing.util.EncodingManager;
@@ -310,6 +311,36 @@ public final class GraphHopperStorage implements GraphStorage, Graph {
         return result;
     }
 
+    /**
+     * Changes the flags of the specified edges without blocking concurrent routing requests. Every snapshot created
+     * before this call keeps reading the previous flags, so a search on it sees a consistent graph. This method is
+     * thread-safe, but callers that calculate the new flags from the current ones have to avoid concurrent updates of
+     * the same edge themselves. Do not change these edges via EdgeIteratorState afterwards as the new flags can shadow
+     * such changes until they are written to the edges.
+     *
+     * @param changes the new flags per edge id
+     * @see com.graphhopper.storage.change.ChangeGraphHelper
+     */
+    public void changeEdgeFlags(IntObjectMap<IntsRef> changes) {
+        baseGraph.changeEdgeFlags(changes);
+    }
+
+    /**
+     * @return the number of edges changed via changeEdgeFlags whose flags are not yet written to the edges because
+     * older snapshots are still in use
+     */
+    public int getChangedEdges() {
+        return baseGraph.getChangedEdges();
+    }
+
+    /**
+     * Creates a view of the base graph that does not see the edge flags changed afterwards via changeEdgeFlags. The
+     * snapshot has to be released, until then changed flags are kept in memory and flush waits.
+     */
+    public GraphSnapshot createSnapshot() {
+        return new GraphSnapshot(baseGraph);
+    }
+
     @Override
     public void flush() {
         for (CHGraphImpl cg : chGraphs) {
@@ -0,0 +1,144 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.shapes.BBox;
+
+/**
+ * A read-only view of the base graph whose edges keep the flags they had when the snapshot was created, even if they
+ * are changed via GraphHopperStorage.changeEdgeFlags afterwards. A request creates one snapshot, passes it to the
+ * QueryGraph and calls release when it is done.
+ *
+ * @see GraphHopperStorage#createSnapshot()
+ */
+public final class GraphSnapshot implements Graph {
+    private final BaseGraph baseGraph;
+    private final EdgeFlagsOverlay flagsOverlay;
+    private boolean released;
+
+    GraphSnapshot(BaseGraph baseGraph) {
+        this.baseGraph = baseGraph;
+        this.flagsOverlay = baseGraph.acquireFlagsOverlay();
+    }
+
+    /**
+     * Allows the changed edge flags to be written to the edges. The edges of this snapshot must not be used
+     * afterwards.
+     */
+    public void release() {
+        if (released)
+            throw new IllegalStateException("Snapshot was already released");
+        released = true;
+        baseGraph.releaseFlagsOverlay(flagsOverlay);
+    }
+
+    /**
+     * @return the version of the edge flags of this snapshot. It is increased by every change of the edge flags.
+     */
+    public int getFlagsVersion() {
+        return flagsOverlay.getVersion();
+    }
+
+    @Override
+    public Graph getBaseGraph() {
+        return this;
+    }
+
+    @Override
+    public int getNodes() {
+        return baseGraph.getNodes();
+    }
+
+    @Override
+    public int getEdges() {
+        return baseGraph.getEdges();
+    }
+
+    @Override
+    public NodeAccess getNodeAccess() {
+        return baseGraph.getNodeAccess();
+    }
+
+    @Override
+    public BBox getBounds() {
+        return baseGraph.getBounds();
+    }
+
+    @Override
+    public EdgeIteratorState edge(int a, int b) {
+        throw exc();
+    }
+
+    @Override
+    public EdgeIteratorState edge(int a, int b, double distance, boolean bothDirections) {
+        throw exc();
+    }
+
+    @Override
+    public EdgeIteratorState getEdgeIteratorState(int edgeId, int adjNode) {
+        return baseGraph.getEdgeIteratorState(edgeId, adjNode, flagsOverlay);
+    }
+
+    @Override
+    public int getOtherNode(int edge, int node) {
+        return baseGraph.getOtherNode(edge, node);
+    }
+
+    @Override
+    public boolean isAdjacentToNode(int edge, int node) {
+        return baseGraph.isAdjacentToNode(edge, node);
+    }
+
+    @Override
+    public AllEdgesIterator getAllEdges() {
+        return baseGraph.getAllEdges(flagsOverlay);
+    }
+
+    @Override
+    public EdgeExplorer createEdgeExplorer(EdgeFilter filter) {
+        return baseGraph.createEdgeExplorer(filter, flagsOverlay);
+    }
+
+    @Override
+    public EdgeExplorer createEdgeExplorer() {
+        return createEdgeExplorer(EdgeFilter.ALL_EDGES);
+    }
+
+    @Override
+    public Graph copyTo(Graph g) {
+        throw exc();
+    }
+
+    @Override
+    public TurnCostStorage getTurnCostStorage() {
+        return baseGraph.getTurnCostStorage();
+    }
+
+    private UnsupportedOperationException exc() {
+        return new UnsupportedOperationException("GraphSnapshot cannot be modified.");
+    }
+
+    @Override
+    public String toString() {
+        return "graph snapshot, " + flagsOverlay;
+    }
+}
@@ -17,6 +17,7 @@
  */
 package com.graphhopper.storage;
 
+import com.carrotsearch.hppc.IntIndexedContainer;
 import com.graphhopper.routing.profiles.DecimalEncodedValue;
 import com.graphhopper.routing.profiles.EncodedValueLookup;
 import com.graphhopper.routing.profiles.TurnCost;
@@ -261,6 +262,31 @@ public class TurnCostStorage implements Storable<TurnCostStorage> {
         return turnCostStorage;
     }
 
+    /**
+     * Copies the entries into the specified storage of a graph with the same nodes and edges but different ids, e.g.
+     * a sorted graph. Entries of nodes or edges without a new id (-1) are skipped.
+     *
+     * @param oldToNewNodes the new node id for every node of this storage
+     * @param oldToNewEdges the new edge id for every edge of this storage
+     */
+    public TurnCostStorage copyTo(TurnCostStorage turnCostStorage, IntIndexedContainer oldToNewNodes, IntIndexedContainer oldToNewEdges) {
+        IntsRef tcFlags = TurnCost.createFlags();
+        for (int node = 0; node < oldToNewNodes.size(); node++) {
+            int newNode = oldToNewNodes.get(node);
+            int turnCostIndex = nodeAccess.getTurnCostIndex(node);
+            while (turnCostIndex != NO_TURN_ENTRY) {
+                long turnCostPtr = (long) turnCostIndex * BYTES_PER_ENTRY;
+                int newFromEdge = oldToNewEdges.get(turnCosts.getInt(turnCostPtr + TC_FROM));
+                int newToEdge = oldToNewEdges.get(turnCosts.getInt(turnCostPtr + TC_TO));
+                tcFlags.ints[0] = turnCosts.getInt(turnCostPtr + TC_FLAGS);
+                if (newNode >= 0 && newFromEdge >= 0 && newToEdge >= 0)
+                    turnCostStorage.setOrMerge(tcFlags, newFromEdge, newNode, newToEdge, false);
+                turnCostIndex = turnCosts.getInt(turnCostPtr + TC_NEXT);
+            }
+        }
+        return turnCostStorage;
+    }
+
     @Override
     public boolean isClosed() {
         return turnCosts.isClosed();
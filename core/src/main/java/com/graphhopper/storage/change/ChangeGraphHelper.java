@@ -18,7 +18,9 @@
 package com.graphhopper.storage.change;
 
 import com.carrotsearch.hppc.cursors.IntCursor;
+import com.carrotsearch.hppc.cursors.IntObjectCursor;
 import com.graphhopper.coll.GHIntHashSet;
+import com.graphhopper.coll.GHIntObjectHashMap;
 import com.graphhopper.json.geo.JsonFeature;
 import com.graphhopper.routing.profiles.BooleanEncodedValue;
 import com.graphhopper.routing.profiles.DecimalEncodedValue;
@@ -28,8 +30,12 @@ import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.routing.util.FlagEncoder;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.GraphEdgeIdFinder;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.IntsRef;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.PointList;
+import com.graphhopper.util.shapes.BBox;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -41,7 +47,8 @@ import java.util.Map;
 /**
  * This graph applies permanent changes passed as JsonFeature to the specified graph.
  * <p>
- * This class is not thread-safe. It is currently only safe to use it via GraphHopper.changeGraph
+ * This class is not thread-safe and concurrent changes of the same graph must be avoided. It is currently only safe
+ * to use it via GraphHopper.changeGraph
  *
  * @author Peter Karich
  */
@@ -50,6 +57,7 @@ public class ChangeGraphHelper {
     private final Graph graph;
     private final GraphEdgeIdFinder graphBrowser;
     private boolean enableLogging = false;
+    private BBox changedBounds;
 
     public ChangeGraphHelper(Graph graph, LocationIndex locationIndex) {
         this.graph = graph;
@@ -61,7 +69,17 @@ public class ChangeGraphHelper {
     }
 
     /**
-     * This method applies changes to the graph, specified by the json features.
+     * @return the bounds of the geometries of the edges changed by the last call of applyChanges or null if no edge
+     * was changed
+     */
+    public BBox getChangedBounds() {
+        return changedBounds;
+    }
+
+    /**
+     * This method applies changes to the graph, specified by the json features. If the graph is a
+     * GraphHopperStorage the changed edge flags are published at once via GraphHopperStorage.changeEdgeFlags, i.e.
+     * concurrent routing requests are not blocked and do not see only a part of the changes.
      *
      * @return number of successfully applied edge changes
      */
@@ -69,6 +87,9 @@ public class ChangeGraphHelper {
         if (em == null)
             throw new NullPointerException("EncodingManager cannot be null to change existing graph");
 
+        changedBounds = null;
+        // the expensive edge lookups happen before anything gets published
+        GHIntObjectHashMap<IntsRef> changedFlags = new GHIntObjectHashMap<>();
         long updates = 0;
         for (JsonFeature jsonFeature : features) {
             if (!jsonFeature.hasProperties())
@@ -77,19 +98,37 @@ public class ChangeGraphHelper {
             List<String> encodersAsStr = (List) jsonFeature.getProperty("vehicles");
             if (encodersAsStr == null) {
                 for (FlagEncoder encoder : em.fetchEdgeEncoders()) {
-                    updates += applyChange(jsonFeature, encoder);
+                    updates += applyChange(jsonFeature, encoder, changedFlags);
                 }
             } else {
                 for (String encoderStr : encodersAsStr) {
-                    updates += applyChange(jsonFeature, em.getEncoder(encoderStr));
+                    updates += applyChange(jsonFeature, em.getEncoder(encoderStr), changedFlags);
                 }
             }
         }
 
+        if (changedFlags.isEmpty())
+            return updates;
+
+        changedBounds = BBox.createInverse(false);
+        for (IntObjectCursor<IntsRef> c : changedFlags) {
+            PointList points = graph.getEdgeIteratorState(c.key, Integer.MIN_VALUE).fetchWayGeometry(3);
+            for (int i = 0; i < points.size(); i++) {
+                changedBounds.update(points.getLat(i), points.getLon(i));
+            }
+        }
+
+        if (graph instanceof GraphHopperStorage) {
+            ((GraphHopperStorage) graph).changeEdgeFlags(changedFlags);
+        } else {
+            for (IntObjectCursor<IntsRef> c : changedFlags) {
+                graph.getEdgeIteratorState(c.key, Integer.MIN_VALUE).setFlags(c.value);
+            }
+        }
         return updates;
     }
 
-    private long applyChange(JsonFeature jsonFeature, FlagEncoder encoder) {
+    private long applyChange(JsonFeature jsonFeature, FlagEncoder encoder, GHIntObjectHashMap<IntsRef> changedFlags) {
         BooleanEncodedValue accessEnc = encoder.getAccessEnc();
         DecimalEncodedValue avSpeedEnc = encoder.getAverageSpeedEnc();
         long updates = 0;
@@ -106,23 +145,30 @@ public class ChangeGraphHelper {
         Map<String, Object> props = jsonFeature.getProperties();
         while (iter.hasNext()) {
             int edgeId = iter.next().value;
-            EdgeIteratorState edge = graph.getEdgeIteratorState(edgeId, Integer.MIN_VALUE);
+            // the flags are stored in the direction of the edge, so we always use reverse == false
+            IntsRef edgeFlags = changedFlags.get(edgeId);
+            if (edgeFlags == null)
+                edgeFlags = IntsRef.deepCopyOf(graph.getEdgeIteratorState(edgeId, Integer.MIN_VALUE).getFlags());
+
             if (props.containsKey("access")) {
                 boolean value = (boolean) props.get("access");
                 updates++;
                 if (enableLogging)
                     logger.info(encoder.toString() + " - access change via feature " + jsonFeature.getId());
-                edge.set(accessEnc, value).setReverse(accessEnc, value);
+                accessEnc.setBool(false, edgeFlags, value);
+                accessEnc.setBool(true, edgeFlags, value);
+                changedFlags.put(edgeId, edgeFlags);
 
             } else if (props.containsKey("speed")) {
                 // TODO use different speed for the different directions (see e.g. Bike2WeightFlagEncoder)
                 double value = ((Number) props.get("speed")).doubleValue();
-                double oldSpeed = edge.get(avSpeedEnc);
+                double oldSpeed = avSpeedEnc.getDecimal(false, edgeFlags);
                 if (oldSpeed != value) {
                     updates++;
                     if (enableLogging)
                         logger.info(encoder.toString() + " - speed change via feature " + jsonFeature.getId() + ". Old: " + oldSpeed + ", new:" + value);
-                    edge.set(avSpeedEnc, value);
+                    avSpeedEnc.setDecimal(false, edgeFlags, value);
+                    changedFlags.put(edgeId, edgeFlags);
                 }
             }
         }
@@ -17,6 +17,8 @@
  */
 package com.graphhopper.storage.change;
 
+import com.graphhopper.util.shapes.BBox;
+
 /**
  * This class describes the changes that were applied to the graph, currently only used in GraphHopper.changeGraph
  *
@@ -24,12 +26,25 @@ package com.graphhopper.storage.change;
  */
 public class ChangeGraphResponse {
     private final long updates;
+    private final BBox changedBounds;
 
     public ChangeGraphResponse(long updates) {
+        this(updates, null);
+    }
+
+    public ChangeGraphResponse(long updates, BBox changedBounds) {
         this.updates = updates;
+        this.changedBounds = changedBounds;
     }
 
     public long getUpdates() {
         return updates;
     }
+
+    /**
+     * @return the bounds of the changed edges or null if no edge was changed
+     */
+    public BBox getChangedBounds() {
+        return changedBounds;
+    }
 }
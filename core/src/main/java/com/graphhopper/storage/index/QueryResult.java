@@ -53,6 +53,21 @@ public class QueryResult {
         queryPoint = new GHPoint(queryLat, queryLon);
     }
 
+    /**
+     * Creates a copy of this QueryResult, e.g. to use the same lookup result for several QueryGraphs as
+     * QueryGraph.lookup modifies the QueryResults.
+     */
+    public QueryResult copy() {
+        QueryResult copy = new QueryResult(queryPoint.lat, queryPoint.lon);
+        copy.queryDistance = queryDistance;
+        copy.wayIndex = wayIndex;
+        copy.closestNode = closestNode;
+        copy.closestEdge = closestEdge;
+        copy.snappedPoint = snappedPoint;
+        copy.snappedPosition = snappedPosition;
+        return copy;
+    }
+
     /**
      * Returns the closest matching node. This is either a tower node of the base graph
      * or a virtual node (see also {@link QueryGraph#lookup(Graph, List)}).
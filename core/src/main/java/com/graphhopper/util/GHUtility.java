@@ -22,6 +22,7 @@ import com.graphhopper.coll.GHBitSet;
 import com.graphhopper.coll.GHBitSetImpl;
 import com.graphhopper.coll.GHIntArrayList;
 import com.graphhopper.coll.GHTBitSet;
+import com.graphhopper.geohash.HilbertKeyAlgo;
 import com.graphhopper.routing.profiles.*;
 import com.graphhopper.routing.util.*;
 import com.graphhopper.storage.*;
@@ -298,9 +299,6 @@ public class GHUtility {
     }
 
     public static Graph shuffle(Graph g, Graph sortedGraph) {
-        if (g.getTurnCostStorage() != null) {
-            throw new IllegalArgumentException("Shuffling the graph is currently not supported in the presence of turn costs");
-        }
         int nodes = g.getNodes();
         GHIntArrayList list = new GHIntArrayList(nodes);
         list.fill(nodes, -1);
@@ -325,9 +323,6 @@ public class GHUtility {
      * significant difference (bfs) for querying or are worse (z-curve).
      */
     public static Graph sortDFS(Graph g, Graph sortedGraph) {
-        if (g.getTurnCostStorage() != null) {
-            throw new IllegalArgumentException("Sorting the graph is currently not supported in the presence of turn costs");
-        }
         int nodes = g.getNodes();
         final GHIntArrayList nodeList = new GHIntArrayList(nodes);
         nodeList.fill(nodes, -1);
@@ -369,12 +364,52 @@ public class GHUtility {
         return createSortedGraph(g, sortedGraph, nodeList, edgeList);
     }
 
-    static Graph createSortedGraph(Graph fromGraph, Graph toSortedGraph, final IntIndexedContainer oldToNewNodeList, final IntIndexedContainer newToOldEdgeList) {
-        if (fromGraph.getTurnCostStorage() != null) {
-            throw new IllegalArgumentException("Sorting the graph is currently not supported in the presence of turn costs");
+    /**
+     * Sorts the nodes along a Hilbert curve through the bounds of the graph, i.e. nodes that are close to each other
+     * get similar ids. The edges are sorted by their node with the smaller new id. This improves the memory locality
+     * of the nodes and edges that are explored together, e.g. by a routing algorithm or a location lookup.
+     */
+    public static Graph sortHilbert(Graph g, Graph sortedGraph) {
+        int nodes = g.getNodes();
+        // 16 bits per axis, i.e. a precision of ~600m for the world and ~15m for a country
+        HilbertKeyAlgo keyAlgo = new HilbertKeyAlgo(32).setBounds(g.getBounds());
+        NodeAccess na = g.getNodeAccess();
+        // sort by key and then by node id
+        long[] keyAndNode = new long[nodes];
+        for (int node = 0; node < nodes; node++) {
+            keyAndNode[node] = keyAlgo.encode(na.getLatitude(node), na.getLongitude(node)) << 31 | node;
         }
+        Arrays.sort(keyAndNode);
+        GHIntArrayList nodeList = new GHIntArrayList(nodes);
+        nodeList.fill(nodes, -1);
+        for (int i = 0; i < nodes; i++) {
+            nodeList.set((int) (keyAndNode[i] & Integer.MAX_VALUE), i);
+        }
+
+        int edges = g.getEdges();
+        GHIntArrayList edgeList = new GHIntArrayList(edges);
+        GHBitSetImpl edgeBitset = new GHBitSetImpl(edges);
+        EdgeExplorer explorer = g.createEdgeExplorer();
+        for (int i = 0; i < nodes; i++) {
+            EdgeIterator iter = explorer.setBaseNode((int) (keyAndNode[i] & Integer.MAX_VALUE));
+            while (iter.next()) {
+                if (!edgeBitset.contains(iter.getEdge())) {
+                    edgeBitset.add(iter.getEdge());
+                    edgeList.add(iter.getEdge());
+                }
+            }
+        }
+        return createSortedGraph(g, sortedGraph, nodeList, edgeList);
+    }
+
+    /**
+     * Copies the graph with new node and edge ids, the turn costs are copied too.
+     */
+    static Graph createSortedGraph(Graph fromGraph, Graph toSortedGraph, final IntIndexedContainer oldToNewNodeList, final IntIndexedContainer newToOldEdgeList) {
         int edges = fromGraph.getEdges();
-        for (int i = 0; i < edges; i++) {
+        GHIntArrayList oldToNewEdgeList = new GHIntArrayList(edges);
+        oldToNewEdgeList.fill(edges, -1);
+        for (int i = 0; i < newToOldEdgeList.size(); i++) {
             int edgeId = newToOldEdgeList.get(i);
             if (edgeId < 0)
                 continue;
@@ -390,7 +425,8 @@ public class GHUtility {
             if (newBaseIndex < 0 || newAdjIndex < 0)
                 continue;
 
-            toSortedGraph.edge(newBaseIndex, newAdjIndex).copyPropertiesFrom(eIter);
+            EdgeIteratorState newEdge = toSortedGraph.edge(newBaseIndex, newAdjIndex).copyPropertiesFrom(eIter);
+            oldToNewEdgeList.set(edgeId, newEdge.getEdge());
         }
 
         int nodes = fromGraph.getNodes();
@@ -403,6 +439,9 @@ public class GHUtility {
             else
                 sna.setNode(newIndex, na.getLatitude(old), na.getLongitude(old));
         }
+
+        if (fromGraph.getTurnCostStorage() != null)
+            fromGraph.getTurnCostStorage().copyTo(toSortedGraph.getTurnCostStorage(), oldToNewNodeList, oldToNewEdgeList);
         return toSortedGraph;
     }
 
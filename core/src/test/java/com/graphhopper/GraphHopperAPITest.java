@@ -18,6 +18,7 @@
 package com.graphhopper;
 
 import com.graphhopper.json.geo.JsonFeature;
+import com.graphhopper.routing.RouteCache;
 import com.graphhopper.routing.util.CarFlagEncoder;
 import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.routing.util.parsers.OSMRoadEnvironmentParser;
@@ -28,8 +29,10 @@ import com.graphhopper.storage.NodeAccess;
 import com.graphhopper.storage.change.ChangeGraphHelper;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.util.Helper;
+import com.graphhopper.util.Parameters;
 import com.graphhopper.util.PointList;
 import com.graphhopper.util.shapes.BBox;
+import com.graphhopper.util.shapes.GHPoint;
 import org.junit.Test;
 
 import java.io.File;
@@ -90,6 +93,52 @@ public class GraphHopperAPITest {
         instance.close();
     }
 
+    @Test
+    public void testRouteBatch() {
+        GraphHopperStorage graph = new GraphBuilder(encodingManager).create();
+        initGraph(graph);
+        NodeAccess na = graph.getNodeAccess();
+        na.setNode(4, 41.9, 10.2);
+        graph.edge(1, 2, 10, false);
+        graph.edge(0, 4, 40, true);
+        graph.edge(4, 3, 40, true);
+
+        GraphHopper instance = new GraphHopper().
+                setStoreOnFlush(false).
+                setEncodingManager(encodingManager).setCHEnabled(false).
+                setBatchThreads(2).
+                loadGraph(graph);
+        List<GHRequest> requests = Arrays.asList(
+                new GHRequest(42, 10.4, 42, 10),
+                new GHRequest(42, 10, 42, 10.4),
+                new GHRequest(42, 10, 42.1, 10.1).setAlgorithm(Parameters.Algorithms.ALT_ROUTE),
+                new GHRequest(42, 10.4, 50, 10),
+                new GHRequest(Collections.singletonList(new GHPoint(42, 10))));
+        List<GHResponse> responses = instance.routeBatch(requests);
+        assertEquals(requests.size(), responses.size());
+        assertEquals(80, responses.get(0).getBest().getDistance(), 1e-6);
+        assertEquals(80, responses.get(1).getBest().getDistance(), 1e-6);
+        for (int i = 0; i < requests.size(); i++) {
+            GHResponse rsp = instance.route(requests.get(i));
+            assertEquals(rsp.hasErrors(), responses.get(i).hasErrors());
+            if (rsp.hasErrors()) {
+                assertEquals(rsp.getErrors().get(0).getClass(), responses.get(i).getErrors().get(0).getClass());
+            } else {
+                assertEquals(rsp.getBest().getDistance(), responses.get(i).getBest().getDistance(), 1e-6);
+                assertEquals(rsp.getBest().getPoints(), responses.get(i).getBest().getPoints());
+            }
+        }
+
+        instance.setMaxBatchSize(4);
+        try {
+            instance.routeBatch(requests);
+            fail();
+        } catch (IllegalArgumentException ex) {
+            assertEquals("The number of requests of a batch has to be below or equal to:4 but was 5", ex.getMessage());
+        }
+        instance.close();
+    }
+
     @Test
     public void testDisconnected179() {
         GraphHopperStorage graph = new GraphBuilder(encodingManager).create();
@@ -197,7 +246,7 @@ public class GraphHopperAPITest {
                 return new ChangeGraphHelper(graph, locationIndex) {
                     @Override
                     public long applyChanges(EncodingManager em, Collection<JsonFeature> features) {
-                        // force sleep inside the lock and let the main thread run until the lock barrier
+                        // force sleep while changing and let the main thread route in the meantime
                         latch.countDown();
                         try {
                             Thread.sleep(400);
@@ -235,13 +284,45 @@ public class GraphHopperAPITest {
 
         latch.await();
         assertEquals(0, checkPointCounter.get());
+        // routing does not wait for the change and still sees the old graph
         rsp = graphHopper.route(new GHRequest(42, 10.4, 42, 10));
         assertFalse(rsp.toString(), rsp.hasErrors());
-        assertEquals(8400, rsp.getBest().getTime());
+        assertEquals(1800, rsp.getBest().getTime());
+        assertEquals(0, checkPointCounter.get());
 
         executorService.shutdown();
         executorService.awaitTermination(3, TimeUnit.SECONDS);
-
         assertEquals(2, checkPointCounter.get());
+
+        rsp = graphHopper.route(new GHRequest(42, 10.4, 42, 10));
+        assertFalse(rsp.toString(), rsp.hasErrors());
+        assertEquals(8400, rsp.getBest().getTime());
+    }
+
+    @Test
+    public void testRouteCacheIsInvalidatedByGraphChange() {
+        final GraphHopperStorage graph = new GraphBuilder(encodingManager).create();
+        initGraph(graph);
+        graph.edge(1, 2, 10, true);
+
+        GraphHopper graphHopper = new GraphHopper().setStoreOnFlush(false).setEncodingManager(encodingManager).
+                setCHEnabled(false).setRouteCache(new RouteCache(Helper.MB)).loadGraph(graph);
+        for (int i = 0; i < 2; i++) {
+            GHResponse rsp = graphHopper.route(new GHRequest(42, 10.4, 42, 10));
+            assertFalse(rsp.toString(), rsp.hasErrors());
+            assertEquals(1800, rsp.getBest().getTime());
+        }
+        assertEquals(1, graphHopper.getRouteCache().getHits());
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("speed", 5);
+        graphHopper.changeGraph(Collections.singletonList(new JsonFeature("1", "bbox",
+                new BBox(10.399, 10.4, 42.0, 42.001), null, properties)));
+        assertEquals(0, graphHopper.getRouteCache().getSize());
+
+        GHResponse rsp = graphHopper.route(new GHRequest(42, 10.4, 42, 10));
+        assertFalse(rsp.toString(), rsp.hasErrors());
+        assertEquals(8400, rsp.getBest().getTime());
+        assertEquals(1, graphHopper.getRouteCache().getHits());
     }
 }
@@ -0,0 +1,103 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import com.carrotsearch.hppc.LongIntHashMap;
+import com.carrotsearch.hppc.cursors.LongIntCursor;
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.RAMDirectory;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class GHLongIntPagedMapTest {
+    @Test
+    public void testPutAndGet() {
+        GHLongIntPagedMap map = new GHLongIntPagedMap(new RAMDirectory(), DAType.RAM_INT, 4, -1);
+        assertEquals(-1, map.get(10));
+        assertEquals(-1, map.put(10, 3));
+        assertEquals(-1, map.put(3, 5));
+        assertEquals(-1, map.put(-7, 8));
+        assertEquals(-1, map.put(Long.MAX_VALUE, 2));
+        assertEquals(3, map.put(10, 4));
+        assertEquals(4, map.getSize());
+
+        assertEquals(4, map.get(10));
+        assertEquals(5, map.get(3));
+        assertEquals(8, map.get(-7));
+        assertEquals(2, map.get(Long.MAX_VALUE));
+        assertEquals(-1, map.get(4));
+        assertEquals(-1, map.get(7));
+        assertEquals(-1, map.get(-1));
+        assertEquals(-1, map.get(26));
+
+        try {
+            map.put(12, -1);
+            fail("the value marking missing entries cannot be stored");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testDensePage() {
+        GHLongIntPagedMap map = new GHLongIntPagedMap(new RAMDirectory(), DAType.RAM_INT, 4, -1);
+        // the page is converted to a dense one after 8 of 16 keys
+        for (int i = 15; i >= 0; i -= 2) {
+            map.put(32 + i, i);
+        }
+        map.put(32 + 4, 4);
+        map.put(32 + 1, 11);
+        assertEquals(9, map.getSize());
+        for (int i = 0; i < 16; i++) {
+            int expected = i == 1 ? 11 : i % 2 == 1 || i == 4 ? i : -1;
+            assertEquals("key " + (32 + i), expected, map.get(32 + i));
+        }
+        assertEquals(-1, map.get(31));
+        assertEquals(-1, map.get(48));
+    }
+
+    @Test
+    public void testRandom() {
+        long seed = System.nanoTime();
+        Random rand = new Random(seed);
+        GHLongIntPagedMap map = new GHLongIntPagedMap(new RAMDirectory(), DAType.RAM_INT, 8, -1);
+        LongIntHashMap expected = new LongIntHashMap();
+        for (int i = 0; i < 50_000; i++) {
+            // mostly dense areas with some outliers like the OSM ids
+            long key = rand.nextInt(10) == 0 ? rand.nextLong() : rand.nextInt(100_000);
+            int value = rand.nextInt(1000);
+            int oldValue = expected.containsKey(key) ? expected.get(key) : -1;
+            expected.put(key, value);
+            assertEquals("seed: " + seed + ", key: " + key, oldValue, map.put(key, value));
+        }
+
+        assertEquals(expected.size(), map.getSize());
+        for (LongIntCursor c : expected) {
+            assertEquals("seed: " + seed + ", key: " + c.key, c.value, map.get(c.key));
+        }
+        for (int i = 0; i < 1000; i++) {
+            long key = rand.nextLong();
+            if (!expected.containsKey(key))
+                assertEquals(-1, map.get(key));
+        }
+    }
+}
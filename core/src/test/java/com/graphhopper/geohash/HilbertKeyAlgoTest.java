@@ -0,0 +1,83 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.geohash;
+
+import com.graphhopper.util.shapes.GHPoint;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class HilbertKeyAlgoTest {
+    @Test
+    public void testEncode() {
+        // 4x4 cells of 1x1 degree
+        KeyAlgo algo = new HilbertKeyAlgo(4).setBounds(0, 4, 0, 4);
+        long[][] expected = {
+                {5, 6, 9, 10},
+                {4, 7, 8, 11},
+                {3, 2, 13, 12},
+                {0, 1, 14, 15}};
+        for (int row = 0; row < 4; row++) {
+            for (int col = 0; col < 4; col++) {
+                double lat = 3.5 - row, lon = col + 0.5;
+                assertEquals(lat + "," + lon, expected[row][col], algo.encode(lat, lon));
+            }
+        }
+    }
+
+    @Test
+    public void testDecode() {
+        KeyAlgo algo = new HilbertKeyAlgo(4).setBounds(0, 4, 0, 4);
+        GHPoint latLon = new GHPoint();
+        // the center of the cell
+        algo.decode(7, latLon);
+        assertEquals(2.5, latLon.lat, 1e-7);
+        assertEquals(1.5, latLon.lon, 1e-7);
+
+        algo.decode(14, latLon);
+        assertEquals(0.5, latLon.lat, 1e-7);
+        assertEquals(2.5, latLon.lon, 1e-7);
+    }
+
+    @Test
+    public void testConsecutiveKeysAreNeighbours() {
+        int bits = 12;
+        KeyAlgo algo = new HilbertKeyAlgo(bits).setBounds(0, 64, 0, 64);
+        GHPoint prev = new GHPoint(), curr = new GHPoint();
+        algo.decode(0, prev);
+        for (long key = 1; key < 1L << bits; key++) {
+            algo.decode(key, curr);
+            assertEquals("key " + key, 1, Math.abs(curr.lat - prev.lat) + Math.abs(curr.lon - prev.lon), 1e-7);
+            assertEquals("key " + key, key, algo.encode(curr));
+            GHPoint tmp = prev;
+            prev = curr;
+            curr = tmp;
+        }
+    }
+
+    @Test
+    public void testBitsMustBeEven() {
+        try {
+            new HilbertKeyAlgo(5);
+            fail();
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+}
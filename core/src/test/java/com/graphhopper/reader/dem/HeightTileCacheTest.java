@@ -0,0 +1,81 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.dem;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HeightTileCacheTest {
+    private SRTMProvider instance;
+
+    @After
+    public void tearDown() {
+        instance.release();
+    }
+
+    @Test
+    public void testEvictLeastRecentlyUsedTile() {
+        instance = new SRTMProvider("./files/");
+        // every tile needs 3MB
+        HeightTileCache tileCache = new HeightTileCache(7 * 1024 * 1024);
+        instance.setTileCache(tileCache);
+        assertEquals(466, instance.getEle(49.968651, 11.574869), 1e-1);
+        assertEquals(1678, instance.getEle(-28.88316, -71.070557), 1e-1);
+        assertEquals(2, tileCache.size());
+
+        assertEquals(161, instance.getEle(55.8943144, -3), 1e-1);
+        assertEquals(2, tileCache.size());
+        assertEquals(6 * 1024 * 1024, tileCache.getBytes());
+
+        // the evicted tile is loaded again from its DataAccess
+        assertEquals(466, instance.getEle(49.968651, 11.574869), 1e-1);
+        assertEquals(330, instance.getEle(49.958233, 11.558647), 1e-1);
+        assertEquals(2, tileCache.size());
+    }
+
+    @Test
+    public void testDoNotEvictTileInUse() {
+        instance = new SRTMProvider("./files/");
+        HeightTileCache tileCache = new HeightTileCache(0);
+        instance.setTileCache(tileCache);
+        HeightTile tile = instance.acquireTile("dem" + instance.calcIntKey(49.968651, 11.574869), 49.968651, 11.574869);
+        assertEquals(161, instance.getEle(55.8943144, -3), 1e-1);
+        assertEquals(1, tileCache.size());
+        assertEquals(466, tile.getHeight(49.968651, 11.574869), 1e-1);
+
+        tileCache.release(tile);
+        assertEquals(0, tileCache.size());
+        assertEquals(0, tileCache.getBytes());
+    }
+
+    @Test
+    public void testShareCacheInMultiSourceProvider() {
+        instance = new SRTMProvider("./files/");
+        SRTMProvider other = new SRTMProvider("./files/");
+        HeightTileCache tileCache = new HeightTileCache();
+        new MultiSourceElevationProvider(instance, other).setTileCache(tileCache);
+        assertEquals(466, instance.getEle(49.968651, 11.574869), 1e-1);
+        assertEquals(1678, other.getEle(-28.88316, -71.070557), 1e-1);
+        assertEquals(2, tileCache.size());
+
+        other.release();
+        assertEquals(1, tileCache.size());
+    }
+}
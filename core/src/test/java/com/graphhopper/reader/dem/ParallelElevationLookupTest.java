@@ -0,0 +1,53 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.dem;
+
+import com.graphhopper.util.PointList;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ParallelElevationLookupTest {
+    private SRTMProvider instance;
+
+    @After
+    public void tearDown() {
+        instance.release();
+    }
+
+    @Test
+    public void testSetElevations() {
+        instance = new SRTMProvider("./files/");
+        instance.setTileCache(new HeightTileCache(0));
+        PointList points = new PointList(10, true);
+        points.add(49.968651, 11.574869, Double.NaN);
+        points.add(-28.88316, -71.070557, Double.NaN);
+        points.add(55.8943144, -3, Double.NaN);
+        points.add(55.4711873, 19.2501641, Double.NaN);
+        points.add(49.958233, 11.558647, Double.NaN);
+
+        new ParallelElevationLookup(instance, 3).setElevations(points, points.size());
+        assertEquals(466, points.getEle(0), 1e-1);
+        assertEquals(1678, points.getEle(1), 1e-1);
+        assertEquals(161, points.getEle(2), 1e-1);
+        assertEquals(0, points.getEle(3), 1e-1);
+        assertEquals(330, points.getEle(4), 1e-1);
+        assertEquals(49.958233, points.getLat(4), 1e-6);
+    }
+}
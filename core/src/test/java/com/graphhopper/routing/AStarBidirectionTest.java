@@ -17,19 +17,23 @@
  */
 package com.graphhopper.routing;
 
+import com.carrotsearch.hppc.IntObjectMap;
 import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.routing.util.FlagEncoder;
 import com.graphhopper.routing.util.TraversalMode;
 import com.graphhopper.routing.weighting.ShortestWeighting;
+import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.GraphBuilder;
 import com.graphhopper.storage.SPTEntry;
+import com.graphhopper.util.GHUtility;
 import org.junit.Test;
 
+import java.util.Random;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static com.graphhopper.util.GHUtility.updateDistancesFor;
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
 /**
  * Run some tests specific for {@link AStarBidirection}
@@ -48,6 +52,64 @@ public class AStarBidirectionTest {
         doTestInitFromAndTo(TraversalMode.EDGE_BASED);
     }
 
+    @Test
+    public void testReset() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        Graph g = new GraphBuilder(encodingManager).create();
+        GHUtility.buildRandomGraph(g, rnd, 100, 2.2, true, true, carEncoder.getAverageSpeedEnc(), 0.7, 0.8, 0.8);
+        for (TraversalMode traversalMode : TraversalMode.values()) {
+            Weighting weighting = new ShortestWeighting(carEncoder);
+            AStarBidirection aStarBi = new AStarBidirection(g, weighting, traversalMode);
+            DijkstraBidirectionRef dijkstraBi = new DijkstraBidirectionRef(g, weighting, traversalMode);
+            AStar aStar = new AStar(g, weighting, traversalMode);
+            Dijkstra dijkstra = new Dijkstra(g, weighting, traversalMode);
+            for (int i = 0; i < 50; i++) {
+                int from = rnd.nextInt(g.getNodes());
+                int to = rnd.nextInt(g.getNodes());
+                Path expected = new DijkstraBidirectionRef(g, weighting, traversalMode).calcPath(from, to);
+                String msg = "seed: " + seed + ", " + traversalMode + ", " + from + "->" + to;
+                assertSamePath(msg, expected, aStarBi.calcPath(from, to));
+                aStarBi.reset();
+                assertSamePath(msg, expected, dijkstraBi.calcPath(from, to));
+                dijkstraBi.reset();
+                assertSamePath(msg, expected, aStar.calcPath(from, to));
+                aStar.reset();
+                assertSamePath(msg, expected, dijkstra.calcPath(from, to));
+                dijkstra.reset();
+            }
+        }
+    }
+
+    private static void assertSamePath(String msg, Path expected, Path path) {
+        assertEquals(msg, expected.isFound(), path.isFound());
+        assertEquals(msg, expected.getWeight(), path.getWeight(), 1.e-6);
+    }
+
+    @Test
+    public void testReleasedCollectionsAreReused() {
+        Graph g = new GraphBuilder(encodingManager).create();
+        g.edge(0, 1, 1, true);
+        g.edge(1, 2, 1, true);
+        updateDistancesFor(g, 0, 0.00, 0.00);
+        updateDistancesFor(g, 1, 0.01, 0.01);
+        updateDistancesFor(g, 2, 0.02, 0.02);
+
+        AStarBidirection astar = new AStarBidirection(g, new ShortestWeighting(carEncoder), TraversalMode.NODE_BASED);
+        assertEquals(2, astar.calcPath(0, 2).getEdgeCount());
+        IntObjectMap<SPTEntry> map = astar.bestWeightMapFrom;
+        assertFalse(map.isEmpty());
+        astar.release();
+
+        DijkstraBidirectionRef dijkstra = new DijkstraBidirectionRef(g, new ShortestWeighting(carEncoder), TraversalMode.NODE_BASED);
+        assertSame(map, dijkstra.bestWeightMapFrom);
+        assertTrue(map.isEmpty());
+        assertEquals(2, dijkstra.calcPath(2, 0).getEdgeCount());
+        // not released, so the next algorithm gets new collections
+        assertNotSame(map, new DijkstraBidirectionRef(g, new ShortestWeighting(carEncoder), TraversalMode.NODE_BASED).bestWeightMapFrom);
+        dijkstra.release();
+    }
+
     private void doTestInitFromAndTo(final TraversalMode traversalMode) {
         Graph g = new GraphBuilder(encodingManager).create();
         g.edge(0, 1, 1, true);
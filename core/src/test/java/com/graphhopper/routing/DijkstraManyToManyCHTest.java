@@ -0,0 +1,166 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.ch.CHRoutingAlgorithmFactory;
+import com.graphhopper.routing.ch.PrepareContractionHierarchies;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.routing.weighting.ShortestWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.*;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.QueryResult;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.shapes.BBox;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DijkstraManyToManyCHTest {
+    private CarFlagEncoder encoder;
+    private GraphHopperStorage graph;
+    private CHGraph chGraph;
+
+    @Before
+    public void init() {
+        encoder = new CarFlagEncoder();
+        EncodingManager em = EncodingManager.create(encoder);
+        graph = new GraphBuilder(em).setCHProfiles(CHProfile.nodeBased(new ShortestWeighting(encoder))).create();
+        chGraph = graph.getCHGraph();
+    }
+
+    @Test
+    public void testSmallGraph() {
+        // 0-1-2-3
+        //   |   |
+        //   4-5-6
+        graph.edge(0, 1, 1, true);
+        graph.edge(1, 2, 1, true);
+        graph.edge(2, 3, 1, true);
+        graph.edge(1, 4, 2, true);
+        graph.edge(4, 5, 1, true);
+        graph.edge(5, 6, 1, true);
+        graph.edge(3, 6, 5, false);
+        // node 7 is disconnected
+        graph.getNodeAccess().setNode(7, 0, 0);
+        MatrixResult result = prepareAndCreateAlgo().calcMatrix(new int[]{0, 6, 7}, new int[]{3, 6, 0, 7});
+
+        assertEquals(3, result.getWeight(0, 0), 1.e-6);
+        assertEquals(5, result.getWeight(0, 1), 1.e-6);
+        assertEquals(0, result.getWeight(0, 2), 1.e-6);
+        assertFalse(result.isConnected(0, 3));
+        assertEquals(5, result.getDistance(0, 1), 1.e-6);
+
+        // 3->6 is one-way so going back is longer
+        assertEquals(6, result.getWeight(1, 0), 1.e-6);
+        assertEquals(0, result.getWeight(1, 1), 1.e-6);
+        assertEquals(0, result.getTime(1, 1));
+        assertEquals(5, result.getWeight(1, 2), 1.e-6);
+
+        assertFalse(result.isConnected(2, 0));
+        assertEquals(Double.MAX_VALUE, result.getWeight(2, 0), 1.e-6);
+        assertEquals(Long.MAX_VALUE, result.getTime(2, 0));
+        assertEquals(0, result.getWeight(2, 3), 1.e-6);
+    }
+
+    @Test
+    public void testWithoutTimesAndDistances() {
+        graph.edge(0, 1, 1, true);
+        graph.edge(1, 2, 1, true);
+        MatrixResult result = prepareAndCreateAlgo().setCalcTimesAndDistances(false).calcMatrix(new int[]{0}, new int[]{2});
+        assertEquals(2, result.getWeight(0, 0), 1.e-6);
+        assertFalse(result.hasTimesAndDistances());
+        try {
+            result.getTime(0, 0);
+            fail("times were not calculated");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testRandomGraphWithVirtualNodes() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        encoder = new CarFlagEncoder();
+        EncodingManager em = EncodingManager.create(encoder);
+        Weighting weighting = new FastestWeighting(encoder);
+        graph = new GraphBuilder(em).setCHProfiles(CHProfile.nodeBased(weighting)).create();
+        chGraph = graph.getCHGraph();
+        GHUtility.buildRandomGraph(graph, rnd, 100, 2.5, true, true, encoder.getAverageSpeedEnc(), 0.7, 0.9, 0);
+        LocationIndexTree index = new LocationIndexTree(graph, new RAMDirectory());
+        index.prepareIndex();
+        PrepareContractionHierarchies pch = prepare();
+
+        BBox bbox = graph.getBounds();
+        List<QueryResult> qrs = new ArrayList<>();
+        while (qrs.size() < 20) {
+            QueryResult qr = index.findClosest(bbox.minLat + rnd.nextDouble() * (bbox.maxLat - bbox.minLat),
+                    bbox.minLon + rnd.nextDouble() * (bbox.maxLon - bbox.minLon), EdgeFilter.ALL_EDGES);
+            if (qr.isValid())
+                qrs.add(qr);
+        }
+        QueryGraph queryGraph = QueryGraph.lookup(graph, qrs);
+        QueryGraph chQueryGraph = QueryGraph.lookup(chGraph, qrs);
+        int[] fromNodes = new int[12];
+        int[] toNodes = new int[8];
+        for (int i = 0; i < fromNodes.length; i++) {
+            fromNodes[i] = qrs.get(i).getClosestNode();
+        }
+        for (int i = 0; i < toNodes.length; i++) {
+            toNodes[i] = qrs.get(fromNodes.length + i).getClosestNode();
+        }
+
+        MatrixResult result = ((CHRoutingAlgorithmFactory) pch.getRoutingAlgorithmFactory()).
+                createManyToManyAlgo(chQueryGraph).calcMatrix(fromNodes, toNodes);
+        for (int i = 0; i < fromNodes.length; i++) {
+            for (int j = 0; j < toNodes.length; j++) {
+                Path refPath = new Dijkstra(queryGraph, weighting, TraversalMode.NODE_BASED).calcPath(fromNodes[i], toNodes[j]);
+                String msg = "seed: " + seed + ", " + fromNodes[i] + "->" + toNodes[j];
+                assertEquals(msg, refPath.isFound(), result.isConnected(i, j));
+                if (!refPath.isFound())
+                    continue;
+
+                assertEquals(msg, refPath.getWeight(), result.getWeight(i, j), 1.e-2);
+                assertEquals(msg, refPath.getDistance(), result.getDistance(i, j), 1.e-1);
+                assertEquals(msg, refPath.getTime(), result.getTime(i, j), 50);
+            }
+        }
+    }
+
+    private PrepareContractionHierarchies prepare() {
+        graph.freeze();
+        PrepareContractionHierarchies pch = PrepareContractionHierarchies.fromGraphHopperStorage(graph, chGraph.getCHProfile());
+        pch.doWork();
+        return pch;
+    }
+
+    private DijkstraManyToManyCH prepareAndCreateAlgo() {
+        return ((CHRoutingAlgorithmFactory) prepare().getRoutingAlgorithmFactory()).createManyToManyAlgo(chGraph);
+    }
+}
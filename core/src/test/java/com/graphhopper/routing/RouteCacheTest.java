@@ -0,0 +1,202 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.coll.GHIntObjectHashMap;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.template.ViaRoutingTemplate;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.GraphSnapshot;
+import com.graphhopper.storage.IntsRef;
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.storage.index.LocationIndex;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.QueryResult;
+import com.graphhopper.util.Parameters.Routing;
+import com.graphhopper.util.shapes.GHPoint;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static com.graphhopper.util.GHUtility.updateDistancesFor;
+import static com.graphhopper.util.Parameters.Algorithms.DIJKSTRA_BI;
+import static org.junit.Assert.*;
+
+public class RouteCacheTest {
+    private final FlagEncoder carFE = new CarFlagEncoder();
+    private final EncodingManager em = EncodingManager.create(carFE);
+    private final AlgorithmOptions algoOpts = new AlgorithmOptions(DIJKSTRA_BI, new FastestWeighting(carFE), TraversalMode.NODE_BASED);
+    private GraphHopperStorage graph;
+    private LocationIndex locationIndex;
+
+    @Before
+    public void setUp() {
+        // 0-1-2
+        // |   |
+        // 5-4-3
+        graph = new GraphHopperStorage(new RAMDirectory(), em, false).create(1000);
+        for (int i = 0; i < 6; i++) {
+            graph.edge(i, (i + 1) % 6, 1, true);
+        }
+        updateDistancesFor(graph, 0, 0.02, 0);
+        updateDistancesFor(graph, 1, 0.02, 0.01);
+        updateDistancesFor(graph, 2, 0.02, 0.02);
+        updateDistancesFor(graph, 3, 0, 0.02);
+        updateDistancesFor(graph, 4, 0, 0.01);
+        updateDistancesFor(graph, 5, 0, 0);
+        locationIndex = new LocationIndexTree(graph, new RAMDirectory()).prepareIndex();
+    }
+
+    @Test
+    public void testCachedPathsOfNewQueryGraph() {
+        RouteCache cache = new RouteCache(10_000);
+        GHRequest request = new GHRequest(Arrays.asList(new GHPoint(0.02, 0.005), new GHPoint(0, 0.015), new GHPoint(0.01, 0.02)));
+        List<Path> paths = calcPaths(cache, request);
+        assertEquals(0, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getSize());
+
+        List<Path> cachedPaths = calcPaths(cache, request);
+        assertEquals(1, cache.getHits());
+        assertEquals(0.5, cache.getHitRate(), 1e-6);
+        assertEquals(2, cachedPaths.size());
+        for (int i = 0; i < paths.size(); i++) {
+            assertNotSame(paths.get(i), cachedPaths.get(i));
+            assertEquals(paths.get(i).calcNodes(), cachedPaths.get(i).calcNodes());
+            assertEquals(paths.get(i).calcPoints(), cachedPaths.get(i).calcPoints());
+            assertEquals(paths.get(i).getDistance(), cachedPaths.get(i).getDistance(), 1e-6);
+            assertEquals(paths.get(i).getTime(), cachedPaths.get(i).getTime());
+            assertEquals(paths.get(i).getWeight(), cachedPaths.get(i).getWeight(), 1e-6);
+        }
+
+        // the hints that only change the response do not change the key
+        request.getHints().put(Routing.INSTRUCTIONS, false);
+        calcPaths(cache, request);
+        assertEquals(2, cache.getHits());
+
+        request.getHints().put(Routing.PASS_THROUGH, true);
+        calcPaths(cache, request);
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.getSize());
+
+        // a different snapped point
+        calcPaths(cache, new GHRequest(Arrays.asList(new GHPoint(0.02, 0.006), new GHPoint(0, 0.015), new GHPoint(0.01, 0.02))));
+        assertEquals(2, cache.getHits());
+        assertEquals(3, cache.getSize());
+    }
+
+    @Test
+    public void testInvalidate() {
+        RouteCache cache = new RouteCache(10_000);
+        GHRequest request = new GHRequest(new GHPoint(0.02, 0.005), new GHPoint(0, 0.015));
+        calcPaths(cache, request);
+        assertEquals(1, cache.getSize());
+        assertTrue(cache.getUsedBytes() > 0);
+
+        cache.invalidate();
+        assertEquals(0, cache.getSize());
+        assertEquals(0, cache.getUsedBytes());
+    }
+
+    @Test
+    public void testChangedEdgeFlags() {
+        RouteCache cache = new RouteCache(10_000);
+        GHRequest request = new GHRequest(new GHPoint(0.02, 0.005), new GHPoint(0, 0.015));
+        List<QueryResult> queryResults = lookup(request);
+        GraphSnapshot oldSnapshot = graph.createSnapshot();
+        RouteCache.Key oldKey = RouteCache.createKey(queryResults, request, algoOpts, oldSnapshot);
+        Path oldPath = calcPath(QueryGraph.lookup(oldSnapshot, queryResults), queryResults);
+
+        GHIntObjectHashMap<IntsRef> changes = new GHIntObjectHashMap<>();
+        changes.put(0, IntsRef.deepCopyOf(graph.getEdgeIteratorState(0, 1).getFlags()));
+        graph.changeEdgeFlags(changes);
+
+        // a request that sees the changed edge flags does not get the routes calculated before, even if they are
+        // added after the edge flags changed
+        cache.put(oldKey, Arrays.asList(oldPath));
+        assertEquals(1, cache.getSize());
+        GraphSnapshot snapshot = graph.createSnapshot();
+        RouteCache.Key key = RouteCache.createKey(queryResults, request, algoOpts, snapshot);
+        assertNotEquals(oldKey, key);
+        assertNull(cache.get(key, snapshot));
+
+        // the routes of the old edge flags are removed and not added anymore
+        cache.put(key, Arrays.asList(calcPath(QueryGraph.lookup(snapshot, queryResults), queryResults)));
+        assertEquals(1, cache.getSize());
+        cache.put(oldKey, Arrays.asList(oldPath));
+        assertEquals(1, cache.getSize());
+        assertNull(cache.get(oldKey, oldSnapshot));
+        assertNotNull(cache.get(key, snapshot));
+        oldSnapshot.release();
+        snapshot.release();
+    }
+
+    @Test
+    public void testMaxBytes() {
+        GHRequest request1 = new GHRequest(new GHPoint(0.02, 0.005), new GHPoint(0, 0.015));
+        GHRequest request2 = new GHRequest(new GHPoint(0.02, 0.015), new GHPoint(0, 0.005));
+        RouteCache cache = new RouteCache(10_000);
+        calcPaths(cache, request1);
+        long entryBytes = cache.getUsedBytes();
+
+        cache = new RouteCache(entryBytes + 10);
+        calcPaths(cache, request1);
+        calcPaths(cache, request2);
+        assertEquals(1, cache.getSize());
+        assertTrue(cache.getUsedBytes() <= entryBytes + 10);
+        // the least recently used route was removed
+        calcPaths(cache, request2);
+        assertEquals(1, cache.getHits());
+        calcPaths(cache, request1);
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void testMaxBytesHasToBePositive() {
+        try {
+            new RouteCache(0);
+            fail();
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    private List<QueryResult> lookup(GHRequest request) {
+        return new ViaRoutingTemplate(request, new GHResponse(), locationIndex, em).lookup(request.getPoints(), carFE);
+    }
+
+    private Path calcPath(QueryGraph queryGraph, List<QueryResult> queryResults) {
+        return new RoutingAlgorithmFactorySimple().createAlgo(queryGraph, algoOpts).
+                calcPath(queryResults.get(0).getClosestNode(), queryResults.get(1).getClosestNode());
+    }
+
+    private List<Path> calcPaths(RouteCache cache, GHRequest request) {
+        ViaRoutingTemplate template = new ViaRoutingTemplate(request, new GHResponse(), locationIndex, em).setRouteCache(cache);
+        List<QueryResult> queryResults = template.lookup(request.getPoints(), carFE);
+        return template.calcPaths(QueryGraph.lookup(graph, queryResults), new RoutingAlgorithmFactorySimple(), algoOpts, carFE);
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.graphhopper.routing.Dijkstra;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.routing.weighting.ShortestWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.*;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.QueryResult;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.shapes.BBox;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PhastCHTest {
+    private CarFlagEncoder encoder;
+    private GraphHopperStorage graph;
+    private CHGraph chGraph;
+
+    @Before
+    public void init() {
+        encoder = new CarFlagEncoder();
+        EncodingManager em = EncodingManager.create(encoder);
+        graph = new GraphBuilder(em).setCHProfiles(CHProfile.nodeBased(new ShortestWeighting(encoder))).create();
+        chGraph = graph.getCHGraph();
+    }
+
+    @Test
+    public void testSmallGraph() {
+        // 0-1-2-3
+        //   |   |
+        //   4-5-6
+        graph.edge(0, 1, 1, true);
+        graph.edge(1, 2, 1, true);
+        graph.edge(2, 3, 1, true);
+        graph.edge(1, 4, 2, true);
+        graph.edge(4, 5, 1, true);
+        graph.edge(5, 6, 1, true);
+        graph.edge(3, 6, 5, false);
+        // node 7 is disconnected
+        graph.getNodeAccess().setNode(7, 0, 0);
+        prepare();
+
+        PhastCH phast = new PhastCH(chGraph, new PhastSweep(chGraph, false)).calc(0);
+        double[] expected = {0, 1, 2, 3, 3, 4, 5};
+        for (int node = 0; node < expected.length; node++) {
+            assertTrue(phast.isReached(node));
+            assertEquals("node " + node, expected[node], phast.getWeight(node), 1.e-6);
+            assertEquals("node " + node, expected[node], phast.getDistance(node), 1.e-6);
+        }
+        assertFalse(phast.isReached(7));
+        assertEquals(EdgeIterator.NO_EDGE, phast.getOrigParentEdge(0));
+        assertEquals(5, chGraph.getOtherNode(phast.getOrigParentEdge(6), 6));
+        assertEquals(4, chGraph.getOtherNode(phast.getOrigParentEdge(5), 5));
+
+        // the weights to node 6, 3->6 is one-way
+        phast = new PhastCH(chGraph, new PhastSweep(chGraph, true)).calc(6);
+        expected = new double[]{5, 4, 5, 5, 2, 1, 0};
+        for (int node = 0; node < expected.length; node++) {
+            assertEquals("node " + node, expected[node], phast.getWeight(node), 1.e-6);
+        }
+        assertEquals(6, chGraph.getOtherNode(phast.getOrigParentEdge(3), 3));
+        assertFalse(phast.isReached(7));
+
+        // the instance can be reused
+        phast.calc(7);
+        assertTrue(phast.isReached(7));
+        assertFalse(phast.isReached(6));
+    }
+
+    @Test
+    public void testEdgeBasedIsNotSupported() {
+        encoder = new CarFlagEncoder(5, 5, 10);
+        EncodingManager em = EncodingManager.create(encoder);
+        graph = new GraphBuilder(em).setCHProfiles(CHProfile.edgeBased(new ShortestWeighting(encoder), 60)).create();
+        try {
+            new PhastSweep(graph.getCHGraph(), false);
+            fail();
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testRandomGraph() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        encoder = new CarFlagEncoder();
+        EncodingManager em = EncodingManager.create(encoder);
+        Weighting weighting = new FastestWeighting(encoder);
+        graph = new GraphBuilder(em).setCHProfiles(CHProfile.nodeBased(weighting)).create();
+        chGraph = graph.getCHGraph();
+        GHUtility.buildRandomGraph(graph, rnd, 100, 2.5, true, true, encoder.getAverageSpeedEnc(), 0.7, 0.9, 0);
+        LocationIndexTree index = new LocationIndexTree(graph, new RAMDirectory());
+        index.prepareIndex();
+        prepare();
+
+        for (boolean reverseFlow : new boolean[]{false, true}) {
+            PhastSweep sweep = new PhastSweep(chGraph, reverseFlow);
+            for (int i = 0; i < 5; i++) {
+                BBox bbox = graph.getBounds();
+                QueryResult qr = index.findClosest(bbox.minLat + rnd.nextDouble() * (bbox.maxLat - bbox.minLat),
+                        bbox.minLon + rnd.nextDouble() * (bbox.maxLon - bbox.minLon), EdgeFilter.ALL_EDGES);
+                if (!qr.isValid())
+                    continue;
+
+                QueryGraph queryGraph = QueryGraph.lookup(graph, qr);
+                QueryGraph chQueryGraph = QueryGraph.lookup(chGraph, qr);
+                int start = qr.getClosestNode();
+                PhastCH phast = new PhastCH(chQueryGraph, sweep).calc(start);
+                for (int node = 0; node < graph.getNodes(); node++) {
+                    Path refPath = reverseFlow
+                            ? new Dijkstra(queryGraph, weighting, TraversalMode.NODE_BASED).calcPath(node, start)
+                            : new Dijkstra(queryGraph, weighting, TraversalMode.NODE_BASED).calcPath(start, node);
+                    String msg = "seed: " + seed + ", reverse: " + reverseFlow + ", " + start + "->" + node;
+                    assertEquals(msg, refPath.isFound(), phast.isReached(node));
+                    if (!refPath.isFound())
+                        continue;
+
+                    assertEquals(msg, refPath.getWeight(), phast.getWeight(node), 1.e-2);
+                    assertEquals(msg, refPath.getDistance(), phast.getDistance(node), 1.e-1);
+                    assertEquals(msg, refPath.getTime(), phast.getTime(node), 50);
+                    if (node != start) {
+                        int prevNode = chQueryGraph.getOtherNode(phast.getOrigParentEdge(node), node);
+                        assertTrue(msg, phast.isReached(prevNode));
+                        assertTrue(msg, phast.getWeight(prevNode) < phast.getWeight(node) + 1.e-2);
+                    }
+                }
+            }
+        }
+    }
+
+    private void prepare() {
+        graph.freeze();
+        PrepareContractionHierarchies.fromGraphHopperStorage(graph, chGraph.getCHProfile()).doWork();
+    }
+}
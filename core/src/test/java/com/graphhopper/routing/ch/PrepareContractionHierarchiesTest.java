@@ -666,6 +666,141 @@ public class PrepareContractionHierarchiesTest {
         assertTrue("reusing node ordering should speed up ch contraction", timeMotorCycle < 0.5 * timeCar);
     }
 
+    @Test
+    public void testParallelContraction() {
+        CarFlagEncoder encoder = new CarFlagEncoder();
+        EncodingManager em = EncodingManager.create(encoder);
+        CHProfile profile = CHProfile.nodeBased(new FastestWeighting(encoder));
+        GraphHopperStorage ghStorage = new GraphBuilder(em).setCHProfiles(profile).create();
+        int numNodes = 2_000;
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(ghStorage, rnd, numNodes, 1.3, true, true, encoder.getAverageSpeedEnc(), 0.7, 0.9, 0.8);
+        PrepareContractionHierarchies pch = createPrepareContractionHierarchies(ghStorage, profile).
+                setParams(new PMap().put(CHParameters.CONTRACTION_THREADS, 4));
+        pch.doWork();
+        CHGraph chGraph = ghStorage.getCHGraph(profile);
+        assertTrue(pch.getShortcuts() > 0);
+        assertTrue(pch.getDijkstraCount() > 0);
+
+        // all nodes are contracted and have distinct levels
+        Set<Integer> levels = new HashSet<>();
+        for (int node = 0; node < numNodes; node++) {
+            levels.add(chGraph.getLevel(node));
+        }
+        assertEquals(numNodes, levels.size());
+
+        for (int i = 0; i < 100; ++i) {
+            Dijkstra dijkstra = new Dijkstra(ghStorage, profile.getWeighting(), TraversalMode.NODE_BASED);
+            RoutingAlgorithm chAlgo = pch.getRoutingAlgorithmFactory().createAlgo(chGraph, AlgorithmOptions.start().weighting(profile.getWeighting()).build());
+            int from = rnd.nextInt(numNodes);
+            int to = rnd.nextInt(numNodes);
+            Path refPath = dijkstra.calcPath(from, to);
+            Path chPath = chAlgo.calcPath(from, to);
+            String msg = "seed: " + seed + ", " + from + "->" + to;
+            assertEquals(msg, refPath.isFound(), chPath.isFound());
+            assertEquals(msg, refPath.getWeight(), chPath.getWeight(), 1.e-1);
+        }
+    }
+
+    @Test
+    public void testParallelContractionSmallGraph() {
+        initShortcutsGraph(g);
+        PrepareContractionHierarchies prepare = createPrepareContractionHierarchies(g).
+                setParams(new PMap().put(CHParameters.CONTRACTION_THREADS, 2));
+        prepare.doWork();
+        for (int from = 0; from < g.getNodes(); from++) {
+            for (int to = 0; to < g.getNodes(); to++) {
+                Path refPath = new Dijkstra(g, weighting, tMode).calcPath(from, to);
+                Path path = prepare.getRoutingAlgorithmFactory().createAlgo(lg, new AlgorithmOptions(DIJKSTRA_BI, weighting, tMode)).calcPath(from, to);
+                assertEquals(from + "->" + to, refPath.getWeight(), path.getWeight(), 1.e-6);
+            }
+        }
+    }
+
+    @Test
+    public void testCompactShortcuts() {
+        CarFlagEncoder encoder = new CarFlagEncoder();
+        EncodingManager em = EncodingManager.create(encoder);
+        CHProfile profile = CHProfile.nodeBased(new FastestWeighting(encoder));
+        GraphHopperStorage ghStorage = new GraphBuilder(em).setCHProfiles(profile).create();
+        int numNodes = 1_000;
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(ghStorage, rnd, numNodes, 1.3, true, true, encoder.getAverageSpeedEnc(), 0.7, 0.9, 0.8);
+        PrepareContractionHierarchies pch = createPrepareContractionHierarchies(ghStorage, profile);
+        pch.doWork();
+        CHGraphImpl chGraph = (CHGraphImpl) ghStorage.getCHGraph(profile);
+        assertTrue(pch.getShortcuts() > 0);
+        assertFalse(chGraph.isCompact());
+
+        List<String> shortcuts = getShortcuts(chGraph);
+        int[] queries = new int[200];
+        double[] weights = new double[queries.length / 2];
+        List<IntIndexedContainer> nodes = new ArrayList<>();
+        for (int i = 0; i < weights.length; i++) {
+            queries[2 * i] = rnd.nextInt(numNodes);
+            queries[2 * i + 1] = rnd.nextInt(numNodes);
+            Path path = pch.getRoutingAlgorithmFactory().createAlgo(chGraph, AlgorithmOptions.start().weighting(profile.getWeighting()).build())
+                    .calcPath(queries[2 * i], queries[2 * i + 1]);
+            weights[i] = path.getWeight();
+            nodes.add(path.calcNodes());
+        }
+
+        chGraph.compactShortcuts();
+        assertTrue(chGraph.isCompact());
+        assertEquals(shortcuts, getShortcuts(chGraph));
+        for (int i = 0; i < weights.length; i++) {
+            Path path = pch.getRoutingAlgorithmFactory().createAlgo(chGraph, AlgorithmOptions.start().weighting(profile.getWeighting()).build())
+                    .calcPath(queries[2 * i], queries[2 * i + 1]);
+            String msg = "seed: " + seed + ", " + queries[2 * i] + "->" + queries[2 * i + 1];
+            assertEquals(msg, weights[i], path.getWeight(), 1.e-6);
+            assertEquals(msg, nodes.get(i), path.calcNodes());
+        }
+
+        try {
+            chGraph.shortcut(0, 1, PrepareEncoder.getScDirMask(), 10, 0, 1);
+            fail("compact shortcuts cannot be changed");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testCompactShortcutsViaProfile() {
+        initShortcutsGraph(g);
+        CHProfile compactProfile = new CHProfile(weighting, false, Weighting.INFINITE_U_TURN_COSTS, true);
+        GraphHopperStorage compactGraph = createGHStorage(compactProfile);
+        initShortcutsGraph(compactGraph);
+        PrepareContractionHierarchies prepare = createPrepareContractionHierarchies(g);
+        prepare.doWork();
+        PrepareContractionHierarchies compactPrepare = createPrepareContractionHierarchies(compactGraph, compactProfile);
+        compactPrepare.doWork();
+        CHGraph compactCHGraph = compactGraph.getCHGraph(compactProfile);
+        assertFalse(((CHGraphImpl) lg).isCompact());
+        assertTrue(((CHGraphImpl) compactCHGraph).isCompact());
+        assertEquals(prepare.getShortcuts(), compactPrepare.getShortcuts());
+        for (int from = 0; from < g.getNodes(); from++) {
+            for (int to = 0; to < g.getNodes(); to++) {
+                Path refPath = prepare.getRoutingAlgorithmFactory().createAlgo(lg, new AlgorithmOptions(DIJKSTRA_BI, weighting, tMode)).calcPath(from, to);
+                Path path = compactPrepare.getRoutingAlgorithmFactory().createAlgo(compactCHGraph, new AlgorithmOptions(DIJKSTRA_BI, weighting, tMode)).calcPath(from, to);
+                assertEquals(from + "->" + to, refPath.getWeight(), path.getWeight(), 1.e-6);
+                assertEquals(from + "->" + to, refPath.calcNodes(), path.calcNodes());
+            }
+        }
+    }
+
+    private static List<String> getShortcuts(CHGraph chGraph) {
+        List<String> shortcuts = new ArrayList<>();
+        AllCHEdgesIterator iter = chGraph.getAllEdges();
+        while (iter.next()) {
+            if (iter.isShortcut())
+                shortcuts.add(iter.getBaseNode() + "-" + iter.getAdjNode() + ", skipped: " + iter.getSkippedEdge1() + "," + iter.getSkippedEdge2()
+                        + ", fwd: " + iter.getFwdAccess() + ", bwd: " + iter.getBwdAccess() + ", weight: " + iter.getWeight());
+        }
+        return shortcuts;
+    }
+
     private void checkPath(GraphHopperStorage g, CHProfile p, int expShortcuts, double expDistance, IntIndexedContainer expNodes) {
         CHGraph lg = g.getCHGraph(p);
         PrepareContractionHierarchies prepare = createPrepareContractionHierarchies(g, p);
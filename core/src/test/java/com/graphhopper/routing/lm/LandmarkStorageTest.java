@@ -38,6 +38,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.Arrays;
+import java.util.Random;
 
 import static org.junit.Assert.*;
 
@@ -317,4 +318,28 @@ public class LandmarkStorageTest {
 
         assertEquals((int) Math.pow(2, 13) - 2, storage.getToWeight(0, 9) - storage.getFromWeight(0, 9));
     }
+
+    @Test
+    public void testParallelWeightsSameAsSequential() {
+        long seed = System.nanoTime();
+        GHUtility.buildRandomGraph(ghStorage, new Random(seed), 500, 2.2, true, true, encoder.getAverageSpeedEnc(), 0.7, 0.8, 0.8);
+        LandmarkStorage sequential = new LandmarkStorage(ghStorage, new RAMDirectory(), new FastestWeighting(encoder), 8).setMaximumWeight(10_000);
+        sequential.setMinimumNodes(20);
+        sequential.createLandmarks();
+        LandmarkStorage parallel = new LandmarkStorage(ghStorage, new RAMDirectory(), new FastestWeighting(encoder), 8).setMaximumWeight(10_000).setLandmarkThreads(4);
+        parallel.setMinimumNodes(20);
+        parallel.createLandmarks();
+
+        assertEquals(sequential.getSubnetworksWithLandmarks(), parallel.getSubnetworksWithLandmarks());
+        for (int subnetwork = 1; subnetwork < sequential.getSubnetworksWithLandmarks(); subnetwork++) {
+            assertArrayEquals("seed: " + seed, sequential.getLandmarks(subnetwork), parallel.getLandmarks(subnetwork));
+        }
+        for (int node = 0; node < ghStorage.getNodes(); node++) {
+            assertEquals("seed: " + seed, sequential.getSubnetworkStorage().getSubnetwork(node), parallel.getSubnetworkStorage().getSubnetwork(node));
+            for (int lmIdx = 0; lmIdx < 8; lmIdx++) {
+                assertEquals("seed: " + seed + ", node: " + node, sequential.getFromWeight(lmIdx, node), parallel.getFromWeight(lmIdx, node));
+                assertEquals("seed: " + seed + ", node: " + node, sequential.getToWeight(lmIdx, node), parallel.getToWeight(lmIdx, node));
+            }
+        }
+    }
 }
@@ -0,0 +1,127 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.template;
+
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.routing.AlgorithmOptions;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.RoutingAlgorithmFactorySimple;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.storage.index.LocationIndex;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.QueryResult;
+import com.graphhopper.util.shapes.GHPoint;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static com.graphhopper.util.GHUtility.updateDistancesFor;
+import static com.graphhopper.util.Parameters.Algorithms.DIJKSTRA_BI;
+import static org.junit.Assert.*;
+
+public class ViaRoutingTemplateTest {
+    private final FlagEncoder carFE = new CarFlagEncoder();
+    private final EncodingManager em = EncodingManager.create(carFE);
+    private final List<GHPoint> points = Arrays.asList(new GHPoint(0.03, 0.005), new GHPoint(0, 0.025),
+            new GHPoint(0.015, 0.03), new GHPoint(0.02, 0.015), new GHPoint(0.005, 0));
+    private GraphHopperStorage graph;
+    private LocationIndex locationIndex;
+    private ThreadPoolExecutor legExecutor;
+
+    @Before
+    public void setUp() {
+        // a grid of 4x4 nodes with a distance of 0.01 degrees
+        graph = new GraphHopperStorage(new RAMDirectory(), em, false).create(1000);
+        for (int row = 0; row < 4; row++) {
+            for (int col = 0; col < 4; col++) {
+                int node = row * 4 + col;
+                updateDistancesFor(graph, node, row * 0.01, col * 0.01);
+                if (col < 3)
+                    graph.edge(node, node + 1, 1, true);
+                if (row < 3)
+                    graph.edge(node, node + 4, 1, true);
+            }
+        }
+        locationIndex = new LocationIndexTree(graph, new RAMDirectory()).prepareIndex();
+        legExecutor = new ThreadPoolExecutor(2, 2, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+    }
+
+    @After
+    public void tearDown() {
+        legExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testConcurrentLegs() {
+        GHResponse sequentialRsp = new GHResponse();
+        List<Path> sequentialPaths = calcPaths(new GHRequest(points), sequentialRsp, null, Integer.MAX_VALUE);
+        GHResponse concurrentRsp = new GHResponse();
+        List<Path> concurrentPaths = calcPaths(new GHRequest(points), concurrentRsp, legExecutor, Integer.MAX_VALUE);
+        assertEquals(3, legExecutor.getTaskCount());
+
+        assertEquals(4, concurrentPaths.size());
+        for (int i = 0; i < sequentialPaths.size(); i++) {
+            assertEquals(sequentialPaths.get(i).calcNodes(), concurrentPaths.get(i).calcNodes());
+            assertEquals(sequentialPaths.get(i).getDistance(), concurrentPaths.get(i).getDistance(), 1e-6);
+        }
+        assertEquals(sequentialRsp.getHints().getLong("visited_nodes.sum", -1), concurrentRsp.getHints().getLong("visited_nodes.sum", -2));
+    }
+
+    @Test
+    public void testHeadingsAreCalculatedSequentially() {
+        GHRequest request = new GHRequest(points, Arrays.asList(Double.NaN, 90d, Double.NaN, Double.NaN, Double.NaN));
+        List<Path> paths = calcPaths(request, new GHResponse(), legExecutor, Integer.MAX_VALUE);
+        assertEquals(4, paths.size());
+        assertEquals(0, legExecutor.getTaskCount());
+    }
+
+    @Test
+    public void testMaxVisitedNodesOfConcurrentLeg() {
+        try {
+            calcPaths(new GHRequest(points), new GHResponse(), legExecutor, 2);
+            fail();
+        } catch (IllegalArgumentException ex) {
+            assertEquals("No path found due to maximum nodes exceeded 2", ex.getMessage());
+        }
+    }
+
+    private List<Path> calcPaths(GHRequest request, GHResponse rsp, ExecutorService executor, int maxVisitedNodes) {
+        ViaRoutingTemplate template = new ViaRoutingTemplate(request, rsp, locationIndex, em);
+        if (executor != null)
+            template.setLegExecutor(executor);
+        List<QueryResult> queryResults = template.lookup(request.getPoints(), carFE);
+        AlgorithmOptions algoOpts = AlgorithmOptions.start().algorithm(DIJKSTRA_BI).weighting(new FastestWeighting(carFE)).
+                traversalMode(TraversalMode.NODE_BASED).maxVisitedNodes(maxVisitedNodes).build();
+        return template.calcPaths(QueryGraph.lookup(graph, queryResults), new RoutingAlgorithmFactorySimple(), algoOpts, carFE);
+    }
+}
@@ -39,6 +39,7 @@ import org.junit.Test;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.Collections;
+import java.util.Random;
 
 import static com.graphhopper.util.GHUtility.updateDistancesFor;
 import static junit.framework.TestCase.assertFalse;
@@ -71,6 +72,32 @@ public class SpatialRuleLookupBuilderTest {
         assertEquals(RoadAccess.DESTINATION, spatialRuleLookup.lookupRule(48.210033, 16.363449).getAccess("living_street", TransportationMode.MOTOR_VEHICLE, RoadAccess.YES));
     }
 
+    @Test
+    public void testLookupAtBordersMatchesPolygons() throws IOException {
+        final FileReader reader = new FileReader(COUNTRIES_FILE);
+        SpatialRuleLookupArray spatialRuleLookup = (SpatialRuleLookupArray) SpatialRuleLookupBuilder.buildIndex(Jackson.newObjectMapper().readValue(reader, JsonFeatureCollection.class), "ISO_A3", new CountriesSpatialRuleFactory());
+        // around the borders of Germany and Austria
+        Random random = new Random(123);
+        double[] lats = new double[10_000];
+        double[] lons = new double[lats.length];
+        for (int i = 0; i < lats.length; i++) {
+            lats[i] = 46 + random.nextDouble() * 9;
+            lons[i] = 5 + random.nextDouble() * 13;
+        }
+        SpatialRule[] rules = spatialRuleLookup.lookupRules(lats, lons);
+        for (int i = 0; i < lats.length; i++) {
+            SpatialRule expected = SpatialRule.EMPTY;
+            for (int id = 1; id < spatialRuleLookup.size(); id++) {
+                for (Polygon polygon : spatialRuleLookup.getSpatialRule(id).getBorders()) {
+                    if (polygon.contains(lats[i], lons[i]))
+                        expected = spatialRuleLookup.getSpatialRule(id);
+                }
+            }
+            assertEquals(lats[i] + "," + lons[i], expected, spatialRuleLookup.lookupRule(lats[i], lons[i]));
+            assertEquals(lats[i] + "," + lons[i], expected, rules[i]);
+        }
+    }
+
     @Test
     public void testBounds() throws IOException {
         final FileReader reader = new FileReader(COUNTRIES_FILE);
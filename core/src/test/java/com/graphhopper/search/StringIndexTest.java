@@ -123,6 +123,30 @@ public class StringIndexTest {
         assertEquals("{a=longer name, b=longer name}", index.getAll(cPointer).toString());
     }
 
+    @Test
+    public void putDuplicateEntries() {
+        StringIndex index = create();
+        long aPointer = 0, bPointer = 0;
+        for (int i = 0; i < 5000; i++) {
+            // non-consecutive duplicates and enough different entries to grow the hash table
+            aPointer = index.add(createMap("name", "Main Street", "ref", "B 1"));
+            bPointer = index.add(createMap("name", "Side Street"));
+            index.add(createMap("name", "Street " + i));
+        }
+        assertEquals(1, aPointer);
+        assertEquals(aPointer, index.add(createMap("ref", "B 1", "name", "Main Street")));
+        assertNotEquals(aPointer, index.add(createMap("name", "Main Street")));
+        assertEquals("Side Street", index.get(bPointer, "name"));
+        index.flush();
+
+        // after flushing an entry is only deduplicated against the entries added later
+        long cPointer = index.add(createMap("name", "Side Street"));
+        assertNotEquals(bPointer, cPointer);
+        index.add(createMap("name", "Other Street"));
+        assertEquals(cPointer, index.add(createMap("name", "Side Street")));
+        index.close();
+    }
+
     @Test
     public void testNoErrorOnLargeName() {
         StringIndex index = create();
@@ -0,0 +1,151 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.coll.GHIntHashSet;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.storage.GraphEdgeIdFinder.BlockArea;
+import com.graphhopper.storage.index.LocationIndex;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.QueryResult;
+import com.graphhopper.util.EdgeIterator;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.graphhopper.util.GHUtility.updateDistancesFor;
+import static org.junit.Assert.*;
+
+public class BlockAreaCacheTest {
+    private final FlagEncoder encoder = new CarFlagEncoder();
+    private GraphHopperStorage graph;
+    private LocationIndex locationIndex;
+
+    @Before
+    public void setUp() {
+        graph = new GraphBuilder(EncodingManager.create(encoder)).create();
+        // 0-1-2
+        // | |
+        // 3-4
+        graph.edge(0, 1, 1, true);
+        graph.edge(1, 2, 1, true);
+        graph.edge(3, 4, 1, true);
+        graph.edge(0, 3, 1, true);
+        graph.edge(1, 4, 1, true);
+        updateDistancesFor(graph, 0, 0.01, 0.00);
+        updateDistancesFor(graph, 1, 0.01, 0.01);
+        updateDistancesFor(graph, 2, 0.01, 0.02);
+        updateDistancesFor(graph, 3, 0.00, 0.00);
+        updateDistancesFor(graph, 4, 0.00, 0.01);
+        locationIndex = new LocationIndexTree(graph, new RAMDirectory()).prepareIndex();
+    }
+
+    @Test
+    public void testCachedBlockArea() {
+        BlockAreaCache cache = new BlockAreaCache(graph, locationIndex, 10);
+        BlockArea blockArea = cache.get("0.01,0.005,1", encoder, 1000 * 1000);
+        GHIntHashSet blockedEdges = new GHIntHashSet();
+        blockedEdges.add(0);
+        assertEquals(blockedEdges, blockArea.blockedEdges);
+        assertSame(blockArea, cache.get(" 0.01, 0.005, 1;", encoder, 1000 * 1000));
+        assertEquals(1, cache.getSize());
+
+        // a different maximum area for the edge ids can change the block area
+        assertNotSame(blockArea, cache.get("0.01,0.005,1", encoder, 0));
+        assertEquals(2, cache.getSize());
+
+        cache.invalidate();
+        assertEquals(0, cache.getSize());
+        assertNotSame(blockArea, cache.get("0.01,0.005,1", encoder, 1000 * 1000));
+    }
+
+    @Test
+    public void testMaxSize() {
+        BlockAreaCache cache = new BlockAreaCache(graph, locationIndex, 1);
+        BlockArea blockArea = cache.get("0.01,0.005,1", encoder, 1000 * 1000);
+        cache.get("0,0.005,1", encoder, 1000 * 1000);
+        assertEquals(1, cache.getSize());
+        assertNotSame(blockArea, cache.get("0.01,0.005,1", encoder, 1000 * 1000));
+
+        cache = new BlockAreaCache(graph, locationIndex, 0);
+        blockArea = cache.get("0.01,0.005,1", encoder, 1000 * 1000);
+        assertEquals(0, cache.getSize());
+        assertNotSame(blockArea, cache.get("0.01,0.005,1", encoder, 1000 * 1000));
+    }
+
+    @Test
+    public void testNamedBlockArea() {
+        BlockAreaCache cache = new BlockAreaCache(graph, locationIndex, 0);
+        cache.putNamed("closure_1", "0.01,0.005,1");
+        BlockArea blockArea = cache.get("closure_1", encoder, 1000 * 1000);
+        GHIntHashSet blockedEdges = new GHIntHashSet();
+        blockedEdges.add(0);
+        assertEquals(blockedEdges, blockArea.blockedEdges);
+        // named block areas are kept even if no other block areas are cached
+        assertSame(blockArea, cache.get("closure_1", encoder, 1000 * 1000));
+        assertEquals(1, cache.getSize());
+
+        blockedEdges.add(2);
+        assertEquals(blockedEdges, cache.get("closure_1;0,0.005,1", encoder, 1000 * 1000).blockedEdges);
+
+        try {
+            cache.get("closure_2", encoder, 1000 * 1000);
+            fail();
+        } catch (IllegalArgumentException ex) {
+            assertEquals("Unknown block area closure_2", ex.getMessage());
+        }
+        try {
+            cache.putNamed("Closure", "0.01,0.005,1");
+            fail();
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+        try {
+            cache.putNamed("closure_3", "closure_1;0,0.005,1");
+            fail();
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testVirtualEdgesOfBlockedEdge() {
+        BlockAreaCache cache = new BlockAreaCache(graph, locationIndex, 10);
+        BlockArea blockArea = cache.get("0.01,0.005", encoder, 1000 * 1000);
+        QueryResult qr = locationIndex.findClosest(0.01, 0.003, EdgeFilter.ALL_EDGES);
+        assertEquals(0, qr.getClosestEdge().getEdge());
+        QueryGraph queryGraph = QueryGraph.lookup(graph, qr);
+        BlockArea queryBlockArea = blockArea.forGraph(queryGraph);
+
+        EdgeIterator iter = queryGraph.createEdgeExplorer().setBaseNode(0);
+        int virtualEdges = 0;
+        while (iter.next()) {
+            if (queryGraph.isVirtualEdge(iter.getEdge())) {
+                assertTrue(queryBlockArea.contains(iter));
+                assertFalse(blockArea.contains(iter));
+                virtualEdges++;
+            } else {
+                assertFalse(queryBlockArea.contains(iter));
+            }
+        }
+        assertEquals(1, virtualEdges);
+    }
+}
@@ -67,6 +67,62 @@ public class GraphHopperStorageCHTest extends GraphHopperStorageTest {
         return new GraphBuilder(encodingManager).setCHProfiles(chProfile).setDir(dir).set3D(is3D).setSegmentSize(segmentSize).build();
     }
 
+    @Test
+    public void testCompactShortcutsAfterLoading() {
+        graph = newGHStorage(false, true);
+        graph.edge(0, 1, 10, true);
+        graph.edge(1, 2, 10, true);
+        graph.edge(2, 3, 10, true);
+        graph.freeze();
+        CHGraphImpl chGraph = (CHGraphImpl) getGraph(graph);
+        chGraph.shortcutEdgeBased(0, 2, PrepareEncoder.getScFwdDir(), 20.5, 0, 1, 0, 1);
+        chGraph.shortcutEdgeBased(3, 0, PrepareEncoder.getScDirMask(), 1234.567, 2, 3, 2, 0);
+        chGraph.compactShortcuts();
+        assertTrue(chGraph.isCompact());
+        checkCompactShortcuts(chGraph);
+
+        graph.flush();
+        graph.close();
+
+        graph = newGHStorage(new RAMDirectory(defaultGraphLoc, true), false, true, -1);
+        assertTrue(graph.loadExisting());
+        chGraph = (CHGraphImpl) getGraph(graph);
+        assertTrue(chGraph.isCompact());
+        checkCompactShortcuts(chGraph);
+        try {
+            chGraph.shortcutEdgeBased(1, 3, PrepareEncoder.getScFwdDir(), 20, 1, 2, 1, 2);
+            fail("compact shortcuts cannot be changed");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+    }
+
+    private void checkCompactShortcuts(CHGraph chGraph) {
+        assertEquals(5, chGraph.getEdges());
+        CHEdgeIteratorState sc1 = chGraph.getEdgeIteratorState(3, 2);
+        assertEquals(0, sc1.getBaseNode());
+        assertEquals(2, sc1.getAdjNode());
+        assertEquals(0, sc1.getSkippedEdge1());
+        assertEquals(1, sc1.getSkippedEdge2());
+        assertEquals(0, sc1.getOrigEdgeFirst());
+        assertEquals(1, sc1.getOrigEdgeLast());
+        assertTrue(sc1.getFwdAccess());
+        assertFalse(sc1.getBwdAccess());
+        assertEquals(20.5, sc1.getWeight(), 1.e-3);
+
+        CHEdgeIteratorState sc2 = chGraph.getEdgeIteratorState(4, 0);
+        assertEquals(3, sc2.getBaseNode());
+        assertEquals(2, sc2.getSkippedEdge1());
+        assertEquals(3, sc2.getSkippedEdge2());
+        assertEquals(2, sc2.getOrigEdgeFirst());
+        assertEquals(0, sc2.getOrigEdgeLast());
+        assertTrue(sc2.getFwdAccess());
+        assertTrue(sc2.getBwdAccess());
+        assertEquals(1234.567, sc2.getWeight(), 1.e-3);
+        assertEquals(3, GHUtility.count(chGraph.createEdgeExplorer().setBaseNode(0)));
+        assertEquals(3, GHUtility.count(chGraph.createEdgeExplorer().setBaseNode(2)));
+    }
+
     @Test
     public void testCannotBeLoadedWithNormalGraphHopperStorageClass() {
         graph = newGHStorage(false, false);
@@ -17,6 +17,8 @@
  */
 package com.graphhopper.storage;
 
+import com.graphhopper.coll.GHIntObjectHashMap;
+import com.graphhopper.routing.util.AllEdgesIterator;
 import com.graphhopper.util.*;
 import com.graphhopper.util.shapes.BBox;
 import org.junit.Test;
@@ -280,4 +282,120 @@ public class GraphHopperStorageTest extends AbstractGraphStorageTester {
         assertEquals(13, edge1.getFlags().ints[0]);
     }
 
+    @Test
+    public void testChangeEdgeFlags() throws IOException {
+        graph = newGHStorage(new RAMDirectory(defaultGraphLoc, true), false).create(defaultSize);
+        GHUtility.setProperties(graph.edge(0, 1, 10, true), carEncoder, 60, true, true);
+        GHUtility.setProperties(graph.edge(1, 2, 10, true), carEncoder, 60, true, true);
+        EdgeExplorer explorer = graph.createEdgeExplorer();
+        GraphSnapshot snapshot = graph.createSnapshot();
+        EdgeExplorer oldExplorer = snapshot.createEdgeExplorer();
+
+        IntsRef flags = IntsRef.deepCopyOf(graph.getEdgeIteratorState(1, 2).getFlags());
+        carAvSpeedEnc.setDecimal(false, flags, 20);
+        carAccessEnc.setBool(true, flags, false);
+        GHIntObjectHashMap<IntsRef> changes = new GHIntObjectHashMap<>();
+        changes.put(1, flags);
+        graph.changeEdgeFlags(changes);
+        // modifying the map or flags afterwards must not change the graph
+        carAvSpeedEnc.setDecimal(false, flags, 30);
+        // the snapshot is still in use so the flags are not yet written to the edges
+        assertEquals(1, graph.getChangedEdges());
+
+        // the snapshot created before keeps the old flags
+        EdgeIterator iter = oldExplorer.setBaseNode(2);
+        assertTrue(iter.next());
+        assertEquals(60, iter.get(carAvSpeedEnc), .1);
+        assertTrue(iter.get(carAccessEnc));
+        assertEquals(60, snapshot.getEdgeIteratorState(1, 2).get(carAvSpeedEnc), .1);
+        assertEquals(60, snapshot.getEdgeIteratorState(1, 1).detach(false).get(carAvSpeedEnc), .1);
+        AllEdgesIterator allIter = snapshot.getAllEdges();
+        assertTrue(allIter.next());
+        assertTrue(allIter.next());
+        assertEquals(60, allIter.get(carAvSpeedEnc), .1);
+        // explorers that are not bound to a snapshot read the current flags
+        iter = explorer.setBaseNode(2);
+        assertTrue(iter.next());
+        assertEquals(20, iter.get(carAvSpeedEnc), .1);
+
+        EdgeIteratorState edge = graph.getEdgeIteratorState(1, 2);
+        assertEquals(20, edge.get(carAvSpeedEnc), .1);
+        assertTrue(edge.get(carAccessEnc));
+        assertFalse(edge.getReverse(carAccessEnc));
+        assertEquals(60, graph.getEdgeIteratorState(0, 1).get(carAvSpeedEnc), .1);
+
+        changes.clear();
+        flags = IntsRef.deepCopyOf(graph.getEdgeIteratorState(0, 1).getFlags());
+        carAvSpeedEnc.setDecimal(false, flags, 40);
+        changes.put(0, flags);
+        graph.changeEdgeFlags(changes);
+        assertEquals(2, graph.getChangedEdges());
+        assertEquals(40, graph.getEdgeIteratorState(0, 1).get(carAvSpeedEnc), .1);
+        assertEquals(20, graph.getEdgeIteratorState(1, 2).get(carAvSpeedEnc), .1);
+        assertEquals(60, snapshot.getEdgeIteratorState(0, 1).get(carAvSpeedEnc), .1);
+
+        // a snapshot of the current version does not prevent writing the flags to the edges
+        GraphSnapshot currentSnapshot = graph.createSnapshot();
+        snapshot.release();
+        assertEquals(0, graph.getChangedEdges());
+        assertEquals(40, graph.getEdgeIteratorState(0, 1).get(carAvSpeedEnc), .1);
+        assertEquals(40, currentSnapshot.getEdgeIteratorState(0, 1).get(carAvSpeedEnc), .1);
+        assertEquals(20, currentSnapshot.getEdgeIteratorState(1, 2).get(carAvSpeedEnc), .1);
+        try {
+            snapshot.release();
+            fail("snapshot was already released");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+
+        changes.put(5, flags);
+        try {
+            graph.changeEdgeFlags(changes);
+            fail("edge 5 does not exist");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+
+        // the changed flags are persisted on flush
+        currentSnapshot.release();
+        graph.flush();
+        graph.close();
+        graph = newGHStorage(new MMapDirectory(defaultGraphLoc), false);
+        assertTrue(graph.loadExisting());
+        assertEquals(0, graph.getChangedEdges());
+        assertEquals(40, graph.getEdgeIteratorState(0, 1).get(carAvSpeedEnc), .1);
+        assertEquals(20, graph.getEdgeIteratorState(1, 2).get(carAvSpeedEnc), .1);
+        assertFalse(graph.getEdgeIteratorState(1, 2).getReverse(carAccessEnc));
+    }
+
+    @Test
+    public void testFlushWaitsForOlderSnapshots() throws Exception {
+        graph = newGHStorage(new RAMDirectory(defaultGraphLoc, true), false).create(defaultSize);
+        GHUtility.setProperties(graph.edge(0, 1, 10, true), carEncoder, 60, true, true);
+        final GraphSnapshot snapshot = graph.createSnapshot();
+
+        IntsRef flags = IntsRef.deepCopyOf(graph.getEdgeIteratorState(0, 1).getFlags());
+        carAvSpeedEnc.setDecimal(false, flags, 20);
+        GHIntObjectHashMap<IntsRef> changes = new GHIntObjectHashMap<>();
+        changes.put(0, flags);
+        graph.changeEdgeFlags(changes);
+        assertEquals(1, graph.getChangedEdges());
+
+        Thread flushThread = new Thread() {
+            @Override
+            public void run() {
+                graph.flush();
+            }
+        };
+        flushThread.start();
+        flushThread.join(200);
+        assertTrue(flushThread.isAlive());
+        assertEquals(60, snapshot.getEdgeIteratorState(0, 1).get(carAvSpeedEnc), .1);
+
+        snapshot.release();
+        flushThread.join(5000);
+        assertFalse(flushThread.isAlive());
+        assertEquals(0, graph.getChangedEdges());
+        assertEquals(20, graph.getEdgeIteratorState(0, 1).get(carAvSpeedEnc), .1);
+    }
 }
@@ -18,6 +18,7 @@ import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.LocationIndexTree;
 import com.graphhopper.util.GHUtility;
 import com.graphhopper.util.Helper;
+import com.graphhopper.util.shapes.BBox;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -79,6 +80,8 @@ public class ChangeGraphHelperTest {
         assertEquals(10, newSpeed, .1);
         assertTrue(newSpeed < defaultSpeed);
         assertFalse(GHUtility.getEdge(graph, 3, 4).get(accessEnc));
+        // the changed edges 0-1 and 3-4
+        assertEquals(new BBox(0, 0.01, 0, 0.01), instance.getChangedBounds());
     }
 
     @Test
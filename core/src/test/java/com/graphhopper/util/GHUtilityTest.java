@@ -110,6 +110,45 @@ public class GHUtilityTest {
         assertEquals(1, newG.getEdgeIteratorState(2, Integer.MIN_VALUE).getBaseNode());
     }
 
+    @Test
+    public void testSortHilbert() {
+        Graph g = initUnsorted(createGraph());
+        Graph newG = GHUtility.sortHilbert(g, createGraph());
+        assertEquals(g.getNodes(), newG.getNodes());
+        assertEquals(g.getEdges(), newG.getEdges());
+        assertEquals(getLengthOfAllEdges(g), getLengthOfAllEdges(newG), 1e-4);
+
+        // the nodes are numbered along the curve, i.e. 0, 6, 3, 7, 5, 4, 8, 2, 1
+        NodeAccess na = newG.getNodeAccess();
+        double[] expectedLats = {0, 2.3, 3, 5, 4.2, 2.8, 4.6, 4.5, 2.5};
+        for (int node = 0; node < expectedLats.length; node++) {
+            assertEquals("node " + node, expectedLats[node], na.getLatitude(node), 1e-4);
+        }
+
+        // the edges of node 0 come first
+        assertEquals(0, GHUtility.getEdge(newG, 0, 8).getEdge());
+    }
+
+    @Test
+    public void testSortWithTurnCosts() {
+        CarFlagEncoder encoder = new CarFlagEncoder(5, 5, 3);
+        EncodingManager em = EncodingManager.create(encoder);
+        GraphHopperStorage g = new GraphBuilder(em).withTurnCosts(true).create();
+        initUnsorted(g);
+        g.getTurnCostStorage().setExpensive("car", em, GHUtility.getEdge(g, 8, 2).getEdge(), 8, GHUtility.getEdge(g, 8, 1).getEdge(), 2);
+        g.getTurnCostStorage().setExpensive("car", em, GHUtility.getEdge(g, 1, 0).getEdge(), 1, GHUtility.getEdge(g, 1, 2).getEdge(), 1);
+
+        GraphHopperStorage newG = new GraphBuilder(em).withTurnCosts(true).create();
+        GHUtility.sortHilbert(g, newG);
+        // 8 -> 6, 2 -> 7, 1 -> 8, 0 -> 0
+        assertEquals(2, newG.getTurnCostStorage().getExpensive("car", em, GHUtility.getEdge(newG, 6, 7).getEdge(), 6,
+                GHUtility.getEdge(newG, 6, 8).getEdge()), 1e-4);
+        assertEquals(1, newG.getTurnCostStorage().getExpensive("car", em, GHUtility.getEdge(newG, 8, 0).getEdge(), 8,
+                GHUtility.getEdge(newG, 8, 7).getEdge()), 1e-4);
+        assertEquals(0, newG.getTurnCostStorage().getExpensive("car", em, GHUtility.getEdge(newG, 6, 8).getEdge(), 6,
+                GHUtility.getEdge(newG, 6, 7).getEdge()), 1e-4);
+    }
+
     @Test
     public void testSortDirected() {
         Graph g = createGraph();
@@ -41,10 +41,53 @@ public class ContourBuilder {
     }
 
     public MultiPolygon computeIsoline(double z0) {
+        return computeIsoline(z0, getPrimaryEdges());
+    }
+
+    /**
+     * Computes the isolines for all specified levels with one pass over the edges of the triangulation: every edge is
+     * assigned to the levels it crosses, so that tracing the isoline of a level only visits the edges of this level.
+     * This is much faster than calling {@link #computeIsoline(double)} for every level.
+     *
+     * @param levels the z values of the isolines in strictly ascending order
+     * @return the isolines in the order of the levels
+     */
+    public List<MultiPolygon> computeIsolines(double[] levels) {
+        for (int i = 1; i < levels.length; i++) {
+            if (levels[i] <= levels[i - 1])
+                throw new IllegalArgumentException("The levels have to be in strictly ascending order: " + Arrays.toString(levels));
+        }
+
+        List<List<QuadEdge>> edgesPerLevel = new ArrayList<>(levels.length);
+        for (int i = 0; i < levels.length; i++) {
+            edgesPerLevel.add(new ArrayList<QuadEdge>());
+        }
+        for (QuadEdge e : getPrimaryEdges()) {
+            double za = e.orig().getZ(), zb = e.dest().getZ();
+            double min = Math.min(za, zb), max = Math.max(za, zb);
+            // see cut: the edge is crossed by all levels z0 with min <= z0 < max
+            for (int i = firstLevelNotBelow(levels, min); i < levels.length && levels[i] < max; i++) {
+                edgesPerLevel.get(i).add(e);
+            }
+        }
+
+        List<MultiPolygon> isolines = new ArrayList<>(levels.length);
+        for (int i = 0; i < levels.length; i++) {
+            isolines.add(computeIsoline(levels[i], edgesPerLevel.get(i)));
+        }
+        return isolines;
+    }
+
+    private static int firstLevelNotBelow(double[] levels, double z) {
+        int index = Arrays.binarySearch(levels, z);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private MultiPolygon computeIsoline(double z0, Collection<QuadEdge> edges) {
         Set<QuadEdge> processed = new HashSet<>();
         List<LinearRing> rings = new ArrayList<>();
 
-        Queue<QuadEdge> processQ = new ArrayDeque<>(getPrimaryEdges());
+        Queue<QuadEdge> processQ = new ArrayDeque<>(edges);
         while (!processQ.isEmpty()) {
             QuadEdge e = processQ.remove();
             if (processed.contains(e))
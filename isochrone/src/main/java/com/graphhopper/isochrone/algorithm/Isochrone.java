@@ -23,6 +23,7 @@ import com.graphhopper.coll.GHIntObjectHashMap;
 import com.graphhopper.routing.AbstractRoutingAlgorithm;
 import com.graphhopper.routing.Path;
 import com.graphhopper.routing.PathExtractor;
+import com.graphhopper.routing.ch.PhastCH;
 import com.graphhopper.routing.util.TraversalMode;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.Graph;
@@ -71,12 +72,24 @@ public class Isochrone extends AbstractRoutingAlgorithm {
     private double finishLimit = -1;
     private ExploreType exploreType = TIME;
     private final boolean reverseFlow;
+    private final PhastCH phast;
 
     public Isochrone(Graph g, Weighting weighting, boolean reverseFlow) {
         super(g, weighting, TraversalMode.NODE_BASED);
         fromHeap = new PriorityQueue<>(1000);
         fromMap = new GHIntObjectHashMap<>(1000);
         this.reverseFlow = reverseFlow;
+        this.phast = null;
+    }
+
+    /**
+     * Calculates the labels of all nodes with PHAST on a CH graph instead of a Dijkstra that is limited by the time or
+     * distance. This is faster for large limits.
+     */
+    public Isochrone(PhastCH phast) {
+        super(phast.getGraph(), phast.getWeighting(), TraversalMode.NODE_BASED);
+        this.reverseFlow = phast.isReverseFlow();
+        this.phast = phast;
     }
 
     @Override
@@ -125,7 +138,7 @@ public class Isochrone extends AbstractRoutingAlgorithm {
         searchInternal(from);
 
         final NodeAccess na = graph.getNodeAccess();
-        fromMap.forEach(new IntObjectProcedure<IsoLabel>() {
+        forEachLabel(new IntObjectProcedure<IsoLabel>() {
 
             @Override
             public void apply(int nodeId, IsoLabel label) {
@@ -162,7 +175,7 @@ public class Isochrone extends AbstractRoutingAlgorithm {
             buckets.add(new ArrayList<Coordinate>());
         }
         final NodeAccess na = graph.getNodeAccess();
-        fromMap.forEach(new IntObjectProcedure<IsoLabel>() {
+        forEachLabel(new IntObjectProcedure<IsoLabel>() {
 
             @Override
             public void apply(int nodeId, IsoLabel label) {
@@ -199,7 +212,7 @@ public class Isochrone extends AbstractRoutingAlgorithm {
             list.add(new HashSet<Integer>());
         }
 
-        fromMap.forEach(new IntObjectProcedure<IsoLabel>() {
+        forEachLabel(new IntObjectProcedure<IsoLabel>() {
 
             @Override
             public void apply(int nodeId, IsoLabel label) {
@@ -222,9 +235,43 @@ public class Isochrone extends AbstractRoutingAlgorithm {
         return list;
     }
 
+    /**
+     * Calls the procedure for all labels that were found by the search. For PHAST only the labels up to the finish
+     * limit are used and the parent label is created for the previous node of the last original edge.
+     */
+    private void forEachLabel(IntObjectProcedure<IsoLabel> procedure) {
+        if (phast == null) {
+            fromMap.forEach(procedure);
+            return;
+        }
+
+        for (int node = 0; node < graph.getNodes(); node++) {
+            if (!phast.isReached(node))
+                continue;
+
+            IsoLabel label = createPhastLabel(node);
+            if (getExploreValue(label) > finishLimit)
+                continue;
+
+            if (EdgeIterator.Edge.isValid(label.edge))
+                label.parent = createPhastLabel(graph.getOtherNode(label.edge, node));
+            procedure.apply(node, label);
+        }
+    }
+
+    private IsoLabel createPhastLabel(int node) {
+        return new IsoLabel(phast.getOrigParentEdge(node), node, phast.getWeight(node), phast.getTime(node), phast.getDistance(node));
+    }
+
     private void searchInternal(int from) {
         checkAlreadyRun();
         currEdge = new IsoLabel(-1, from, 0, 0, 0);
+        if (phast != null) {
+            phast.calc(from);
+            visitedNodes = phast.getVisitedNodes();
+            return;
+        }
+
         fromMap.put(from, currEdge);
         EdgeExplorer explorer = reverseFlow ? inEdgeExplorer : outEdgeExplorer;
         while (true) {
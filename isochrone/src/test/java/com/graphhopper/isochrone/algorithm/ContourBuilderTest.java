@@ -0,0 +1,72 @@
+package com.graphhopper.isochrone.algorithm;
+
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.triangulate.ConformingDelaunayTriangulator;
+import org.locationtech.jts.triangulate.ConstraintVertex;
+import org.locationtech.jts.triangulate.quadedge.QuadEdgeSubdivision;
+import org.locationtech.jts.triangulate.quadedge.Vertex;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ContourBuilderTest {
+
+    @Test
+    public void testComputeIsolinesEqualsSingleIsolines() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        // the z value increases with the distance to the center like for an isochrone
+        Collection<ConstraintVertex> sites = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            Coordinate coord = new Coordinate(rnd.nextDouble() * 10, rnd.nextDouble() * 10);
+            ConstraintVertex site = new ConstraintVertex(coord);
+            site.setZ(Math.floor(coord.distance(new Coordinate(5, 5)) + rnd.nextDouble()));
+            sites.add(site);
+        }
+        ContourBuilder contourBuilder = new ContourBuilder(triangulate(sites));
+
+        double[] levels = {0.5, 1.5, 2.5, 3.5, 4.5, 5.5};
+        List<MultiPolygon> isolines = contourBuilder.computeIsolines(levels);
+        assertEquals(levels.length, isolines.size());
+        for (int i = 0; i < levels.length; i++) {
+            MultiPolygon expected = contourBuilder.computeIsoline(levels[i]);
+            assertTrue("seed: " + seed + ", level: " + levels[i], expected.equalsExact(isolines.get(i)));
+        }
+        assertFalse(isolines.get(levels.length - 1).isEmpty());
+    }
+
+    @Test
+    public void testLevelsMustBeAscending() {
+        Collection<ConstraintVertex> sites = new ArrayList<>();
+        sites.add(new ConstraintVertex(new Coordinate(0, 0)));
+        sites.add(new ConstraintVertex(new Coordinate(1, 0)));
+        sites.add(new ConstraintVertex(new Coordinate(0, 1)));
+        ContourBuilder contourBuilder = new ContourBuilder(triangulate(sites));
+        try {
+            contourBuilder.computeIsolines(new double[]{1.5, 0.5});
+            fail();
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static QuadEdgeSubdivision triangulate(Collection<ConstraintVertex> sites) {
+        ConformingDelaunayTriangulator triangulator = new ConformingDelaunayTriangulator(sites, 0.0);
+        triangulator.setConstraints(new ArrayList(), new ArrayList());
+        triangulator.formInitialDelaunay();
+        triangulator.enforceConstraints();
+        QuadEdgeSubdivision tin = triangulator.getSubdivision();
+        for (Vertex vertex : (Collection<Vertex>) tin.getVertices(true)) {
+            if (tin.isFrameVertex(vertex))
+                vertex.setZ(Double.MAX_VALUE);
+        }
+        return tin;
+    }
+}
@@ -1,5 +1,8 @@
 package com.graphhopper.isochrone.algorithm;
 
+import com.graphhopper.routing.ch.PhastCH;
+import com.graphhopper.routing.ch.PhastSweep;
+import com.graphhopper.routing.ch.PrepareContractionHierarchies;
 import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.routing.util.FlagEncoder;
 import com.graphhopper.routing.weighting.FastestWeighting;
@@ -11,8 +14,9 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
@@ -80,4 +84,50 @@ public class IsochroneTest {
         res = instance.search(0, 5);
         assertEquals("[[0], [4], [], [6], [1, 7]]", res.toString());
     }
+
+    @Test
+    public void testSearchWithPhast() {
+        Weighting weighting = new FastestWeighting(carEncoder, new PMap());
+        GraphHopperStorage chStorage = new GraphBuilder(encodingManager).setCHProfiles(CHProfile.nodeBased(weighting)).create();
+        initDirectedAndDiffSpeed(chStorage);
+        chStorage.freeze();
+        PrepareContractionHierarchies.fromGraphHopperStorage(chStorage, chStorage.getCHGraph().getCHProfile()).doWork();
+        CHGraph chGraph = chStorage.getCHGraph();
+        PhastSweep sweep = new PhastSweep(chGraph, false);
+
+        Isochrone instance = new Isochrone(new PhastCH(chGraph, sweep));
+        instance.setTimeLimit(60);
+        assertEquals("[[0, 4], [6], [1, 7], [5], [2, 3]]", instance.search(0, 5).toString());
+
+        instance = new Isochrone(new PhastCH(chGraph, sweep));
+        instance.setTimeLimit(30);
+        assertEquals("[[0], [4], [], [6], [1, 7]]", instance.search(0, 5).toString());
+
+        // the labels of the shortest path tree are the same as for the Dijkstra
+        initDirectedAndDiffSpeed(graph);
+        final Map<Integer, String> expected = new HashMap<>();
+        Isochrone dijkstra = new Isochrone(graph, weighting, true);
+        dijkstra.setTimeLimit(120);
+        dijkstra.search(3, new Isochrone.Callback() {
+            @Override
+            public void add(Isochrone.IsoLabelWithCoordinates label) {
+                expected.put(label.nodeId, labelToString(label));
+            }
+        });
+        final Map<Integer, String> labels = new HashMap<>();
+        instance = new Isochrone(new PhastCH(chGraph, new PhastSweep(chGraph, true)));
+        instance.setTimeLimit(120);
+        instance.search(3, new Isochrone.Callback() {
+            @Override
+            public void add(Isochrone.IsoLabelWithCoordinates label) {
+                labels.put(label.nodeId, labelToString(label));
+            }
+        });
+        assertEquals(expected, labels);
+    }
+
+    private static String labelToString(Isochrone.IsoLabelWithCoordinates label) {
+        return label.timeMillis + "ms, " + label.distance + "m, edge: " + label.edgeId + ", prev node: " + label.prevNodeId
+                + ", prev edge: " + label.prevEdgeId + ", prev time: " + label.prevTimeMillis;
+    }
 }
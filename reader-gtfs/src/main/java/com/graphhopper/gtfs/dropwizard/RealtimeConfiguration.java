@@ -21,6 +21,7 @@ package com.graphhopper.gtfs.dropwizard;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.transit.realtime.GtfsRealtime;
 import io.dropwizard.client.HttpClientConfiguration;
+import io.dropwizard.util.Duration;
 
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
@@ -39,10 +40,28 @@ public class RealtimeConfiguration {
     @JsonProperty
     private List<FeedConfiguration> feeds = new ArrayList<>();
 
+    @NotNull
+    @JsonProperty
+    private Duration refreshInterval = Duration.minutes(1);
+
+    /**
+     * Apply only the trip updates which changed since the previous poll instead of rebuilding the realtime feed
+     */
+    @JsonProperty
+    private boolean incremental = true;
+
     public List<FeedConfiguration> getFeeds() {
         return feeds;
     }
 
+    public Duration getRefreshInterval() {
+        return refreshInterval;
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
     public HttpClientConfiguration getHttpClientConfiguration() {
         return httpClient;
     }
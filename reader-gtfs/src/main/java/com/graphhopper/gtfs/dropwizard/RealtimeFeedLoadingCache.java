@@ -18,6 +18,8 @@
 
 package com.graphhopper.gtfs.dropwizard;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
@@ -50,24 +52,31 @@ public class RealtimeFeedLoadingCache implements Factory<RealtimeFeed> {
     private final RealtimeBundleConfiguration bundleConfiguration;
     private final ExecutorService executor = Executors.newSingleThreadExecutor();
     private final LoadingCache<String, RealtimeFeed> cache;
+    private final Timer fetchTimer;
+    private final Timer updateTimer;
 
     @Inject
-    RealtimeFeedLoadingCache(GraphHopperStorage graphHopperStorage, GtfsStorage gtfsStorage, HttpClient httpClient, RealtimeBundleConfiguration bundleConfiguration) {
+    RealtimeFeedLoadingCache(GraphHopperStorage graphHopperStorage, GtfsStorage gtfsStorage, HttpClient httpClient, RealtimeBundleConfiguration bundleConfiguration, MetricRegistry metricRegistry) {
         this.graphHopperStorage = graphHopperStorage;
         this.gtfsStorage = gtfsStorage;
         this.bundleConfiguration = bundleConfiguration;
         this.httpClient = httpClient;
+        this.fetchTimer = metricRegistry.timer(MetricRegistry.name(RealtimeFeedLoadingCache.class, "fetch"));
+        this.updateTimer = metricRegistry.timer(MetricRegistry.name(RealtimeFeedLoadingCache.class, "update"));
+        final boolean incremental = bundleConfiguration.gtfsrealtime().isIncremental();
         this.cache = CacheBuilder.newBuilder()
                 .maximumSize(1)
-                .refreshAfterWrite(1, TimeUnit.MINUTES)
+                .refreshAfterWrite(bundleConfiguration.gtfsrealtime().getRefreshInterval().toMilliseconds(), TimeUnit.MILLISECONDS)
                 .build(new CacheLoader<String, RealtimeFeed>() {
                     public RealtimeFeed load(String key) {
-                        return fetchFeedsAndCreateGraph();
+                        return fetchFeedsAndCreateGraph(RealtimeFeed.empty(gtfsStorage));
                     }
 
                     @Override
                     public ListenableFuture<RealtimeFeed> reload(String key, RealtimeFeed oldValue) {
-                        ListenableFutureTask<RealtimeFeed> task = ListenableFutureTask.create(() -> fetchFeedsAndCreateGraph());
+                        // in incremental mode only the trip updates which changed since the last poll are applied
+                        RealtimeFeed previous = incremental ? oldValue : RealtimeFeed.empty(gtfsStorage);
+                        ListenableFutureTask<RealtimeFeed> task = ListenableFutureTask.create(() -> fetchFeedsAndCreateGraph(previous));
                         executor.execute(task);
                         return task;
                     }
@@ -89,17 +98,21 @@ public class RealtimeFeedLoadingCache implements Factory<RealtimeFeed> {
 
     }
 
-    private RealtimeFeed fetchFeedsAndCreateGraph() {
+    private RealtimeFeed fetchFeedsAndCreateGraph(RealtimeFeed previous) {
         Map<String, GtfsRealtime.FeedMessage> feedMessageMap = new HashMap<>();
-        for (FeedConfiguration configuration : bundleConfiguration.gtfsrealtime().getFeeds()) {
-            try {
-                GtfsRealtime.FeedMessage feedMessage = GtfsRealtime.FeedMessage.parseFrom(httpClient.execute(new HttpGet(configuration.getUrl().toURI())).getEntity().getContent());
-                feedMessageMap.put(configuration.getFeedId(), feedMessage);
-            } catch (IOException | URISyntaxException e) {
-                throw new RuntimeException(e);
+        try (Timer.Context ignored = fetchTimer.time()) {
+            for (FeedConfiguration configuration : bundleConfiguration.gtfsrealtime().getFeeds()) {
+                try {
+                    GtfsRealtime.FeedMessage feedMessage = GtfsRealtime.FeedMessage.parseFrom(httpClient.execute(new HttpGet(configuration.getUrl().toURI())).getEntity().getContent());
+                    feedMessageMap.put(configuration.getFeedId(), feedMessage);
+                } catch (IOException | URISyntaxException e) {
+                    throw new RuntimeException(e);
+                }
             }
         }
-        return RealtimeFeed.fromProtobuf(graphHopperStorage, gtfsStorage, PtEncodedValues.fromEncodingManager(graphHopperStorage.getEncodingManager()), feedMessageMap);
+        try (Timer.Context ignored = updateTimer.time()) {
+            return previous.update(graphHopperStorage, PtEncodedValues.fromEncodingManager(graphHopperStorage.getEncodingManager()), feedMessageMap);
+        }
     }
 
 }
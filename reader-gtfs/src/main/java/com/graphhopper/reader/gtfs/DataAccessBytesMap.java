@@ -0,0 +1,145 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.reader.gtfs;
+
+import com.graphhopper.storage.Directory;
+import com.graphhopper.storage.Storable;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * Map from a dense, non-negative key like an edge id to a byte array. Equal values are stored only once, e.g. the
+ * trip descriptor which is shared by all board and alight edges of a trip.
+ */
+final class DataAccessBytesMap extends AbstractMap<Integer, byte[]> implements Storable<DataAccessBytesMap> {
+    private final DataAccessIntMap recordIds;
+    private final DataAccessRecords records;
+    // only used while writing, values added after loading are not deduplicated against the existing ones
+    private final Map<ByteBuffer, Integer> recordIdsByValue = new HashMap<>();
+
+    DataAccessBytesMap(Directory dir, String name) {
+        recordIds = new DataAccessIntMap(dir, name + "_ids");
+        records = new DataAccessRecords(dir, name);
+    }
+
+    @Override
+    public DataAccessBytesMap create(long initBytes) {
+        recordIds.create(initBytes);
+        records.create(initBytes);
+        return this;
+    }
+
+    @Override
+    public boolean loadExisting() {
+        if (!records.loadExisting())
+            return false;
+        if (!recordIds.loadExisting())
+            throw new IllegalStateException("Loaded records but cannot load their ids");
+        return true;
+    }
+
+    byte[] getBytes(int key) {
+        int recordId = recordIds.getInt(key);
+        return recordId < 0 ? null : records.get(recordId);
+    }
+
+    @Override
+    public byte[] get(Object key) {
+        return getOrDefault(key, null);
+    }
+
+    @Override
+    public byte[] getOrDefault(Object key, byte[] defaultValue) {
+        if (!(key instanceof Integer))
+            return defaultValue;
+        byte[] value = getBytes((Integer) key);
+        return value == null ? defaultValue : value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return recordIds.containsKey(key);
+    }
+
+    @Override
+    public byte[] put(Integer key, byte[] value) {
+        Integer recordId = recordIdsByValue.get(ByteBuffer.wrap(value));
+        if (recordId == null) {
+            recordId = records.add(value);
+            recordIdsByValue.put(ByteBuffer.wrap(value.clone()), recordId);
+        }
+        int previous = recordIds.putInt(key, recordId);
+        return previous < 0 ? null : records.get(previous);
+    }
+
+    @Override
+    public int size() {
+        return recordIds.size();
+    }
+
+    @Override
+    public Set<Entry<Integer, byte[]>> entrySet() {
+        return new AbstractSet<Entry<Integer, byte[]>>() {
+            @Override
+            public Iterator<Entry<Integer, byte[]>> iterator() {
+                final Iterator<Entry<Integer, Integer>> iterator = recordIds.entrySet().iterator();
+                return new Iterator<Entry<Integer, byte[]>>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public Entry<Integer, byte[]> next() {
+                        Entry<Integer, Integer> entry = iterator.next();
+                        return new SimpleImmutableEntry<>(entry.getKey(), records.get(entry.getValue()));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return recordIds.size();
+            }
+        };
+    }
+
+    @Override
+    public void flush() {
+        recordIds.flush();
+        records.flush();
+    }
+
+    @Override
+    public void close() {
+        recordIds.close();
+        records.close();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return recordIds.isClosed() && records.isClosed();
+    }
+
+    @Override
+    public long getCapacity() {
+        return recordIds.getCapacity() + records.getCapacity();
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.reader.gtfs;
+
+import com.graphhopper.storage.Directory;
+import com.graphhopper.storage.Storable;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Map from a string key like a trip key to an int array, stored as two record columns with the same ids. The
+ * index from the key to the record id is only built in memory when the map is first accessed by key, so loading
+ * the storage stays cheap if the map is not needed, e.g. without realtime updates.
+ */
+final class DataAccessIntArrayMap extends AbstractMap<String, int[]> implements Storable<DataAccessIntArrayMap> {
+    private final DataAccessRecords keys;
+    private final DataAccessRecords values;
+    private Map<String, Integer> index;
+
+    DataAccessIntArrayMap(Directory dir, String name) {
+        keys = new DataAccessRecords(dir, name + "_keys");
+        values = new DataAccessRecords(dir, name);
+    }
+
+    @Override
+    public DataAccessIntArrayMap create(long initBytes) {
+        keys.create(initBytes);
+        values.create(initBytes);
+        return this;
+    }
+
+    @Override
+    public boolean loadExisting() {
+        if (!values.loadExisting())
+            return false;
+        if (!keys.loadExisting())
+            throw new IllegalStateException("Loaded values but cannot load their keys");
+        return true;
+    }
+
+    private Map<String, Integer> getIndex() {
+        if (index == null) {
+            Map<String, Integer> index = new HashMap<>(keys.size());
+            // a key which was put again points to the later record
+            for (int id = 0; id < keys.size(); id++) {
+                index.put(new String(keys.get(id), StandardCharsets.UTF_8), id);
+            }
+            this.index = index;
+        }
+        return index;
+    }
+
+    @Override
+    public synchronized int[] get(Object key) {
+        Integer id = getIndex().get(key);
+        return id == null ? null : toInts(values.get(id));
+    }
+
+    @Override
+    public synchronized boolean containsKey(Object key) {
+        return getIndex().containsKey(key);
+    }
+
+    @Override
+    public synchronized int[] put(String key, int[] value) {
+        int id = keys.add(key.getBytes(StandardCharsets.UTF_8));
+        values.add(toBytes(value));
+        Integer previous = getIndex().put(key, id);
+        return previous == null ? null : toInts(values.get(previous));
+    }
+
+    @Override
+    public synchronized int size() {
+        return getIndex().size();
+    }
+
+    @Override
+    public synchronized Set<Entry<String, int[]>> entrySet() {
+        Map<String, int[]> entries = new HashMap<>();
+        for (Entry<String, Integer> entry : getIndex().entrySet()) {
+            entries.put(entry.getKey(), toInts(values.get(entry.getValue())));
+        }
+        return Collections.unmodifiableMap(entries).entrySet();
+    }
+
+    private static byte[] toBytes(int[] ints) {
+        ByteBuffer buffer = ByteBuffer.allocate(4 * ints.length);
+        buffer.asIntBuffer().put(ints);
+        return buffer.array();
+    }
+
+    private static int[] toInts(byte[] bytes) {
+        IntBuffer buffer = ByteBuffer.wrap(bytes).asIntBuffer();
+        int[] ints = new int[buffer.remaining()];
+        buffer.get(ints);
+        return ints;
+    }
+
+    @Override
+    public void flush() {
+        keys.flush();
+        values.flush();
+    }
+
+    @Override
+    public void close() {
+        keys.close();
+        values.close();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return keys.isClosed() && values.isClosed();
+    }
+
+    @Override
+    public long getCapacity() {
+        return keys.getCapacity() + values.getCapacity();
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.reader.gtfs;
+
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.storage.Storable;
+
+import java.util.*;
+
+/**
+ * Map from a dense, non-negative key like an edge id to a non-negative int, stored as a flat int array in a
+ * DataAccess. A value is stored incremented by one, so the zeroed memory of a new segment reads as 'no value'.
+ */
+final class DataAccessIntMap extends AbstractMap<Integer, Integer> implements Storable<DataAccessIntMap> {
+    private static final int NO_VALUE = 0;
+    private final DataAccess values;
+    private int size;
+    private int keyLimit;
+
+    DataAccessIntMap(Directory dir, String name) {
+        values = dir.find(name);
+    }
+
+    @Override
+    public DataAccessIntMap create(long initBytes) {
+        values.create(initBytes);
+        return this;
+    }
+
+    @Override
+    public boolean loadExisting() {
+        if (!values.loadExisting())
+            return false;
+        size = values.getHeader(0);
+        keyLimit = values.getHeader(4);
+        return true;
+    }
+
+    /**
+     * @return the value for the key or -1 if there is none
+     */
+    int getInt(int key) {
+        if (key < 0 || key >= keyLimit)
+            return -1;
+        return values.getInt(4L * key) - 1;
+    }
+
+    /**
+     * @return the previous value for the key or -1 if there was none
+     */
+    int putInt(int key, int value) {
+        if (key < 0)
+            throw new IllegalArgumentException("Key must not be negative: " + key);
+        if (value < 0)
+            throw new IllegalArgumentException("Value must not be negative: " + value);
+        values.ensureCapacity(4L * (key + 1));
+        int previous = key < keyLimit ? values.getInt(4L * key) : NO_VALUE;
+        values.setInt(4L * key, value + 1);
+        if (previous == NO_VALUE)
+            size++;
+        keyLimit = Math.max(keyLimit, key + 1);
+        return previous - 1;
+    }
+
+    @Override
+    public Integer get(Object key) {
+        return getOrDefault(key, null);
+    }
+
+    @Override
+    public Integer getOrDefault(Object key, Integer defaultValue) {
+        if (!(key instanceof Integer))
+            return defaultValue;
+        int value = getInt((Integer) key);
+        return value < 0 ? defaultValue : Integer.valueOf(value);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof Integer && getInt((Integer) key) >= 0;
+    }
+
+    @Override
+    public Integer put(Integer key, Integer value) {
+        int previous = putInt(key, value);
+        return previous < 0 ? null : previous;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<Entry<Integer, Integer>> entrySet() {
+        return new AbstractSet<Entry<Integer, Integer>>() {
+            @Override
+            public Iterator<Entry<Integer, Integer>> iterator() {
+                return new Iterator<Entry<Integer, Integer>>() {
+                    int key = nextKey(0);
+
+                    private int nextKey(int from) {
+                        while (from < keyLimit && getInt(from) < 0)
+                            from++;
+                        return from;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return key < keyLimit;
+                    }
+
+                    @Override
+                    public Entry<Integer, Integer> next() {
+                        if (!hasNext())
+                            throw new NoSuchElementException();
+                        Entry<Integer, Integer> entry = new SimpleImmutableEntry<>(key, getInt(key));
+                        key = nextKey(key + 1);
+                        return entry;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public void flush() {
+        values.setHeader(0, size);
+        values.setHeader(4, keyLimit);
+        values.flush();
+    }
+
+    @Override
+    public void close() {
+        values.close();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return values.isClosed();
+    }
+
+    @Override
+    public long getCapacity() {
+        return values.getCapacity();
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.reader.gtfs;
+
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.storage.Storable;
+import com.graphhopper.util.BitUtil;
+
+/**
+ * Append-only list of byte arrays in two DataAccess columns: the length-prefixed records and an index from the
+ * record id to the offset of the record.
+ */
+final class DataAccessRecords implements Storable<DataAccessRecords> {
+    private final DataAccess offsets;
+    private final DataAccess data;
+    private int count;
+    private long bytePointer;
+
+    DataAccessRecords(Directory dir, String name) {
+        offsets = dir.find(name + "_offsets");
+        data = dir.find(name);
+    }
+
+    @Override
+    public DataAccessRecords create(long initBytes) {
+        offsets.create(initBytes);
+        data.create(initBytes);
+        return this;
+    }
+
+    @Override
+    public boolean loadExisting() {
+        if (!data.loadExisting())
+            return false;
+        if (!offsets.loadExisting())
+            throw new IllegalStateException("Loaded " + data.getName() + " but cannot load its offsets");
+        count = offsets.getHeader(0);
+        bytePointer = BitUtil.LITTLE.combineIntsToLong(data.getHeader(0), data.getHeader(4));
+        return true;
+    }
+
+    int add(byte[] record) {
+        if (4 + record.length > data.getSegmentSize())
+            throw new IllegalArgumentException("Record of " + record.length + " bytes does not fit into a segment of " + data.getSegmentSize() + " bytes");
+        offsets.ensureCapacity(8L * (count + 1));
+        offsets.setInt(8L * count, BitUtil.LITTLE.getIntLow(bytePointer));
+        offsets.setInt(8L * count + 4, BitUtil.LITTLE.getIntHigh(bytePointer));
+        data.ensureCapacity(bytePointer + 4 + record.length);
+        data.setInt(bytePointer, record.length);
+        data.setBytes(bytePointer + 4, record, record.length);
+        bytePointer += 4 + record.length;
+        return count++;
+    }
+
+    byte[] get(int id) {
+        if (id < 0 || id >= count)
+            throw new IllegalArgumentException("No record " + id + ", there are " + count);
+        long pointer = BitUtil.LITTLE.combineIntsToLong(offsets.getInt(8L * id), offsets.getInt(8L * id + 4));
+        byte[] record = new byte[data.getInt(pointer)];
+        data.getBytes(pointer + 4, record, record.length);
+        return record;
+    }
+
+    int size() {
+        return count;
+    }
+
+    @Override
+    public void flush() {
+        offsets.setHeader(0, count);
+        offsets.flush();
+        data.setHeader(0, BitUtil.LITTLE.getIntLow(bytePointer));
+        data.setHeader(4, BitUtil.LITTLE.getIntHigh(bytePointer));
+        data.flush();
+    }
+
+    @Override
+    public void close() {
+        offsets.close();
+        data.close();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return offsets.isClosed() && data.isClosed();
+    }
+
+    @Override
+    public long getCapacity() {
+        return offsets.getCapacity() + data.getCapacity();
+    }
+}
@@ -147,6 +147,7 @@ public class GraphHopperGtfs extends GraphHopperOSM {
                     throw new RuntimeException("Error while constructing transit network. Is your GTFS file valid? Please check log for possible causes.", e);
                 }
             });
+            getGtfsStorage().flush();
             streetNetworkIndex.close();
             LocationIndex locationIndex = createLocationIndex(graphHopperStorage.getDirectory());
             setLocationIndex(locationIndex);
@@ -24,10 +24,13 @@ import com.conveyal.gtfs.model.FareRule;
 import com.google.transit.realtime.GtfsRealtime;
 import com.graphhopper.gtfs.fare.FixedFareAttributeLoader;
 import com.graphhopper.storage.Directory;
+import com.graphhopper.util.StopWatch;
 import org.mapdb.Bind;
 import org.mapdb.DB;
 import org.mapdb.DBMaker;
 import org.mapdb.HTreeMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
@@ -40,6 +43,8 @@ import java.util.zip.ZipFile;
 
 public class GtfsStorage implements GtfsStorageI {
 
+	private static final Logger logger = LoggerFactory.getLogger(GtfsStorage.class);
+
 	public static class Validity implements Serializable {
 		final BitSet validity;
 		final ZoneId zoneId;
@@ -95,16 +100,17 @@ public class GtfsStorage implements GtfsStorageI {
 	private HTreeMap<Validity, Integer> operatingDayPatterns;
 	private Bind.MapWithModificationListener<FeedIdWithTimezone, Integer> timeZones;
 	private Map<Integer, FeedIdWithTimezone> readableTimeZones;
-	private Map<Integer, byte[]> tripDescriptors;
-	private Map<Integer, Integer> stopSequences;
+	private DataAccessBytesMap tripDescriptors;
+	private DataAccessIntMap stopSequences;
 
 	private Map<Integer, PlatformDescriptor> routes;
 
 	private Map<String, Fare> fares;
-	private Map<String, int[]> boardEdgesForTrip;
-	private Map<String, int[]> leaveEdgesForTrip;
+	private DataAccessIntArrayMap boardEdgesForTrip;
+	private DataAccessIntArrayMap leaveEdgesForTrip;
 
 	private Map<String, Integer> stationNodes;
+	private RaptorNetwork raptorNetwork;
 
 	public enum EdgeType {
 		HIGHWAY, ENTER_TIME_EXPANDED_NETWORK, LEAVE_TIME_EXPANDED_NETWORK, ENTER_PT, EXIT_PT, HOP, DWELL, BOARD, ALIGHT, OVERNIGHT, TRANSFER, WAIT, WAIT_ARRIVAL
@@ -133,6 +139,9 @@ public class GtfsStorage implements GtfsStorageI {
 		}
 		this.data = DBMaker.newFileDB(file).transactionDisable().mmapFileEnable().readOnly().make();
 		init();
+		if (!tripDescriptors.loadExisting() || !stopSequences.loadExisting() || !boardEdgesForTrip.loadExisting() || !leaveEdgesForTrip.loadExisting()) {
+			throw new IllegalStateException("Cannot load the trip data of the transit schedule from " + dir.getLocation());
+		}
 		for (String gtfsFeedId : this.gtfsFeedIds) {
 			GTFSFeed feed = new GTFSFeed(new File(dir.getLocation() + "/" + gtfsFeedId));
 			this.gtfsFeeds.put(gtfsFeedId, feed);
@@ -151,6 +160,10 @@ public class GtfsStorage implements GtfsStorageI {
 		}
 		this.data = DBMaker.newFileDB(file).transactionDisable().mmapFileEnable().asyncWriteEnable().make();
 		init();
+		tripDescriptors.create(1000);
+		stopSequences.create(1000);
+		boardEdgesForTrip.create(1000);
+		leaveEdgesForTrip.create(1000);
 	}
 
     private void init() {
@@ -163,11 +176,12 @@ public class GtfsStorage implements GtfsStorageI {
 		}
 		Bind.mapInverse(this.timeZones, readableTimeZones);
 		this.readableTimeZones = Collections.unmodifiableMap(readableTimeZones);
-		this.tripDescriptors = data.getTreeMap("tripDescriptors");
-		this.stopSequences = data.getTreeMap("stopSequences");
+		// the per-edge and per-trip data is read on every transit edge, so it is kept in flat arrays of the graph directory
+		this.tripDescriptors = new DataAccessBytesMap(dir, "gtfs_trip_descriptors");
+		this.stopSequences = new DataAccessIntMap(dir, "gtfs_stop_sequences");
 		this.fares = data.getTreeMap("fares");
-		this.boardEdgesForTrip = data.getHashMap("boardEdgesForTrip");
-		this.leaveEdgesForTrip = data.getHashMap("leaveEdgesForTrip");
+		this.boardEdgesForTrip = new DataAccessIntArrayMap(dir, "gtfs_board_edges_for_trip");
+		this.leaveEdgesForTrip = new DataAccessIntArrayMap(dir, "gtfs_leave_edges_for_trip");
 		this.stationNodes = data.getHashMap("stationNodes");
 		this.routes = data.getHashMap("routes");
 	}
@@ -198,10 +212,21 @@ public class GtfsStorage implements GtfsStorageI {
 		feed.fares.putAll(fares);
 	}
 
+	public void flush() {
+		tripDescriptors.flush();
+		stopSequences.flush();
+		boardEdgesForTrip.flush();
+		leaveEdgesForTrip.flush();
+	}
+
 	public void close() {
 		if (!isClosed) {
 			isClosed = true;
 			data.close();
+			tripDescriptors.close();
+			stopSequences.close();
+			boardEdgesForTrip.close();
+			leaveEdgesForTrip.close();
 			for (GTFSFeed feed : gtfsFeeds.values()) {
 				feed.close();
 			}
@@ -267,6 +292,18 @@ public class GtfsStorage implements GtfsStorageI {
 		return stationNodes;
 	}
 
+	/**
+	 * The timetable for the RAPTOR router, which is created from the feeds on first use.
+	 */
+	synchronized RaptorNetwork getRaptorNetwork() {
+		if (raptorNetwork == null) {
+			StopWatch sw = new StopWatch().start();
+			raptorNetwork = RaptorNetwork.fromFeeds(gtfsFeeds, stationNodes);
+			logger.info("created RAPTOR network in " + sw.stop().getSeconds() + "s, " + raptorNetwork);
+		}
+		return raptorNetwork;
+	}
+
 	static String tripKey(GtfsRealtime.TripDescriptor tripDescriptor, boolean isFrequencyBased) {
 		if (isFrequencyBased) {
 			return tripDescriptor.getTripId()+tripDescriptor.getStartTime();
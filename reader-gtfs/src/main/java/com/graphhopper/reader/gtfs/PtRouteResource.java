@@ -18,6 +18,7 @@
 
 package com.graphhopper.reader.gtfs;
 
+import com.carrotsearch.hppc.IntIntHashMap;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.transit.realtime.GtfsRealtime;
 import com.graphhopper.GHResponse;
@@ -39,6 +40,9 @@ import com.graphhopper.storage.index.QueryResult;
 import com.graphhopper.util.*;
 import com.graphhopper.util.exceptions.PointNotFoundException;
 import com.graphhopper.util.shapes.GHPoint;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
 
 import javax.inject.Inject;
 import javax.ws.rs.*;
@@ -62,6 +66,7 @@ public final class PtRouteResource {
     private final GtfsStorage gtfsStorage;
     private final RealtimeFeed realtimeFeed;
     private final TripFromLabel tripFromLabel;
+    private final GeometryFactory geometryFactory = new GeometryFactory();
 
     @Inject
     public PtRouteResource(TranslationMap translationMap, GraphHopperStorage graphHopperStorage, LocationIndex locationIndex, GtfsStorage gtfsStorage, RealtimeFeed realtimeFeed) {
@@ -87,7 +92,8 @@ public final class PtRouteResource {
                             @QueryParam("locale") String localeStr,
                             @QueryParam("pt.ignore_transfers") Boolean ignoreTransfers,
                             @QueryParam("pt.profile") Boolean profileQuery,
-                            @QueryParam("pt.limit_solutions") Integer limitSolutions) {
+                            @QueryParam("pt.limit_solutions") Integer limitSolutions,
+                            @QueryParam("pt.algorithm") String algorithm) {
 
         if (departureTimeString == null) {
             throw new BadRequestException(String.format(Locale.ROOT, "Illegal value for required parameter %s: [%s]", "pt.earliest_departure_time", departureTimeString));
@@ -105,6 +111,7 @@ public final class PtRouteResource {
         Optional.ofNullable(ignoreTransfers).ifPresent(request::setIgnoreTransfers);
         Optional.ofNullable(localeStr).ifPresent(s -> request.setLocale(Helper.getLocale(s)));
         Optional.ofNullable(limitSolutions).ifPresent(request::setLimitSolutions);
+        Optional.ofNullable(algorithm).ifPresent(request::setAlgorithm);
 
         GHResponse route = new RequestHandler(request).route();
         return WebHelper.jsonObject(route, true, true, false, false, 0.0f);
@@ -135,6 +142,10 @@ public final class PtRouteResource {
             return new PtRouteResource(translationMap, graphHopperStorage, locationIndex, gtfsStorage, RealtimeFeed.fromProtobuf(graphHopperStorage, gtfsStorage, ptEncodedValues, realtimeFeeds));
         }
 
+        public PtRouteResource createWith(RealtimeFeed realtimeFeed) {
+            return new PtRouteResource(translationMap, graphHopperStorage, locationIndex, gtfsStorage, realtimeFeed);
+        }
+
         public PtRouteResource createWithoutRealtimeFeed() {
             return new PtRouteResource(translationMap, graphHopperStorage, locationIndex, gtfsStorage, RealtimeFeed.empty(gtfsStorage));
         }
@@ -154,6 +165,7 @@ public final class PtRouteResource {
         private final int blockedRouteTypes;
         private final GHLocation enter;
         private final GHLocation exit;
+        private final boolean raptor;
         private final Translation translation;
         private final List<VirtualEdgeIteratorState> extraEdges = new ArrayList<>(realtimeFeed.getAdditionalEdges());
 
@@ -179,6 +191,15 @@ public final class PtRouteResource {
             }
             enter = request.getPoints().get(0);
             exit = request.getPoints().get(1);
+            if (Request.RAPTOR.equals(request.getAlgorithm())) {
+                if (arriveBy)
+                    throw new IllegalArgumentException("The algorithm " + Request.RAPTOR + " does not support pt.arrive_by");
+                raptor = true;
+            } else if (Request.LABEL_SETTING.equals(request.getAlgorithm())) {
+                raptor = false;
+            } else {
+                throw new IllegalArgumentException("Unsupported algorithm: " + request.getAlgorithm() + ", use " + Request.LABEL_SETTING + " or " + Request.RAPTOR);
+            }
         }
 
         GHResponse route() {
@@ -224,8 +245,12 @@ public final class PtRouteResource {
                 startNode = allQueryResults.get(0).getClosestNode();
                 destNode = allQueryResults.get(1).getClosestNode();
             }
-            List<List<Label.Transition>> solutions = findPaths(startNode, destNode);
-            parseSolutionsAndAddToResponse(solutions, points);
+            if (raptor) {
+                routeWithRaptor(startNode, destNode, points);
+            } else {
+                List<List<Label.Transition>> solutions = findPaths(startNode, destNode);
+                parseSolutionsAndAddToResponse(solutions, points);
+            }
             return response;
         }
 
@@ -383,6 +408,93 @@ public final class PtRouteResource {
             return paths;
         }
 
+        private void routeWithRaptor(int startNode, int destNode, PointList waypoints) {
+            StopWatch stopWatch = new StopWatch().start();
+            RaptorNetwork network = gtfsStorage.getRaptorNetwork();
+            Map<Integer, Label> accessLabels = new HashMap<>();
+            Map<Integer, Label> egressLabels = new HashMap<>();
+            Label walkLabel = walkToStops(network, startNode, destNode, false, accessLabels);
+            walkToStops(network, destNode, startNode, true, egressLabels);
+            IntIntHashMap access = new IntIntHashMap(), egress = new IntIntHashMap();
+            accessLabels.forEach((stop, label) -> access.put(stop, (int) (label.currentTime - initialTime.toEpochMilli())));
+            egressLabels.forEach((stop, label) -> egress.put(stop, (int) (initialTime.toEpochMilli() - label.currentTime)));
+            int walkTime = walkLabel == null ? -1 : (int) (walkLabel.currentTime - initialTime.toEpochMilli());
+
+            List<Raptor.Journey> journeys = new Raptor(network, Raptor.DEFAULT_MAX_ROUNDS, blockedRouteTypes)
+                    .route(initialTime, access, egress, walkTime, profileQuery ? (int) maxProfileDuration : 0, ignoreTransfers);
+            for (Raptor.Journey journey : journeys.subList(0, Math.min(limitSolutions, journeys.size()))) {
+                List<Trip.Leg> legs = new ArrayList<>();
+                if (journey.isWalkOnly()) {
+                    legs.addAll(tripFromLabel.getTrip(translation, queryGraph, accessEgressWeighting, Label.getTransitions(walkLabel, false, ptEncodedValues, queryGraph)));
+                } else {
+                    legs.addAll(tripFromLabel.getTrip(translation, queryGraph, accessEgressWeighting, Label.getTransitions(accessLabels.get(journey.accessStop), false, ptEncodedValues, queryGraph)));
+                    for (Raptor.Ride ride : journey.rides) {
+                        legs.add(createPtLeg(network, ride));
+                    }
+                    legs.addAll(tripFromLabel.getTrip(translation, queryGraph, accessEgressWeighting, Label.getTransitions(egressLabels.get(journey.egressStop), true, ptEncodedValues, queryGraph)));
+                }
+                if (legs.isEmpty())
+                    continue;
+                PathWrapper pathWrapper = tripFromLabel.createPathWrapper(translation, waypoints, legs);
+                // like for the label setting the time includes the waiting before the departure
+                pathWrapper.setTime(journey.arrivalTime);
+                response.add(pathWrapper);
+            }
+            response.getAll().sort(Comparator.comparingDouble(PathWrapper::getTime));
+            response.addDebugInfo("routing:" + stopWatch.stop().getSeconds() + "s");
+            response.getHints().put("visited_nodes.sum", visitedNodes);
+            response.getHints().put("visited_nodes.average", visitedNodes);
+            if (response.getAll().isEmpty()) {
+                response.addError(new RuntimeException("No route found"));
+            }
+        }
+
+        /**
+         * Walks from the specified node until the other node is reached and collects the first label of every stop.
+         *
+         * @return the label of the other node or null if it cannot be reached on foot
+         */
+        private Label walkToStops(RaptorNetwork network, int from, int to, boolean reverse, Map<Integer, Label> stopLabels) {
+            GraphExplorer explorer = new GraphExplorer(queryGraph, accessEgressWeighting, ptEncodedValues, gtfsStorage, realtimeFeed, reverse, true, walkSpeedKmH, false);
+            MultiCriteriaLabelSetting router = new MultiCriteriaLabelSetting(explorer, ptEncodedValues, reverse, false, false, false, maxVisitedNodesForRequest, new ArrayList<>());
+            Iterator<Label> iterator = router.calcLabels(from, initialTime, blockedRouteTypes).iterator();
+            Label target = null;
+            while (iterator.hasNext()) {
+                Label label = iterator.next();
+                if (label.edge != -1 && queryGraph.getEdgeIteratorState(label.edge, label.parent.adjNode).get(ptEncodedValues.getTypeEnc()) != GtfsStorage.EdgeType.HIGHWAY) {
+                    continue;
+                }
+                for (int stop : network.getStopsAtNode(label.adjNode)) {
+                    stopLabels.putIfAbsent(stop, label);
+                }
+                if (label.adjNode == to) {
+                    target = label;
+                    break;
+                }
+            }
+            visitedNodes += router.getVisitedNodes();
+            return target;
+        }
+
+        private Trip.PtLeg createPtLeg(RaptorNetwork network, Raptor.Ride ride) {
+            int pattern = network.getTripPattern(ride.trip);
+            long dayStart = initialTime.toEpochMilli() + ride.dayStart;
+            List<Trip.Stop> stops = new ArrayList<>();
+            List<Coordinate> coordinates = new ArrayList<>();
+            for (int position = ride.boardPosition; position <= ride.alightPosition; position++) {
+                int stop = network.getPatternStop(pattern, position);
+                Point point = geometryFactory.createPoint(new Coordinate(network.getStopLon(stop), network.getStopLat(stop)));
+                Date arrival = position == ride.boardPosition ? null : new Date(dayStart + network.getArrival(ride.trip, position) * 1000L);
+                Date departure = position == ride.alightPosition ? null : new Date(dayStart + network.getDeparture(ride.trip, position) * 1000L);
+                stops.add(new Trip.Stop(network.getStopId(stop), network.getStopName(stop), point, arrival, arrival, null, false, departure, departure, null, false));
+                coordinates.add(point.getCoordinate());
+            }
+            long travelTime = (network.getArrival(ride.trip, ride.alightPosition) - network.getDeparture(ride.trip, ride.boardPosition)) * 1000L;
+            return new Trip.PtLeg(network.getFeedId(network.getPatternFeed(pattern)), false, network.getTripId(ride.trip),
+                    network.getRouteId(network.getPatternRoute(pattern)), network.getTripHeadsign(ride.trip), stops, 0.0, travelTime,
+                    geometryFactory.createLineString(coordinates.toArray(new Coordinate[0])));
+        }
+
         private boolean profileFinished(MultiCriteriaLabelSetting router, List<Label> discoveredSolutions, Label walkSolution) {
             return discoveredSolutions.size() >= limitSolutions ||
                     (!discoveredSolutions.isEmpty() && router.timeSinceStartTime(discoveredSolutions.get(discoveredSolutions.size() - 1)) > maxProfileDuration) ||
@@ -0,0 +1,458 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.reader.gtfs;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntIntMap;
+import com.carrotsearch.hppc.cursors.IntIntCursor;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+
+/**
+ * Public transit routing with RAPTOR (Delling et al., "Round-Based Public Transit Routing"). Instead of a label setting
+ * on the time-expanded graph the timetable is scanned route by route in the flat arrays of a {@link RaptorNetwork},
+ * where round k finds the earliest arrival at every stop with at most k rides. This yields the Pareto set of arrival
+ * time and number of transfers. Profile queries use range-RAPTOR, i.e. the rounds are repeated for every departure
+ * in the time window from the latest to the earliest while the labels are kept, so that every run only has to
+ * improve the result of the later departures.
+ * <p>
+ * Realtime updates and block transfers (staying in the vehicle) are not supported. Create one instance per query.
+ */
+final class Raptor {
+
+    static final int DEFAULT_MAX_ROUNDS = 10;
+    private static final int INFINITY = Integer.MAX_VALUE;
+    // the service days before and after the day of the departure that are searched for trips
+    private static final int[] DAY_OFFSETS = {-1, 0, 1};
+
+    private final RaptorNetwork network;
+    private final int maxRounds;
+    private final int blockedRouteTypes;
+    // all times are in milliseconds relative to the requested departure time, per round k and stop
+    private final int[][] arrivals;
+    private final int[][] rideArrivals;
+    private final int[][] rideTrips;
+    private final int[][] rideDays;
+    private final int[][] rideBoardPositions;
+    private final int[][] rideAlightPositions;
+    private final int[][] transferFrom;
+    private final int[] targetArrivals;
+    private final int[] targetStops;
+    private final int[] patternStartPositions;
+    private final IntArrayList markedPatterns = new IntArrayList();
+    private BitSet markedStops;
+    // the start of the service days relative to the departure time and the service day indices, per feed
+    private int[][] dayStarts;
+    private int[][] serviceDays;
+    private IntIntMap access;
+    private IntIntMap egress;
+    private int walkTime;
+    private int walkBound;
+
+    static class Ride {
+        final int trip;
+        // the start of the service day of the trip in milliseconds relative to the departure time of the query
+        final int dayStart;
+        final int boardPosition;
+        final int alightPosition;
+
+        Ride(int trip, int dayStart, int boardPosition, int alightPosition) {
+            this.trip = trip;
+            this.dayStart = dayStart;
+            this.boardPosition = boardPosition;
+            this.alightPosition = alightPosition;
+        }
+    }
+
+    /**
+     * A journey from the start to the destination, which only consists of walking if there are no rides. Rides
+     * alighting and boarding at different stops are connected with a transfer of transfers.txt.
+     */
+    static class Journey {
+        // in milliseconds relative to the departure time of the query
+        final int departureTime;
+        final int arrivalTime;
+        final int accessStop;
+        final int egressStop;
+        final List<Ride> rides;
+
+        Journey(int departureTime, int arrivalTime, int accessStop, int egressStop, List<Ride> rides) {
+            this.departureTime = departureTime;
+            this.arrivalTime = arrivalTime;
+            this.accessStop = accessStop;
+            this.egressStop = egressStop;
+            this.rides = rides;
+        }
+
+        boolean isWalkOnly() {
+            return rides.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return "departure: " + departureTime + ", arrival: " + arrivalTime + ", rides: " + rides.size();
+        }
+    }
+
+    Raptor(RaptorNetwork network, int maxRounds, int blockedRouteTypes) {
+        if (maxRounds < 1)
+            throw new IllegalArgumentException("At least one round is required: " + maxRounds);
+        this.network = network;
+        this.maxRounds = maxRounds;
+        this.blockedRouteTypes = blockedRouteTypes;
+        int stops = network.getStops();
+        arrivals = new int[maxRounds + 1][stops];
+        rideArrivals = new int[maxRounds + 1][stops];
+        rideTrips = new int[maxRounds + 1][stops];
+        rideDays = new int[maxRounds + 1][stops];
+        rideBoardPositions = new int[maxRounds + 1][stops];
+        rideAlightPositions = new int[maxRounds + 1][stops];
+        transferFrom = new int[maxRounds + 1][stops];
+        for (int k = 0; k <= maxRounds; k++) {
+            Arrays.fill(arrivals[k], INFINITY);
+            Arrays.fill(rideArrivals[k], INFINITY);
+        }
+        targetArrivals = new int[maxRounds + 1];
+        targetStops = new int[maxRounds + 1];
+        Arrays.fill(targetArrivals, INFINITY);
+        Arrays.fill(targetStops, -1);
+        patternStartPositions = new int[network.getPatterns()];
+        Arrays.fill(patternStartPositions, -1);
+        markedStops = new BitSet(stops);
+    }
+
+    /**
+     * @param departureTime   the earliest departure time
+     * @param access          the walk time in milliseconds from the start to every reachable stop
+     * @param egress          the walk time in milliseconds from every stop to the destination
+     * @param walkTime        the time in milliseconds to walk from the start to the destination or -1 if it is
+     *                        unreachable on foot
+     * @param profileDuration the length of the time window in milliseconds for a profile query or 0
+     * @param ignoreTransfers if true only the earliest arrival is searched, otherwise also the journeys with fewer
+     *                        transfers
+     * @return the journeys sorted by their departure time
+     */
+    List<Journey> route(Instant departureTime, IntIntMap access, IntIntMap egress, int walkTime, int profileDuration, boolean ignoreTransfers) {
+        this.access = access;
+        this.egress = egress;
+        initDays(departureTime);
+
+        List<Journey> journeys = new ArrayList<>();
+        if (walkTime >= 0)
+            journeys.add(new Journey(0, walkTime, -1, -1, Collections.emptyList()));
+        this.walkTime = walkTime >= 0 ? walkTime : INFINITY;
+        int[] departures = profileDuration > 0 ? collectDepartures(profileDuration) : new int[]{0};
+        int[] previousTargetArrivals = new int[maxRounds + 1];
+        // latest departure first, so that the earlier departures only have to improve the labels
+        for (int i = departures.length - 1; i >= 0; i--) {
+            int departure = departures[i];
+            // a journey arriving not earlier than walking at the same time is dominated
+            walkBound = this.walkTime == INFINITY ? INFINITY : departure + this.walkTime;
+            System.arraycopy(targetArrivals, 0, previousTargetArrivals, 0, targetArrivals.length);
+            int previousBest = min(previousTargetArrivals);
+            runRounds(departure);
+
+            if (ignoreTransfers) {
+                int best = min(targetArrivals);
+                if (best < previousBest) {
+                    int k = 1;
+                    while (targetArrivals[k] != best) {
+                        k++;
+                    }
+                    addJourney(journeys, k);
+                }
+            } else {
+                int best = INFINITY;
+                for (int k = 1; k <= maxRounds; k++) {
+                    if (targetArrivals[k] < previousTargetArrivals[k] && targetArrivals[k] < best)
+                        addJourney(journeys, k);
+                    best = Math.min(best, targetArrivals[k]);
+                }
+            }
+        }
+
+        if (profileDuration == 0 && !journeys.isEmpty()) {
+            // a single departure: only keep the journeys that are not dominated by one with fewer rides
+            journeys.sort(Comparator.comparingInt((Journey j) -> j.rides.size()));
+            List<Journey> result = new ArrayList<>();
+            for (Journey journey : journeys) {
+                if (result.isEmpty() || journey.arrivalTime < result.get(result.size() - 1).arrivalTime)
+                    result.add(journey);
+            }
+            journeys = ignoreTransfers ? Collections.singletonList(result.get(result.size() - 1)) : result;
+        }
+        List<Journey> result = new ArrayList<>(journeys);
+        result.sort(Comparator.comparingInt((Journey j) -> j.departureTime).thenComparingInt(j -> j.rides.size()));
+        return result;
+    }
+
+    private void addJourney(List<Journey> journeys, int k) {
+        Journey journey = reconstruct(k, targetStops[k]);
+        // the reconstructed journey departs as late as possible, walking at that time must not be faster
+        if (walkTime == INFINITY || journey.arrivalTime - journey.departureTime < walkTime)
+            journeys.add(journey);
+    }
+
+    private void initDays(Instant departureTime) {
+        int feeds = network.getFeeds();
+        dayStarts = new int[feeds][DAY_OFFSETS.length];
+        serviceDays = new int[feeds][DAY_OFFSETS.length];
+        for (int feed = 0; feed < feeds; feed++) {
+            ZoneId zone = network.getFeedZone(feed);
+            LocalDate date = departureTime.atZone(zone).toLocalDate();
+            for (int d = 0; d < DAY_OFFSETS.length; d++) {
+                LocalDate day = date.plusDays(DAY_OFFSETS[d]);
+                dayStarts[feed][d] = (int) (day.atStartOfDay(zone).toInstant().toEpochMilli() - departureTime.toEpochMilli());
+                serviceDays[feed][d] = network.getServiceDay(feed, day);
+            }
+        }
+    }
+
+    /**
+     * @return the sorted distinct departure times from the start within the time window, so that the first trip of
+     * every pattern at every access stop is caught. The end of the time window is always contained to find the
+     * journey that is optimal at the end, which can depart after it.
+     */
+    private int[] collectDepartures(int profileDuration) {
+        IntArrayList departures = new IntArrayList();
+        departures.add(profileDuration);
+        for (IntIntCursor cursor : access) {
+            int stop = cursor.key, accessTime = cursor.value;
+            for (int entry = network.getFirstPatternEntry(stop); entry < network.getFirstPatternEntry(stop + 1); entry++) {
+                int pattern = network.getPatternEntryPattern(entry);
+                int position = network.getPatternEntryPosition(entry);
+                if (isBlocked(pattern) || position == network.getPatternSize(pattern) - 1)
+                    continue;
+                int feed = network.getPatternFeed(pattern);
+                for (int d = 0; d < DAY_OFFSETS.length; d++) {
+                    int dayStart = dayStarts[feed][d];
+                    int trip = firstTripNotBefore(pattern, position, accessTime - (long) dayStart);
+                    for (; trip < network.getEndTrip(pattern); trip++) {
+                        long departure = dayStart + network.getDeparture(trip, position) * 1000L - accessTime;
+                        if (departure > profileDuration)
+                            break;
+                        if (network.isActiveOn(trip, serviceDays[feed][d]))
+                            departures.add((int) departure);
+                    }
+                }
+            }
+        }
+        int[] result = departures.toArray();
+        Arrays.sort(result);
+        int size = 0;
+        for (int i = 0; i < result.length; i++) {
+            if (size == 0 || result[i] != result[size - 1])
+                result[size++] = result[i];
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    private void runRounds(int departure) {
+        markedStops.clear();
+        for (IntIntCursor cursor : access) {
+            int time = departure + cursor.value;
+            if (time < arrivals[0][cursor.key]) {
+                arrivals[0][cursor.key] = time;
+                markedStops.set(cursor.key);
+            }
+        }
+
+        for (int k = 1; k <= maxRounds && !markedStops.isEmpty(); k++) {
+            if (targetArrivals[k - 1] < targetArrivals[k]) {
+                targetArrivals[k] = targetArrivals[k - 1];
+                targetStops[k] = targetStops[k - 1];
+            }
+            for (int stop = markedStops.nextSetBit(0); stop >= 0; stop = markedStops.nextSetBit(stop + 1)) {
+                arrivals[k][stop] = Math.min(arrivals[k][stop], arrivals[k - 1][stop]);
+                for (int entry = network.getFirstPatternEntry(stop); entry < network.getFirstPatternEntry(stop + 1); entry++) {
+                    int pattern = network.getPatternEntryPattern(entry);
+                    int position = network.getPatternEntryPosition(entry);
+                    if (patternStartPositions[pattern] < 0) {
+                        patternStartPositions[pattern] = position;
+                        markedPatterns.add(pattern);
+                    } else if (position < patternStartPositions[pattern]) {
+                        patternStartPositions[pattern] = position;
+                    }
+                }
+            }
+
+            BitSet rideStops = new BitSet(network.getStops());
+            for (int i = 0; i < markedPatterns.size(); i++) {
+                int pattern = markedPatterns.get(i);
+                scanPattern(k, pattern, patternStartPositions[pattern], rideStops);
+                patternStartPositions[pattern] = -1;
+            }
+            markedPatterns.clear();
+
+            markedStops = (BitSet) rideStops.clone();
+            for (int stop = rideStops.nextSetBit(0); stop >= 0; stop = rideStops.nextSetBit(stop + 1)) {
+                relaxTransfers(k, stop);
+            }
+        }
+    }
+
+    private void scanPattern(int k, int pattern, int startPosition, BitSet rideStops) {
+        if (isBlocked(pattern))
+            return;
+
+        int route = network.getPatternRoute(pattern);
+        int feed = network.getPatternFeed(pattern);
+        int size = network.getPatternSize(pattern);
+        int trip = -1, day = -1, boardPosition = -1;
+        for (int position = startPosition; position < size; position++) {
+            int stop = network.getPatternStop(pattern, position);
+            if (trip >= 0) {
+                int arrival = dayStarts[feed][day] + network.getArrival(trip, position) * 1000;
+                if (arrival < arrivals[k][stop] && arrival < targetArrivals[k] && arrival < walkBound) {
+                    arrivals[k][stop] = arrival;
+                    rideArrivals[k][stop] = arrival;
+                    rideTrips[k][stop] = trip;
+                    rideDays[k][stop] = day;
+                    rideBoardPositions[k][stop] = boardPosition;
+                    rideAlightPositions[k][stop] = position;
+                    rideStops.set(stop);
+                    updateTarget(k, stop, arrival);
+                }
+            }
+
+            int previousArrival = arrivals[k - 1][stop];
+            if (previousArrival == INFINITY || position == size - 1)
+                continue;
+            long ready = (long) previousArrival + getChangeTime(k - 1, stop, route);
+            if (trip >= 0 && ready > dayStarts[feed][day] + network.getDeparture(trip, position) * 1000L)
+                continue;
+
+            // find the earliest trip that can be boarded on any of the service days
+            long best = trip >= 0 ? dayStarts[feed][day] + network.getDeparture(trip, position) * 1000L : Long.MAX_VALUE;
+            for (int d = 0; d < DAY_OFFSETS.length; d++) {
+                int dayStart = dayStarts[feed][d];
+                for (int t = firstTripNotBefore(pattern, position, ready - dayStart); t < network.getEndTrip(pattern); t++) {
+                    long departure = dayStart + network.getDeparture(t, position) * 1000L;
+                    if (departure >= best)
+                        break;
+                    if (network.isActiveOn(t, serviceDays[feed][d])) {
+                        best = departure;
+                        trip = t;
+                        day = d;
+                        boardPosition = position;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    private void relaxTransfers(int k, int stop) {
+        int route = network.getPatternRoute(network.getTripPattern(rideTrips[k][stop]));
+        for (int transfer = network.getFirstTransfer(stop); transfer < network.getFirstTransfer(stop + 1); transfer++) {
+            int fromRoute = network.getTransferFromRoute(transfer);
+            if (fromRoute >= 0 && fromRoute != route)
+                continue;
+            int toStop = network.getTransferToStop(transfer);
+            long arrival = (long) rideArrivals[k][stop] + network.getTransferTime(transfer) * 1000L;
+            if (arrival < arrivals[k][toStop] && arrival < targetArrivals[k] && arrival < walkBound) {
+                arrivals[k][toStop] = (int) arrival;
+                transferFrom[k][toStop] = stop;
+                markedStops.set(toStop);
+                updateTarget(k, toStop, (int) arrival);
+            }
+        }
+    }
+
+    private void updateTarget(int k, int stop, int arrival) {
+        if (!egress.containsKey(stop))
+            return;
+        long targetArrival = (long) arrival + egress.get(stop);
+        if (targetArrival < targetArrivals[k]) {
+            targetArrivals[k] = (int) targetArrival;
+            targetStops[k] = stop;
+        }
+    }
+
+    /**
+     * The minimum time to change at the stop. It only applies when the stop was reached with a ride, the time of a
+     * transfer to another stop already contains it.
+     */
+    private int getChangeTime(int k, int stop, int toRoute) {
+        while (k > 0 && arrivals[k][stop] == arrivals[k - 1][stop]) {
+            k--;
+        }
+        if (k == 0 || arrivals[k][stop] != rideArrivals[k][stop])
+            return 0;
+        int fromRoute = network.getPatternRoute(network.getTripPattern(rideTrips[k][stop]));
+        return network.getChangeTime(stop, fromRoute, toRoute) * 1000;
+    }
+
+    /**
+     * @return the first trip of the pattern that departs at the position not before the specified time after the
+     * start of the service day, or the end of the trips
+     */
+    private int firstTripNotBefore(int pattern, int position, long millis) {
+        int low = network.getFirstTrip(pattern), high = network.getEndTrip(pattern);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (network.getDeparture(mid, position) * 1000L < millis)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    private boolean isBlocked(int pattern) {
+        return (blockedRouteTypes & (1 << network.getRouteType(network.getPatternRoute(pattern)))) != 0;
+    }
+
+    private Journey reconstruct(int k, int egressStop) {
+        List<Ride> rides = new ArrayList<>();
+        int stop = egressStop;
+        while (true) {
+            while (k > 0 && arrivals[k][stop] == arrivals[k - 1][stop]) {
+                k--;
+            }
+            if (k == 0)
+                break;
+            if (arrivals[k][stop] != rideArrivals[k][stop])
+                stop = transferFrom[k][stop];
+
+            int trip = rideTrips[k][stop];
+            int dayStart = dayStarts[network.getPatternFeed(network.getTripPattern(trip))][rideDays[k][stop]];
+            rides.add(new Ride(trip, dayStart, rideBoardPositions[k][stop], rideAlightPositions[k][stop]));
+            stop = network.getPatternStop(network.getTripPattern(trip), rideBoardPositions[k][stop]);
+            k--;
+        }
+        Collections.reverse(rides);
+
+        Ride first = rides.get(0), last = rides.get(rides.size() - 1);
+        int departure = first.dayStart + network.getDeparture(first.trip, first.boardPosition) * 1000 - access.get(stop);
+        int arrival = last.dayStart + network.getArrival(last.trip, last.alightPosition) * 1000 + egress.get(egressStop);
+        return new Journey(departure, arrival, stop, egressStop, rides);
+    }
+
+    private static int min(int[] values) {
+        int min = INFINITY;
+        for (int value : values) {
+            min = Math.min(min, value);
+        }
+        return min;
+    }
+}
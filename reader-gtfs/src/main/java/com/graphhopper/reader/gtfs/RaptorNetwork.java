@@ -0,0 +1,557 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.reader.gtfs;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntObjectHashMap;
+import com.carrotsearch.hppc.IntObjectMap;
+import com.conveyal.gtfs.GTFSFeed;
+import com.conveyal.gtfs.model.*;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+
+import static java.time.temporal.ChronoUnit.DAYS;
+
+/**
+ * The timetable of all feeds in flat arrays for {@link Raptor}. Trips that serve the same sequence of stops on the
+ * same route are grouped into patterns (the "routes" of the RAPTOR paper). The trips of a pattern are sorted by
+ * departure time and never overtake each other, so the first trip that can be boarded at a stop can be found with a
+ * binary search. Frequency-based trips are expanded into one trip per departure like in {@link GtfsReader}.
+ * <p>
+ * All times are in seconds after midnight of the service day. This class is immutable after its creation.
+ */
+final class RaptorNetwork {
+
+    private static final int[] EMPTY = new int[0];
+
+    // stops
+    private final String[] stopIds;
+    private final String[] stopNames;
+    private final double[] stopLats;
+    private final double[] stopLons;
+    private final int[] stopFeeds;
+    private final Map<String, Integer> stopIndex = new HashMap<>();
+    // the stops at every station node of the graph
+    private final IntObjectMap<int[]> nodeStops = new IntObjectHashMap<>();
+    // the patterns at a stop and the position of the stop in the pattern
+    private final int[] stopFirstPatternEntry;
+    private final int[] patternEntryPatterns;
+    private final int[] patternEntryPositions;
+    // the transfers between different stops and the transfer rules within a stop
+    private final int[] stopFirstTransfer;
+    private final int[] transferToStops;
+    private final int[] transferTimes;
+    private final int[] transferFromRoutes;
+    private final Map<Integer, List<int[]>> changeRulesByStop = new HashMap<>();
+
+    // feeds, routes and services
+    private final String[] feedIds;
+    private final ZoneId[] feedZones;
+    private final LocalDate[] feedStartDates;
+    private final String[] routeIds;
+    private final int[] routeTypes;
+    private final BitSet[] serviceDays;
+
+    // patterns
+    private final int[] patternRoutes;
+    private final int[] patternFirstStop;
+    private final int[] patternStops;
+    private final int[] patternFirstTrip;
+    // trips, the stop times of trip t at the position p of its pattern are at tripFirstStopTime[t] + p
+    private final int[] tripPatterns;
+    private final int[] tripServices;
+    private final String[] tripIds;
+    private final String[] tripHeadsigns;
+    private final int[] tripFirstStopTime;
+    private final int[] arrivals;
+    private final int[] departures;
+
+    private RaptorNetwork(Builder b, Map<String, Integer> stationNodes) {
+        stopIds = b.stopIds.toArray(new String[0]);
+        stopNames = b.stopNames.toArray(new String[0]);
+        stopLats = b.stopLats.stream().mapToDouble(Double::doubleValue).toArray();
+        stopLons = b.stopLons.stream().mapToDouble(Double::doubleValue).toArray();
+        stopFeeds = b.stopFeeds.toArray();
+        stopIndex.putAll(b.stopIndex);
+        for (int stop = 0; stop < stopIds.length; stop++) {
+            Integer node = stationNodes.get(stopIds[stop]);
+            if (node == null)
+                continue;
+            int[] stops = nodeStops.get(node);
+            stops = stops == null ? new int[1] : Arrays.copyOf(stops, stops.length + 1);
+            stops[stops.length - 1] = stop;
+            nodeStops.put(node, stops);
+        }
+        feedIds = b.feedIds.toArray(new String[0]);
+        feedZones = b.feedZones.toArray(new ZoneId[0]);
+        feedStartDates = b.feedStartDates.toArray(new LocalDate[0]);
+        routeIds = b.routeIds.toArray(new String[0]);
+        routeTypes = b.routeTypes.toArray();
+        serviceDays = b.serviceDays.toArray(new BitSet[0]);
+
+        int nPatterns = b.patterns.size();
+        patternRoutes = new int[nPatterns];
+        patternFirstStop = new int[nPatterns + 1];
+        patternFirstTrip = new int[nPatterns + 1];
+        IntArrayList stops = new IntArrayList();
+        int nTrips = 0;
+        for (int p = 0; p < nPatterns; p++) {
+            Builder.Pattern pattern = b.patterns.get(p);
+            patternRoutes[p] = pattern.route;
+            patternFirstStop[p] = stops.size();
+            stops.add(pattern.stops);
+            patternFirstTrip[p] = nTrips;
+            nTrips += pattern.trips.size();
+        }
+        patternFirstStop[nPatterns] = stops.size();
+        patternFirstTrip[nPatterns] = nTrips;
+        patternStops = stops.toArray();
+
+        tripPatterns = new int[nTrips];
+        tripServices = new int[nTrips];
+        tripIds = new String[nTrips];
+        tripHeadsigns = new String[nTrips];
+        tripFirstStopTime = new int[nTrips];
+        IntArrayList arrivalList = new IntArrayList();
+        IntArrayList departureList = new IntArrayList();
+        int trip = 0;
+        for (int p = 0; p < nPatterns; p++) {
+            for (Builder.TripTimes tripTimes : b.patterns.get(p).trips) {
+                tripPatterns[trip] = p;
+                tripServices[trip] = tripTimes.service;
+                tripIds[trip] = tripTimes.tripId;
+                tripHeadsigns[trip] = tripTimes.headsign;
+                tripFirstStopTime[trip] = arrivalList.size();
+                arrivalList.add(tripTimes.arrivals);
+                departureList.add(tripTimes.departures);
+                trip++;
+            }
+        }
+        arrivals = arrivalList.toArray();
+        departures = departureList.toArray();
+
+        int nStops = stopIds.length;
+        List<List<int[]>> entriesByStop = new ArrayList<>(nStops);
+        for (int s = 0; s < nStops; s++) {
+            entriesByStop.add(new ArrayList<>());
+        }
+        for (int p = 0; p < nPatterns; p++) {
+            for (int pos = 0; pos < getPatternSize(p); pos++) {
+                entriesByStop.get(getPatternStop(p, pos)).add(new int[]{p, pos});
+            }
+        }
+        stopFirstPatternEntry = new int[nStops + 1];
+        IntArrayList entryPatterns = new IntArrayList(), entryPositions = new IntArrayList();
+        for (int s = 0; s < nStops; s++) {
+            stopFirstPatternEntry[s] = entryPatterns.size();
+            for (int[] entry : entriesByStop.get(s)) {
+                entryPatterns.add(entry[0]);
+                entryPositions.add(entry[1]);
+            }
+        }
+        stopFirstPatternEntry[nStops] = entryPatterns.size();
+        patternEntryPatterns = entryPatterns.toArray();
+        patternEntryPositions = entryPositions.toArray();
+
+        stopFirstTransfer = new int[nStops + 1];
+        IntArrayList toStops = new IntArrayList(), times = new IntArrayList(), fromRoutes = new IntArrayList();
+        for (int s = 0; s < nStops; s++) {
+            stopFirstTransfer[s] = toStops.size();
+            for (int[] transfer : b.transfersByStop.getOrDefault(s, Collections.emptyList())) {
+                toStops.add(transfer[0]);
+                times.add(transfer[1]);
+                fromRoutes.add(transfer[2]);
+            }
+        }
+        stopFirstTransfer[nStops] = toStops.size();
+        transferToStops = toStops.toArray();
+        transferTimes = times.toArray();
+        transferFromRoutes = fromRoutes.toArray();
+        changeRulesByStop.putAll(b.changeRulesByStop);
+    }
+
+    /**
+     * @param stationNodes the node of the graph at which every stop is connected to the street network
+     */
+    static RaptorNetwork fromFeeds(Map<String, GTFSFeed> feeds, Map<String, Integer> stationNodes) {
+        Builder builder = new Builder();
+        // sort for a deterministic order of stops, patterns and trips
+        for (String feedId : new TreeSet<>(feeds.keySet())) {
+            builder.addFeed(feedId, feeds.get(feedId));
+        }
+        return new RaptorNetwork(builder, stationNodes);
+    }
+
+    int getStops() {
+        return stopIds.length;
+    }
+
+    /**
+     * @return the index of the stop or -1 if no stop with this id exists
+     */
+    int getStopIndex(String stopId) {
+        Integer index = stopIndex.get(stopId);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * @return the stops connected to the street network at the specified node or an empty array
+     */
+    int[] getStopsAtNode(int node) {
+        int[] stops = nodeStops.get(node);
+        return stops == null ? EMPTY : stops;
+    }
+
+    String getStopId(int stop) {
+        return stopIds[stop];
+    }
+
+    String getStopName(int stop) {
+        return stopNames[stop];
+    }
+
+    double getStopLat(int stop) {
+        return stopLats[stop];
+    }
+
+    double getStopLon(int stop) {
+        return stopLons[stop];
+    }
+
+    int getStopFeed(int stop) {
+        return stopFeeds[stop];
+    }
+
+    int getFirstPatternEntry(int stop) {
+        return stopFirstPatternEntry[stop];
+    }
+
+    int getPatternEntryPattern(int entry) {
+        return patternEntryPatterns[entry];
+    }
+
+    int getPatternEntryPosition(int entry) {
+        return patternEntryPositions[entry];
+    }
+
+    int getFirstTransfer(int stop) {
+        return stopFirstTransfer[stop];
+    }
+
+    int getTransferToStop(int transfer) {
+        return transferToStops[transfer];
+    }
+
+    /**
+     * @return the minimum time in seconds to walk to the other stop
+     */
+    int getTransferTime(int transfer) {
+        return transferTimes[transfer];
+    }
+
+    /**
+     * @return the route the transfer is restricted to or -1
+     */
+    int getTransferFromRoute(int transfer) {
+        return transferFromRoutes[transfer];
+    }
+
+    /**
+     * The minimum time in seconds to change from a vehicle of one route to a vehicle of another route at the same
+     * stop. Like the graph built by {@link GtfsReader} this uses the most specific rule of transfers.txt and zero if
+     * there is none.
+     *
+     * @param fromRoute the route of the arrival or -1 if the stop was reached on foot
+     */
+    int getChangeTime(int stop, int fromRoute, int toRoute) {
+        List<int[]> rules = changeRulesByStop.get(stop);
+        if (rules == null)
+            return 0;
+        int bestScore = -1, changeTime = 0;
+        for (int[] rule : rules) {
+            // the rule has the format fromRoute, toRoute, minTransferTime where -1 matches every route
+            if (rule[0] >= 0 && rule[0] != fromRoute || rule[1] >= 0 && rule[1] != toRoute)
+                continue;
+            int score = (rule[0] >= 0 ? 1 : 0) + (rule[1] >= 0 ? 1 : 0);
+            if (score > bestScore) {
+                bestScore = score;
+                changeTime = rule[2];
+            }
+        }
+        return changeTime;
+    }
+
+    int getPatterns() {
+        return patternRoutes.length;
+    }
+
+    int getPatternRoute(int pattern) {
+        return patternRoutes[pattern];
+    }
+
+    int getPatternSize(int pattern) {
+        return patternFirstStop[pattern + 1] - patternFirstStop[pattern];
+    }
+
+    int getPatternStop(int pattern, int position) {
+        return patternStops[patternFirstStop[pattern] + position];
+    }
+
+    int getFirstTrip(int pattern) {
+        return patternFirstTrip[pattern];
+    }
+
+    /**
+     * @return the index after the last trip of the pattern
+     */
+    int getEndTrip(int pattern) {
+        return patternFirstTrip[pattern + 1];
+    }
+
+    int getTripPattern(int trip) {
+        return tripPatterns[trip];
+    }
+
+    String getTripId(int trip) {
+        return tripIds[trip];
+    }
+
+    String getTripHeadsign(int trip) {
+        return tripHeadsigns[trip];
+    }
+
+    int getArrival(int trip, int position) {
+        return arrivals[tripFirstStopTime[trip] + position];
+    }
+
+    int getDeparture(int trip, int position) {
+        return departures[tripFirstStopTime[trip] + position];
+    }
+
+    String getRouteId(int route) {
+        return routeIds[route];
+    }
+
+    int getRouteType(int route) {
+        return routeTypes[route];
+    }
+
+    String getFeedId(int feed) {
+        return feedIds[feed];
+    }
+
+    int getFeeds() {
+        return feedIds.length;
+    }
+
+    ZoneId getFeedZone(int feed) {
+        return feedZones[feed];
+    }
+
+    int getPatternFeed(int pattern) {
+        return stopFeeds[getPatternStop(pattern, 0)];
+    }
+
+    /**
+     * @return the day of the date in the calendar of the feed, which can be outside of the validity of the feed
+     */
+    int getServiceDay(int feed, LocalDate date) {
+        long day = DAYS.between(feedStartDates[feed], date);
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, day));
+    }
+
+    boolean isActiveOn(int trip, int serviceDay) {
+        return serviceDay >= 0 && serviceDays[tripServices[trip]].get(serviceDay);
+    }
+
+    @Override
+    public String toString() {
+        return "stops: " + stopIds.length + ", patterns: " + patternRoutes.length + ", trips: " + tripIds.length
+                + ", transfers: " + transferToStops.length;
+    }
+
+    private static class Builder {
+        private final List<String> stopIds = new ArrayList<>();
+        private final List<String> stopNames = new ArrayList<>();
+        private final List<Double> stopLats = new ArrayList<>();
+        private final List<Double> stopLons = new ArrayList<>();
+        private final IntArrayList stopFeeds = new IntArrayList();
+        private final Map<String, Integer> stopIndex = new HashMap<>();
+        private final List<String> feedIds = new ArrayList<>();
+        private final List<ZoneId> feedZones = new ArrayList<>();
+        private final List<LocalDate> feedStartDates = new ArrayList<>();
+        private final List<String> routeIds = new ArrayList<>();
+        private final IntArrayList routeTypes = new IntArrayList();
+        private final List<BitSet> serviceDays = new ArrayList<>();
+        private final List<Pattern> patterns = new ArrayList<>();
+        private final Map<Integer, List<int[]>> transfersByStop = new HashMap<>();
+        private final Map<Integer, List<int[]>> changeRulesByStop = new HashMap<>();
+
+        private static class TripTimes {
+            String tripId;
+            String headsign;
+            int service;
+            int[] arrivals;
+            int[] departures;
+        }
+
+        private static class Pattern {
+            int route;
+            int[] stops;
+            List<TripTimes> trips = new ArrayList<>();
+        }
+
+        void addFeed(String feedId, GTFSFeed feed) {
+            int feedIndex = feedIds.size();
+            feedIds.add(feedId);
+            feedZones.add(ZoneId.of(feed.agency.values().iterator().next().agency_timezone));
+            LocalDate startDate = feed.getStartDate();
+            LocalDate endDate = feed.getEndDate();
+            feedStartDates.add(startDate);
+
+            for (Stop stop : new TreeMap<>(feed.stops).values()) {
+                if (stop.location_type != 0)
+                    continue;
+                stopIndex.put(stop.stop_id, stopIds.size());
+                stopIds.add(stop.stop_id);
+                stopNames.add(stop.stop_name);
+                stopLats.add(stop.stop_lat);
+                stopLons.add(stop.stop_lon);
+                stopFeeds.add(feedIndex);
+            }
+
+            Map<String, Integer> routeIndex = new HashMap<>();
+            for (Route route : new TreeMap<>(feed.routes).values()) {
+                routeIndex.put(route.route_id, routeIds.size());
+                routeIds.add(route.route_id);
+                routeTypes.add(route.route_type);
+            }
+
+            Map<String, Integer> serviceIndex = new HashMap<>();
+            for (Service service : feed.services.values()) {
+                BitSet validOnDay = new BitSet((int) DAYS.between(startDate, endDate));
+                for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+                    if (service.activeOn(date))
+                        validOnDay.set((int) DAYS.between(startDate, date));
+                }
+                serviceIndex.put(service.service_id, serviceDays.size());
+                serviceDays.add(validOnDay);
+            }
+
+            // group the trips by route and stop sequence
+            Map<List<Integer>, List<TripTimes>> tripsByStops = new LinkedHashMap<>();
+            for (Trip trip : feed.trips.values()) {
+                List<StopTime> stopTimes = new ArrayList<>();
+                feed.getInterpolatedStopTimesForTrip(trip.trip_id).forEach(stopTimes::add);
+                if (stopTimes.size() < 2)
+                    continue;
+                List<Integer> key = new ArrayList<>(stopTimes.size() + 1);
+                key.add(routeIndex.get(trip.route_id));
+                for (StopTime stopTime : stopTimes) {
+                    key.add(stopIndex.get(stopTime.stop_id));
+                }
+                List<TripTimes> trips = tripsByStops.computeIfAbsent(key, k -> new ArrayList<>());
+                Route route = feed.routes.get(trip.route_id);
+                String routeName = route != null ? (route.route_long_name != null ? route.route_long_name : route.route_short_name) : "extra";
+                Collection<Frequency> frequencies = feed.getFrequencies(trip.trip_id);
+                if (frequencies.isEmpty()) {
+                    trips.add(createTripTimes(trip, routeName, serviceIndex.get(trip.service_id), stopTimes, 0));
+                } else {
+                    for (Frequency frequency : frequencies) {
+                        for (int time = frequency.start_time; time < frequency.end_time; time += frequency.headway_secs) {
+                            trips.add(createTripTimes(trip, routeName, serviceIndex.get(trip.service_id), stopTimes, time));
+                        }
+                    }
+                }
+            }
+            tripsByStops.forEach((key, trips) -> addPatterns(key, trips));
+
+            for (Transfer transfer : feed.transfers.values()) {
+                // like Transfers, only recommended and timed transfers
+                if (transfer.transfer_type != 0 && transfer.transfer_type != 2)
+                    continue;
+                Integer fromStop = stopIndex.get(transfer.from_stop_id);
+                Integer toStop = stopIndex.get(transfer.to_stop_id);
+                if (fromStop == null || toStop == null)
+                    continue;
+                int fromRoute = transfer.from_route_id == null ? -1 : routeIndex.getOrDefault(transfer.from_route_id, -1);
+                int toRoute = transfer.to_route_id == null ? -1 : routeIndex.getOrDefault(transfer.to_route_id, -1);
+                if (fromStop.equals(toStop)) {
+                    changeRulesByStop.computeIfAbsent(fromStop, s -> new ArrayList<>()).add(new int[]{fromRoute, toRoute, transfer.min_transfer_time});
+                } else if (toRoute < 0) {
+                    // route specific rules for the departure are only supported within a stop
+                    transfersByStop.computeIfAbsent(fromStop, s -> new ArrayList<>()).add(new int[]{toStop, transfer.min_transfer_time, fromRoute});
+                }
+            }
+        }
+
+        private static TripTimes createTripTimes(Trip trip, String routeName, int service, List<StopTime> stopTimes, int time) {
+            TripTimes tripTimes = new TripTimes();
+            tripTimes.tripId = trip.trip_id;
+            tripTimes.headsign = routeName + " " + trip.trip_headsign;
+            tripTimes.service = service;
+            tripTimes.arrivals = new int[stopTimes.size()];
+            tripTimes.departures = new int[stopTimes.size()];
+            for (int i = 0; i < stopTimes.size(); i++) {
+                tripTimes.arrivals[i] = stopTimes.get(i).arrival_time + time;
+                tripTimes.departures[i] = stopTimes.get(i).departure_time + time;
+            }
+            return tripTimes;
+        }
+
+        /**
+         * Sorts the trips by their departure at the first stop and splits them into patterns without overtaking.
+         */
+        private void addPatterns(List<Integer> key, List<TripTimes> trips) {
+            trips.sort(Comparator.comparingInt((TripTimes t) -> t.departures[0]).thenComparingInt(t -> t.arrivals[t.arrivals.length - 1]));
+            int[] stops = new int[key.size() - 1];
+            for (int i = 0; i < stops.length; i++) {
+                stops[i] = key.get(i + 1);
+            }
+            List<Pattern> created = new ArrayList<>();
+            for (TripTimes trip : trips) {
+                Pattern pattern = null;
+                for (Pattern candidate : created) {
+                    if (!overtakes(candidate.trips.get(candidate.trips.size() - 1), trip)) {
+                        pattern = candidate;
+                        break;
+                    }
+                }
+                if (pattern == null) {
+                    pattern = new Pattern();
+                    pattern.route = key.get(0);
+                    pattern.stops = stops;
+                    created.add(pattern);
+                }
+                pattern.trips.add(trip);
+            }
+            patterns.addAll(created);
+        }
+
+        private static boolean overtakes(TripTimes earlier, TripTimes later) {
+            for (int i = 0; i < earlier.arrivals.length; i++) {
+                if (later.arrivals[i] < earlier.arrivals[i] || later.departures[i] < earlier.departures[i])
+                    return true;
+            }
+            return false;
+        }
+    }
+}
@@ -18,6 +18,7 @@
 
 package com.graphhopper.reader.gtfs;
 
+import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntHashSet;
 import com.carrotsearch.hppc.IntIntHashMap;
 import com.carrotsearch.hppc.IntLongHashMap;
@@ -38,6 +39,7 @@ import com.graphhopper.storage.TurnCostStorage;
 import com.graphhopper.util.EdgeExplorer;
 import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.PointList;
+import com.graphhopper.util.StopWatch;
 import com.graphhopper.util.shapes.BBox;
 import org.mapdb.Fun;
 import org.slf4j.Logger;
@@ -50,7 +52,6 @@ import java.time.*;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 import java.util.stream.StreamSupport;
 
 import static com.google.transit.realtime.GtfsRealtime.TripUpdate.StopTimeUpdate.ScheduleRelationship.NO_DATA;
@@ -59,27 +60,72 @@ import static java.time.temporal.ChronoUnit.DAYS;
 
 public class RealtimeFeed {
     private static final Logger logger = LoggerFactory.getLogger(RealtimeFeed.class);
-    private final IntHashSet blockedEdges;
-    private final IntLongHashMap delaysForBoardEdges;
-    private final IntLongHashMap delaysForAlightEdges;
-    private final List<VirtualEdgeIteratorState> additionalEdges;
+    // the ids of the additional edges of changed trips are not reused, so start over when too many of them are unused
+    private static final int MAX_UNUSED_EDGE_IDS = 1_000_000;
+    private final IntHashSet blockedEdges = new IntHashSet();
+    private final IntLongHashMap delaysForBoardEdges = new IntLongHashMap();
+    private final IntLongHashMap delaysForAlightEdges = new IntLongHashMap();
+    private final List<VirtualEdgeIteratorState> additionalEdges = new ArrayList<>();
     public final Map<String, GtfsRealtime.FeedMessage> feedMessages;
     private final GtfsStorage staticGtfs;
-    private final Map<Integer, byte[]> additionalTripDescriptors;
-    private final Map<Integer, Integer> stopSequences;
+    private final Map<Integer, byte[]> additionalTripDescriptors = new HashMap<>();
+    private final Map<Integer, Integer> stopSequences = new HashMap<>();
+    private final Map<GtfsStorage.Validity, Integer> operatingDayPatterns;
+    private final Map<GtfsStorage.FeedIdWithTimezone, Integer> writableTimeZones;
     private final Map<Integer, GtfsStorage.Validity> validities;
     private final Map<Integer, GtfsStorage.FeedIdWithTimezone> feedIdWithTimezones;
+    private final Map<String, Map<String, AppliedTripUpdate>> appliedTripUpdates;
+    private final int nextEdge;
+    private final int nextNode;
+    private final int changedTripUpdates;
+
+    /**
+     * The effect of one trip update on the graph. It is kept as long as the trip update does not change, so a new
+     * feed message only needs to apply the trip updates which differ from the previous one.
+     */
+    private static class AppliedTripUpdate {
+        final GtfsRealtime.TripUpdate tripUpdate;
+        final LocalDate date;
+        final IntArrayList blockedEdges = new IntArrayList();
+        final IntLongHashMap delaysForBoardEdges = new IntLongHashMap();
+        final IntLongHashMap delaysForAlightEdges = new IntLongHashMap();
+        final List<VirtualEdgeIteratorState> additionalEdges = new ArrayList<>();
+        final Map<Integer, byte[]> tripDescriptors = new HashMap<>();
+        final Map<Integer, Integer> stopSequences = new HashMap<>();
+
+        AppliedTripUpdate(GtfsRealtime.TripUpdate tripUpdate, LocalDate date) {
+            this.tripUpdate = tripUpdate;
+            this.date = date;
+        }
+    }
 
-    private RealtimeFeed(GtfsStorage staticGtfs, Map<String, GtfsRealtime.FeedMessage> feedMessages, IntHashSet blockedEdges,
-                         IntLongHashMap delaysForBoardEdges, IntLongHashMap delaysForAlightEdges, List<VirtualEdgeIteratorState> additionalEdges, Map<Integer, byte[]> tripDescriptors, Map<Integer, Integer> stopSequences, Map<GtfsStorage.Validity, Integer> operatingDayPatterns, Map<GtfsStorage.FeedIdWithTimezone, Integer> writableTimeZones) {
+    private static class UpdateState {
+        int nextEdge;
+        int nextNode;
+        int changedTripUpdates;
+        AppliedTripUpdate current;
+    }
+
+    private RealtimeFeed(GtfsStorage staticGtfs, Map<String, GtfsRealtime.FeedMessage> feedMessages, Map<String, Map<String, AppliedTripUpdate>> appliedTripUpdates,
+                         Map<GtfsStorage.Validity, Integer> operatingDayPatterns, Map<GtfsStorage.FeedIdWithTimezone, Integer> writableTimeZones, int nextEdge, int nextNode, int changedTripUpdates) {
         this.staticGtfs = staticGtfs;
         this.feedMessages = feedMessages;
-        this.blockedEdges = blockedEdges;
-        this.delaysForBoardEdges = delaysForBoardEdges;
-        this.delaysForAlightEdges = delaysForAlightEdges;
-        this.additionalEdges = additionalEdges;
-        this.additionalTripDescriptors = tripDescriptors;
-        this.stopSequences = stopSequences;
+        this.appliedTripUpdates = appliedTripUpdates;
+        this.operatingDayPatterns = operatingDayPatterns;
+        this.writableTimeZones = writableTimeZones;
+        this.nextEdge = nextEdge;
+        this.nextNode = nextNode;
+        this.changedTripUpdates = changedTripUpdates;
+        for (Map<String, AppliedTripUpdate> appliedTripUpdatesOfFeed : appliedTripUpdates.values()) {
+            for (AppliedTripUpdate appliedTripUpdate : appliedTripUpdatesOfFeed.values()) {
+                blockedEdges.addAll(appliedTripUpdate.blockedEdges);
+                delaysForBoardEdges.putAll(appliedTripUpdate.delaysForBoardEdges);
+                delaysForAlightEdges.putAll(appliedTripUpdate.delaysForAlightEdges);
+                additionalEdges.addAll(appliedTripUpdate.additionalEdges);
+                additionalTripDescriptors.putAll(appliedTripUpdate.tripDescriptors);
+                stopSequences.putAll(appliedTripUpdate.stopSequences);
+            }
+        }
         Map<Integer, GtfsStorage.Validity> reverseOperatingDayPatterns = new HashMap<>();
         for (Map.Entry<GtfsStorage.Validity, Integer> entry : operatingDayPatterns.entrySet()) {
             reverseOperatingDayPatterns.put(entry.getValue(), entry.getKey());
@@ -93,16 +139,26 @@ public class RealtimeFeed {
     }
 
     public static RealtimeFeed empty(GtfsStorage staticGtfs) {
-        return new RealtimeFeed(staticGtfs, Collections.emptyMap(), new IntHashSet(), new IntLongHashMap(), new IntLongHashMap(), Collections.emptyList(), Collections.emptyMap(), Collections.emptyMap(), staticGtfs.getOperatingDayPatterns(), staticGtfs.getWritableTimeZones());
+        return new RealtimeFeed(staticGtfs, Collections.emptyMap(), Collections.emptyMap(), staticGtfs.getOperatingDayPatterns(), staticGtfs.getWritableTimeZones(), -1, -1, 0);
     }
 
     public static RealtimeFeed fromProtobuf(GraphHopperStorage graphHopperStorage, GtfsStorage staticGtfs, PtEncodedValues encoder, Map<String, GtfsRealtime.FeedMessage> feedMessages) {
-        final IntHashSet blockedEdges = new IntHashSet();
-        final IntLongHashMap delaysForBoardEdges = new IntLongHashMap();
-        final IntLongHashMap delaysForAlightEdges = new IntLongHashMap();
-        final LinkedList<VirtualEdgeIteratorState> additionalEdges = new LinkedList<>();
+        return empty(staticGtfs).update(graphHopperStorage, encoder, feedMessages);
+    }
+
+    /**
+     * Creates the realtime feed for new feed messages, e.g. the next poll of the same realtime feeds. Trip updates
+     * which are equal to the ones of this feed (ignoring their timestamp) keep their blocked edges, delays and
+     * additional edges, only the changed and new trip updates are applied to the graph again.
+     */
+    public RealtimeFeed update(GraphHopperStorage graphHopperStorage, PtEncodedValues encoder, Map<String, GtfsRealtime.FeedMessage> feedMessages) {
+        StopWatch stopWatch = new StopWatch().start();
+        boolean startOver = nextEdge < 0 || nextEdge - graphHopperStorage.getEdges() - additionalEdges.size() > MAX_UNUSED_EDGE_IDS;
+        final Map<String, Map<String, AppliedTripUpdate>> previousTripUpdates = startOver ? Collections.emptyMap() : this.appliedTripUpdates;
+        final UpdateState state = new UpdateState();
+        state.nextEdge = startOver ? graphHopperStorage.getEdges() : nextEdge;
+        state.nextNode = startOver ? graphHopperStorage.getNodes() : nextNode;
         final Graph overlayGraph = new Graph() {
-            int firstEdge = graphHopperStorage.getEdges();
             EncodingManager encodingManager = graphHopperStorage.getEncodingManager();
             final NodeAccess nodeAccess = new NodeAccess() {
                 IntIntHashMap turnCostIndices = new IntIntHashMap();
@@ -180,10 +236,7 @@ public class RealtimeFeed {
 
             @Override
             public int getNodes() {
-                return IntStream.concat(
-                        IntStream.of(graphHopperStorage.getNodes() - 1),
-                        additionalEdges.stream().flatMapToInt(edge -> IntStream.of(edge.getBaseNode(), edge.getAdjNode())))
-                        .max().getAsInt() + 1;
+                return state.nextNode;
             }
 
             @Override
@@ -203,14 +256,15 @@ public class RealtimeFeed {
 
             @Override
             public EdgeIteratorState edge(int a, int b) {
-                int edge = firstEdge++;
+                int edge = state.nextEdge++;
+                state.nextNode = Math.max(state.nextNode, Math.max(a, b) + 1);
                 final VirtualEdgeIteratorState newEdge = new VirtualEdgeIteratorState(-1,
                         edge, a, b, 0.0, encodingManager.createEdgeFlags(), "", new PointList(), false);
                 final VirtualEdgeIteratorState reverseNewEdge = new VirtualEdgeIteratorState(-1,
                         edge, b, a, 0.0, encodingManager.createEdgeFlags(), "", new PointList(), true);
                 newEdge.setReverseEdge(reverseNewEdge);
                 reverseNewEdge.setReverseEdge(newEdge);
-                additionalEdges.push(newEdge);
+                state.current.additionalEdges.add(newEdge);
                 return newEdge;
             }
 
@@ -259,16 +313,18 @@ public class RealtimeFeed {
                 throw new UnsupportedOperationException();
             }
         };
-
-        Map<GtfsStorage.Validity, Integer> operatingDayPatterns = new HashMap<>(staticGtfs.getOperatingDayPatterns());
-        Map<Integer, byte[]> tripDescriptors = new HashMap<>();
-        Map<Integer, Integer> stopSequences = new HashMap<>();
+        // validity and time zone ids are stored in the additional edges, so they must stay the same for the kept
+        // trip updates
+        Map<GtfsStorage.Validity, Integer> operatingDayPatterns = new HashMap<>(this.operatingDayPatterns);
+        Map<GtfsStorage.FeedIdWithTimezone, Integer> writableTimeZones = new HashMap<>(this.writableTimeZones);
         Map<String, int[]> boardEdgesForTrip = new HashMap<>();
         Map<String, int[]> alightEdgesForTrip = new HashMap<>();
-        Map<GtfsStorage.FeedIdWithTimezone, Integer> writableTimeZones = new HashMap<>(staticGtfs.getWritableTimeZones());
-
+        Map<String, Map<String, AppliedTripUpdate>> appliedTripUpdates = new LinkedHashMap<>();
+        int tripUpdates = 0;
 
-        feedMessages.forEach((feedKey, feedMessage) -> {
+        for (Map.Entry<String, GtfsRealtime.FeedMessage> feedEntry : feedMessages.entrySet()) {
+            String feedKey = feedEntry.getKey();
+            GtfsRealtime.FeedMessage feedMessage = feedEntry.getValue();
             GTFSFeed feed = staticGtfs.getGtfsFeeds().get(feedKey);
             ZoneId timezone = ZoneId.of(feed.agency.values().stream().findFirst().get().agency_timezone);
             GtfsStorageI gtfsStorage = new GtfsStorageI() {
@@ -294,12 +350,12 @@ public class RealtimeFeed {
 
                 @Override
                 public Map<Integer, byte[]> getTripDescriptors() {
-                    return tripDescriptors;
+                    return state.current.tripDescriptors;
                 }
 
                 @Override
                 public Map<Integer, Integer> getStopSequences() {
-                    return stopSequences;
+                    return state.current.stopSequences;
                 }
 
                 @Override
@@ -334,79 +390,122 @@ public class RealtimeFeed {
                     return staticGtfs.getRoutes();
                 }
             };
-            final GtfsReader gtfsReader = new GtfsReader(feedKey, overlayGraph, graphHopperStorage.getEncodingManager(), gtfsStorage, null);
             Instant timestamp = Instant.ofEpochSecond(feedMessage.getHeader().getTimestamp());
             LocalDate dateToChange = timestamp.atZone(timezone).toLocalDate(); //FIXME
             BitSet validOnDay = new BitSet();
             LocalDate startDate = feed.getStartDate();
             validOnDay.set((int) DAYS.between(startDate, dateToChange));
-            feedMessage.getEntityList().stream()
-                    .filter(GtfsRealtime.FeedEntity::hasTripUpdate)
-                    .map(GtfsRealtime.FeedEntity::getTripUpdate)
-                    .filter(tripUpdate -> tripUpdate.getTrip().getScheduleRelationship() == GtfsRealtime.TripDescriptor.ScheduleRelationship.SCHEDULED)
-                    .forEach(tripUpdate -> {
-                        Collection<Frequency> frequencies = feed.getFrequencies(tripUpdate.getTrip().getTripId());
-                        int timeOffset = (tripUpdate.getTrip().hasStartTime() && !frequencies.isEmpty()) ? LocalTime.parse(tripUpdate.getTrip().getStartTime()).toSecondOfDay() : 0;
-                        String key = GtfsStorage.tripKey(tripUpdate.getTrip(), !frequencies.isEmpty());
-                        final int[] boardEdges = staticGtfs.getBoardEdgesForTrip().get(key);
-                        final int[] leaveEdges = staticGtfs.getAlightEdgesForTrip().get(key);
-                        if (boardEdges == null || leaveEdges == null) {
-                            logger.warn("Trip not found: {}", tripUpdate.getTrip());
-                            return;
-                        }
-                        tripUpdate.getStopTimeUpdateList().stream()
-                                .filter(stopTimeUpdate -> stopTimeUpdate.getScheduleRelationship() == SKIPPED)
-                                .mapToInt(GtfsRealtime.TripUpdate.StopTimeUpdate::getStopSequence)
-                                .forEach(skippedStopSequenceNumber -> {
-                                    blockedEdges.add(boardEdges[skippedStopSequenceNumber]);
-                                    blockedEdges.add(leaveEdges[skippedStopSequenceNumber]);
-                                });
-                        GtfsReader.TripWithStopTimes tripWithStopTimes = toTripWithStopTimes(feed, tripUpdate);
-                        tripWithStopTimes.stopTimes.forEach(stopTime -> {
-                            if (stopTime.stop_sequence > leaveEdges.length - 1) {
-                                logger.warn("Stop sequence number too high {} vs {}", stopTime.stop_sequence, leaveEdges.length);
-                                return;
-                            }
-                            final StopTime originalStopTime = feed.stop_times.get(new Fun.Tuple2(tripUpdate.getTrip().getTripId(), stopTime.stop_sequence));
-                            int arrivalDelay = stopTime.arrival_time - originalStopTime.arrival_time;
-                            delaysForAlightEdges.put(leaveEdges[stopTime.stop_sequence], arrivalDelay * 1000);
-                            int departureDelay = stopTime.departure_time - originalStopTime.departure_time;
-                            if (departureDelay > 0) {
-                                int boardEdge = boardEdges[stopTime.stop_sequence];
-                                int departureNode = graphHopperStorage.getEdgeIteratorState(boardEdge, Integer.MIN_VALUE).getAdjNode();
-                                int delayedBoardEdge = gtfsReader.addDelayedBoardEdge(timezone, tripUpdate.getTrip(), stopTime.stop_sequence, stopTime.departure_time + timeOffset, departureNode, validOnDay);
-                                delaysForBoardEdges.put(delayedBoardEdge, departureDelay * 1000);
-                            }
-                        });
-                    });
-            feedMessage.getEntityList().stream()
-                    .filter(GtfsRealtime.FeedEntity::hasTripUpdate)
-                    .map(GtfsRealtime.FeedEntity::getTripUpdate)
-                    .filter(tripUpdate -> tripUpdate.getTrip().getScheduleRelationship() == GtfsRealtime.TripDescriptor.ScheduleRelationship.ADDED)
-                    .forEach(tripUpdate -> {
-                        Trip trip = new Trip();
-                        trip.trip_id = tripUpdate.getTrip().getTripId();
-                        trip.route_id = tripUpdate.getTrip().getRouteId();
-                        final List<StopTime> stopTimes = tripUpdate.getStopTimeUpdateList().stream()
-                                .map(stopTimeUpdate -> {
-                                    final StopTime stopTime = new StopTime();
-                                    stopTime.stop_sequence = stopTimeUpdate.getStopSequence();
-                                    stopTime.stop_id = stopTimeUpdate.getStopId();
-                                    stopTime.trip_id = trip.trip_id;
-                                    final ZonedDateTime arrival_time = Instant.ofEpochSecond(stopTimeUpdate.getArrival().getTime()).atZone(timezone);
-                                    stopTime.arrival_time = (int) Duration.between(arrival_time.truncatedTo(ChronoUnit.DAYS), arrival_time).getSeconds();
-                                    final ZonedDateTime departure_time = Instant.ofEpochSecond(stopTimeUpdate.getArrival().getTime()).atZone(timezone);
-                                    stopTime.departure_time = (int) Duration.between(departure_time.truncatedTo(ChronoUnit.DAYS), departure_time).getSeconds();
-                                    return stopTime;
-                                })
-                                .collect(Collectors.toList());
-                        GtfsReader.TripWithStopTimes tripWithStopTimes = new GtfsReader.TripWithStopTimes(trip, stopTimes, validOnDay, Collections.emptySet(), Collections.emptySet());
-                        gtfsReader.addTrip(timezone, 0, new ArrayList<>(), tripWithStopTimes, tripUpdate.getTrip(), false);
-                    });
-            gtfsReader.wireUpAdditionalDeparturesAndArrivals(timezone);
+            Map<String, AppliedTripUpdate> previousTripUpdatesOfFeed = previousTripUpdates.getOrDefault(feedKey, Collections.emptyMap());
+            Map<String, AppliedTripUpdate> appliedTripUpdatesOfFeed = new LinkedHashMap<>();
+            for (GtfsRealtime.FeedEntity feedEntity : feedMessage.getEntityList()) {
+                if (!feedEntity.hasTripUpdate()) {
+                    continue;
+                }
+                GtfsRealtime.TripUpdate tripUpdate = feedEntity.getTripUpdate().toBuilder().clearTimestamp().build();
+                GtfsRealtime.TripDescriptor.ScheduleRelationship scheduleRelationship = tripUpdate.getTrip().getScheduleRelationship();
+                if (scheduleRelationship != GtfsRealtime.TripDescriptor.ScheduleRelationship.SCHEDULED
+                        && scheduleRelationship != GtfsRealtime.TripDescriptor.ScheduleRelationship.ADDED) {
+                    continue;
+                }
+                tripUpdates++;
+                String key = tripUpdateKey(tripUpdate.getTrip(), appliedTripUpdatesOfFeed);
+                AppliedTripUpdate previous = previousTripUpdatesOfFeed.get(key);
+                if (previous != null && previous.date.equals(dateToChange) && previous.tripUpdate.equals(tripUpdate)) {
+                    appliedTripUpdatesOfFeed.put(key, previous);
+                    continue;
+                }
+                state.current = new AppliedTripUpdate(tripUpdate, dateToChange);
+                state.changedTripUpdates++;
+                final GtfsReader gtfsReader = new GtfsReader(feedKey, overlayGraph, graphHopperStorage.getEncodingManager(), gtfsStorage, null);
+                if (scheduleRelationship == GtfsRealtime.TripDescriptor.ScheduleRelationship.SCHEDULED) {
+                    applyScheduledTripUpdate(graphHopperStorage, feed, timezone, validOnDay, gtfsReader, tripUpdate, state.current);
+                } else {
+                    applyAddedTrip(timezone, validOnDay, gtfsReader, tripUpdate);
+                }
+                gtfsReader.wireUpAdditionalDeparturesAndArrivals(timezone);
+                appliedTripUpdatesOfFeed.put(key, state.current);
+            }
+            appliedTripUpdates.put(feedKey, appliedTripUpdatesOfFeed);
+        }
+
+        RealtimeFeed realtimeFeed = new RealtimeFeed(staticGtfs, feedMessages, appliedTripUpdates, operatingDayPatterns, writableTimeZones, state.nextEdge, state.nextNode, state.changedTripUpdates);
+        logger.info("Applied {} of {} trip updates in {}ms, {} additional edges", state.changedTripUpdates, tripUpdates, stopWatch.stop().getMillis(), realtimeFeed.additionalEdges.size());
+        return realtimeFeed;
+    }
+
+    private static String tripUpdateKey(GtfsRealtime.TripDescriptor trip, Map<String, AppliedTripUpdate> appliedTripUpdates) {
+        String tripKey = trip.getTripId() + " " + trip.getStartDate() + " " + trip.getStartTime();
+        // a trip which is updated more than once in a feed message is identified by its position
+        String key = tripKey;
+        for (int i = 1; appliedTripUpdates.containsKey(key); i++) {
+            key = tripKey + " #" + i;
+        }
+        return key;
+    }
+
+    private void applyScheduledTripUpdate(GraphHopperStorage graphHopperStorage, GTFSFeed feed, ZoneId timezone, BitSet validOnDay, GtfsReader gtfsReader, GtfsRealtime.TripUpdate tripUpdate, AppliedTripUpdate appliedTripUpdate) {
+        Collection<Frequency> frequencies = feed.getFrequencies(tripUpdate.getTrip().getTripId());
+        int timeOffset = (tripUpdate.getTrip().hasStartTime() && !frequencies.isEmpty()) ? LocalTime.parse(tripUpdate.getTrip().getStartTime()).toSecondOfDay() : 0;
+        String key = GtfsStorage.tripKey(tripUpdate.getTrip(), !frequencies.isEmpty());
+        final int[] boardEdges = staticGtfs.getBoardEdgesForTrip().get(key);
+        final int[] leaveEdges = staticGtfs.getAlightEdgesForTrip().get(key);
+        if (boardEdges == null || leaveEdges == null) {
+            logger.warn("Trip not found: {}", tripUpdate.getTrip());
+            return;
+        }
+        tripUpdate.getStopTimeUpdateList().stream()
+                .filter(stopTimeUpdate -> stopTimeUpdate.getScheduleRelationship() == SKIPPED)
+                .mapToInt(GtfsRealtime.TripUpdate.StopTimeUpdate::getStopSequence)
+                .forEach(skippedStopSequenceNumber -> {
+                    appliedTripUpdate.blockedEdges.add(boardEdges[skippedStopSequenceNumber]);
+                    appliedTripUpdate.blockedEdges.add(leaveEdges[skippedStopSequenceNumber]);
+                });
+        GtfsReader.TripWithStopTimes tripWithStopTimes = toTripWithStopTimes(feed, tripUpdate);
+        tripWithStopTimes.stopTimes.forEach(stopTime -> {
+            if (stopTime.stop_sequence > leaveEdges.length - 1) {
+                logger.warn("Stop sequence number too high {} vs {}", stopTime.stop_sequence, leaveEdges.length);
+                return;
+            }
+            final StopTime originalStopTime = feed.stop_times.get(new Fun.Tuple2(tripUpdate.getTrip().getTripId(), stopTime.stop_sequence));
+            int arrivalDelay = stopTime.arrival_time - originalStopTime.arrival_time;
+            appliedTripUpdate.delaysForAlightEdges.put(leaveEdges[stopTime.stop_sequence], arrivalDelay * 1000);
+            int departureDelay = stopTime.departure_time - originalStopTime.departure_time;
+            if (departureDelay > 0) {
+                int boardEdge = boardEdges[stopTime.stop_sequence];
+                int departureNode = graphHopperStorage.getEdgeIteratorState(boardEdge, Integer.MIN_VALUE).getAdjNode();
+                int delayedBoardEdge = gtfsReader.addDelayedBoardEdge(timezone, tripUpdate.getTrip(), stopTime.stop_sequence, stopTime.departure_time + timeOffset, departureNode, validOnDay);
+                appliedTripUpdate.delaysForBoardEdges.put(delayedBoardEdge, departureDelay * 1000);
+            }
         });
+    }
+
+    private static void applyAddedTrip(ZoneId timezone, BitSet validOnDay, GtfsReader gtfsReader, GtfsRealtime.TripUpdate tripUpdate) {
+        Trip trip = new Trip();
+        trip.trip_id = tripUpdate.getTrip().getTripId();
+        trip.route_id = tripUpdate.getTrip().getRouteId();
+        final List<StopTime> stopTimes = tripUpdate.getStopTimeUpdateList().stream()
+                .map(stopTimeUpdate -> {
+                    final StopTime stopTime = new StopTime();
+                    stopTime.stop_sequence = stopTimeUpdate.getStopSequence();
+                    stopTime.stop_id = stopTimeUpdate.getStopId();
+                    stopTime.trip_id = trip.trip_id;
+                    final ZonedDateTime arrival_time = Instant.ofEpochSecond(stopTimeUpdate.getArrival().getTime()).atZone(timezone);
+                    stopTime.arrival_time = (int) Duration.between(arrival_time.truncatedTo(ChronoUnit.DAYS), arrival_time).getSeconds();
+                    final ZonedDateTime departure_time = Instant.ofEpochSecond(stopTimeUpdate.getArrival().getTime()).atZone(timezone);
+                    stopTime.departure_time = (int) Duration.between(departure_time.truncatedTo(ChronoUnit.DAYS), departure_time).getSeconds();
+                    return stopTime;
+                })
+                .collect(Collectors.toList());
+        GtfsReader.TripWithStopTimes tripWithStopTimes = new GtfsReader.TripWithStopTimes(trip, stopTimes, validOnDay, Collections.emptySet(), Collections.emptySet());
+        gtfsReader.addTrip(timezone, 0, new ArrayList<>(), tripWithStopTimes, tripUpdate.getTrip(), false);
+    }
 
-        return new RealtimeFeed(staticGtfs, feedMessages, blockedEdges, delaysForBoardEdges, delaysForAlightEdges, additionalEdges, tripDescriptors, stopSequences, operatingDayPatterns, writableTimeZones);
+    /**
+     * @return the number of trip updates which were applied to the graph when creating this feed, i.e. which were
+     * new or changed compared to the previous feed
+     */
+    public int getChangedTripUpdates() {
+        return changedTripUpdates;
     }
 
     boolean isBlocked(int edgeId) {
@@ -27,6 +27,9 @@ import java.util.List;
 import java.util.Locale;
 
 public class Request {
+    public static final String LABEL_SETTING = "label_setting";
+    public static final String RAPTOR = "raptor";
+
     private List<GHLocation> points;
     private Instant earliestDepartureTime;
     private int maxVisitedNodes = 1_000_000;
@@ -39,6 +42,7 @@ public class Request {
     private double walkSpeedKmH = 5.0;
     private int blockedRouteTypes;
     private Locale locale = Helper.getLocale("en");
+    private String algorithm = LABEL_SETTING;
 
     public Request(List<GHLocation> points, Instant departureTime) {
         this.points = points;
@@ -137,6 +141,18 @@ public class Request {
         this.locale = locale;
     }
 
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * @param algorithm {@link #LABEL_SETTING} for the multi-criteria label setting on the time-expanded graph or
+     *                  {@link #RAPTOR}
+     */
+    public void setAlgorithm(String algorithm) {
+        this.algorithm = algorithm;
+    }
+
     public List<GHLocation> getPoints() {
         return points;
     }
@@ -0,0 +1,203 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper;
+
+import com.graphhopper.reader.gtfs.GraphHopperGtfs;
+import com.graphhopper.reader.gtfs.PtRouteResource;
+import com.graphhopper.reader.gtfs.Request;
+import com.graphhopper.util.CmdArgs;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.TranslationMap;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.graphhopper.reader.gtfs.GtfsHelper.time;
+import static org.junit.Assert.*;
+
+/**
+ * Compares the RAPTOR router with the multi-criteria label setting on the sample feed.
+ */
+public class RaptorIT {
+
+    private static final String GRAPH_LOC = "target/RaptorIT";
+    private static final ZoneId zoneId = ZoneId.of("America/Los_Angeles");
+    // the stops of the sample feed, except the one without routes
+    private static final double[][] STOPS = {
+            {36.425288, -117.133162}, // FUR_CREEK_RES
+            {36.868446, -116.784582}, // BEATTY_AIRPORT
+            {36.88108, -116.81797}, // BULLFROG
+            {36.915682, -116.751677}, // STAGECOACH
+            {36.914893, -116.76821}, // NADAV
+            {36.914944, -116.761472}, // NANAA
+            {36.909489, -116.768242}, // DADAN
+            {36.905697, -116.76218}, // EMSI
+            {36.641496, -116.40094} // AMV
+    };
+    private static PtRouteResource ptRouteResource;
+    private static GraphHopperGtfs graphHopperGtfs;
+
+    @BeforeClass
+    public static void init() {
+        CmdArgs cmdArgs = new CmdArgs();
+        cmdArgs.put("graph.flag_encoders", "car,foot");
+        cmdArgs.put("graph.location", GRAPH_LOC);
+        cmdArgs.put("gtfs.file", "files/sample-feed.zip");
+        Helper.removeDir(new File(GRAPH_LOC));
+        graphHopperGtfs = new GraphHopperGtfs(cmdArgs);
+        graphHopperGtfs.init(cmdArgs);
+        graphHopperGtfs.importOrLoad();
+        ptRouteResource = PtRouteResource.createFactory(new TranslationMap().doImport(), graphHopperGtfs, graphHopperGtfs.getLocationIndex(), graphHopperGtfs.getGtfsStorage())
+                .createWithoutRealtimeFeed();
+    }
+
+    @AfterClass
+    public static void close() {
+        graphHopperGtfs.close();
+    }
+
+    @Test
+    public void testRoute1() {
+        Request request = new Request(36.914893, -116.76821, 36.914944, -116.761472); // NADAV -> NANAA
+        request.setEarliestDepartureTime(LocalDateTime.of(2007, 1, 1, 0, 0).atZone(zoneId).toInstant());
+        request.setIgnoreTransfers(true);
+        request.setAlgorithm(Request.RAPTOR);
+        GHResponse response = ptRouteResource.route(request);
+
+        assertFalse(response.hasErrors());
+        assertEquals(1, response.getAll().size());
+        assertEquals(time(6, 49), response.getBest().getTime(), 0.1);
+        Trip.PtLeg ptLeg = (Trip.PtLeg) response.getBest().getLegs().stream().filter(leg -> leg instanceof Trip.PtLeg).findFirst().get();
+        assertEquals("CITY2", ptLeg.trip_id);
+        assertEquals("NADAV", ptLeg.stops.get(0).stop_id);
+        assertEquals("NANAA", ptLeg.stops.get(ptLeg.stops.size() - 1).stop_id);
+    }
+
+    @Test
+    public void testNoSolutionIfIDontLikeBusses() {
+        Request request = new Request(36.914893, -116.76821, 36.914944, -116.761472); // NADAV -> NANAA
+        request.setEarliestDepartureTime(LocalDateTime.of(2007, 1, 1, 0, 0).atZone(zoneId).toInstant());
+        request.setIgnoreTransfers(true);
+        request.setBlockedRouteTypes(8); // Blocking buses
+        request.setAlgorithm(Request.RAPTOR);
+        GHResponse response = ptRouteResource.route(request);
+
+        assertTrue(response.getAll().isEmpty());
+    }
+
+    @Test
+    public void testProfileEarliestArrival() {
+        Request request = new Request(36.914893, -116.76821, 36.914944, -116.761472); // NADAV -> NANAA
+        request.setEarliestDepartureTime(LocalDateTime.of(2007, 1, 1, 6, 0).atZone(zoneId).toInstant());
+        request.setProfileQuery(true);
+        request.setIgnoreTransfers(true);
+        request.setLimitSolutions(Integer.MAX_VALUE);
+        request.setAlgorithm(Request.RAPTOR);
+
+        List<LocalTime> expectedDepartureTimes = Stream.of(
+                "06:44", "07:14", "07:44", "08:14", "08:44", "08:54", "09:04", "09:14", "09:24", "09:34", "09:44", "09:54", "10:04")
+                .map(LocalTime::parse)
+                .collect(Collectors.toList());
+        assertEquals(expectedDepartureTimes, departureTimes(ptRouteResource.route(request)));
+    }
+
+    @Test
+    public void testProfileOvernight() {
+        Request request = new Request(36.914893, -116.76821, 36.914944, -116.761472); // NADAV -> NANAA
+        request.setEarliestDepartureTime(LocalDateTime.of(2007, 1, 1, 23, 0).atZone(zoneId).toInstant());
+        request.setProfileQuery(true);
+        request.setIgnoreTransfers(true);
+        request.setAlgorithm(Request.RAPTOR);
+
+        assertEquals(Stream.of("06:44").map(LocalTime::parse).collect(Collectors.toList()), departureTimes(ptRouteResource.route(request)));
+    }
+
+    @Test
+    public void testTransferRules() {
+        Request request = new Request(36.915682, -116.751677, 36.641496, -116.40094); // STAGECOACH -> AMV
+        request.setEarliestDepartureTime(LocalDateTime.of(2007, 1, 6, 7, 30).atZone(zoneId).toInstant());
+        request.setAlgorithm(Request.RAPTOR);
+        assertEquals("Transfer rule: 11 minutes. Will miss connection, and be there at 14.", time(6, 30), ptRouteResource.route(request).getBest().getTime());
+
+        request = new Request(36.915682, -116.751677, 36.88108, -116.81797); // STAGECOACH -> BULLFROG
+        request.setEarliestDepartureTime(LocalDateTime.of(2007, 1, 6, 7, 30).atZone(zoneId).toInstant());
+        request.setAlgorithm(Request.RAPTOR);
+        assertEquals("Route-specific exception", time(0, 40), ptRouteResource.route(request).getBest().getTime());
+
+        request = new Request(36.88108, -116.81797, 36.915682, -116.751677); // BULLFROG -> STAGECOACH
+        request.setEarliestDepartureTime(LocalDateTime.of(2007, 1, 6, 12, 5).atZone(zoneId).toInstant());
+        request.setAlgorithm(Request.RAPTOR);
+        assertEquals("'from route' exception with a longer transfer time", time(1, 15), ptRouteResource.route(request).getBest().getTime());
+    }
+
+    @Test
+    public void testArriveByIsNotSupported() {
+        Request request = new Request(36.914893, -116.76821, 36.914944, -116.761472);
+        request.setEarliestDepartureTime(LocalDateTime.of(2007, 1, 1, 13, 0).atZone(zoneId).toInstant());
+        request.setArriveBy(true);
+        request.setAlgorithm(Request.RAPTOR);
+        try {
+            ptRouteResource.route(request);
+            fail();
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testEarliestArrivalEqualsLabelSetting() {
+        for (LocalDateTime departureTime : new LocalDateTime[]{LocalDateTime.of(2007, 1, 1, 0, 0), LocalDateTime.of(2007, 1, 1, 8, 5),
+                LocalDateTime.of(2007, 1, 6, 7, 30), LocalDateTime.of(2007, 1, 6, 16, 40)}) {
+            for (double[] from : STOPS) {
+                for (double[] to : STOPS) {
+                    if (from == to)
+                        continue;
+                    String msg = departureTime + " " + from[0] + "," + from[1] + " -> " + to[0] + "," + to[1];
+                    GHResponse labelSetting = route(from, to, departureTime, Request.LABEL_SETTING);
+                    GHResponse raptor = route(from, to, departureTime, Request.RAPTOR);
+                    assertEquals(msg, labelSetting.getAll().isEmpty(), raptor.getAll().isEmpty());
+                    if (!labelSetting.getAll().isEmpty())
+                        assertEquals(msg, labelSetting.getBest().getTime(), raptor.getBest().getTime());
+                }
+            }
+        }
+    }
+
+    private GHResponse route(double[] from, double[] to, LocalDateTime departureTime, String algorithm) {
+        Request request = new Request(from[0], from[1], to[0], to[1]);
+        request.setEarliestDepartureTime(departureTime.atZone(zoneId).toInstant());
+        request.setIgnoreTransfers(true);
+        request.setAlgorithm(algorithm);
+        return ptRouteResource.route(request);
+    }
+
+    private static List<LocalTime> departureTimes(GHResponse response) {
+        return response.getAll().stream()
+                .map(path -> LocalTime.from(path.getLegs().get(0).getDepartureTime().toInstant().atZone(zoneId)))
+                .collect(Collectors.toList());
+    }
+}
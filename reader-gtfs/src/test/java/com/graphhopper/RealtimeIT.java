@@ -20,7 +20,9 @@ package com.graphhopper;
 
 import com.google.transit.realtime.GtfsRealtime;
 import com.graphhopper.reader.gtfs.GraphHopperGtfs;
+import com.graphhopper.reader.gtfs.PtEncodedValues;
 import com.graphhopper.reader.gtfs.PtRouteResource;
+import com.graphhopper.reader.gtfs.RealtimeFeed;
 import com.graphhopper.reader.gtfs.Request;
 import com.graphhopper.util.CmdArgs;
 import com.graphhopper.util.Helper;
@@ -32,6 +34,7 @@ import org.junit.Test;
 import java.io.File;
 import java.math.BigDecimal;
 import java.time.*;
+import java.util.Collections;
 
 import static com.google.transit.realtime.GtfsRealtime.TripDescriptor.ScheduleRelationship.ADDED;
 import static com.google.transit.realtime.GtfsRealtime.TripUpdate.StopTimeUpdate.ScheduleRelationship.SCHEDULED;
@@ -729,6 +732,44 @@ public class RealtimeIT {
         assertEquals("Paid expected fare", 250, route.getBest().getFare().multiply(BigDecimal.valueOf(100)).intValue()); // Two legs, no transfers allowed. Need two 'p' tickets costing 125 cents each.
     }
 
+    @Test
+    public void testIncrementalUpdate() {
+        Request ghRequest = new Request(36.915682, -116.751677, 36.88108, -116.81797); // STAGECOACH -> BULLFROG
+        ghRequest.setEarliestDepartureTime(LocalDateTime.of(2007,1,1,0,0).atZone(zoneId).toInstant());
+        PtEncodedValues ptEncodedValues = PtEncodedValues.fromEncodingManager(graphHopperGtfs.getGraphHopperStorage().getEncodingManager());
+
+        final GtfsRealtime.FeedMessage.Builder feedMessageBuilder = GtfsRealtime.FeedMessage.newBuilder();
+        feedMessageBuilder.setHeader(header());
+        GtfsRealtime.FeedMessage withoutUpdates = feedMessageBuilder.build();
+        feedMessageBuilder.addEntityBuilder()
+                .setId("1")
+                .getTripUpdateBuilder()
+                .setTrip(GtfsRealtime.TripDescriptor.newBuilder().setTripId("AB1"))
+                .setTimestamp(1)
+                .addStopTimeUpdateBuilder()
+                .setStopSequence(2)
+                .setScheduleRelationship(SCHEDULED)
+                .setArrival(GtfsRealtime.TripUpdate.StopTimeEvent.newBuilder().setDelay(300).build());
+        GtfsRealtime.FeedMessage withDelay = feedMessageBuilder.build();
+        feedMessageBuilder.getHeaderBuilder().setTimestamp(withDelay.getHeader().getTimestamp() + 30);
+        feedMessageBuilder.getEntityBuilder(0).getTripUpdateBuilder().setTimestamp(2);
+        GtfsRealtime.FeedMessage withSameDelayLater = feedMessageBuilder.build();
+
+        RealtimeFeed realtimeFeed = RealtimeFeed.fromProtobuf(graphHopperGtfs.getGraphHopperStorage(), graphHopperGtfs.getGtfsStorage(), ptEncodedValues, Collections.singletonMap("gtfs_0", withoutUpdates));
+        long scheduledTime = graphHopperFactory.createWith(realtimeFeed).route(ghRequest).getBest().getTime();
+        assertEquals(graphHopperFactory.createWithoutRealtimeFeed().route(ghRequest).getBest().getTime(), scheduledTime);
+
+        realtimeFeed = realtimeFeed.update(graphHopperGtfs.getGraphHopperStorage(), ptEncodedValues, Collections.singletonMap("gtfs_0", withDelay));
+        assertEquals(1, realtimeFeed.getChangedTripUpdates());
+        assertEquals(time(8, 15), graphHopperFactory.createWith(realtimeFeed).route(ghRequest).getBest().getTime(), 0.1);
+
+        realtimeFeed = realtimeFeed.update(graphHopperGtfs.getGraphHopperStorage(), ptEncodedValues, Collections.singletonMap("gtfs_0", withSameDelayLater));
+        assertEquals("Only the timestamps changed", 0, realtimeFeed.getChangedTripUpdates());
+        assertEquals(time(8, 15), graphHopperFactory.createWith(realtimeFeed).route(ghRequest).getBest().getTime(), 0.1);
+
+        realtimeFeed = realtimeFeed.update(graphHopperGtfs.getGraphHopperStorage(), ptEncodedValues, Collections.singletonMap("gtfs_0", withoutUpdates));
+        assertEquals("The delay is gone again", scheduledTime, graphHopperFactory.createWith(realtimeFeed).route(ghRequest).getBest().getTime());
+    }
 
     public GtfsRealtime.FeedHeader.Builder header() {
         return GtfsRealtime.FeedHeader.newBuilder()
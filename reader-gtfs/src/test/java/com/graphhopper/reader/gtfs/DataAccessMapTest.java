@@ -0,0 +1,114 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.reader.gtfs;
+
+import com.graphhopper.storage.Directory;
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.util.Helper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class DataAccessMapTest {
+
+    private static final String LOCATION = "target/DataAccessMapTest";
+
+    @Before
+    @After
+    public void cleanUp() {
+        Helper.removeDir(new File(LOCATION));
+    }
+
+    @Test
+    public void testIntMap() {
+        DataAccessIntMap map = new DataAccessIntMap(new RAMDirectory(LOCATION, true).create(), "ints").create(100);
+        map.put(3, 0);
+        map.put(100_000, 7);
+        assertEquals(2, map.size());
+        assertEquals(Integer.valueOf(0), map.get(3));
+        assertNull(map.get(2));
+        assertNull(map.get(200_000));
+        assertEquals(Integer.valueOf(7), map.put(100_000, 8));
+        assertEquals(2, map.size());
+        assertEquals(42, (int) map.getOrDefault(4, 42));
+        map.flush();
+        map.close();
+
+        map = new DataAccessIntMap(new RAMDirectory(LOCATION, true), "ints");
+        assertTrue(map.loadExisting());
+        Map<Integer, Integer> expected = new HashMap<>();
+        expected.put(3, 0);
+        expected.put(100_000, 8);
+        assertEquals(expected, new HashMap<>(map));
+        try {
+            map.put(5, -1);
+            fail();
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testBytesMapStoresEqualValuesOnce() {
+        Directory dir = new RAMDirectory(LOCATION, true).create();
+        DataAccessBytesMap map = new DataAccessBytesMap(dir, "bytes").create(100);
+        for (int key = 0; key < 1000; key++) {
+            map.put(key, new byte[]{1, 2, (byte) (key % 2)});
+        }
+        assertEquals(1000, map.size());
+        map.flush();
+        assertEquals(2, dir.find("bytes_offsets").getHeader(0));
+        map.close();
+
+        map = new DataAccessBytesMap(new RAMDirectory(LOCATION, true), "bytes");
+        assertTrue(map.loadExisting());
+        assertArrayEquals(new byte[]{1, 2, 1}, map.get(999));
+        assertArrayEquals(new byte[]{1, 2, 0}, map.getOrDefault(998, null));
+        assertNull(map.get(1000));
+        assertFalse(map.containsKey(-1));
+    }
+
+    @Test
+    public void testIntArrayMap() {
+        DataAccessIntArrayMap map = new DataAccessIntArrayMap(new RAMDirectory(LOCATION, true).create(), "int_arrays").create(100);
+        map.put("CITY1", new int[]{-1, 5, 7});
+        map.put("ÄÖÜ", new int[0]);
+        map.put("CITY1", new int[]{-1, 6, 8});
+        map.flush();
+        map.close();
+
+        map = new DataAccessIntArrayMap(new RAMDirectory(LOCATION, true), "int_arrays");
+        assertTrue(map.loadExisting());
+        assertEquals(2, map.size());
+        assertArrayEquals(new int[]{-1, 6, 8}, map.get("CITY1"));
+        assertArrayEquals(new int[0], map.get("ÄÖÜ"));
+        assertNull(map.get("CITY2"));
+    }
+
+    @Test
+    public void testLoadMissing() {
+        assertFalse(new DataAccessIntArrayMap(new RAMDirectory(LOCATION, true), "int_arrays").loadExisting());
+    }
+}
@@ -18,11 +18,14 @@
 package com.graphhopper.reader.osm;
 
 import com.graphhopper.GraphHopper;
+import com.graphhopper.coll.GHLongIntPagedMap;
 import com.graphhopper.json.geo.JsonFeatureCollection;
 import com.graphhopper.reader.DataReader;
 import com.graphhopper.routing.lm.PrepareLandmarks;
 import com.graphhopper.routing.util.spatialrules.*;
+import com.graphhopper.storage.DAType;
 import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.util.CmdArgs;
 import com.graphhopper.util.shapes.Polygon;
 
 import java.util.List;
@@ -35,6 +38,10 @@ import java.util.List;
 public class GraphHopperOSM extends GraphHopper {
 
     private final JsonFeatureCollection landmarkSplittingFeatureCollection;
+    private String nodeMapType = "btree";
+    private DAType nodeMapDAType = DAType.RAM_INT;
+    private int wayThreads = 1;
+    private int elevationThreads = 1;
 
     public GraphHopperOSM() {
         this(null);
@@ -45,9 +52,34 @@ public class GraphHopperOSM extends GraphHopper {
         this.landmarkSplittingFeatureCollection = landmarkSplittingFeatureCollection;
     }
 
+    @Override
+    public GraphHopper init(CmdArgs args) {
+        super.init(args);
+        setNodeMapType(args.get("datareader.node_map", nodeMapType));
+        nodeMapDAType = DAType.getPreferredInt(DAType.fromString(args.get("datareader.node_map.dataaccess", "RAM")));
+        wayThreads = args.getInt("datareader.way_threads", wayThreads);
+        elevationThreads = args.getInt("datareader.elevation_threads", elevationThreads);
+        return this;
+    }
+
+    /**
+     * Specifies how the OSM node IDs are mapped to the internal node IDs while reading the OSM file: 'btree' keeps
+     * the map on the heap and 'paged' stores it in a DataAccess, see GHLongIntPagedMap. The latter needs much less
+     * heap for big areas, especially in combination with datareader.node_map.dataaccess=MMAP.
+     */
+    public GraphHopperOSM setNodeMapType(String nodeMapType) {
+        if (!nodeMapType.equals("btree") && !nodeMapType.equals("paged"))
+            throw new IllegalArgumentException("datareader.node_map must be btree or paged but was " + nodeMapType);
+        this.nodeMapType = nodeMapType;
+        return this;
+    }
+
     @Override
     protected DataReader createReader(GraphHopperStorage ghStorage) {
-        return initDataReader(new OSMReader(ghStorage));
+        OSMReader reader = new OSMReader(ghStorage).setWayThreads(wayThreads).setElevationThreads(elevationThreads);
+        if (nodeMapType.equals("paged"))
+            reader.setNodeMap(new GHLongIntPagedMap(ghStorage.getDirectory(), nodeMapDAType, OSMReader.EMPTY_NODE));
+        return initDataReader(reader);
     }
 
     public String getOSMFile() {
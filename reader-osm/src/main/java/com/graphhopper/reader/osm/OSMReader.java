@@ -22,6 +22,7 @@ import com.graphhopper.coll.LongIntMap;
 import com.graphhopper.coll.*;
 import com.graphhopper.reader.*;
 import com.graphhopper.reader.dem.ElevationProvider;
+import com.graphhopper.reader.dem.ParallelElevationLookup;
 import com.graphhopper.reader.dem.GraphElevationSmoothing;
 import com.graphhopper.routing.profiles.BooleanEncodedValue;
 import com.graphhopper.routing.util.EncodingManager;
@@ -36,6 +37,7 @@ import javax.xml.stream.XMLStreamException;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.*;
 
 import static com.graphhopper.util.Helper.nf;
 
@@ -87,6 +89,10 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
     private long skippedLocations;
     private final EncodingManager encodingManager;
     private int workerThreads = 2;
+    private int wayThreads = 1;
+    private int elevationThreads = 1;
+    // the elevation of the nodes is looked up for all nodes at once after they were read
+    private boolean elevationPending;
     // Using the correct Map<Long, Integer> is hard. We need a memory efficient and fast solution for big data sets!
     //
     // very slow: new SparseLongLongArray
@@ -253,11 +259,20 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
         long wayStart = -1;
         long relationStart = -1;
         long counter = 1;
+        WayPipeline wayPipeline = wayThreads > 1 ? new WayPipeline(wayThreads) : null;
+        elevationPending = elevationThreads > 1 && eleProvider != ElevationProvider.NOOP;
         try (OSMInput in = openOsmInputFile(osmFile)) {
             LongIntMap nodeFilter = getNodeMap();
 
             ReaderElement item;
             while ((item = in.getNext()) != null) {
+                // the ways have to be finished before e.g. turn relations are processed
+                if (wayPipeline != null && !item.isType(ReaderElement.WAY))
+                    wayPipeline.flush();
+                // the ways need the elevation e.g. of the barrier nodes
+                if (elevationPending && (item.isType(ReaderElement.WAY) || item.isType(ReaderElement.RELATION)))
+                    lookupPendingElevations();
+
                 switch (item.getType()) {
                     case ReaderElement.NODE:
                         if (nodeFilter.get(item.getId()) != EMPTY_NODE) {
@@ -270,7 +285,10 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
                             LOGGER.info(nf(counter) + ", now parsing ways");
                             wayStart = counter;
                         }
-                        processWay((ReaderWay) item);
+                        if (wayPipeline == null)
+                            processWay((ReaderWay) item);
+                        else
+                            wayPipeline.add((ReaderWay) item);
                         break;
                     case ReaderElement.RELATION:
                         if (relationStart < 0) {
@@ -288,6 +306,10 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
                     LOGGER.info(nf(counter) + ", locs:" + nf(locations) + " (" + skippedLocations + ") " + Helper.getMemInfo());
                 }
             }
+            if (wayPipeline != null)
+                wayPipeline.flush();
+            if (elevationPending)
+                lookupPendingElevations();
 
             if (in.getUnprocessedElements() > 0)
                 throw new IllegalStateException("Still unprocessed elements in reader queue " + in.getUnprocessedElements());
@@ -295,6 +317,9 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
             // logger.info("storage nodes:" + storage.nodes() + " vs. graph nodes:" + storage.getGraph().nodes());
         } catch (Exception ex) {
             throw new RuntimeException("Couldn't process file " + osmFile + ", error: " + ex.getMessage(), ex);
+        } finally {
+            if (wayPipeline != null)
+                wayPipeline.close();
         }
 
         finishedReading();
@@ -310,20 +335,27 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
      * Process properties, encode flags and create edges for the way.
      */
     void processWay(ReaderWay way) {
-        if (way.getNodes().size() < 2)
-            return;
-
-        // ignore multipolygon geometry
-        if (!way.hasTags())
+        if (!prepareWay(way))
             return;
 
-        long wayOsmId = way.getId();
+        IntsRef edgeFlags = parseWay(way, encodingManager.createRelationFlags());
+        if (edgeFlags != null)
+            addWay(way, edgeFlags);
+    }
 
-        EncodingManager.AcceptWay acceptWay = new EncodingManager.AcceptWay();
-        if (!encodingManager.acceptWay(way, acceptWay))
-            return;
+    /**
+     * Adds the tags to the way that require the coordinates of its nodes. This method reads the node map and must not
+     * run concurrently to addWay.
+     *
+     * @return false if the way can be skipped
+     */
+    private boolean prepareWay(ReaderWay way) {
+        if (way.getNodes().size() < 2)
+            return false;
 
-        IntsRef relationFlags = getRelFlagsMap(way.getId());
+        // ignore multipolygon geometry
+        if (!way.hasTags())
+            return false;
 
         // TODO move this after we have created the edge and know the coordinates => encodingManager.applyWayTags
         LongArrayList osmNodeIds = way.getNodes();
@@ -338,7 +370,21 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
             way.setTag("estimated_distance", estimatedDist);
             way.setTag("estimated_center", new GHPoint((firstLat + lastLat) / 2, (firstLon + lastLon) / 2));
         }
+        return true;
+    }
+
+    /**
+     * Parses the tags of the way into the edge flags. This does not depend on the graph and so it can run in parallel
+     * for different ways.
+     *
+     * @return the edge flags or null if the way is not accessible
+     */
+    private IntsRef parseWay(ReaderWay way, IntsRef relationFlags) {
+        EncodingManager.AcceptWay acceptWay = new EncodingManager.AcceptWay();
+        if (!encodingManager.acceptWay(way, acceptWay))
+            return null;
 
+        readRelFlags(way.getId(), relationFlags);
         if (way.getTag("duration") != null) {
             try {
                 long dur = OSMReaderUtility.parseDuration(way.getTag("duration"));
@@ -351,8 +397,16 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
 
         IntsRef edgeFlags = encodingManager.handleWayTags(way, acceptWay, relationFlags);
         if (edgeFlags.isEmpty())
-            return;
+            return null;
+        return edgeFlags;
+    }
 
+    /**
+     * Creates the edges of the way, which has to happen in the order of the OSM file to get the same edge IDs.
+     */
+    private void addWay(ReaderWay way, IntsRef edgeFlags) {
+        long wayOsmId = way.getId();
+        LongArrayList osmNodeIds = way.getNodes();
         List<EdgeIteratorState> createdEdges = new ArrayList<>();
         // look for barriers along the way
         final int size = osmNodeIds.size();
@@ -501,7 +555,7 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
 
         double lat = node.getLat();
         double lon = node.getLon();
-        double ele = getElevation(node);
+        double ele = elevationPending ? Double.NaN : getElevation(node);
         if (nodeType == TOWER_NODE) {
             addTowerNode(node.getId(), lat, lon, ele);
         } else if (nodeType == PILLAR_NODE) {
@@ -524,6 +578,20 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
         return false;
     }
 
+    /**
+     * Looks up the elevation of all nodes read so far tile by tile with several threads. Nodes which are read
+     * afterwards, e.g. if the ways are not after the nodes in the file, get their elevation one by one.
+     */
+    private void lookupPendingElevations() {
+        StopWatch sw = new StopWatch().start();
+        ParallelElevationLookup lookup = new ParallelElevationLookup(eleProvider, elevationThreads);
+        lookup.setElevations(nodeAccess, nextTowerId);
+        lookup.setElevations(pillarInfo, nextPillarId);
+        elevationPending = false;
+        LOGGER.info("looked up elevation of " + nf(nextTowerId + nextPillarId) + " nodes with " + elevationThreads
+                + " threads in " + sw.stop().getSeconds() + "s");
+    }
+
     protected double getElevation(ReaderNode node) {
         return eleProvider.getEle(node.getLat(), node.getLon());
     }
@@ -766,6 +834,8 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
     protected void finishedReading() {
         printInfo("way");
         pillarInfo.clear();
+        if (osmNodeIdToInternalNodeMap instanceof GHLongIntPagedMap)
+            ((GHLongIntPagedMap) osmNodeIdToInternalNodeMap).clear();
         encodingManager.releaseParsers();
         eleProvider.release();
         osmNodeIdToInternalNodeMap = null;
@@ -887,6 +957,17 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
         return true;
     }
 
+    /**
+     * Replaces the map from OSM IDs to internal node IDs, which is a GHLongIntBTree by default. For big areas a
+     * GHLongIntPagedMap avoids the big heap that the BTree requires. Call this before readGraph.
+     */
+    public OSMReader setNodeMap(LongIntMap nodeMap) {
+        if (nodeMap.getSize() > 0)
+            throw new IllegalArgumentException("The node map must be empty");
+        this.osmNodeIdToInternalNodeMap = nodeMap;
+        return this;
+    }
+
     /**
      * Maps OSM IDs (long) to internal node IDs (int)
      */
@@ -903,10 +984,14 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
     }
 
     IntsRef getRelFlagsMap(long osmId) {
+        return readRelFlags(osmId, tempRelFlags);
+    }
+
+    private IntsRef readRelFlags(long osmId, IntsRef relFlags) {
         long relFlagsAsLong = osmWayIdToRouteWeightMap.get(osmId);
-        tempRelFlags.ints[0] = (int) relFlagsAsLong;
-        tempRelFlags.ints[1] = (int) (relFlagsAsLong >> 32);
-        return tempRelFlags;
+        relFlags.ints[0] = (int) relFlagsAsLong;
+        relFlags.ints[1] = (int) (relFlagsAsLong >> 32);
+        return relFlags;
     }
 
     void putRelFlagsMap(long osmId, IntsRef relFlags) {
@@ -933,6 +1018,31 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
         return this;
     }
 
+    /**
+     * Sets the number of threads that parse the tags of the ways while creating the graph. Default is 1. The edges
+     * are still created by the reading thread in the order of the OSM file, so the graph does not depend on this
+     * number.
+     */
+    public OSMReader setWayThreads(int wayThreads) {
+        if (wayThreads < 1)
+            throw new IllegalArgumentException("way threads must be at least 1 but was " + wayThreads);
+        this.wayThreads = wayThreads;
+        return this;
+    }
+
+    /**
+     * Sets the number of threads that look up the elevation of the nodes. Default is 1, which looks up the elevation
+     * of every node while it is read. With more threads the elevation of all nodes is looked up at once before the
+     * ways are read, sorted by their elevation tile. The result does not depend on this number, but an overwritten
+     * {@link #getElevation(ReaderNode)} is only used for the default.
+     */
+    public OSMReader setElevationThreads(int elevationThreads) {
+        if (elevationThreads < 1)
+            throw new IllegalArgumentException("elevation threads must be at least 1 but was " + elevationThreads);
+        this.elevationThreads = elevationThreads;
+        return this;
+    }
+
     @Override
     public OSMReader setElevationProvider(ElevationProvider eleProvider) {
         if (eleProvider == null)
@@ -968,4 +1078,91 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
     public String toString() {
         return getClass().getSimpleName();
     }
+
+    /**
+     * Parses the tags of batches of ways in parallel. The edges are created by the reading thread in the order of the
+     * OSM file when a batch is finished.
+     */
+    private class WayPipeline {
+        private static final int BATCH_SIZE = 1000;
+        private final ExecutorService executorService;
+        private final int maxPendingBatches;
+        private final ArrayDeque<WayBatch> pendingBatches = new ArrayDeque<>();
+        private List<ReaderWay> ways = new ArrayList<>(BATCH_SIZE);
+
+        WayPipeline(int threads) {
+            this.executorService = Executors.newFixedThreadPool(threads);
+            this.maxPendingBatches = 2 * threads;
+        }
+
+        void add(ReaderWay way) {
+            if (!prepareWay(way))
+                return;
+
+            ways.add(way);
+            if (ways.size() >= BATCH_SIZE)
+                submit();
+        }
+
+        private void submit() {
+            final List<ReaderWay> batchWays = ways;
+            ways = new ArrayList<>(BATCH_SIZE);
+            Future<IntsRef[]> edgeFlags = executorService.submit(new Callable<IntsRef[]>() {
+                @Override
+                public IntsRef[] call() {
+                    encodingManager.prepareWays(batchWays);
+                    IntsRef[] edgeFlags = new IntsRef[batchWays.size()];
+                    for (int i = 0; i < edgeFlags.length; i++) {
+                        edgeFlags[i] = parseWay(batchWays.get(i), encodingManager.createRelationFlags());
+                    }
+                    return edgeFlags;
+                }
+            });
+            pendingBatches.add(new WayBatch(batchWays, edgeFlags));
+            if (pendingBatches.size() > maxPendingBatches)
+                addOldestBatch();
+        }
+
+        private void addOldestBatch() {
+            WayBatch batch = pendingBatches.poll();
+            IntsRef[] edgeFlags;
+            try {
+                edgeFlags = batch.edgeFlags.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Thread was interrupted", ex);
+            } catch (ExecutionException ex) {
+                throw new RuntimeException("Couldn't parse way", ex.getCause());
+            }
+            for (int i = 0; i < edgeFlags.length; i++) {
+                if (edgeFlags[i] != null)
+                    addWay(batch.ways.get(i), edgeFlags[i]);
+            }
+        }
+
+        /**
+         * Creates the edges of all ways added so far.
+         */
+        void flush() {
+            if (!ways.isEmpty())
+                submit();
+            while (!pendingBatches.isEmpty()) {
+                addOldestBatch();
+            }
+        }
+
+        void close() {
+            executorService.shutdownNow();
+        }
+    }
+
+    private static class WayBatch {
+        final List<ReaderWay> ways;
+        final Future<IntsRef[]> edgeFlags;
+
+        WayBatch(List<ReaderWay> ways, Future<IntsRef[]> edgeFlags) {
+            this.ways = ways;
+            this.edgeFlags = edgeFlags;
+        }
+    }
 }
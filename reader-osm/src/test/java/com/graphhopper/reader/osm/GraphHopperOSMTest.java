@@ -32,6 +32,7 @@ import com.graphhopper.routing.ch.PrepareContractionHierarchies;
 import com.graphhopper.routing.lm.PrepareLandmarks;
 import com.graphhopper.routing.util.*;
 import com.graphhopper.routing.weighting.AbstractWeighting;
+import com.graphhopper.routing.weighting.AvoidEdgesWeighting;
 import com.graphhopper.routing.weighting.FastestWeighting;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.*;
@@ -77,6 +78,62 @@ public class GraphHopperOSMTest {
         Helper.removeDir(new File(ghLoc));
     }
 
+    @Test
+    public void testPagedNodeMap() {
+        GraphHopper hopper = createAndorraHopper("btree");
+        hopper.importOrLoad();
+        int nodes = hopper.getGraphHopperStorage().getNodes();
+        int edges = hopper.getGraphHopperStorage().getEdges();
+        PathWrapper path = hopper.route(new GHRequest(42.56819, 1.603231, 42.513165, 1.534906)).getBest();
+        hopper.close();
+        Helper.removeDir(new File(ghLoc));
+
+        instance = createAndorraHopper("paged");
+        instance.importOrLoad();
+        assertEquals(nodes, instance.getGraphHopperStorage().getNodes());
+        assertEquals(edges, instance.getGraphHopperStorage().getEdges());
+        PathWrapper pagedPath = instance.route(new GHRequest(42.56819, 1.603231, 42.513165, 1.534906)).getBest();
+        assertEquals(path.getDistance(), pagedPath.getDistance(), 1.e-3);
+        assertEquals(path.getPoints().size(), pagedPath.getPoints().size());
+        // the temporary map is removed after the import
+        assertFalse(new File(ghLoc, "tmp_long_int_paged_map").exists());
+    }
+
+    private GraphHopper createAndorraHopper(String nodeMapType) {
+        return new GraphHopperOSM().init(new CmdArgs().
+                put("datareader.file", "../core/files/andorra.osm.pbf").
+                put("datareader.node_map", nodeMapType).
+                put("datareader.node_map.dataaccess", "MMAP").
+                put("graph.flag_encoders", "car").
+                put("prepare.ch.weightings", "no").
+                put("graph.location", ghLoc));
+    }
+
+    @Test
+    public void testParallelWayParsing() {
+        List<String> edges = importAndorraEdges(1);
+        Helper.removeDir(new File(ghLoc));
+        assertEquals(edges, importAndorraEdges(4));
+    }
+
+    private List<String> importAndorraEdges(int wayThreads) {
+        GraphHopper hopper = new GraphHopperOSM().init(new CmdArgs().
+                put("datareader.file", "../core/files/andorra.osm.pbf").
+                put("datareader.way_threads", wayThreads).
+                put("graph.flag_encoders", "car,bike,foot").
+                put("prepare.ch.weightings", "no").
+                put("graph.location", ghLoc));
+        hopper.importOrLoad();
+        List<String> edges = new ArrayList<>();
+        AllEdgesIterator iter = hopper.getGraphHopperStorage().getAllEdges();
+        while (iter.next()) {
+            edges.add(iter.getBaseNode() + "-" + iter.getAdjNode() + " " + iter.getDistance() + " " + iter.getName()
+                    + " " + Arrays.toString(iter.getFlags().ints) + " " + iter.fetchWayGeometry(3));
+        }
+        hopper.close();
+        return edges;
+    }
+
     @Test
     public void testLoadOSM() {
         GraphHopper closableInstance = new GraphHopperOSM().
@@ -252,6 +309,36 @@ public class GraphHopperOSMTest {
         }
     }
 
+    @Test
+    public void testLoadingWithDifferentCompactShortcutsConfig() {
+        GraphHopper gh = new GraphHopperOSM().setStoreOnFlush(true).
+                setEncodingManager(EncodingManager.create("car")).
+                setGraphHopperLocation(ghLoc).
+                setDataReaderFile(testOsm);
+        gh.getCHFactoryDecorator().setCHProfileStrings("fastest|compact_shortcuts=true");
+        gh.importOrLoad();
+        assertFalse(gh.route(new GHRequest(51.2492152, 9.4317166, 51.2, 9.4)).hasErrors());
+        gh.close();
+
+        // the compact shortcuts must not be loaded as normal ones
+        gh = new GraphHopperOSM().setStoreOnFlush(true).
+                setEncodingManager(EncodingManager.create("car"));
+        try {
+            gh.load(ghLoc);
+            fail();
+        } catch (Exception ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().startsWith("Configured compact_shortcuts=false"));
+        }
+        gh.close();
+
+        gh = new GraphHopperOSM().setStoreOnFlush(true).
+                setEncodingManager(EncodingManager.create("car"));
+        gh.getCHFactoryDecorator().setCHProfileStrings("fastest|compact_shortcuts=true");
+        assertTrue(gh.load(ghLoc));
+        assertFalse(gh.route(new GHRequest(51.2492152, 9.4317166, 51.2, 9.4)).hasErrors());
+        gh.close();
+    }
+
     @Test
     public void testAllowMultipleReadingInstances() {
         GraphHopper instance1 = new GraphHopperOSM().setStoreOnFlush(true).
@@ -979,6 +1066,33 @@ public class GraphHopperOSMTest {
         }
     }
 
+    @Test
+    public void testPhastSweepOnlyForTheWeightingOfTheCHProfile() {
+        GraphHopper hopper = new GraphHopperOSM() {
+            @Override
+            public Weighting createWeighting(HintsMap hintsMap, FlagEncoder encoder, Graph graph) {
+                Weighting weighting = super.createWeighting(hintsMap, encoder, graph);
+                if (hintsMap.getBool("avoid_edges", false))
+                    return new AvoidEdgesWeighting(weighting);
+                return weighting;
+            }
+        }.setStoreOnFlush(true).
+                setEncodingManager(EncodingManager.create("car")).
+                setGraphHopperLocation(ghLoc).
+                setDataReaderFile(testOsm);
+        hopper.importOrLoad();
+
+        HintsMap hints = new HintsMap().setVehicle("car").setWeighting("fastest");
+        assertNotNull(hopper.getPhastSweep(hints, false));
+        // a hint of a custom weighting
+        assertNull(hopper.getPhastSweep(new HintsMap(hints).put("avoid_edges", true), false));
+        assertNull(hopper.getPhastSweep(new HintsMap(hints).put(Routing.BLOCK_AREA, "51.25,9.43,51.26,9.44"), false));
+        assertNull(hopper.getPhastSweep(new HintsMap(hints).put("road_access_factor", 2), false));
+        // the default is the weighting of the CH profile
+        assertNotNull(hopper.getPhastSweep(new HintsMap(hints).put("road_access_factor", 10), false));
+        hopper.close();
+    }
+
     @Test
     public void testGetWeightingForCH() {
         TestEncoder truck = new TestEncoder("truck");
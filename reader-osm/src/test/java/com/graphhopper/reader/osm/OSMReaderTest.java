@@ -718,6 +718,32 @@ public class OSMReaderTest {
                 edge.fetchWayGeometry(3));
     }
 
+    @Test
+    public void testReadEleFromDataProviderWithThreads() {
+        GraphHopper hopper = new GraphHopperFacade("test-osm5.xml") {
+            @Override
+            protected DataReader createReader(GraphHopperStorage tmpGraph) {
+                return initDataReader(new OSMReader(tmpGraph).setElevationThreads(2));
+            }
+        };
+        hopper.setElevationProvider(new SRTMProvider(GraphHopperIT.DIR));
+        hopper.importOrLoad();
+
+        Graph graph = hopper.getGraphHopperStorage();
+        int n10 = AbstractGraphStorageTester.getIdOf(graph, 49.501);
+        int n30 = AbstractGraphStorageTester.getIdOf(graph, 49.5011);
+        int n50 = AbstractGraphStorageTester.getIdOf(graph, 49.5001);
+
+        EdgeIteratorState edge = GHUtility.getEdge(graph, n50, n30);
+        assertEquals(Helper.createPointList3D(49.5001, 11.501, 426, 49.5002, 11.5015, 441, 49.5011, 11.502, 410.0),
+                edge.fetchWayGeometry(3));
+
+        edge = GHUtility.getEdge(graph, n10, n50);
+        assertEquals(Helper.createPointList3D(49.501, 11.5001, 383.0, 49.5001, 11.501, 426.0),
+                edge.fetchWayGeometry(3));
+        assertEquals(371.0, graph.getBounds().minEle, 1e-1);
+    }
+
     /**
      * Tests the combination of different turn cost flags by different encoders.
      */
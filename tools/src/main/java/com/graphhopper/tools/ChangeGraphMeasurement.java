@@ -0,0 +1,178 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.tools;
+
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.json.geo.JsonFeature;
+import com.graphhopper.reader.osm.GraphHopperOSM;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.util.CmdArgs;
+import com.graphhopper.util.shapes.BBox;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the latency of routing requests while the graph is changed concurrently via GraphHopper.changeGraph, e.g.
+ * to see if traffic updates block the routing. The same queries are run twice: first without and then with a thread
+ * that continuously changes the speed of the edges in small random areas. The percentiles of both runs are logged.
+ * <p>
+ * Example: map=berlin.pbf route_threads=4 queries=2000 change_pause_ms=5 change_size=0.01
+ */
+public class ChangeGraphMeasurement {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChangeGraphMeasurement.class);
+
+    public static void main(String[] args) throws InterruptedException {
+        CmdArgs cmdArgs = CmdArgs.read(args);
+        cmdArgs.put("datareader.file", cmdArgs.get("map", "local/maps/unterfranken-latest.osm.pbf"));
+        cmdArgs.put("graph.location", cmdArgs.get("graph.location", "change-graph-measurement-gh"));
+        cmdArgs.put("graph.flag_encoders", "car");
+        // changing the graph is only possible without CH
+        cmdArgs.put("prepare.ch.weightings", "no");
+        final int routeThreads = cmdArgs.getInt("route_threads", 4);
+        final int queries = cmdArgs.getInt("queries", 2000);
+        final long changePauseMillis = cmdArgs.getLong("change_pause_ms", 5);
+        final double changeSize = cmdArgs.getDouble("change_size", 0.01);
+        final long seed = cmdArgs.getLong("seed", 123);
+
+        GraphHopper hopper = new GraphHopperOSM().init(cmdArgs).forServer();
+        hopper.importOrLoad();
+
+        Graph graph = hopper.getGraphHopperStorage();
+        List<GHRequest> requests = createRequests(graph, queries, new Random(seed));
+        // warm up, otherwise the first run will be slower for a different reason
+        runQueries(hopper, requests.subList(0, Math.min(200, queries)), routeThreads);
+
+        long[] latencies = runQueries(hopper, requests, routeThreads);
+        logPercentiles("without changes", latencies);
+
+        final AtomicBoolean stop = new AtomicBoolean(false);
+        final AtomicLong changes = new AtomicLong();
+        ChangeThread changeThread = new ChangeThread(hopper, graph, changeSize, changePauseMillis, new Random(seed), stop, changes);
+        changeThread.start();
+        latencies = runQueries(hopper, requests, routeThreads);
+        stop.set(true);
+        changeThread.join();
+        logPercentiles("with concurrent changes", latencies);
+        LOGGER.info("changeGraph calls: " + changes.get() + ", changed edges not yet written: " + hopper.getGraphHopperStorage().getChangedEdges()
+                + ", mean change time: " + (changes.get() == 0 ? 0 : changeThread.changeNanos / changes.get() / 1e6) + "ms");
+        hopper.close();
+    }
+
+    private static List<GHRequest> createRequests(Graph graph, int count, Random rand) {
+        NodeAccess na = graph.getNodeAccess();
+        List<GHRequest> requests = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int from = rand.nextInt(graph.getNodes());
+            int to = rand.nextInt(graph.getNodes());
+            requests.add(new GHRequest(na.getLatitude(from), na.getLongitude(from), na.getLatitude(to), na.getLongitude(to)).
+                    setVehicle("car").setWeighting("fastest"));
+        }
+        return requests;
+    }
+
+    /**
+     * @return the sorted latencies in nanoseconds
+     */
+    private static long[] runQueries(final GraphHopper hopper, final List<GHRequest> requests, int threads) throws InterruptedException {
+        final long[] latencies = new long[requests.size()];
+        final CountDownLatch latch = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            final int offset = t;
+            final int step = threads;
+            new Thread() {
+                @Override
+                public void run() {
+                    for (int i = offset; i < requests.size(); i += step) {
+                        long start = System.nanoTime();
+                        GHResponse rsp = hopper.route(requests.get(i));
+                        latencies[i] = System.nanoTime() - start;
+                        if (rsp.hasErrors() && !String.valueOf(rsp.getErrors().get(0).getMessage()).contains("not found"))
+                            LOGGER.warn("Problem with " + requests.get(i) + ": " + rsp.getErrors());
+                    }
+                    latch.countDown();
+                }
+            }.start();
+        }
+        latch.await();
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    private static void logPercentiles(String name, long[] sortedLatencies) {
+        LOGGER.info(name + ": p50=" + percentile(sortedLatencies, 0.5) + "ms, p90=" + percentile(sortedLatencies, 0.9)
+                + "ms, p99=" + percentile(sortedLatencies, 0.99) + "ms, max=" + percentile(sortedLatencies, 1) + "ms");
+    }
+
+    private static double percentile(long[] sortedLatencies, double p) {
+        int index = (int) Math.ceil(p * sortedLatencies.length) - 1;
+        return sortedLatencies[Math.max(0, index)] / 1e6;
+    }
+
+    private static class ChangeThread extends Thread {
+        private final GraphHopper hopper;
+        private final Graph graph;
+        private final double changeSize;
+        private final long pauseMillis;
+        private final Random rand;
+        private final AtomicBoolean stop;
+        private final AtomicLong changes;
+        volatile long changeNanos;
+
+        ChangeThread(GraphHopper hopper, Graph graph, double changeSize, long pauseMillis, Random rand,
+                     AtomicBoolean stop, AtomicLong changes) {
+            this.hopper = hopper;
+            this.graph = graph;
+            this.changeSize = changeSize;
+            this.pauseMillis = pauseMillis;
+            this.rand = rand;
+            this.stop = stop;
+            this.changes = changes;
+        }
+
+        @Override
+        public void run() {
+            while (!stop.get()) {
+                // the area has to contain at least one node
+                int node = rand.nextInt(graph.getNodes());
+                double lat = graph.getNodeAccess().getLatitude(node) - changeSize / 2;
+                double lon = graph.getNodeAccess().getLongitude(node) - changeSize / 2;
+                Map<String, Object> properties = new HashMap<>();
+                properties.put("speed", 5 + rand.nextInt(20) * 5);
+                JsonFeature feature = new JsonFeature("change" + changes.get(), "Feature",
+                        new BBox(lon, lon + changeSize, lat, lat + changeSize), null, properties);
+                long start = System.nanoTime();
+                hopper.changeGraph(Collections.singletonList(feature));
+                changeNanos += System.nanoTime() - start;
+                changes.incrementAndGet();
+                try {
+                    Thread.sleep(pauseMillis);
+                } catch (InterruptedException ex) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.tools;
+
+import com.carrotsearch.hppc.LongArrayList;
+import com.graphhopper.coll.GHLongIntBTree;
+import com.graphhopper.coll.GHLongIntPagedMap;
+import com.graphhopper.coll.LongIntMap;
+import com.graphhopper.reader.ReaderElement;
+import com.graphhopper.reader.ReaderWay;
+import com.graphhopper.reader.osm.OSMInputFile;
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.GHDirectory;
+import com.graphhopper.util.CmdArgs;
+import com.graphhopper.util.Helper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.Random;
+
+/**
+ * Compares the maps from OSM node IDs to internal node IDs that can be used while reading an OSM file (see
+ * datareader.node_map) regarding insert and get throughput and bytes per entry. The keys are either the node IDs of
+ * the ways of the specified OSM file in the order of the file or, without a file, synthetic keys with a similar
+ * distribution. The insert phase does the same as the preprocessing of the OSMReader, i.e. a get and a put per key.
+ * <p>
+ * Example: map=berlin.pbf or keys=50000000
+ */
+public class NodeMapMeasurement {
+    private static final Logger LOGGER = LoggerFactory.getLogger(NodeMapMeasurement.class);
+    private static final int EMPTY = -1, PILLAR = 1, TOWER = -2;
+
+    public static void main(String[] args) throws Exception {
+        CmdArgs cmdArgs = CmdArgs.read(args);
+        String osmFile = cmdArgs.get("map", "");
+        long seed = cmdArgs.getLong("seed", 123);
+        String location = cmdArgs.get("location", "node-map-measurement-gh");
+        LongArrayList keys = osmFile.isEmpty() ? createKeys(cmdArgs.getInt("keys", 10_000_000), new Random(seed))
+                : readWayNodeIds(new File(osmFile));
+        LOGGER.info("keys: " + keys.size() + ", " + Helper.getMemInfo());
+
+        GHDirectory dir = new GHDirectory(location, DAType.RAM_INT);
+        new File(location).mkdirs();
+        for (int run = 0; run < 2; run++) {
+            // the first run is the warm up
+            boolean log = run == 1;
+            measure("btree", new GHLongIntBTree(200), keys, seed, log);
+            measure("paged RAM_INT", new GHLongIntPagedMap(dir, DAType.RAM_INT, EMPTY), keys, seed, log);
+            measure("paged MMAP", new GHLongIntPagedMap(dir, DAType.MMAP, EMPTY), keys, seed, log);
+        }
+        Helper.removeDir(new File(location));
+    }
+
+    private static void measure(String name, LongIntMap map, LongArrayList keys, long seed, boolean log) {
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        for (int i = 0; i < keys.size(); i++) {
+            long key = keys.get(i);
+            map.put(key, map.get(key) == EMPTY ? PILLAR : TOWER);
+        }
+        long insertNanos = System.nanoTime() - start;
+        long heap = usedHeap() - heapBefore;
+
+        Random rand = new Random(seed);
+        long sum = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < keys.size(); i++) {
+            sum += map.get(keys.get(rand.nextInt(keys.size())));
+        }
+        long getNanos = System.nanoTime() - start;
+
+        if (log) {
+            long estimate = map instanceof GHLongIntPagedMap ? ((GHLongIntPagedMap) map).getCapacity() : map.getMemoryUsage() * Helper.MB;
+            LOGGER.info(name + ": entries: " + map.getSize()
+                    + ", inserts/s: " + Math.round(keys.size() / (insertNanos / 1e9))
+                    + ", gets/s: " + Math.round(keys.size() / (getNanos / 1e9))
+                    + ", bytes/entry (heap): " + Helper.round2((double) heap / map.getSize())
+                    + ", bytes/entry (estimated): " + Helper.round2((double) estimate / map.getSize())
+                    + ", checksum: " + sum);
+        }
+        if (map instanceof GHLongIntPagedMap)
+            ((GHLongIntPagedMap) map).clear();
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Creates keys like the node IDs of consecutive ways: mostly increasing IDs that are often shared with an earlier
+     * way and sometimes jump back to a much older ID.
+     */
+    private static LongArrayList createKeys(int count, Random rand) {
+        LongArrayList keys = new LongArrayList(count);
+        long maxId = 0;
+        while (keys.size() < count) {
+            int wayNodes = 2 + rand.nextInt(20);
+            long id;
+            int r = rand.nextInt(10);
+            if (r < 6 || maxId == 0)
+                id = maxId + 1 + rand.nextInt(200);
+            else if (r < 9)
+                // a crossing with a recent way
+                id = Math.max(1, maxId - rand.nextInt(1000));
+            else
+                id = 1 + (long) (rand.nextDouble() * maxId);
+
+            for (int i = 0; i < wayNodes && keys.size() < count; i++) {
+                keys.add(id);
+                maxId = Math.max(maxId, id);
+                id += 1 + (rand.nextInt(4) == 0 ? rand.nextInt(50) : 0);
+            }
+        }
+        return keys;
+    }
+
+    private static LongArrayList readWayNodeIds(File osmFile) throws Exception {
+        LongArrayList keys = new LongArrayList();
+        try (OSMInputFile in = new OSMInputFile(osmFile).setWorkerThreads(2).open()) {
+            ReaderElement item;
+            while ((item = in.getNext()) != null) {
+                if (item.isType(ReaderElement.WAY) && ((ReaderWay) item).hasTag("highway"))
+                    keys.addAll(((ReaderWay) item).getNodes());
+            }
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,620 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.graphhopper.GHResponse;
+import com.graphhopper.PathWrapper;
+import com.graphhopper.jackson.PathWrapperDeserializer;
+import com.graphhopper.util.*;
+import com.graphhopper.util.details.PathDetail;
+import com.graphhopper.util.shapes.BBox;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.text.NumberFormat;
+import java.util.*;
+
+/**
+ * Writes and reads the compact binary representation of a successful route response with the media type
+ * application/x-protobuf, which is described in docs/web/route_response.proto. The coordinates are delta and
+ * zig-zag encoded, every distinct value of a path detail is stored once per detail and the instructions only
+ * contain their sign and text instead of the JSON field names. The messages are written with the low level API
+ * of protobuf, i.e. without generated classes.
+ */
+public class GHResponseProtobuf {
+    public static final String MEDIA_TYPE = "application/x-protobuf";
+
+    // RouteResponse
+    private static final int PATHS = 1;
+    private static final int HINTS = 2;
+    private static final int INFO = 3;
+    // Info
+    private static final int INFO_COPYRIGHTS = 1;
+    private static final int INFO_TOOK = 2;
+    // Path
+    private static final int PATH_DISTANCE = 1;
+    private static final int PATH_WEIGHT = 2;
+    private static final int PATH_TIME = 3;
+    private static final int PATH_TRANSFERS = 4;
+    private static final int PATH_DESCRIPTION = 5;
+    private static final int PATH_BBOX = 6;
+    private static final int PATH_POINTS = 7;
+    private static final int PATH_INSTRUCTIONS = 8;
+    private static final int PATH_DETAILS = 9;
+    private static final int PATH_ASCEND = 10;
+    private static final int PATH_DESCEND = 11;
+    private static final int PATH_SNAPPED_WAYPOINTS = 12;
+    private static final int PATH_FARE = 13;
+    // Points
+    private static final int POINTS_ELEVATION = 1;
+    private static final int POINTS_DELTAS = 2;
+    // Instruction
+    private static final int INSTRUCTION_SIGN = 1;
+    private static final int INSTRUCTION_TEXT = 2;
+    private static final int INSTRUCTION_STREET_NAME = 3;
+    private static final int INSTRUCTION_DISTANCE = 4;
+    private static final int INSTRUCTION_TIME = 5;
+    private static final int INSTRUCTION_LENGTH = 6;
+    private static final int INSTRUCTION_ANNOTATION_TEXT = 7;
+    private static final int INSTRUCTION_ANNOTATION_IMPORTANCE = 8;
+    private static final int INSTRUCTION_EXTRA_INFO = 9;
+    // Details
+    private static final int DETAILS_VALUES = 1;
+    private static final int DETAILS_INTERVALS = 2;
+    // Value
+    private static final int VALUE_STRING = 1;
+    private static final int VALUE_DOUBLE = 2;
+    private static final int VALUE_LONG = 3;
+    private static final int VALUE_INT = 4;
+    private static final int VALUE_BOOL = 5;
+    // the key and value of a map entry
+    private static final int ENTRY_KEY = 1;
+    private static final int ENTRY_VALUE = 2;
+
+    private static final double COORDINATE_FACTOR = 1e6;
+    private static final double ELEVATION_FACTOR = 100;
+
+    private interface MessageWriter {
+        void write(CodedOutputStream out) throws IOException;
+    }
+
+    // the values of an instruction as read, its points are only known when all points of the path are read
+    private static class InstructionValues {
+        int sign;
+        String text;
+        InstructionAnnotation annotation;
+        double distance;
+        long time;
+        int length;
+        Map<String, Object> extraInfo = new HashMap<>();
+    }
+
+    public static void write(OutputStream outputStream, GHResponse ghRsp, boolean enableInstructions, boolean calcPoints,
+                             boolean enableElevation, float took) throws IOException {
+        CodedOutputStream out = CodedOutputStream.newInstance(outputStream);
+        for (PathWrapper path : ghRsp.getAll()) {
+            writeMessage(out, PATHS, pathOut -> writePath(pathOut, path, enableInstructions, calcPoints, enableElevation));
+        }
+        for (Map.Entry<String, String> hint : ghRsp.getHints().toMap().entrySet()) {
+            writeMessage(out, HINTS, entryOut -> {
+                entryOut.writeString(ENTRY_KEY, hint.getKey());
+                entryOut.writeString(ENTRY_VALUE, hint.getValue());
+            });
+        }
+        writeMessage(out, INFO, infoOut -> {
+            for (String copyright : WebHelper.COPYRIGHTS) {
+                infoOut.writeString(INFO_COPYRIGHTS, copyright);
+            }
+            infoOut.writeInt64(INFO_TOOK, Math.round(took * 1000));
+        });
+        out.flush();
+    }
+
+    private static void writePath(CodedOutputStream out, PathWrapper path, boolean enableInstructions, boolean calcPoints,
+                                  boolean enableElevation) throws IOException {
+        out.writeDouble(PATH_DISTANCE, Helper.round(path.getDistance(), 3));
+        out.writeDouble(PATH_WEIGHT, Helper.round6(path.getRouteWeight()));
+        out.writeInt64(PATH_TIME, path.getTime());
+        out.writeInt32(PATH_TRANSFERS, path.getNumChanges());
+        for (String description : path.getDescription()) {
+            out.writeString(PATH_DESCRIPTION, description);
+        }
+        if (calcPoints) {
+            if (path.getPoints().getSize() >= 2) {
+                BBox bbox = path.calcBBox2D();
+                for (double value : new double[]{bbox.minLon, bbox.minLat, bbox.maxLon, bbox.maxLat}) {
+                    out.writeDouble(PATH_BBOX, value);
+                }
+            }
+            writeMessage(out, PATH_POINTS, pointsOut -> writePoints(pointsOut, path.getPoints(), enableElevation));
+            if (enableInstructions) {
+                InstructionList instructions = path.getInstructions();
+                for (Instruction instruction : instructions) {
+                    writeMessage(out, PATH_INSTRUCTIONS, instructionOut -> writeInstruction(instructionOut, instruction, instructions.getTr()));
+                }
+            }
+            for (Map.Entry<String, List<PathDetail>> details : path.getPathDetails().entrySet()) {
+                writeMessage(out, PATH_DETAILS, entryOut -> {
+                    entryOut.writeString(ENTRY_KEY, details.getKey());
+                    writeMessage(entryOut, ENTRY_VALUE, detailsOut -> writeDetails(detailsOut, details.getValue()));
+                });
+            }
+            out.writeDouble(PATH_ASCEND, path.getAscend());
+            out.writeDouble(PATH_DESCEND, path.getDescend());
+        }
+        writeMessage(out, PATH_SNAPPED_WAYPOINTS, pointsOut -> writePoints(pointsOut, path.getWaypoints(), enableElevation));
+        if (path.getFare() != null) {
+            out.writeString(PATH_FARE, NumberFormat.getCurrencyInstance(Locale.ROOT).format(path.getFare()));
+        }
+    }
+
+    private static void writePoints(CodedOutputStream out, PointList points, boolean includeElevation) throws IOException {
+        out.writeBool(POINTS_ELEVATION, includeElevation);
+        int dimension = includeElevation ? 3 : 2;
+        int[] deltas = new int[points.getSize() * dimension];
+        int prevLat = 0, prevLon = 0, prevEle = 0;
+        for (int i = 0; i < points.getSize(); i++) {
+            int lat = (int) Math.round(points.getLatitude(i) * COORDINATE_FACTOR);
+            int lon = (int) Math.round(points.getLongitude(i) * COORDINATE_FACTOR);
+            deltas[i * dimension] = lat - prevLat;
+            deltas[i * dimension + 1] = lon - prevLon;
+            prevLat = lat;
+            prevLon = lon;
+            if (includeElevation) {
+                int ele = (int) Math.round(points.getElevation(i) * ELEVATION_FACTOR);
+                deltas[i * dimension + 2] = ele - prevEle;
+                prevEle = ele;
+            }
+        }
+        writePackedSInt32(out, POINTS_DELTAS, deltas);
+    }
+
+    private static void writeInstruction(CodedOutputStream out, Instruction instruction, Translation tr) throws IOException {
+        InstructionAnnotation ia = instruction.getAnnotation();
+        String text = instruction.getTurnDescription(tr);
+        if (Helper.isEmpty(text))
+            text = ia.getMessage();
+        out.writeSInt32(INSTRUCTION_SIGN, instruction.getSign());
+        out.writeString(INSTRUCTION_TEXT, Helper.firstBig(text));
+        out.writeString(INSTRUCTION_STREET_NAME, instruction.getName());
+        out.writeDouble(INSTRUCTION_DISTANCE, Helper.round(instruction.getDistance(), 3));
+        out.writeInt64(INSTRUCTION_TIME, instruction.getTime());
+        out.writeUInt32(INSTRUCTION_LENGTH, instruction.getLength());
+        if (!ia.isEmpty()) {
+            out.writeString(INSTRUCTION_ANNOTATION_TEXT, ia.getMessage());
+            out.writeInt32(INSTRUCTION_ANNOTATION_IMPORTANCE, ia.getImportance());
+        }
+        for (Map.Entry<String, Object> extraInfo : instruction.getExtraInfoJSON().entrySet()) {
+            if (extraInfo.getValue() == null)
+                continue;
+            writeMessage(out, INSTRUCTION_EXTRA_INFO, entryOut -> {
+                entryOut.writeString(ENTRY_KEY, extraInfo.getKey());
+                writeMessage(entryOut, ENTRY_VALUE, valueOut -> writeValue(valueOut, extraInfo.getValue()));
+            });
+        }
+    }
+
+    private static void writeDetails(CodedOutputStream out, List<PathDetail> details) throws IOException {
+        Map<Object, Integer> valueIndices = new HashMap<>();
+        int[] intervals = new int[details.size() * 3];
+        int prevLast = 0;
+        for (int i = 0; i < details.size(); i++) {
+            PathDetail detail = details.get(i);
+            Integer valueIndex = valueIndices.get(detail.getValue());
+            if (valueIndex == null) {
+                valueIndex = valueIndices.size();
+                valueIndices.put(detail.getValue(), valueIndex);
+                writeMessage(out, DETAILS_VALUES, valueOut -> writeValue(valueOut, detail.getValue()));
+            }
+            intervals[i * 3] = detail.getFirst() - prevLast;
+            intervals[i * 3 + 1] = detail.getLast() - detail.getFirst();
+            intervals[i * 3 + 2] = valueIndex;
+            prevLast = detail.getLast();
+        }
+        writePackedSInt32(out, DETAILS_INTERVALS, intervals);
+    }
+
+    private static void writeValue(CodedOutputStream out, Object value) throws IOException {
+        if (value instanceof String)
+            out.writeString(VALUE_STRING, (String) value);
+        else if (value instanceof Double)
+            out.writeDouble(VALUE_DOUBLE, (Double) value);
+        else if (value instanceof Long)
+            out.writeSInt64(VALUE_LONG, (Long) value);
+        else if (value instanceof Integer)
+            out.writeSInt32(VALUE_INT, (Integer) value);
+        else if (value instanceof Boolean)
+            out.writeBool(VALUE_BOOL, (Boolean) value);
+        else if (value != null)
+            throw new IllegalArgumentException("Unsupported type of value " + value.getClass());
+    }
+
+    private static void writePackedSInt32(CodedOutputStream out, int field, int[] values) throws IOException {
+        if (values.length == 0)
+            return;
+        int size = 0;
+        for (int value : values) {
+            size += CodedOutputStream.computeSInt32SizeNoTag(value);
+        }
+        out.writeTag(field, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+        out.writeUInt32NoTag(size);
+        for (int value : values) {
+            out.writeSInt32NoTag(value);
+        }
+    }
+
+    private static void writeMessage(CodedOutputStream out, int field, MessageWriter writer) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CodedOutputStream messageOut = CodedOutputStream.newInstance(bytes);
+        writer.write(messageOut);
+        messageOut.flush();
+        out.writeByteArray(field, bytes.toByteArray());
+    }
+
+    /**
+     * Reads a route response written by {@link #write}. Like for the JSON response the text of the instructions is
+     * used as their turn description if turnDescription is true, otherwise their street name.
+     */
+    public static GHResponse read(InputStream inputStream, boolean turnDescription) throws IOException {
+        CodedInputStream in = CodedInputStream.newInstance(inputStream);
+        GHResponse rsp = new GHResponse();
+        while (true) {
+            int tag = in.readTag();
+            if (tag == 0)
+                break;
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case PATHS:
+                    int limit = pushMessage(in);
+                    rsp.add(readPath(in, turnDescription));
+                    in.popLimit(limit);
+                    break;
+                case HINTS:
+                    limit = pushMessage(in);
+                    String[] entry = readStringEntry(in);
+                    rsp.getHints().put(entry[0], entry[1]);
+                    in.popLimit(limit);
+                    break;
+                default:
+                    in.skipField(tag);
+            }
+        }
+        return rsp;
+    }
+
+    private static PathWrapper readPath(CodedInputStream in, boolean turnDescription) throws IOException {
+        PathWrapper path = new PathWrapper();
+        List<String> description = new ArrayList<>();
+        List<InstructionValues> instructionValues = new ArrayList<>();
+        Map<String, List<PathDetail>> pathDetails = new HashMap<>();
+        PointList points = null;
+        while (true) {
+            int tag = in.readTag();
+            if (tag == 0)
+                break;
+            int limit;
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case PATH_DISTANCE:
+                    path.setDistance(in.readDouble());
+                    break;
+                case PATH_WEIGHT:
+                    path.setRouteWeight(in.readDouble());
+                    break;
+                case PATH_TIME:
+                    path.setTime(in.readInt64());
+                    break;
+                case PATH_DESCRIPTION:
+                    description.add(in.readString());
+                    break;
+                case PATH_POINTS:
+                    limit = pushMessage(in);
+                    points = readPoints(in);
+                    in.popLimit(limit);
+                    break;
+                case PATH_INSTRUCTIONS:
+                    limit = pushMessage(in);
+                    instructionValues.add(readInstructionValues(in, turnDescription));
+                    in.popLimit(limit);
+                    break;
+                case PATH_DETAILS:
+                    limit = pushMessage(in);
+                    readDetailsEntry(in, pathDetails);
+                    in.popLimit(limit);
+                    break;
+                case PATH_ASCEND:
+                    path.setAscend(in.readDouble());
+                    break;
+                case PATH_DESCEND:
+                    path.setDescend(in.readDouble());
+                    break;
+                case PATH_SNAPPED_WAYPOINTS:
+                    limit = pushMessage(in);
+                    path.setWaypoints(readPoints(in));
+                    in.popLimit(limit);
+                    break;
+                default:
+                    in.skipField(tag);
+            }
+        }
+        if (!description.isEmpty())
+            path.setDescription(description);
+        if (points != null) {
+            path.setPoints(points);
+            if (!instructionValues.isEmpty())
+                path.setInstructions(createInstructions(instructionValues, points, turnDescription));
+            path.addPathDetails(pathDetails);
+        }
+        List<Integer> pointsOrder = new ArrayList<>(path.getWaypoints().size());
+        for (int i = 0; i < path.getWaypoints().size(); i++) {
+            pointsOrder.add(i);
+        }
+        path.setPointsOrder(pointsOrder);
+        return path;
+    }
+
+    private static PointList readPoints(CodedInputStream in) throws IOException {
+        boolean elevation = false;
+        PointList points = null;
+        while (true) {
+            int tag = in.readTag();
+            if (tag == 0)
+                break;
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case POINTS_ELEVATION:
+                    elevation = in.readBool();
+                    break;
+                case POINTS_DELTAS:
+                    int limit = pushMessage(in);
+                    points = new PointList(10, elevation);
+                    int lat = 0, lon = 0, ele = 0;
+                    while (in.getBytesUntilLimit() > 0) {
+                        lat += in.readSInt32();
+                        lon += in.readSInt32();
+                        if (elevation) {
+                            ele += in.readSInt32();
+                            points.add(lat / COORDINATE_FACTOR, lon / COORDINATE_FACTOR, ele / ELEVATION_FACTOR);
+                        } else {
+                            points.add(lat / COORDINATE_FACTOR, lon / COORDINATE_FACTOR);
+                        }
+                    }
+                    in.popLimit(limit);
+                    break;
+                default:
+                    in.skipField(tag);
+            }
+        }
+        return points == null ? new PointList(0, elevation) : points;
+    }
+
+    private static InstructionValues readInstructionValues(CodedInputStream in, boolean turnDescription) throws IOException {
+        InstructionValues values = new InstructionValues();
+        String text = "", streetName = "", annotationText = null;
+        int importance = 0;
+        while (true) {
+            int tag = in.readTag();
+            if (tag == 0)
+                break;
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case INSTRUCTION_SIGN:
+                    values.sign = in.readSInt32();
+                    break;
+                case INSTRUCTION_TEXT:
+                    text = in.readString();
+                    break;
+                case INSTRUCTION_STREET_NAME:
+                    streetName = in.readString();
+                    break;
+                case INSTRUCTION_DISTANCE:
+                    values.distance = in.readDouble();
+                    break;
+                case INSTRUCTION_TIME:
+                    values.time = in.readInt64();
+                    break;
+                case INSTRUCTION_LENGTH:
+                    values.length = in.readUInt32();
+                    break;
+                case INSTRUCTION_ANNOTATION_TEXT:
+                    annotationText = in.readString();
+                    break;
+                case INSTRUCTION_ANNOTATION_IMPORTANCE:
+                    importance = in.readInt32();
+                    break;
+                case INSTRUCTION_EXTRA_INFO:
+                    int limit = pushMessage(in);
+                    readValueEntry(in, values.extraInfo);
+                    in.popLimit(limit);
+                    break;
+                default:
+                    in.skipField(tag);
+            }
+        }
+        values.text = turnDescription ? text : streetName;
+        values.annotation = annotationText == null ? InstructionAnnotation.EMPTY : new InstructionAnnotation(importance, annotationText);
+        return values;
+    }
+
+    private static InstructionList createInstructions(List<InstructionValues> instructionValues, PointList points, boolean turnDescription) {
+        InstructionList il = new InstructionList(null);
+        int viaCount = 1;
+        int from = 0;
+        for (InstructionValues values : instructionValues) {
+            int to = from + values.length;
+            PointList instPL = new PointList(to - from, points.is3D());
+            for (int j = from; j <= to; j++) {
+                instPL.add(points, j);
+            }
+            from = to;
+            Instruction instr = PathWrapperDeserializer.createInstruction(values.sign, values.text, values.annotation,
+                    instPL, values.extraInfo, viaCount, turnDescription);
+            if (values.sign == Instruction.REACHED_VIA)
+                viaCount++;
+            instr.setDistance(values.distance).setTime(values.time);
+            il.add(instr);
+        }
+        return il;
+    }
+
+    private static void readDetailsEntry(CodedInputStream in, Map<String, List<PathDetail>> pathDetails) throws IOException {
+        String name = "";
+        List<Object> values = new ArrayList<>();
+        List<PathDetail> details = new ArrayList<>();
+        while (true) {
+            int tag = in.readTag();
+            if (tag == 0)
+                break;
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case ENTRY_KEY:
+                    name = in.readString();
+                    break;
+                case ENTRY_VALUE:
+                    int limit = pushMessage(in);
+                    readDetails(in, values, details);
+                    in.popLimit(limit);
+                    break;
+                default:
+                    in.skipField(tag);
+            }
+        }
+        pathDetails.put(name, details);
+    }
+
+    private static void readDetails(CodedInputStream in, List<Object> values, List<PathDetail> details) throws IOException {
+        while (true) {
+            int tag = in.readTag();
+            if (tag == 0)
+                break;
+            int limit;
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case DETAILS_VALUES:
+                    limit = pushMessage(in);
+                    values.add(readValue(in));
+                    in.popLimit(limit);
+                    break;
+                case DETAILS_INTERVALS:
+                    // the values are written before the intervals
+                    limit = pushMessage(in);
+                    int last = 0;
+                    while (in.getBytesUntilLimit() > 0) {
+                        int first = last + in.readSInt32();
+                        last = first + in.readSInt32();
+                        PathDetail detail = createPathDetail(values.get(in.readSInt32()));
+                        detail.setFirst(first);
+                        detail.setLast(last);
+                        details.add(detail);
+                    }
+                    in.popLimit(limit);
+                    break;
+                default:
+                    in.skipField(tag);
+            }
+        }
+    }
+
+    private static PathDetail createPathDetail(Object value) {
+        // like for JSON an int value is read as long
+        if (value instanceof Double)
+            return new PathDetail((Double) value);
+        else if (value instanceof Number)
+            return new PathDetail(((Number) value).longValue());
+        else if (value instanceof Boolean)
+            return new PathDetail((Boolean) value);
+        else
+            return new PathDetail((String) value);
+    }
+
+    private static void readValueEntry(CodedInputStream in, Map<String, Object> map) throws IOException {
+        String key = "";
+        Object value = null;
+        while (true) {
+            int tag = in.readTag();
+            if (tag == 0)
+                break;
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case ENTRY_KEY:
+                    key = in.readString();
+                    break;
+                case ENTRY_VALUE:
+                    int limit = pushMessage(in);
+                    value = readValue(in);
+                    in.popLimit(limit);
+                    break;
+                default:
+                    in.skipField(tag);
+            }
+        }
+        if (value != null)
+            map.put(key, value);
+    }
+
+    private static Object readValue(CodedInputStream in) throws IOException {
+        Object value = null;
+        while (true) {
+            int tag = in.readTag();
+            if (tag == 0)
+                break;
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case VALUE_STRING:
+                    value = in.readString();
+                    break;
+                case VALUE_DOUBLE:
+                    value = in.readDouble();
+                    break;
+                case VALUE_LONG:
+                    value = in.readSInt64();
+                    break;
+                case VALUE_INT:
+                    value = in.readSInt32();
+                    break;
+                case VALUE_BOOL:
+                    value = in.readBool();
+                    break;
+                default:
+                    in.skipField(tag);
+            }
+        }
+        return value;
+    }
+
+    private static String[] readStringEntry(CodedInputStream in) throws IOException {
+        String[] entry = {"", ""};
+        while (true) {
+            int tag = in.readTag();
+            if (tag == 0)
+                break;
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case ENTRY_KEY:
+                    entry[0] = in.readString();
+                    break;
+                case ENTRY_VALUE:
+                    entry[1] = in.readString();
+                    break;
+                default:
+                    in.skipField(tag);
+            }
+        }
+        return entry;
+    }
+
+    private static int pushMessage(CodedInputStream in) throws IOException {
+        return in.pushLimit(in.readRawVarint32());
+    }
+}
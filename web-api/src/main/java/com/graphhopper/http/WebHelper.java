@@ -17,6 +17,7 @@
  */
 package com.graphhopper.http;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
@@ -25,6 +26,7 @@ import com.graphhopper.PathWrapper;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.PointList;
 
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.text.NumberFormat;
@@ -43,6 +45,10 @@ import java.util.Locale;
  * @author Peter Karich
  */
 public class WebHelper {
+    // a point has at most three numbers of 7 chars, which can double when escaped
+    private static final int POLYLINE_MAX_CHARS_PER_POINT = 3 * 7 * 2;
+    private static final int POLYLINE_BUFFER_SIZE = 1024;
+
     public static String encodeURL(String str) {
         try {
             return URLEncoder.encode(str, "UTF-8");
@@ -193,4 +199,133 @@ public class WebHelper {
         return json;
     }
 
+    /**
+     * Writes the same JSON as {@link #jsonObject} but directly to the generator, which avoids the intermediate tree
+     * and the strings of the encoded points. The generator has to write to a stream or writer, e.g. not to a
+     * TokenBuffer, and needs an ObjectMapper as codec for the objects like the path details.
+     */
+    public static void writeJson(JsonGenerator gen, GHResponse ghRsp, boolean enableInstructions, boolean calcPoints, boolean enableElevation, boolean pointsEncoded, float took) throws IOException {
+        gen.writeStartObject();
+        gen.writeObjectField("hints", ghRsp.getHints().toMap());
+        gen.writeObjectFieldStart("info");
+        gen.writeObjectField("copyrights", COPYRIGHTS);
+        gen.writeNumberField("took", Math.round(took * 1000));
+        gen.writeEndObject();
+        gen.writeArrayFieldStart("paths");
+        for (PathWrapper ar : ghRsp.getAll()) {
+            gen.writeStartObject();
+            gen.writeNumberField("distance", Helper.round(ar.getDistance(), 3));
+            gen.writeNumberField("weight", Helper.round6(ar.getRouteWeight()));
+            gen.writeNumberField("time", ar.getTime());
+            gen.writeNumberField("transfers", ar.getNumChanges());
+            if (!ar.getDescription().isEmpty()) {
+                gen.writeObjectField("description", ar.getDescription());
+            }
+            if (calcPoints) {
+                gen.writeBooleanField("points_encoded", pointsEncoded);
+                if (ar.getPoints().getSize() >= 2) {
+                    gen.writeObjectField("bbox", ar.calcBBox2D());
+                }
+                gen.writeFieldName("points");
+                writePoints(gen, ar.getPoints(), enableElevation, pointsEncoded);
+                if (enableInstructions) {
+                    gen.writeObjectField("instructions", ar.getInstructions());
+                }
+                gen.writeObjectField("legs", ar.getLegs());
+                gen.writeObjectField("details", ar.getPathDetails());
+                gen.writeNumberField("ascend", ar.getAscend());
+                gen.writeNumberField("descend", ar.getDescend());
+            }
+            gen.writeFieldName("snapped_waypoints");
+            writePoints(gen, ar.getWaypoints(), enableElevation, pointsEncoded);
+            if (ar.getFare() != null) {
+                gen.writeStringField("fare", NumberFormat.getCurrencyInstance(Locale.ROOT).format(ar.getFare()));
+            }
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
+
+    private static void writePoints(JsonGenerator gen, PointList points, boolean includeElevation, boolean pointsEncoded) throws IOException {
+        if (pointsEncoded)
+            writePolyline(gen, points, includeElevation, 1e5);
+        else
+            writeLineString(gen, points, includeElevation);
+    }
+
+    /**
+     * Writes the points as GeoJSON LineString like the serialization of {@link PointList#toLineString}.
+     */
+    public static void writeLineString(JsonGenerator gen, PointList poly, boolean includeElevation) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("type", "LineString");
+        gen.writeArrayFieldStart("coordinates");
+        // special case as just 1 point is not supported in the specification #1412
+        int size = poly.getSize() == 1 ? 2 : poly.getSize();
+        for (int i = 0; i < size; i++) {
+            int index = Math.min(i, poly.getSize() - 1);
+            gen.writeStartArray();
+            gen.writeNumber(PointList.round6(poly.getLongitude(index)));
+            gen.writeNumber(PointList.round6(poly.getLatitude(index)));
+            if (includeElevation && !Double.isNaN(poly.getElevation(index)))
+                gen.writeNumber(PointList.round2(poly.getElevation(index)));
+            gen.writeEndArray();
+        }
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
+
+    /**
+     * Writes the points encoded like {@link #encodePolyline(PointList, boolean, double)} as JSON string, but in chunks
+     * directly into the output of the generator instead of creating the whole string first.
+     */
+    public static void writePolyline(JsonGenerator gen, PointList poly, boolean includeElevation, double precision) throws IOException {
+        char[] buffer = new char[POLYLINE_BUFFER_SIZE];
+        gen.writeRawValue("\"");
+        int pos = 0;
+        int size = poly.getSize();
+        int prevLat = 0;
+        int prevLon = 0;
+        int prevEle = 0;
+        for (int i = 0; i < size; i++) {
+            if (pos > buffer.length - POLYLINE_MAX_CHARS_PER_POINT) {
+                gen.writeRaw(buffer, 0, pos);
+                pos = 0;
+            }
+            int num = (int) Math.floor(poly.getLatitude(i) * precision);
+            pos = encodeNumber(buffer, pos, num - prevLat);
+            prevLat = num;
+            num = (int) Math.floor(poly.getLongitude(i) * precision);
+            pos = encodeNumber(buffer, pos, num - prevLon);
+            prevLon = num;
+            if (includeElevation) {
+                num = (int) Math.floor(poly.getElevation(i) * 100);
+                pos = encodeNumber(buffer, pos, num - prevEle);
+                prevEle = num;
+            }
+        }
+        gen.writeRaw(buffer, 0, pos);
+        gen.writeRaw('"');
+    }
+
+    private static int encodeNumber(char[] buffer, int pos, int num) {
+        num = num << 1;
+        if (num < 0) {
+            num = ~num;
+        }
+        while (num >= 0x20) {
+            pos = putPolylineChar(buffer, pos, (0x20 | (num & 0x1f)) + 63);
+            num >>= 5;
+        }
+        return putPolylineChar(buffer, pos, num + 63);
+    }
+
+    private static int putPolylineChar(char[] buffer, int pos, int c) {
+        // the encoded chars are between '?' and '~', of which only the backslash has to be escaped in JSON
+        if (c == '\\')
+            buffer[pos++] = '\\';
+        buffer[pos++] = (char) c;
+        return pos;
+    }
 }
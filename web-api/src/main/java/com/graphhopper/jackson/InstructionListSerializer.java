@@ -26,17 +26,21 @@ import com.graphhopper.util.InstructionAnnotation;
 import com.graphhopper.util.InstructionList;
 
 import java.io.IOException;
-import java.util.*;
+import java.util.HashMap;
+import java.util.Map;
 
+/**
+ * Writes the instructions directly to the generator, i.e. without creating a map and a list for every instruction
+ * first. One map is reused for all instructions so that the fields keep the order of a HashMap as before.
+ */
 public class InstructionListSerializer extends JsonSerializer<InstructionList> {
     @Override
     public void serialize(InstructionList instructions, JsonGenerator jsonGenerator, SerializerProvider serializerProvider) throws IOException {
-        List<Map<String, Object>> instrList = new ArrayList<>(instructions.size());
+        Map<String, Object> instrJson = new HashMap<>();
+        jsonGenerator.writeStartArray();
         int pointsIndex = 0;
         for (Instruction instruction : instructions) {
-            Map<String, Object> instrJson = new HashMap<>();
-            instrList.add(instrJson);
-
+            instrJson.clear();
             InstructionAnnotation ia = instruction.getAnnotation();
             String text = instruction.getTurnDescription(instructions.getTr());
             if (Helper.isEmpty(text))
@@ -54,10 +58,23 @@ public class InstructionListSerializer extends JsonSerializer<InstructionList> {
             instrJson.putAll(instruction.getExtraInfoJSON());
 
             int tmpIndex = pointsIndex + instruction.getLength();
-            instrJson.put("interval", Arrays.asList(pointsIndex, tmpIndex));
-            pointsIndex = tmpIndex;
+            instrJson.put("interval", null);
 
+            jsonGenerator.writeStartObject();
+            for (Map.Entry<String, Object> entry : instrJson.entrySet()) {
+                if (entry.getKey().equals("interval")) {
+                    jsonGenerator.writeArrayFieldStart("interval");
+                    jsonGenerator.writeNumber(pointsIndex);
+                    jsonGenerator.writeNumber(tmpIndex);
+                    jsonGenerator.writeEndArray();
+                } else if (entry.getValue() != null) {
+                    // null values were never part of the output
+                    jsonGenerator.writeObjectField(entry.getKey(), entry.getValue());
+                }
+            }
+            jsonGenerator.writeEndObject();
+            pointsIndex = tmpIndex;
         }
-        jsonGenerator.writeObject(instrList);
+        jsonGenerator.writeEndArray();
     }
 }
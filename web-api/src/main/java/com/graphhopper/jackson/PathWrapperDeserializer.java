@@ -100,50 +100,19 @@ public class PathWrapperDeserializer extends JsonDeserializer<PathWrapper> {
                         ia = new InstructionAnnotation(jsonObj.get("annotation_importance").asInt(), jsonObj.get("annotation_text").asText());
                     }
 
-                    Instruction instr;
-                    if (sign == Instruction.USE_ROUNDABOUT || sign == Instruction.LEAVE_ROUNDABOUT) {
-                        RoundaboutInstruction ri = new RoundaboutInstruction(sign, text, ia, instPL);
-
-                        if (jsonObj.has("exit_number")) {
-                            ri.setExitNumber(jsonObj.get("exit_number").asInt());
-                        }
-
-                        if (jsonObj.has("exited")) {
-                            if (jsonObj.get("exited").asBoolean())
-                                ri.setExited();
-                        }
-
-                        if (jsonObj.has("turn_angle")) {
-                            // TODO provide setTurnAngle setter
-                            double angle = jsonObj.get("turn_angle").asDouble();
-                            ri.setDirOfRotation(angle);
-                            ri.setRadian((angle < 0 ? -Math.PI : Math.PI) - angle);
-                        }
-
-                        instr = ri;
-                    } else if (sign == Instruction.REACHED_VIA) {
-                        ViaInstruction tmpInstr = new ViaInstruction(text, ia, instPL);
-                        tmpInstr.setViaCount(viaCount);
-                        viaCount++;
-                        instr = tmpInstr;
-                    } else if (sign == Instruction.FINISH) {
-                        instr = new FinishInstruction(text, instPL, 0);
-                    } else {
-                        instr = new Instruction(sign, text, ia, instPL);
-                        if (sign == Instruction.CONTINUE_ON_STREET) {
-                            if (jsonObj.has("heading")) {
-                                instr.setExtraInfo("heading", jsonObj.get("heading").asDouble());
-                            }
-                        }
-                    }
-
-                    // Usually, the translation is done from the routing service so just use the provided string
-                    // instead of creating a combination with sign and name etc.
-                    // This is called the turn description.
-                    // This can be changed by passing <code>turn_description=false</code>.
-                    if (turnDescription)
-                        instr.setUseRawName();
+                    Map<String, Object> extraInfo = new HashMap<>();
+                    if (jsonObj.has("exit_number"))
+                        extraInfo.put("exit_number", jsonObj.get("exit_number").asInt());
+                    if (jsonObj.has("exited"))
+                        extraInfo.put("exited", jsonObj.get("exited").asBoolean());
+                    if (jsonObj.has("turn_angle"))
+                        extraInfo.put("turn_angle", jsonObj.get("turn_angle").asDouble());
+                    if (jsonObj.has("heading"))
+                        extraInfo.put("heading", jsonObj.get("heading").asDouble());
 
+                    Instruction instr = createInstruction(sign, text, ia, instPL, extraInfo, viaCount, turnDescription);
+                    if (sign == Instruction.REACHED_VIA)
+                        viaCount++;
                     instr.setDistance(instDist).setTime(instTime);
                     il.add(instr);
                 }
@@ -183,6 +152,56 @@ public class PathWrapperDeserializer extends JsonDeserializer<PathWrapper> {
         return pathWrapper;
     }
 
+    /**
+     * Creates the instruction from the values of its representation, where the extra info contains e.g. the
+     * exit_number of a roundabout.
+     */
+    public static Instruction createInstruction(int sign, String text, InstructionAnnotation ia, PointList instPL,
+                                                Map<String, Object> extraInfo, int viaCount, boolean turnDescription) {
+        Instruction instr;
+        if (sign == Instruction.USE_ROUNDABOUT || sign == Instruction.LEAVE_ROUNDABOUT) {
+            RoundaboutInstruction ri = new RoundaboutInstruction(sign, text, ia, instPL);
+
+            if (extraInfo.containsKey("exit_number")) {
+                ri.setExitNumber(((Number) extraInfo.get("exit_number")).intValue());
+            }
+
+            if (Boolean.TRUE.equals(extraInfo.get("exited"))) {
+                ri.setExited();
+            }
+
+            if (extraInfo.containsKey("turn_angle")) {
+                // TODO provide setTurnAngle setter
+                double angle = ((Number) extraInfo.get("turn_angle")).doubleValue();
+                ri.setDirOfRotation(angle);
+                ri.setRadian((angle < 0 ? -Math.PI : Math.PI) - angle);
+            }
+
+            instr = ri;
+        } else if (sign == Instruction.REACHED_VIA) {
+            ViaInstruction tmpInstr = new ViaInstruction(text, ia, instPL);
+            tmpInstr.setViaCount(viaCount);
+            instr = tmpInstr;
+        } else if (sign == Instruction.FINISH) {
+            instr = new FinishInstruction(text, instPL, 0);
+        } else {
+            instr = new Instruction(sign, text, ia, instPL);
+            if (sign == Instruction.CONTINUE_ON_STREET) {
+                if (extraInfo.containsKey("heading")) {
+                    instr.setExtraInfo("heading", ((Number) extraInfo.get("heading")).doubleValue());
+                }
+            }
+        }
+
+        // Usually, the translation is done from the routing service so just use the provided string
+        // instead of creating a combination with sign and name etc.
+        // This is called the turn description.
+        // This can be changed by passing <code>turn_description=false</code>.
+        if (turnDescription)
+            instr.setUseRawName();
+        return instr;
+    }
+
     private static PointList deserializePointList(ObjectMapper objectMapper, JsonNode jsonNode, boolean hasElevation) {
         PointList snappedPoints;
         if (jsonNode.isTextual()) {
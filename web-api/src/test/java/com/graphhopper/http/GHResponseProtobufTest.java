@@ -0,0 +1,125 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.graphhopper.GHResponse;
+import com.graphhopper.PathWrapper;
+import com.graphhopper.util.*;
+import com.graphhopper.util.details.PathDetail;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class GHResponseProtobufTest {
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        PointList points = Helper.createPointList3D(38.5, -120.2, 10, 40.7, -120.95, 1234.5, 43.252, -126.453, 1234, 43.2521, -126.4531, 1200);
+        InstructionList instructions = new InstructionList(null);
+        Instruction continueInstruction = new Instruction(Instruction.CONTINUE_ON_STREET, "main street", InstructionAnnotation.EMPTY, points.copy(0, 2));
+        continueInstruction.setUseRawName();
+        continueInstruction.setExtraInfo("heading", 90.5);
+        continueInstruction.setDistance(100).setTime(10_000);
+        instructions.add(continueInstruction);
+        RoundaboutInstruction roundabout = new RoundaboutInstruction(Instruction.USE_ROUNDABOUT, "At roundabout, take exit 2",
+                new InstructionAnnotation(1, "toll"), points.copy(2, 3)).setExitNumber(2).setExited();
+        roundabout.setUseRawName();
+        instructions.add(roundabout);
+        FinishInstruction finish = new FinishInstruction("Arrive at destination", points.copy(3, 4), 0);
+        finish.setUseRawName();
+        instructions.add(finish);
+
+        PathWrapper path = new PathWrapper().setPoints(points).setDistance(1234.5678).setTime(100_000).
+                setRouteWeight(12.3456789).setDescription(Arrays.asList("a", "b")).setAscend(20);
+        path.setWaypoints(Helper.createPointList3D(38.5, -120.2, 10, 43.2521, -126.4531, 1200));
+        path.setInstructions(instructions);
+        Map<String, List<PathDetail>> details = new HashMap<>();
+        details.put("street_name", Arrays.asList(createDetail(new PathDetail("main"), 0, 1),
+                createDetail(new PathDetail("side"), 1, 2), createDetail(new PathDetail("main"), 2, 3)));
+        details.put("time", Arrays.asList(createDetail(new PathDetail(5L), 0, 2), createDetail(new PathDetail((String) null), 2, 3)));
+        path.addPathDetails(details);
+        GHResponse rsp = new GHResponse();
+        rsp.add(path);
+        rsp.getHints().put("visited_nodes.sum", 42);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GHResponseProtobuf.write(bytes, rsp, true, true, true, 0.1f);
+        GHResponse result = GHResponseProtobuf.read(new ByteArrayInputStream(bytes.toByteArray()), true);
+
+        assertEquals("42", result.getHints().get("visited_nodes.sum", ""));
+        PathWrapper resultPath = result.getBest();
+        assertEquals(1234.568, resultPath.getDistance(), 1e-6);
+        assertEquals(100_000, resultPath.getTime());
+        assertEquals(12.345679, resultPath.getRouteWeight(), 1e-9);
+        assertEquals(20, resultPath.getAscend(), 1e-9);
+        assertEquals(Arrays.asList("a", "b"), resultPath.getDescription());
+        assertEquals(points, resultPath.getPoints());
+        assertEquals(path.getWaypoints(), resultPath.getWaypoints());
+        assertEquals(Arrays.asList(0, 1), resultPath.getPointsOrder());
+
+        InstructionList resultInstructions = resultPath.getInstructions();
+        assertEquals(3, resultInstructions.size());
+        assertEquals("Main street", resultInstructions.get(0).getTurnDescription(null));
+        assertEquals(90.5, resultInstructions.get(0).getExtraInfoJSON().get("heading"));
+        assertEquals(100, resultInstructions.get(0).getDistance(), 1e-9);
+        assertEquals(10_000, resultInstructions.get(0).getTime());
+        assertEquals(points.copy(0, 3), resultInstructions.get(0).getPoints());
+        assertEquals(2, resultInstructions.get(1).getExtraInfoJSON().get("exit_number"));
+        assertEquals(true, resultInstructions.get(1).getExtraInfoJSON().get("exited"));
+        assertEquals("toll", resultInstructions.get(1).getAnnotation().getMessage());
+        assertEquals(1, resultInstructions.get(1).getAnnotation().getImportance());
+        assertEquals(Instruction.FINISH, resultInstructions.get(2).getSign());
+
+        assertEquals(details.keySet(), resultPath.getPathDetails().keySet());
+        for (Map.Entry<String, List<PathDetail>> entry : details.entrySet()) {
+            List<PathDetail> resultDetails = resultPath.getPathDetails().get(entry.getKey());
+            assertEquals(entry.getValue().size(), resultDetails.size());
+            for (int i = 0; i < resultDetails.size(); i++) {
+                assertEquals(entry.getValue().get(i).getValue(), resultDetails.get(i).getValue());
+                assertEquals(entry.getValue().get(i).getFirst(), resultDetails.get(i).getFirst());
+                assertEquals(entry.getValue().get(i).getLast(), resultDetails.get(i).getLast());
+            }
+        }
+    }
+
+    @Test
+    public void testWithoutPoints() throws IOException {
+        PathWrapper path = new PathWrapper().setPoints(Helper.createPointList(38.5, -120.2, 40.7, -120.95)).setDistance(10);
+        path.setWaypoints(Helper.createPointList(38.5, -120.2, 40.7, -120.95));
+        GHResponse rsp = new GHResponse();
+        rsp.add(path);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GHResponseProtobuf.write(bytes, rsp, false, false, false, 0.1f);
+        PathWrapper result = GHResponseProtobuf.read(new ByteArrayInputStream(bytes.toByteArray()), true).getBest();
+        assertEquals(10, result.getDistance(), 1e-9);
+        assertEquals(path.getWaypoints(), result.getWaypoints());
+        assertTrue(result.getPoints().isEmpty());
+    }
+
+    private static PathDetail createDetail(PathDetail detail, int first, int last) {
+        detail.setFirst(first);
+        detail.setLast(last);
+        return detail;
+    }
+}
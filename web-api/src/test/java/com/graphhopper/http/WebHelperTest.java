@@ -17,12 +17,23 @@
  */
 package com.graphhopper.http;
 
-import com.graphhopper.util.Helper;
-import com.graphhopper.util.PointList;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.graphhopper.GHResponse;
+import com.graphhopper.PathWrapper;
+import com.graphhopper.jackson.Jackson;
+import com.graphhopper.util.*;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Random;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @author Peter Karich
@@ -79,4 +90,60 @@ public class WebHelperTest {
     public void testEncode1e6() throws Exception {
         assertEquals("ohdfzAgt}bVoEL", WebHelper.encodePolyline(Helper.createPointList(47.827608, 12.123476, 47.827712, 12.123469), false, 1e6));
     }
+
+    @Test
+    public void testWritePolyline() throws IOException {
+        // many points to write several chunks and encoded chars which contain a backslash
+        Random rand = new Random(42);
+        PointList list = new PointList(1000, true);
+        for (int i = 0; i < 1000; i++) {
+            list.add(40 + rand.nextDouble(), 10 + rand.nextDouble(), rand.nextInt(1000));
+        }
+        String encoded = WebHelper.encodePolyline(list, true);
+        assertTrue(encoded.contains("\\"));
+
+        ObjectMapper objectMapper = Jackson.newObjectMapper();
+        StringWriter writer = new StringWriter();
+        JsonGenerator gen = objectMapper.getFactory().createGenerator(writer);
+        gen.writeStartArray();
+        WebHelper.writePolyline(gen, list, true, 1e5);
+        WebHelper.writePolyline(gen, new PointList(), false, 1e5);
+        gen.writeEndArray();
+        gen.close();
+        JsonNode json = objectMapper.readTree(writer.toString());
+        assertEquals(encoded, json.get(0).asText());
+        assertEquals("", json.get(1).asText());
+    }
+
+    @Test
+    public void testWriteJsonEqualsJsonObject() throws IOException {
+        InstructionList instructions = new InstructionList(null);
+        Instruction instruction = new Instruction(Instruction.TURN_LEFT, "main street", new InstructionAnnotation(1, "toll"),
+                Helper.createPointList3D(38.5, -120.2, 10, 40.7, -120.95, 1234));
+        instruction.setUseRawName();
+        instruction.setExtraInfo("heading", 90.5);
+        instructions.add(instruction);
+
+        PathWrapper path = new PathWrapper().
+                setPoints(Helper.createPointList3D(38.5, -120.2, 10, 40.7, -120.95, 1234, 43.252, -126.453, 1234)).
+                setDistance(1234.5678).setTime(100_000).setRouteWeight(12.3456789).setDescription(Arrays.asList("a", "b"));
+        path.setWaypoints(Helper.createPointList3D(38.5, -120.2, 10));
+        path.setInstructions(instructions);
+        GHResponse rsp = new GHResponse();
+        rsp.add(path);
+        rsp.getHints().put("visited_nodes.sum", 42);
+
+        ObjectMapper objectMapper = Jackson.newObjectMapper();
+        for (boolean pointsEncoded : new boolean[]{true, false}) {
+            for (boolean enableElevation : new boolean[]{true, false}) {
+                StringWriter writer = new StringWriter();
+                JsonGenerator gen = objectMapper.getFactory().createGenerator(writer);
+                WebHelper.writeJson(gen, rsp, true, true, enableElevation, pointsEncoded, 0.1f);
+                gen.close();
+                JsonNode expected = objectMapper.readTree(objectMapper.writeValueAsString(
+                        WebHelper.jsonObject(rsp, true, true, enableElevation, pointsEncoded, 0.1f)));
+                assertEquals(expected, objectMapper.readTree(writer.toString()));
+            }
+        }
+    }
 }
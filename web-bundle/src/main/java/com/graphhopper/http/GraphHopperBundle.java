@@ -18,6 +18,8 @@
 
 package com.graphhopper.http;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.BeanDescription;
 import com.fasterxml.jackson.databind.SerializationConfig;
@@ -31,22 +33,29 @@ import com.graphhopper.GraphHopper;
 import com.graphhopper.GraphHopperAPI;
 import com.graphhopper.http.health.GraphHopperHealthCheck;
 import com.graphhopper.jackson.Jackson;
+import com.graphhopper.mvt.MVTTileBuilder;
+import com.graphhopper.mvt.MVTTileCache;
 import com.graphhopper.reader.gtfs.GraphHopperGtfs;
 import com.graphhopper.reader.gtfs.GtfsStorage;
 import com.graphhopper.reader.gtfs.PtRouteResource;
 import com.graphhopper.resources.*;
+import com.graphhopper.routing.RouteCache;
 import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.change.ChangeGraphResponse;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.util.CmdArgs;
+import com.graphhopper.util.Helper;
 import com.graphhopper.util.TranslationMap;
 import io.dropwizard.ConfiguredBundle;
+import io.dropwizard.lifecycle.Managed;
 import io.dropwizard.setup.Bootstrap;
 import io.dropwizard.setup.Environment;
 import org.glassfish.hk2.api.Factory;
 import org.glassfish.hk2.utilities.binding.AbstractBinder;
 
 import javax.inject.Inject;
+import java.io.File;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -157,6 +166,7 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
 
         Jackson.initObjectMapper(bootstrap.getObjectMapper());
         bootstrap.getObjectMapper().setDateFormat(new StdDateFormat());
+        bootstrap.getObjectMapper().addMixIn(ChangeGraphResponse.class, ChangeGraphResponseMixIn.class);
         // Because VirtualEdgeIteratorState has getters which throw Exceptions.
         // http://stackoverflow.com/questions/35359430/how-to-make-jackson-ignore-properties-if-the-getters-throw-exceptions
         bootstrap.getObjectMapper().registerModule(new SimpleModule().setSerializerModifier(new BeanSerializerModifier() {
@@ -188,11 +198,16 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
         environment.jersey().register(new MultiExceptionMapper());
         environment.jersey().register(new MultiExceptionGPXMessageBodyWriter());
 
+        // writes the JSON of a route without an intermediate tree or the binary format if requested
+        environment.jersey().register(new JsonRouteResponseMessageBodyWriter(environment.getObjectMapper()));
+        environment.jersey().register(new ProtobufRouteResponseMessageBodyWriter());
+
         environment.jersey().register(new IllegalArgumentExceptionMapper());
         environment.jersey().register(new GHPointConverterProvider());
 
         final GraphHopperManaged graphHopperManaged = new GraphHopperManaged(configuration.getGraphHopperConfiguration(), environment.getObjectMapper());
         environment.lifecycle().manage(graphHopperManaged);
+        final MVTTileCache mvtTileCache = createMVTTileCache(configuration.getGraphHopperConfiguration(), graphHopperManaged.getGraphHopper(), environment);
         environment.jersey().register(new AbstractBinder() {
             @Override
             protected void configure() {
@@ -206,6 +221,7 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
                 bindFactory(EncodingManagerFactory.class).to(EncodingManager.class);
                 bindFactory(GraphHopperStorageFactory.class).to(GraphHopperStorage.class);
                 bindFactory(GtfsStorageFactory.class).to(GtfsStorage.class);
+                bind(mvtTileCache).to(MVTTileCache.class);
             }
         });
 
@@ -216,6 +232,7 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
         environment.jersey().register(MVTResource.class);
         environment.jersey().register(NearestResource.class);
         environment.jersey().register(RouteResource.class);
+        environment.jersey().register(MatrixResource.class);
         environment.jersey().register(IsochroneResource.class);
         if (configuration.getGraphHopperConfiguration().has("gtfs.file")) {
             // These are pt-specific implementations of /route and /isochrone, but the same API.
@@ -229,5 +246,34 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
         environment.jersey().register(I18NResource.class);
         environment.jersey().register(InfoResource.class);
         environment.healthChecks().register("graphhopper", new GraphHopperHealthCheck(graphHopperManaged.getGraphHopper()));
+        RouteCache routeCache = graphHopperManaged.getGraphHopper().getRouteCache();
+        if (routeCache != null) {
+            environment.metrics().register(MetricRegistry.name(RouteCache.class, "hit_rate"), (Gauge<Double>) routeCache::getHitRate);
+            environment.metrics().register(MetricRegistry.name(RouteCache.class, "size"), (Gauge<Integer>) routeCache::getSize);
+            environment.metrics().register(MetricRegistry.name(RouteCache.class, "used_bytes"), (Gauge<Long>) routeCache::getUsedBytes);
+        }
+    }
+
+    private static MVTTileCache createMVTTileCache(CmdArgs config, GraphHopper graphHopper, Environment environment) {
+        long maxBytes = config.getLong("web.mvt.cache_size_mb", 64) * Helper.MB;
+        int prerenderMinZoom = config.getInt("web.mvt.prerender.min_zoom", MVTTileBuilder.MAX_EMPTY_ZOOM + 1);
+        int prerenderMaxZoom = config.getInt("web.mvt.prerender.max_zoom", 0);
+        if (prerenderMaxZoom <= 0)
+            return new MVTTileCache(maxBytes, null);
+
+        final MVTTileCache tileCache = new MVTTileCache(maxBytes, new File(graphHopper.getGraphHopperLocation(), "mvt"));
+        // managed after the GraphHopperManaged, i.e. the graph is already imported or loaded
+        environment.lifecycle().manage(new Managed() {
+            @Override
+            public void start() {
+                tileCache.prerender(graphHopper.getGraphHopperStorage().getBounds(), prerenderMinZoom, prerenderMaxZoom,
+                        new MVTTileBuilder(graphHopper, graphHopper.getEncodingManager()));
+            }
+
+            @Override
+            public void stop() {
+            }
+        });
+        return tileCache;
     }
 }
@@ -0,0 +1,67 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+/**
+ * Streams the JSON of a route response directly to the client, i.e. without building the whole JSON tree and the
+ * encoded points in memory first, which matters for long routes.
+ */
+@Provider
+@Produces(MediaType.APPLICATION_JSON)
+public class JsonRouteResponseMessageBodyWriter implements MessageBodyWriter<RouteResponse> {
+    private final ObjectMapper objectMapper;
+
+    public JsonRouteResponseMessageBodyWriter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return RouteResponse.class.isAssignableFrom(type);
+    }
+
+    @Override
+    public long getSize(RouteResponse response, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(RouteResponse response, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType, MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException, WebApplicationException {
+        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(entityStream, JsonEncoding.UTF8)) {
+            // the container closes the stream
+            gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            WebHelper.writeJson(gen, response.getGHResponse(), response.isEnableInstructions(), response.isCalcPoints(),
+                    response.isEnableElevation(), response.isPointsEncoded(), response.getTook());
+        }
+    }
+}
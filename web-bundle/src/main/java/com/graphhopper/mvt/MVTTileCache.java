@@ -0,0 +1,258 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.mvt;
+
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.StopWatch;
+import com.graphhopper.util.shapes.BBox;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the encoded vector tiles of the most recently requested tiles up to the specified number of bytes. Optionally
+ * the tiles without path details can be pre-rendered into a directory from where they are read instead of creating
+ * them again. The tiles that show changed edges have to be removed via {@link #invalidate(BBox)}.
+ * <p>
+ * This class is thread-safe, the tiles are created outside of the lock.
+ */
+public class MVTTileCache {
+
+    public interface TileFactory {
+        byte[] createTile(int z, int x, int y, List<String> pathDetails);
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(MVTTileCache.class);
+    // the estimated bytes of a cache entry without the tile itself
+    private static final int ENTRY_OVERHEAD = 100;
+    private final long maxBytes;
+    private final File storeDir;
+    private final LinkedHashMap<TileKey, byte[]> tiles = new LinkedHashMap<>(16, 0.75f, true);
+    private long usedBytes;
+    // increased for every invalidation so that tiles created from the unchanged graph are not added afterwards
+    private long generation;
+
+    /**
+     * @param maxBytes the maximum bytes of the cached tiles, 0 disables the cache
+     * @param storeDir the directory of the pre-rendered tiles or null if no tiles are pre-rendered
+     */
+    public MVTTileCache(long maxBytes, File storeDir) {
+        if (maxBytes < 0)
+            throw new IllegalArgumentException("maxBytes cannot be negative but was " + maxBytes);
+        this.maxBytes = maxBytes;
+        this.storeDir = storeDir;
+    }
+
+    public byte[] get(int z, int x, int y, List<String> pathDetails, TileFactory factory) {
+        TileKey key = new TileKey(z, x, y, String.join(",", pathDetails));
+        long tileGeneration;
+        synchronized (this) {
+            byte[] bytes = tiles.get(key);
+            if (bytes != null)
+                return bytes;
+            tileGeneration = generation;
+        }
+
+        byte[] bytes = key.details.isEmpty() ? readStored(z, x, y) : null;
+        if (bytes == null)
+            bytes = factory.createTile(z, x, y, pathDetails);
+        put(key, bytes, tileGeneration);
+        return bytes;
+    }
+
+    private synchronized void put(TileKey key, byte[] bytes, long tileGeneration) {
+        long entryBytes = bytes.length + ENTRY_OVERHEAD;
+        if (tileGeneration != generation || entryBytes > maxBytes)
+            return;
+
+        byte[] old = tiles.put(key, bytes);
+        if (old != null)
+            usedBytes -= old.length + ENTRY_OVERHEAD;
+        usedBytes += entryBytes;
+        Iterator<byte[]> iter = tiles.values().iterator();
+        while (usedBytes > maxBytes) {
+            usedBytes -= iter.next().length + ENTRY_OVERHEAD;
+            iter.remove();
+        }
+    }
+
+    /**
+     * Removes all cached and pre-rendered tiles that show a part of the specified bounds.
+     */
+    public void invalidate(BBox bounds) {
+        if (bounds == null)
+            return;
+
+        // remove the stored tiles first so that tiles requested after the invalidation cannot read them
+        int removedStored = 0;
+        if (storeDir != null) {
+            File[] zoomDirs = storeDir.listFiles();
+            for (File zoomDir : zoomDirs == null ? new File[0] : zoomDirs) {
+                int z = Integer.parseInt(zoomDir.getName());
+                int[] range = getTileRange(bounds, z);
+                for (int x = range[0]; x <= range[1]; x++) {
+                    for (int y = range[2]; y <= range[3]; y++) {
+                        if (getStoredFile(storeDir, z, x, y).delete())
+                            removedStored++;
+                    }
+                }
+            }
+        }
+
+        int removed = 0;
+        synchronized (this) {
+            generation++;
+            Iterator<Map.Entry<TileKey, byte[]>> iter = tiles.entrySet().iterator();
+            while (iter.hasNext()) {
+                Map.Entry<TileKey, byte[]> entry = iter.next();
+                TileKey key = entry.getKey();
+                int[] range = getTileRange(bounds, key.z);
+                if (key.x >= range[0] && key.x <= range[1] && key.y >= range[2] && key.y <= range[3]) {
+                    usedBytes -= entry.getValue().length + ENTRY_OVERHEAD;
+                    iter.remove();
+                    removed++;
+                }
+            }
+        }
+        logger.info("invalidated tiles of " + bounds + ", cached: " + removed + ", stored: " + removedStored);
+    }
+
+    /**
+     * Creates all tiles without path details of the specified bounds and zoom levels and stores them in the store
+     * directory. Nothing is done if the directory already exists. The tiles are written into a temporary directory
+     * first so that an interrupted pre-rendering does not leave incomplete tiles behind.
+     */
+    public void prerender(BBox bounds, int minZoom, int maxZoom, TileFactory factory) {
+        if (storeDir == null)
+            throw new IllegalStateException("No directory for the pre-rendered tiles specified");
+        if (minZoom > maxZoom)
+            throw new IllegalArgumentException("minZoom " + minZoom + " cannot be bigger than maxZoom " + maxZoom);
+        if (storeDir.exists()) {
+            logger.info("tiles are already pre-rendered in " + storeDir);
+            return;
+        }
+
+        StopWatch sw = new StopWatch().start();
+        File tmpDir = new File(storeDir.getPath() + "_tmp");
+        Helper.removeDir(tmpDir);
+        List<String> noDetails = Collections.emptyList();
+        long count = 0, bytes = 0;
+        for (int z = minZoom; z <= maxZoom; z++) {
+            int[] range = getTileRange(bounds, z);
+            for (int x = range[0]; x <= range[1]; x++) {
+                for (int y = range[2]; y <= range[3]; y++) {
+                    byte[] tile = factory.createTile(z, x, y, noDetails);
+                    File file = getStoredFile(tmpDir, z, x, y);
+                    try {
+                        Files.createDirectories(file.getParentFile().toPath());
+                        Files.write(file.toPath(), tile);
+                    } catch (IOException ex) {
+                        throw new RuntimeException("Cannot write tile " + file, ex);
+                    }
+                    count++;
+                    bytes += tile.length;
+                }
+            }
+        }
+        if (!tmpDir.renameTo(storeDir))
+            throw new IllegalStateException("Cannot rename " + tmpDir + " to " + storeDir);
+        logger.info("pre-rendered " + count + " tiles with " + bytes / Helper.MB + "MB for zoom " + minZoom + " to " + maxZoom
+                + " in " + storeDir + ", took: " + sw.stop().getSeconds() + "s");
+    }
+
+    private byte[] readStored(int z, int x, int y) {
+        if (storeDir == null)
+            return null;
+
+        File file = getStoredFile(storeDir, z, x, y);
+        try {
+            return Files.readAllBytes(file.toPath());
+        } catch (NoSuchFileException ex) {
+            return null;
+        } catch (IOException ex) {
+            throw new RuntimeException("Cannot read tile " + file, ex);
+        }
+    }
+
+    private static File getStoredFile(File dir, int z, int x, int y) {
+        return new File(dir, z + File.separator + x + File.separator + y + ".mvt");
+    }
+
+    /**
+     * @return the minimum and maximum x and y of the tiles that contain the specified bounds, extended by one tile in
+     * every direction as the geometries of a tile are clipped with a buffer
+     */
+    static int[] getTileRange(BBox bounds, int z) {
+        int maxIndex = (1 << z) - 1;
+        return new int[]{
+                Math.max(0, MVTTileBuilder.lon2x(bounds.minLon, z) - 1),
+                Math.min(maxIndex, MVTTileBuilder.lon2x(bounds.maxLon, z) + 1),
+                // the y index increases from north to south
+                Math.max(0, MVTTileBuilder.lat2y(bounds.maxLat, z) - 1),
+                Math.min(maxIndex, MVTTileBuilder.lat2y(bounds.minLat, z) + 1)};
+    }
+
+    synchronized int getSize() {
+        return tiles.size();
+    }
+
+    synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "tiles: " + tiles.size() + ", bytes: " + usedBytes + ", max bytes: " + maxBytes + ", store: " + storeDir;
+    }
+
+    private static final class TileKey {
+        final int z, x, y;
+        final String details;
+
+        TileKey(int z, int x, int y, String details) {
+            this.z = z;
+            this.x = x;
+            this.y = y;
+            this.details = details;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof TileKey))
+                return false;
+            TileKey other = (TileKey) obj;
+            return z == other.z && x == other.x && y == other.y && details.equals(other.details);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * (31 * z + x) + y) + details.hashCode();
+        }
+    }
+}
@@ -20,6 +20,8 @@ package com.graphhopper.resources;
 import com.codahale.metrics.annotation.Timed;
 import com.graphhopper.GraphHopper;
 import com.graphhopper.json.geo.JsonFeatureCollection;
+import com.graphhopper.mvt.MVTTileCache;
+import com.graphhopper.storage.change.ChangeGraphResponse;
 import org.glassfish.jersey.server.ManagedAsync;
 
 import javax.inject.Inject;
@@ -44,17 +46,21 @@ import javax.ws.rs.core.MediaType;
 public class ChangeGraphResource {
 
     private GraphHopper graphHopper;
+    private MVTTileCache tileCache;
 
     @Inject
-    ChangeGraphResource(GraphHopper graphHopper) {
+    ChangeGraphResource(GraphHopper graphHopper, MVTTileCache tileCache) {
         this.graphHopper = graphHopper;
+        this.tileCache = tileCache;
     }
 
     @POST
     @Timed
     @ManagedAsync
     public void changeGraph(JsonFeatureCollection collection, @Suspended AsyncResponse response) {
-        response.resume(graphHopper.changeGraph(collection.getFeatures()));
+        ChangeGraphResponse changeGraphResponse = graphHopper.changeGraph(collection.getFeatures());
+        tileCache.invalidate(changeGraphResponse.getChangedBounds());
+        response.resume(changeGraphResponse);
     }
 
 }
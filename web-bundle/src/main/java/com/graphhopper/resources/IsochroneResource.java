@@ -1,16 +1,21 @@
 package com.graphhopper.resources;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.graphhopper.GraphHopper;
 import com.graphhopper.http.WebHelper;
 import com.graphhopper.isochrone.algorithm.ContourBuilder;
 import com.graphhopper.isochrone.algorithm.Isochrone;
+import com.graphhopper.jackson.Jackson;
 import com.graphhopper.json.geo.JsonFeature;
+import com.graphhopper.routing.ch.PhastCH;
+import com.graphhopper.routing.ch.PhastSweep;
 import com.graphhopper.routing.querygraph.QueryGraph;
 import com.graphhopper.routing.util.*;
 import com.graphhopper.routing.weighting.Weighting;
-import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.GraphSnapshot;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.QueryResult;
 import com.graphhopper.util.StopWatch;
@@ -28,16 +33,19 @@ import javax.ws.rs.*;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Path("isochrone")
 public class IsochroneResource {
 
     private static final Logger logger = LoggerFactory.getLogger(IsochroneResource.class);
+    private static final ObjectMapper objectMapper = Jackson.newObjectMapper();
 
     private final GraphHopper graphHopper;
     private final EncodingManager encodingManager;
@@ -83,27 +91,44 @@ public class IsochroneResource {
         if (!qr.isValid())
             throw new IllegalArgumentException("Point not found:" + point);
 
-        Graph graph = graphHopper.getGraphHopperStorage();
-        QueryGraph queryGraph = QueryGraph.lookup(graph, qr);
-
         HintsMap hintsMap = new HintsMap();
         RouteResource.initHints(hintsMap, uriInfo.getQueryParameters());
+        hintsMap.setVehicle(vehicle);
+
+        // PHAST is used if a node-based CH profile matches and no hint changes the weighting, otherwise a Dijkstra
+        // explores the graph
+        PhastSweep phastSweep = graphHopper.getPhastSweep(hintsMap, reverseFlow);
+        QueryGraph queryGraph;
+        Isochrone isochrone;
+        GraphSnapshot snapshot = null;
+        List<List<Coordinate>> buckets;
+        try {
+            if (phastSweep != null) {
+                queryGraph = QueryGraph.lookup(phastSweep.getCHGraph(), qr);
+                isochrone = new Isochrone(new PhastCH(queryGraph, phastSweep));
+            } else {
+                // the search reads all edges from one snapshot even if the graph is changed in the meantime
+                snapshot = graphHopper.getGraphHopperStorage().createSnapshot();
+                queryGraph = QueryGraph.lookup(snapshot, qr);
+                Weighting weighting = graphHopper.createWeighting(hintsMap, encoder, snapshot);
+                isochrone = new Isochrone(queryGraph, weighting, reverseFlow);
+            }
 
-        Weighting weighting = graphHopper.createWeighting(hintsMap, encoder, graph);
-        Isochrone isochrone = new Isochrone(queryGraph, weighting, reverseFlow);
+            if (distanceInMeter > 0) {
+                isochrone.setDistanceLimit(distanceInMeter);
+            } else {
+                isochrone.setTimeLimit(timeLimitInSeconds);
+            }
 
-        if (distanceInMeter > 0) {
-            isochrone.setDistanceLimit(distanceInMeter);
-        } else {
-            isochrone.setTimeLimit(timeLimitInSeconds);
+            buckets = isochrone.searchGPS(qr.getClosestNode(), nBuckets);
+        } finally {
+            if (snapshot != null)
+                snapshot.release();
         }
-
-        List<List<Coordinate>> buckets = isochrone.searchGPS(qr.getClosestNode(), nBuckets);
-        if (isochrone.getVisitedNodes() > graphHopper.getMaxVisitedNodes() / 5) {
+        if (phastSweep == null && isochrone.getVisitedNodes() > graphHopper.getMaxVisitedNodes() / 5) {
             throw new IllegalArgumentException("Too many nodes would have to explored (" + isochrone.getVisitedNodes() + "). Let us know if you need this increased.");
         }
 
-        ArrayList<JsonFeature> features = new ArrayList<>();
         Collection<ConstraintVertex> sites = new ArrayList<>();
         for (int i = 0; i < buckets.size(); i++) {
             List<Coordinate> level = buckets.get(i);
@@ -141,42 +166,64 @@ public class IsochroneResource {
                 vertex.setZ(Double.MAX_VALUE);
             }
         }
-        ArrayList<Coordinate[]> polygonShells = new ArrayList<>();
-        ContourBuilder contourBuilder = new ContourBuilder(tin);
-        for (int i = 0; i < buckets.size() - 1; i++) {
-            MultiPolygon multiPolygon = contourBuilder.computeIsoline((double) i + 0.5);
-            Polygon maxPolygon = heuristicallyFindMainConnectedComponent(multiPolygon, geometryFactory.createPoint(new Coordinate(point.lon, point.lat)));
-            polygonShells.add(maxPolygon.getExteriorRing().getCoordinates());
+        // all isolines are computed in one pass over the triangulation
+        double[] levels = new double[buckets.size() - 1];
+        for (int i = 0; i < levels.length; i++) {
+            levels[i] = i + 0.5;
         }
-        for (Coordinate[] polygonShell : polygonShells) {
-            JsonFeature feature = new JsonFeature();
-            HashMap<String, Object> properties = new HashMap<>();
-            properties.put("bucket", features.size());
-            if (respType.equalsIgnoreCase("geojson")) {
-                properties.put("copyrights", WebHelper.COPYRIGHTS);
-            }
-            feature.setProperties(properties);
-            feature.setGeometry(geometryFactory.createPolygon(polygonShell));
-            features.add(feature);
+        Point center = geometryFactory.createPoint(new Coordinate(point.lon, point.lat));
+        final List<Polygon> polygons = new ArrayList<>(levels.length);
+        for (MultiPolygon multiPolygon : new ContourBuilder(tin).computeIsolines(levels)) {
+            Polygon maxPolygon = heuristicallyFindMainConnectedComponent(multiPolygon, center);
+            polygons.add(geometryFactory.createPolygon(maxPolygon.getExteriorRing().getCoordinates()));
         }
-        ObjectNode json = JsonNodeFactory.instance.objectNode();
 
-        ObjectNode finalJson = null;
         if (respType.equalsIgnoreCase("geojson")) {
-            json.put("type", "FeatureCollection");
-            json.putPOJO("features", features);
-            finalJson = json;
-        } else {
-            json.putPOJO("polygons", features);
-            finalJson = WebHelper.jsonResponsePutInfo(json, sw.getSeconds());
+            sw.stop();
+            logger.info("took: " + sw.getSeconds() + ", visited nodes:" + isochrone.getVisitedNodes() + ", " + uriInfo.getQueryParameters());
+            // the features are serialized one by one directly into the response
+            StreamingOutput out = output -> {
+                try (JsonGenerator generator = objectMapper.getFactory().createGenerator(output)) {
+                    generator.writeStartObject();
+                    generator.writeStringField("type", "FeatureCollection");
+                    generator.writeArrayFieldStart("features");
+                    for (int i = 0; i < polygons.size(); i++) {
+                        HashMap<String, Object> properties = new HashMap<>();
+                        properties.put("bucket", i);
+                        properties.put("copyrights", WebHelper.COPYRIGHTS);
+                        generator.writeObject(createFeature(polygons.get(i), properties));
+                    }
+                    generator.writeEndArray();
+                    generator.writeEndObject();
+                }
+            };
+            return Response.ok(out, MediaType.APPLICATION_JSON).header("X-GH-Took", "" + sw.getSeconds() * 1000).
+                    build();
         }
 
+        ArrayList<JsonFeature> features = new ArrayList<>();
+        for (Polygon polygon : polygons) {
+            HashMap<String, Object> properties = new HashMap<>();
+            properties.put("bucket", features.size());
+            features.add(createFeature(polygon, properties));
+        }
+        ObjectNode json = JsonNodeFactory.instance.objectNode();
+        json.putPOJO("polygons", features);
+        ObjectNode finalJson = WebHelper.jsonResponsePutInfo(json, sw.getSeconds());
+
         sw.stop();
         logger.info("took: " + sw.getSeconds() + ", visited nodes:" + isochrone.getVisitedNodes() + ", " + uriInfo.getQueryParameters());
         return Response.ok(finalJson).header("X-GH-Took", "" + sw.getSeconds() * 1000).
                 build();
     }
 
+    private static JsonFeature createFeature(Polygon polygon, Map<String, Object> properties) {
+        JsonFeature feature = new JsonFeature();
+        feature.setProperties(properties);
+        feature.setGeometry(polygon);
+        return feature;
+    }
+
     private Polygon heuristicallyFindMainConnectedComponent(MultiPolygon multiPolygon, Point point) {
         int maxPoints = 0;
         Polygon maxPolygon = null;
@@ -0,0 +1,198 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.resources;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.http.WebHelper;
+import com.graphhopper.routing.MatrixResult;
+import com.graphhopper.routing.util.HintsMap;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.StopWatch;
+import com.graphhopper.util.exceptions.ConnectionNotFoundException;
+import com.graphhopper.util.shapes.GHPoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.UriInfo;
+import java.util.*;
+
+/**
+ * Resource to calculate the weights, times and distances between many points. The response format is the same as the
+ * one of the GraphHopper Matrix API, i.e. it can be consumed with the GraphHopperMatrixWeb client. It requires CH.
+ *
+ * @see GraphHopper#calcMatrix
+ */
+@Path("matrix")
+@Produces(MediaType.APPLICATION_JSON)
+public class MatrixResource {
+
+    private static final Logger logger = LoggerFactory.getLogger(MatrixResource.class);
+    private static final Set<String> IGNORED_HINTS = new HashSet<>(Arrays.asList("point", "from_point", "to_point",
+            "points", "from_points", "to_points", "out_array", "out_arrays", "fail_fast"));
+
+    private final GraphHopper graphHopper;
+
+    @Inject
+    public MatrixResource(GraphHopper graphHopper) {
+        this.graphHopper = graphHopper;
+    }
+
+    @GET
+    public ObjectNode doGet(
+            @Context UriInfo uriInfo,
+            @QueryParam("point") List<GHPoint> points,
+            @QueryParam("from_point") List<GHPoint> fromPoints,
+            @QueryParam("to_point") List<GHPoint> toPoints,
+            @QueryParam("out_array") List<String> outArrays,
+            @QueryParam("vehicle") @DefaultValue("car") String vehicle,
+            @QueryParam("weighting") @DefaultValue("fastest") String weighting,
+            @QueryParam("fail_fast") @DefaultValue("true") boolean failFast) {
+        HintsMap hints = new HintsMap();
+        RouteResource.initHints(hints, uriInfo.getQueryParameters());
+        hints.setVehicle(vehicle).setWeighting(weighting);
+        return calcMatrix(points, fromPoints, toPoints, outArrays, hints, failFast);
+    }
+
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    public ObjectNode doPost(JsonNode request) {
+        if (request == null)
+            throw new IllegalArgumentException("Empty request");
+
+        HintsMap hints = new HintsMap();
+        Iterator<Map.Entry<String, JsonNode>> iter = request.fields();
+        while (iter.hasNext()) {
+            Map.Entry<String, JsonNode> entry = iter.next();
+            if (!IGNORED_HINTS.contains(entry.getKey()) && entry.getValue().isValueNode())
+                hints.put(entry.getKey(), entry.getValue().asText());
+        }
+        if (hints.getVehicle().isEmpty())
+            hints.setVehicle("car");
+        if (hints.getWeighting().isEmpty())
+            hints.setWeighting("fastest");
+        List<String> outArrays = new ArrayList<>();
+        for (JsonNode outArray : request.path("out_arrays")) {
+            outArrays.add(outArray.asText());
+        }
+        return calcMatrix(readPoints(request, "points"), readPoints(request, "from_points"), readPoints(request, "to_points"),
+                outArrays, hints, request.path("fail_fast").asBoolean(true));
+    }
+
+    private ObjectNode calcMatrix(List<GHPoint> points, List<GHPoint> fromPoints, List<GHPoint> toPoints,
+                                  List<String> outArrays, HintsMap hints, boolean failFast) {
+        if (!points.isEmpty()) {
+            if (!fromPoints.isEmpty() || !toPoints.isEmpty())
+                throw new IllegalArgumentException("Either specify point or from_point and to_point, but not both");
+            fromPoints = points;
+            toPoints = points;
+        }
+        if (outArrays.isEmpty())
+            outArrays = Collections.singletonList("weights");
+        for (String outArray : outArrays) {
+            if (!outArray.equals("weights") && !outArray.equals("times") && !outArray.equals("distances"))
+                throw new IllegalArgumentException("Unknown out_array " + outArray + ", use weights, times or distances");
+        }
+
+        StopWatch sw = new StopWatch().start();
+        boolean calcTimesAndDistances = outArrays.contains("times") || outArrays.contains("distances");
+        MatrixResult result = graphHopper.calcMatrix(fromPoints, toPoints, hints, calcTimesAndDistances);
+        float took = sw.stop().getSeconds();
+
+        List<int[]> disconnected = new ArrayList<>();
+        for (int from = 0; from < result.getFromCount(); from++) {
+            for (int to = 0; to < result.getToCount(); to++) {
+                if (!result.isConnected(from, to))
+                    disconnected.add(new int[]{from, to});
+            }
+        }
+        logger.info(fromPoints.size() + "x" + toPoints.size() + ", took:" + took + ", " + hints.getWeighting() + ", "
+                + hints.getVehicle() + ", disconnected: " + disconnected.size() + ", debug: " + result);
+        if (failFast && !disconnected.isEmpty()) {
+            Map<String, Object> details = new HashMap<>();
+            details.put("point_pairs", disconnected);
+            throw new ConnectionNotFoundException("Connection between locations not found", details);
+        }
+
+        ObjectNode json = JsonNodeFactory.instance.objectNode();
+        if (outArrays.contains("weights")) {
+            ArrayNode weights = json.putArray("weights");
+            for (double[] row : result.getWeights()) {
+                ArrayNode jsonRow = weights.addArray();
+                for (double weight : row) {
+                    if (weight < Double.MAX_VALUE)
+                        jsonRow.add(Helper.round(weight, 3));
+                    else
+                        jsonRow.addNull();
+                }
+            }
+        }
+        if (outArrays.contains("times")) {
+            ArrayNode times = json.putArray("times");
+            for (long[] row : result.getTimes()) {
+                ArrayNode jsonRow = times.addArray();
+                for (long time : row) {
+                    // in seconds like the matrix API
+                    if (time < Long.MAX_VALUE)
+                        jsonRow.add(Math.round(time / 1000d));
+                    else
+                        jsonRow.addNull();
+                }
+            }
+        }
+        if (outArrays.contains("distances")) {
+            ArrayNode distances = json.putArray("distances");
+            for (double[] row : result.getDistances()) {
+                ArrayNode jsonRow = distances.addArray();
+                for (double distance : row) {
+                    if (distance < Double.MAX_VALUE)
+                        jsonRow.add(Helper.round(distance, 1));
+                    else
+                        jsonRow.addNull();
+                }
+            }
+        }
+        if (!disconnected.isEmpty()) {
+            ObjectNode hint = json.putArray("hints").addObject();
+            hint.put("message", "There are disconnected points");
+            ArrayNode pairs = hint.putArray("point_pairs");
+            for (int[] pair : disconnected) {
+                pairs.addArray().add(pair[0]).add(pair[1]);
+            }
+        }
+        WebHelper.jsonResponsePutInfo(json, took);
+        return json;
+    }
+
+    private static List<GHPoint> readPoints(JsonNode request, String key) {
+        List<GHPoint> points = new ArrayList<>();
+        for (JsonNode point : request.path(key)) {
+            if (point.size() < 2)
+                throw new IllegalArgumentException("Every entry of " + key + " needs to be [longitude,latitude]");
+            points.add(new GHPoint(point.get(1).asDouble(), point.get(0).asDouble()));
+        }
+        return points;
+    }
+}
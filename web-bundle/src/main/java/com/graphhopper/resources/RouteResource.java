@@ -17,10 +17,15 @@
  */
 package com.graphhopper.resources;
 
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.graphhopper.GHRequest;
 import com.graphhopper.GHResponse;
 import com.graphhopper.GraphHopperAPI;
 import com.graphhopper.MultiException;
+import com.graphhopper.http.GHResponseProtobuf;
+import com.graphhopper.http.RouteResponse;
 import com.graphhopper.http.WebHelper;
 import com.graphhopper.routing.util.HintsMap;
 import com.graphhopper.util.Constants;
@@ -39,6 +44,7 @@ import javax.ws.rs.container.ContainerRequestContext;
 import javax.ws.rs.core.*;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -67,7 +73,7 @@ public class RouteResource {
     }
 
     @GET
-    @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, "application/gpx+xml"})
+    @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, "application/gpx+xml", GHResponseProtobuf.MEDIA_TYPE})
     public Response doGet(
             @Context HttpServletRequest httpReq,
             @Context UriInfo uriInfo,
@@ -162,7 +168,7 @@ public class RouteResource {
                             header("X-GH-Took", "" + Math.round(took * 1000)).
                             build()
                     :
-                    Response.ok(WebHelper.jsonObject(ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took)).
+                    Response.ok(new RouteResponse(ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took)).
                             header("X-GH-Took", "" + Math.round(took * 1000)).
                             build();
         }
@@ -170,7 +176,7 @@ public class RouteResource {
 
     @POST
     @Consumes(MediaType.APPLICATION_JSON)
-    @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, "application/gpx+xml"})
+    @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, "application/gpx+xml", GHResponseProtobuf.MEDIA_TYPE})
     public Response doPost(GHRequest request, @Context HttpServletRequest httpReq) {
         if (request == null)
             throw new IllegalArgumentException("Empty request");
@@ -211,12 +217,79 @@ public class RouteResource {
                             header("X-GH-Took", "" + Math.round(took * 1000)).
                             build()
                     :
-                    Response.ok(WebHelper.jsonObject(ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took)).
+                    Response.ok(new RouteResponse(ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took)).
                             header("X-GH-Took", "" + Math.round(took * 1000)).
                             build();
         }
     }
 
+    /**
+     * Calculates the routes of many requests in one call, e.g. to avoid the overhead of one HTTP request per route.
+     * Every entry of the JSON array has the format of the POST request of a single route, and the response contains
+     * for every request either the route or the errors in the same format as for a single route. Invalid requests are
+     * not routed and only get their errors.
+     */
+    @POST
+    @Path("batch")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public ObjectNode doPostBatch(List<GHRequest> requests, @Context HttpServletRequest httpReq) {
+        if (requests == null || requests.isEmpty())
+            throw new IllegalArgumentException("Empty request");
+
+        StopWatch sw = new StopWatch().start();
+        GHResponse[] ghResponses = new GHResponse[requests.size()];
+        List<GHRequest> validRequests = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            String error = validateBatchRequest(requests.get(i));
+            if (error == null) {
+                validRequests.add(requests.get(i));
+            } else {
+                ghResponses[i] = new GHResponse();
+                ghResponses[i].addError(new IllegalArgumentException(error));
+            }
+        }
+        Iterator<GHResponse> validResponses = graphHopper.routeBatch(validRequests).iterator();
+        for (int i = 0; i < ghResponses.length; i++) {
+            if (ghResponses[i] == null)
+                ghResponses[i] = validResponses.next();
+        }
+        float took = sw.stop().getSeconds();
+
+        ObjectNode json = JsonNodeFactory.instance.objectNode();
+        ArrayNode jsonResponses = json.putArray("responses");
+        int errors = 0;
+        for (int i = 0; i < requests.size(); i++) {
+            GHRequest request = requests.get(i);
+            GHResponse ghResponse = ghResponses[i];
+            if (ghResponse.hasErrors()) {
+                errors++;
+                jsonResponses.addPOJO(new MultiException(ghResponse.getErrors()));
+            } else {
+                jsonResponses.add(WebHelper.jsonObject(ghResponse, request.getHints().getBool(INSTRUCTIONS, true),
+                        request.getHints().getBool(CALC_POINTS, true), request.getHints().getBool("elevation", false),
+                        request.getHints().getBool("points_encoded", true), took));
+            }
+        }
+        logger.info(httpReq.getRemoteAddr() + " " + httpReq.getLocale() + " " + httpReq.getHeader("User-Agent")
+                + " batch: " + requests.size() + ", errors: " + errors + ", took:" + took);
+        WebHelper.jsonResponsePutInfo(json, took);
+        return json;
+    }
+
+    /**
+     * @return the error of a request of a batch that cannot be routed or null if the request is valid
+     */
+    private String validateBatchRequest(GHRequest request) {
+        if (request == null)
+            return "Empty request";
+        if (request.getPoints().isEmpty())
+            return "You have to pass at least one point";
+        if (request.getHints().getBool("elevation", false) && !hasElevation)
+            return "Elevation not supported!";
+        return null;
+    }
+
     private void enableEdgeBasedIfThereAreCurbsides(List<String> curbsides, GHRequest request) {
         if (!curbsides.isEmpty()) {
             if (!request.getHints().getBool(EDGE_BASED, true)) {
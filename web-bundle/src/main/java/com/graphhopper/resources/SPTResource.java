@@ -3,6 +3,8 @@ package com.graphhopper.resources;
 import com.graphhopper.GraphHopper;
 import com.graphhopper.isochrone.algorithm.Isochrone;
 import com.graphhopper.routing.profiles.*;
+import com.graphhopper.routing.ch.PhastCH;
+import com.graphhopper.routing.ch.PhastSweep;
 import com.graphhopper.routing.querygraph.QueryGraph;
 import com.graphhopper.routing.util.*;
 import com.graphhopper.routing.weighting.Weighting;
@@ -72,13 +74,24 @@ public class SPTResource {
         if (!qr.isValid())
             throw new IllegalArgumentException("Point not found:" + point);
 
-        Graph graph = graphHopper.getGraphHopperStorage();
-        QueryGraph queryGraph = QueryGraph.lookup(graph, qr);
         HintsMap hintsMap = new HintsMap();
         RouteResource.initHints(hintsMap, uriInfo.getQueryParameters());
-
-        Weighting weighting = graphHopper.createWeighting(hintsMap, encoder, graph);
-        Isochrone isochrone = new Isochrone(queryGraph, weighting, reverseFlow);
+        hintsMap.setVehicle(vehicle);
+
+        // PHAST is used if a node-based CH profile matches and no hint changes the weighting, otherwise a Dijkstra
+        // explores the graph
+        PhastSweep phastSweep = graphHopper.getPhastSweep(hintsMap, reverseFlow);
+        QueryGraph queryGraph;
+        Isochrone isochrone;
+        if (phastSweep != null) {
+            queryGraph = QueryGraph.lookup(phastSweep.getCHGraph(), qr);
+            isochrone = new Isochrone(new PhastCH(queryGraph, phastSweep));
+        } else {
+            Graph graph = graphHopper.getGraphHopperStorage();
+            queryGraph = QueryGraph.lookup(graph, qr);
+            Weighting weighting = graphHopper.createWeighting(hintsMap, encoder, graph);
+            isochrone = new Isochrone(queryGraph, weighting, reverseFlow);
+        }
 
         if (distanceInMeter > 0) {
             isochrone.setDistanceLimit(distanceInMeter);
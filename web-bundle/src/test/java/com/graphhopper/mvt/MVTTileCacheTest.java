@@ -0,0 +1,129 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.mvt;
+
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.shapes.BBox;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MVTTileCacheTest {
+    private static final String DIR = "./target/mvt-tile-cache-test";
+    private static final List<String> NO_DETAILS = Collections.emptyList();
+    private int created;
+    private final MVTTileCache.TileFactory factory = (z, x, y, pathDetails) -> {
+        created++;
+        return (z + "/" + x + "/" + y + pathDetails).getBytes(Helper.UTF_CS);
+    };
+
+    @Before
+    @After
+    public void cleanUp() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    @Test
+    public void testCacheAndEviction() {
+        // room for three tiles
+        MVTTileCache cache = new MVTTileCache(3 * 120, null);
+        assertEquals("14/1/2[]", new String(cache.get(14, 1, 2, NO_DETAILS, factory), Helper.UTF_CS));
+        assertEquals("14/1/2[]", new String(cache.get(14, 1, 2, NO_DETAILS, factory), Helper.UTF_CS));
+        assertEquals(1, created);
+
+        // the path details are part of the key
+        assertEquals("14/1/2[max_speed]", new String(cache.get(14, 1, 2, Arrays.asList("max_speed"), factory), Helper.UTF_CS));
+        assertEquals(2, created);
+
+        cache.get(14, 1, 3, NO_DETAILS, factory);
+        // 14/1/2 was used most recently and 14/1/2[max_speed] is evicted
+        cache.get(14, 1, 2, NO_DETAILS, factory);
+        cache.get(14, 1, 4, NO_DETAILS, factory);
+        assertEquals(4, created);
+        assertEquals(3, cache.getSize());
+        assertTrue(cache.getUsedBytes() <= 3 * 120);
+        cache.get(14, 1, 2, NO_DETAILS, factory);
+        assertEquals(4, created);
+        cache.get(14, 1, 2, Arrays.asList("max_speed"), factory);
+        assertEquals(5, created);
+    }
+
+    @Test
+    public void testDisabledCache() {
+        MVTTileCache cache = new MVTTileCache(0, null);
+        cache.get(14, 1, 2, NO_DETAILS, factory);
+        cache.get(14, 1, 2, NO_DETAILS, factory);
+        assertEquals(2, created);
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void testInvalidate() {
+        MVTTileCache cache = new MVTTileCache(Helper.MB, null);
+        // the tiles of andorra, zoom 15
+        cache.get(15, 16528, 12099, NO_DETAILS, factory);
+        cache.get(15, 16528, 12099, Arrays.asList("max_speed"), factory);
+        cache.get(15, 16540, 12099, NO_DETAILS, factory);
+        cache.get(12, 2066, 1512, NO_DETAILS, factory);
+        assertEquals(4, created);
+
+        // within the tile 15/16528/12099
+        cache.invalidate(new BBox(1.5874, 1.5876, 42.5246, 42.5248));
+        assertEquals(1, cache.getSize());
+        cache.get(15, 16540, 12099, NO_DETAILS, factory);
+        assertEquals(4, created);
+        cache.get(15, 16528, 12099, NO_DETAILS, factory);
+        cache.get(12, 2066, 1512, NO_DETAILS, factory);
+        assertEquals(6, created);
+    }
+
+    @Test
+    public void testPrerender() {
+        File storeDir = new File(DIR, "mvt");
+        MVTTileCache cache = new MVTTileCache(0, storeDir);
+        BBox bounds = new BBox(1.5874, 1.5876, 42.5246, 42.5248);
+        cache.prerender(bounds, 14, 15, factory);
+        assertTrue(storeDir.exists());
+        assertFalse(new File(DIR, "mvt_tmp").exists());
+        int prerendered = created;
+        // 3x3 tiles for every zoom level as the range is extended by one tile
+        assertEquals(18, prerendered);
+
+        // the stored tiles are used and the tiles with path details are created
+        assertEquals("15/16528/12099[]", new String(cache.get(15, 16528, 12099, NO_DETAILS, factory), Helper.UTF_CS));
+        assertEquals(prerendered, created);
+        cache.get(15, 16528, 12099, Arrays.asList("max_speed"), factory);
+        assertEquals(prerendered + 1, created);
+
+        // nothing is done if the tiles already exist
+        new MVTTileCache(0, storeDir).prerender(bounds, 14, 15, factory);
+        assertEquals(prerendered + 1, created);
+
+        cache.invalidate(bounds);
+        assertFalse(new File(storeDir, "15/16528/12099.mvt").exists());
+        cache.get(15, 16528, 12099, NO_DETAILS, factory);
+        assertEquals(prerendered + 2, created);
+    }
+}
@@ -23,14 +23,22 @@ import com.graphhopper.http.GraphHopperServerConfiguration;
 import com.graphhopper.util.CmdArgs;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.Parameters;
+import com.wdtinc.mapbox_vector_tile.adapt.jts.MvtReader;
+import com.wdtinc.mapbox_vector_tile.adapt.jts.TagKeyValueMapConverter;
+import com.wdtinc.mapbox_vector_tile.adapt.jts.model.JtsMvt;
 import io.dropwizard.testing.junit.DropwizardAppRule;
 import org.junit.AfterClass;
 import org.junit.ClassRule;
 import org.junit.Test;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
 
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.core.Response;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
 
 import static org.junit.Assert.*;
 
@@ -46,6 +54,7 @@ public class ChangeGraphResourceTest {
         config.getGraphHopperConfiguration().merge(new CmdArgs().
                 put(Parameters.CH.PREPARE + "weightings", "no").
                 put("graph.flag_encoders", "car").
+                put("graph.encoded_values", "road_class").
                 put("web.change_graph.enabled", "true").
                 put("graph.location", DIR).
                 put("datareader.file", "../core/files/andorra.osm.pbf"));
@@ -70,6 +79,8 @@ public class ChangeGraphResourceTest {
         double distance = json.get("paths").get(0).get("distance").asDouble();
         assertTrue("distance wasn't correct:" + distance, distance > 3000);
         assertTrue("distance wasn't correct:" + distance, distance < 3500);
+        // the tile of the blocked road is cached
+        int blockedEdges = countBlockedEdges();
 
         // block road
         String geoJson = "{"
@@ -89,6 +100,10 @@ public class ChangeGraphResourceTest {
         assertEquals(200, response.getStatus());
         json = response.readEntity(JsonNode.class);
         assertEquals(1, json.get("updates").asInt());
+        // the changed bounds are only used internally
+        assertFalse(json.has("changedBounds"));
+        // the tile is invalidated
+        assertEquals(blockedEdges + 1, countBlockedEdges());
 
         // route around blocked road => longer
         response = app.client().target("http://localhost:8080/route?point=42.531453,1.518946&point=42.511178,1.54006").request().buildGet().invoke();
@@ -100,4 +115,17 @@ public class ChangeGraphResourceTest {
         assertTrue("distance wasn't correct:" + distance, distance > 5300);
         assertTrue("distance wasn't correct:" + distance, distance < 5800);
     }
+
+    private int countBlockedEdges() throws IOException {
+        Response response = app.client().target("http://localhost:8080/mvt/15/16522/12099.mvt?details=car.access").request().buildGet().invoke();
+        assertEquals(200, response.getStatus());
+        InputStream is = response.readEntity(InputStream.class);
+        JtsMvt result = MvtReader.loadMvt(is, new GeometryFactory(), new TagKeyValueMapConverter());
+        int blocked = 0;
+        for (Geometry geometry : result.getLayer("roads").getGeometries()) {
+            if (Boolean.FALSE.equals(((Map) geometry.getUserData()).get("car.access")))
+                blocked++;
+        }
+        return blocked;
+    }
 }
@@ -130,6 +130,25 @@ public class IsochroneResourceTest {
         assertEquals(0, bucketNumber);
     }
 
+    @Test
+    public void requestManyBuckets() {
+        Response rsp = app.client().target("http://localhost:8080/isochrone")
+                .queryParam("point","42.531073,1.573792")
+                .queryParam("time_limit", 10 * 60)
+                .queryParam("buckets", 10)
+                .queryParam("type", "geojson")
+                .request().buildGet().invoke();
+        JsonFeatureCollection featureCollection = rsp.readEntity(JsonFeatureCollection.class);
+
+        assertEquals(10, featureCollection.getFeatures().size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, featureCollection.getFeatures().get(i).getProperties().get("bucket"));
+        }
+        Geometry polygon0 = featureCollection.getFeatures().get(0).getGeometry();
+        Geometry polygon9 = featureCollection.getFeatures().get(9).getGeometry();
+        assertTrue(polygon0.getArea() < polygon9.getArea());
+    }
+
     @Test
     public void requestBadRequest() {
         Response response = app.client().target("http://localhost:8080/route?point=-1.816719,51.557148").request().buildGet().invoke();
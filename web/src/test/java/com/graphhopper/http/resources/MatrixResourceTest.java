@@ -0,0 +1,117 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http.resources;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.graphhopper.http.GraphHopperApplication;
+import com.graphhopper.http.GraphHopperServerConfiguration;
+import com.graphhopper.util.CmdArgs;
+import com.graphhopper.util.Helper;
+import io.dropwizard.testing.junit.DropwizardAppRule;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.Response;
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+public class MatrixResourceTest {
+    private static final String DIR = "./target/andorra-matrix-gh/";
+
+    private static final GraphHopperServerConfiguration config = new GraphHopperServerConfiguration();
+
+    static {
+        config.getGraphHopperConfiguration().merge(new CmdArgs().
+                put("graph.flag_encoders", "car").
+                put("prepare.ch.weightings", "fastest").
+                put("prepare.min_network_size", "0").
+                put("prepare.min_one_way_network_size", "0").
+                put("routing.max_matrix_size", "9").
+                put("datareader.file", "../core/files/andorra.osm.pbf").
+                put("graph.location", DIR));
+    }
+
+    @ClassRule
+    public static final DropwizardAppRule<GraphHopperServerConfiguration> app = new DropwizardAppRule<>(GraphHopperApplication.class, config);
+
+    @BeforeClass
+    @AfterClass
+    public static void cleanUp() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    @Test
+    public void testSymmetricMatrix() {
+        final Response response = app.client().target("http://localhost:8080/matrix?point=42.554851,1.536198&point=42.510071,1.548128" +
+                "&point=42.56819,1.603231&out_array=weights&out_array=times&out_array=distances").request().buildGet().invoke();
+        assertEquals(200, response.getStatus());
+        JsonNode json = response.readEntity(JsonNode.class);
+        JsonNode distances = json.get("distances");
+        assertEquals(3, distances.size());
+        assertEquals(3, distances.get(0).size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, distances.get(i).get(i).asDouble(), 1.e-1);
+            assertEquals(0, json.get("times").get(i).get(i).asLong());
+        }
+        // same as for the route end point
+        double distance = distances.get(0).get(1).asDouble();
+        assertTrue("distance wasn't correct:" + distance, distance > 9000);
+        assertTrue("distance wasn't correct:" + distance, distance < 9500);
+        assertTrue(json.get("weights").get(0).get(1).asDouble() > 0);
+        assertTrue(json.get("times").get(0).get(1).asLong() > 0);
+    }
+
+    @Test
+    public void testPostQuery() {
+        String jsonStr = "{ \"from_points\": [[1.536198,42.554851]], \"to_points\": [[1.548128, 42.510071], [1.603231, 42.56819]]," +
+                " \"out_arrays\": [\"distances\"] }";
+        final Response response = app.client().target("http://localhost:8080/matrix").request().post(Entity.json(jsonStr));
+        assertEquals(200, response.getStatus());
+        JsonNode json = response.readEntity(JsonNode.class);
+        assertFalse(json.has("weights"));
+        assertFalse(json.has("times"));
+        JsonNode distances = json.get("distances");
+        assertEquals(1, distances.size());
+        assertEquals(2, distances.get(0).size());
+        double distance = distances.get(0).get(0).asDouble();
+        assertTrue("distance wasn't correct:" + distance, distance > 9000);
+        assertTrue("distance wasn't correct:" + distance, distance < 9500);
+    }
+
+    @Test
+    public void testUnknownOutArray() {
+        final Response response = app.client().target("http://localhost:8080/matrix?point=42.554851,1.536198&point=42.510071,1.548128" +
+                "&out_array=paths").request().buildGet().invoke();
+        assertEquals(400, response.getStatus());
+        JsonNode json = response.readEntity(JsonNode.class);
+        assertTrue(json.get("message").asText(), json.get("message").asText().contains("Unknown out_array"));
+    }
+
+    @Test
+    public void testMatrixAboveMaxMatrixSize() {
+        final Response response = app.client().target("http://localhost:8080/matrix?point=42.554851,1.536198&point=42.510071,1.548128" +
+                "&point=42.56819,1.603231&point=42.571034,1.520662").request().buildGet().invoke();
+        assertEquals(400, response.getStatus());
+        JsonNode json = response.readEntity(JsonNode.class);
+        assertTrue(json.get("message").asText(), json.get("message").asText().contains("has to be below or equal to:9 but was 4x4"));
+    }
+}
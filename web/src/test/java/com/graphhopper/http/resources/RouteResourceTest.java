@@ -23,6 +23,7 @@ import com.graphhopper.GHResponse;
 import com.graphhopper.GraphHopperAPI;
 import com.graphhopper.PathWrapper;
 import com.graphhopper.api.GraphHopperWeb;
+import com.graphhopper.http.GHResponseProtobuf;
 import com.graphhopper.http.GraphHopperApplication;
 import com.graphhopper.http.GraphHopperServerConfiguration;
 import com.graphhopper.routing.profiles.RoadClass;
@@ -64,6 +65,7 @@ public class RouteResourceTest {
                 put("graph.flag_encoders", "car").
                 put("prepare.ch.weightings", "fastest").
                 put("routing.ch.disabling_allowed", "true").
+                put("routing.max_batch_size", "3").
                 put("prepare.min_network_size", "0").
                 put("prepare.min_one_way_network_size", "0").
                 put("datareader.file", "../core/files/andorra.osm.pbf").
@@ -107,6 +109,50 @@ public class RouteResourceTest {
         assertTrue("distance wasn't correct:" + distance, distance < 9500);
     }
 
+    @Test
+    public void testBatchPostQuery() {
+        String jsonStr = "[{ \"points\": [[1.536198,42.554851], [1.548128, 42.510071]] }," +
+                " { \"points\": [[1.536198,42.554851], [1.548128, 42.510071]], \"instructions\": false }," +
+                " { \"points\": [[1.536198,42.554851], [1.548128, 12.510071]] }]";
+        final Response response = app.client().target("http://localhost:8080/route/batch").request().post(Entity.json(jsonStr));
+        assertEquals(200, response.getStatus());
+        JsonNode responses = response.readEntity(JsonNode.class).get("responses");
+        assertEquals(3, responses.size());
+        double distance = responses.get(0).get("paths").get(0).get("distance").asDouble();
+        assertTrue("distance wasn't correct:" + distance, distance > 9000);
+        assertTrue("distance wasn't correct:" + distance, distance < 9500);
+        assertTrue(responses.get(0).get("paths").get(0).has("instructions"));
+        assertEquals(distance, responses.get(1).get("paths").get(0).get("distance").asDouble(), 1.e-3);
+        assertFalse(responses.get(1).get("paths").get(0).has("instructions"));
+        assertTrue(responses.get(2).get("message").asText(), responses.get(2).get("message").asText().contains("out of bounds"));
+    }
+
+    @Test
+    public void testBatchPostQueryWithInvalidRequests() {
+        String jsonStr = "[{ \"points\": [[1.536198,42.554851], [1.548128, 42.510071]] }," +
+                " { \"points\": [[1.536198,42.554851], [1.548128, 42.510071]], \"elevation\": true }," +
+                " { \"points\": [] }]";
+        final Response response = app.client().target("http://localhost:8080/route/batch").request().post(Entity.json(jsonStr));
+        assertEquals(200, response.getStatus());
+        JsonNode responses = response.readEntity(JsonNode.class).get("responses");
+        assertEquals(3, responses.size());
+        assertTrue(responses.get(0).has("paths"));
+        assertEquals("Elevation not supported!", responses.get(1).get("message").asText());
+        assertEquals("You have to pass at least one point", responses.get(2).get("message").asText());
+    }
+
+    @Test
+    public void testBatchPostQueryAboveMaxBatchSize() {
+        String jsonStr = "[{ \"points\": [[1.536198,42.554851], [1.548128, 42.510071]] }," +
+                " { \"points\": [[1.536198,42.554851], [1.548128, 42.510071]] }," +
+                " { \"points\": [[1.536198,42.554851], [1.548128, 42.510071]] }," +
+                " { \"points\": [[1.536198,42.554851], [1.548128, 42.510071]] }]";
+        final Response response = app.client().target("http://localhost:8080/route/batch").request().post(Entity.json(jsonStr));
+        assertEquals(400, response.getStatus());
+        JsonNode json = response.readEntity(JsonNode.class);
+        assertTrue(json.get("message").asText(), json.get("message").asText().contains("has to be below or equal to:3"));
+    }
+
     @Test
     public void testWrongPointFormat() {
         final Response response = app.client().target("http://localhost:8080/route?point=1234&point=42.510071,1.548128").request().buildGet().invoke();
@@ -197,6 +243,51 @@ public class RouteResourceTest {
         assertEquals(false, instructions.get(22).getExtraInfoJSON().get("exited"));
     }
 
+    @Test
+    public void testGraphHopperWebProtobuf() {
+        GHRequest request = new GHRequest().
+                addPoint(new GHPoint(42.554851, 1.536198)).
+                addPoint(new GHPoint(42.531896, 1.553278)).
+                addPoint(new GHPoint(42.510071, 1.548128));
+        request.setPathDetails(Arrays.asList("average_speed", "edge_id"));
+        GHResponse jsonRsp = new GraphHopperWeb("http://localhost:8080/route").route(request);
+        GraphHopperWeb hopper = new GraphHopperWeb("http://localhost:8080/route").setProtobuf(true);
+        GHResponse rsp = hopper.route(request);
+        assertFalse(rsp.getErrors().toString(), rsp.hasErrors());
+
+        PathWrapper expected = jsonRsp.getBest();
+        PathWrapper arsp = rsp.getBest();
+        assertEquals(expected.getDistance(), arsp.getDistance(), 1e-6);
+        assertEquals(expected.getTime(), arsp.getTime());
+        assertEquals(expected.getPoints().size(), arsp.getPoints().size());
+        assertEquals(expected.getWaypoints().size(), arsp.getWaypoints().size());
+        assertEquals(expected.getPoints().getLat(10), arsp.getPoints().getLat(10), 1e-5);
+        InstructionList instructions = arsp.getInstructions();
+        assertEquals(24, instructions.size());
+        assertEquals("Continue onto la Callisa", instructions.get(0).getTurnDescription(null));
+        assertEquals("At roundabout, take exit 2", instructions.get(4).getTurnDescription(null));
+        assertEquals(true, instructions.get(4).getExtraInfoJSON().get("exited"));
+        for (String detail : Arrays.asList("average_speed", "edge_id")) {
+            List<PathDetail> expectedDetails = expected.getPathDetails().get(detail);
+            List<PathDetail> details = arsp.getPathDetails().get(detail);
+            assertEquals(expectedDetails.size(), details.size());
+            for (int i = 0; i < details.size(); i++) {
+                assertEquals(expectedDetails.get(i).getValue(), details.get(i).getValue());
+                assertEquals(expectedDetails.get(i).getFirst(), details.get(i).getFirst());
+                assertEquals(expectedDetails.get(i).getLast(), details.get(i).getLast());
+            }
+        }
+
+        final Response response = app.client().target("http://localhost:8080/route?point=42.554851,1.536198&point=42.510071,1.548128").
+                request(GHResponseProtobuf.MEDIA_TYPE).buildGet().invoke();
+        assertEquals(200, response.getStatus());
+        assertEquals(GHResponseProtobuf.MEDIA_TYPE, response.getMediaType().toString());
+
+        // the errors are JSON
+        rsp = hopper.route(new GHRequest(0.0, 0.0, 0.0, 0.0));
+        assertTrue(rsp.getErrors().get(0) instanceof PointOutOfBoundsException);
+    }
+
     @Test
     public void testPathDetailsRoadClass() {
         GraphHopperAPI hopper = new com.graphhopper.api.GraphHopperWeb();
@@ -0,0 +1,77 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http.resources;
+
+import com.graphhopper.http.GraphHopperApplication;
+import com.graphhopper.http.GraphHopperServerConfiguration;
+import com.graphhopper.util.CmdArgs;
+import com.graphhopper.util.Helper;
+import io.dropwizard.testing.junit.DropwizardAppRule;
+import org.junit.AfterClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import javax.ws.rs.core.Response;
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SPTResourceCHTest {
+    private static final String DIR = "./target/spt-ch-gh/";
+
+    private static final GraphHopperServerConfiguration config = new GraphHopperServerConfiguration();
+
+    static {
+        config.getGraphHopperConfiguration().merge(new CmdArgs().
+                put("prepare.ch.weightings", "fastest").
+                put("graph.flag_encoders", "car").
+                put("datareader.file", "../core/files/andorra.osm.pbf").
+                put("graph.location", DIR));
+    }
+
+    @ClassRule
+    public static final DropwizardAppRule<GraphHopperServerConfiguration> app = new DropwizardAppRule<>(
+            GraphHopperApplication.class, config);
+
+    @AfterClass
+    public static void cleanUp() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    @Test
+    public void requestSPT() {
+        String[] lines = requestLines("point=42.531073,1.573792&time_limit=300");
+        assertTrue(lines.length > 500);
+        assertEquals("longitude,latitude,time,distance", lines[0]);
+    }
+
+    @Test
+    public void requestSPTWithBlockArea() {
+        // the block area around the start is only considered without CH
+        String[] lines = requestLines("point=42.531073,1.573792&time_limit=300");
+        String[] blockedLines = requestLines("point=42.531073,1.573792&time_limit=300&block_area=42.531073,1.573792,500");
+        assertTrue(blockedLines.length + " vs. " + lines.length, blockedLines.length < lines.length / 2);
+    }
+
+    private String[] requestLines(String query) {
+        Response rsp = app.client().target("http://localhost:8080/spt?" + query).request().buildGet().invoke();
+        assertEquals(200, rsp.getStatus());
+        return rsp.readEntity(String.class).split("\n");
+    }
+}